@@ -30,14 +30,18 @@ import org.jlab.clara.base.core.MessageUtil;
 import org.jlab.clara.base.error.ClaraException;
 import org.jlab.clara.engine.EngineData;
 import org.jlab.clara.engine.EngineDataType;
+import org.jlab.clara.util.ArgUtils;
 import org.jlab.clara.util.report.ReportType;
 import org.jlab.coda.xmsg.core.xMsgMessage;
 import org.jlab.coda.xmsg.core.xMsgTopic;
 import org.jlab.coda.xmsg.data.xMsgM.xMsgMeta;
 import org.jlab.coda.xmsg.excp.xMsgException;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -225,11 +229,29 @@ public final class ClaraRequests {
      */
     public static class DeployServiceRequest extends DeployRequest<DeployServiceRequest> {
 
+        // the defaults of the optional fields of the request, in order
+        private static final Object[] OPTION_DEFAULTS = {
+            1, 0L, false, 0L, false, 0, 0L,
+            ClaraConstants.UNDEFINED, ClaraConstants.UNDEFINED, 0, 1,
+        };
+
         private final ServiceName service;
         private final String classPath;
 
         private String initialState = ClaraConstants.UNDEFINED;
 
+        private int batchSize = 1;
+        private long batchTimeout = 0;
+        private boolean prototypeEngine = false;
+        private long executionDeadline = 0;
+        private boolean replaceStuckEngines = false;
+        private int warmUpIterations = 0;
+        private long warmUpTime = 0;
+        private String warmUpSampleType = ClaraConstants.UNDEFINED;
+        private String warmUpSampleFile = ClaraConstants.UNDEFINED;
+        private int maxConcurrency = 0;
+        private int schedulingWeight = 1;
+
         DeployServiceRequest(ClaraBase base, ClaraComponent frontEnd,
                              ServiceName service, String classPath) {
             super(base, frontEnd, getDpeTopic(service));
@@ -248,15 +270,179 @@ public final class ClaraRequests {
             return self();
         }
 
+        /**
+         * Enables batch execution for the started service.
+         * The service will collect up to <code>batchSize</code> execute requests,
+         * waiting at most the given timeout for new requests,
+         * and it will process all of them with a single call to
+         * {@link org.jlab.clara.engine.Engine#executeGroup executeGroup}.
+         *
+         * @param batchSize the maximum number of requests in a batch
+         * @param timeout the maximum time to wait for requests to fill a batch
+         * @param unit the unit of the timeout
+         * @return this object, so methods can be chained
+         */
+        public DeployServiceRequest withBatching(int batchSize, long timeout, TimeUnit unit) {
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+            }
+            if (timeout < 0) {
+                throw new IllegalArgumentException("Invalid batch timeout: " + timeout);
+            }
+            this.batchSize = batchSize;
+            this.batchTimeout = unit.toMicros(timeout);
+            return self();
+        }
+
+        /**
+         * Creates a new engine instance for each thread of the started service.
+         * By default, all threads share the same engine instance,
+         * and the engine must be thread-safe.
+         * With this option, every engine is used by a single thread,
+         * and every engine is configured with the same configuration data.
+         *
+         * @return this object, so methods can be chained
+         */
+        public DeployServiceRequest withPrototypeEngine() {
+            this.prototypeEngine = true;
+            return self();
+        }
+
+        /**
+         * Sets a deadline for the execution of each request of the started
+         * service. The DPE reports the requests that exceed the deadline
+         * as overruns, and it can replace the stuck engine with a new one,
+         * to keep the throughput of the service.
+         * Stuck engines cannot be replaced if the DPE runs all services
+         * on a shared pool.
+         *
+         * @param deadline the maximum execution time of a request,
+         *                 at least one millisecond
+         * @param unit the unit of the deadline
+         * @param replaceStuckEngines if stuck engines should be replaced
+         * @return this object, so methods can be chained
+         * @see ClaraSubscriptions.ServiceSubscriptionBuilder#overruns()
+         */
+        public DeployServiceRequest withExecutionDeadline(long deadline, TimeUnit unit,
+                                                          boolean replaceStuckEngines) {
+            if (deadline <= 0 || unit.toMillis(deadline) == 0) {
+                throw new IllegalArgumentException("Invalid deadline: " + deadline);
+            }
+            this.executionDeadline = unit.toMillis(deadline);
+            this.replaceStuckEngines = replaceStuckEngines;
+            return self();
+        }
+
+        /**
+         * Warms up the engine of the started service before the service is
+         * registered. The engine is executed with sample data for the given
+         * number of iterations or the given time, whichever limit is reached
+         * first, so the first requests do not run with unoptimized code.
+         * A zero value means no limit, but at least one limit must be set.
+         * With {@link #withPrototypeEngine}, every engine is warmed up,
+         * including the engines added later to resize the pool or to replace
+         * stuck engines.
+         * <p>
+         * The sample data is provided by the engine, which must implement
+         * {@link org.jlab.clara.engine.WarmUpSource}, unless a recorded sample
+         * is set with {@link #withWarmUpSample}.
+         * The warm-up time is published in the runtime report of the service.
+         *
+         * @param iterations the maximum number of warm-up executions
+         * @param duration the maximum time of the warm-up, if not zero
+         *                 at least one millisecond
+         * @param unit the unit of the duration
+         * @return this object, so methods can be chained
+         */
+        public DeployServiceRequest withWarmUp(int iterations, long duration, TimeUnit unit) {
+            long time = unit.toMillis(duration);
+            if (iterations < 0 || duration < 0 || (duration > 0 && time == 0)
+                    || (iterations == 0 && duration == 0)) {
+                throw new IllegalArgumentException("Invalid warm-up limits");
+            }
+            this.warmUpIterations = iterations;
+            this.warmUpTime = time;
+            return self();
+        }
+
+        /**
+         * Uses a recorded sample as the input data of the warm-up executions.
+         * The file must contain the serialized data of the given mime-type,
+         * and it must be readable by the DPE.
+         *
+         * @param mimeType the mime-type of the sample data
+         * @param sampleFile the path to the sample file in the DPE node
+         * @return this object, so methods can be chained
+         */
+        public DeployServiceRequest withWarmUpSample(String mimeType, String sampleFile) {
+            ArgUtils.requireNonEmpty(mimeType, "mime-type");
+            ArgUtils.requireNonEmpty(sampleFile, "sample file");
+            this.warmUpSampleType = mimeType;
+            this.warmUpSampleFile = sampleFile;
+            return self();
+        }
+
+        /**
+         * Sets how the started service shares the cores of the DPE with the
+         * other services, when the DPE runs all services on a shared pool.
+         * The service runs at most the given number of requests in parallel,
+         * and its weight sets how many requests an engine processes before
+         * yielding the thread to the other services with pending requests.
+         * Ignored if the DPE uses a dedicated pool for every service.
+         *
+         * @param maxConcurrency the maximum number of requests running in
+         *                       parallel, or 0 for no limit other than the
+         *                       pool size of the service
+         * @param weight the share of the service, relative to the default
+         *               weight of 1
+         * @return this object, so methods can be chained
+         */
+        public DeployServiceRequest withScheduling(int maxConcurrency, int weight) {
+            if (maxConcurrency < 0) {
+                throw new IllegalArgumentException("Invalid concurrency: " + maxConcurrency);
+            }
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Invalid weight: " + weight);
+            }
+            this.maxConcurrency = maxConcurrency;
+            this.schedulingWeight = weight;
+            return self();
+        }
+
+        /**
+         * The optional fields are appended only up to the last one that is
+         * not set to its default value, so DPEs that do not support them
+         * can still start services with the default options.
+         */
         @Override
         String getData() {
-            return MessageUtil.buildData(ClaraConstants.START_SERVICE,
-                                         service.container().name(),
-                                         service.name(),
-                                         classPath,
-                                         poolSize,
-                                         description,
-                                         initialState);
+            Object[] options = {
+                batchSize,
+                batchTimeout,
+                prototypeEngine,
+                executionDeadline,
+                replaceStuckEngines,
+                warmUpIterations,
+                warmUpTime,
+                warmUpSampleType,
+                warmUpSampleFile,
+                maxConcurrency,
+                schedulingWeight,
+            };
+            int length = options.length;
+            while (length > 0 && options[length - 1].equals(OPTION_DEFAULTS[length - 1])) {
+                length--;
+            }
+            List<Object> data = new ArrayList<>();
+            data.add(ClaraConstants.START_SERVICE);
+            data.add(service.container().name());
+            data.add(service.name());
+            data.add(classPath);
+            data.add(poolSize);
+            data.add(description);
+            data.add(initialState);
+            data.addAll(Arrays.asList(options).subList(0, length));
+            return MessageUtil.buildData(data.toArray());
         }
     }
 
@@ -425,6 +611,165 @@ public final class ClaraRequests {
         }
     }
 
+    /**
+     * A request to setup the batch execution of a service.
+     */
+    public static class ServiceBatchRequest extends DataRequest<ServiceBatchRequest> {
+
+        private final String data;
+
+        ServiceBatchRequest(ClaraBase base, ClaraComponent frontEnd,
+                            ServiceName service, int batchSize, long batchTimeout) {
+            super(base, frontEnd, service.canonicalName());
+            data = MessageUtil.buildData(ClaraConstants.SERVICE_BATCH, batchSize, batchTimeout);
+        }
+
+        @Override
+        String getData() {
+            return data;
+        }
+    }
+
+    /**
+     * A request to setup the chain fusion of a service.
+     */
+    public static class ServiceFusionRequest extends DataRequest<ServiceFusionRequest> {
+
+        private final String data;
+
+        ServiceFusionRequest(ClaraBase base, ClaraComponent frontEnd,
+                             ServiceName service, boolean enable) {
+            super(base, frontEnd, service.canonicalName());
+            data = MessageUtil.buildData(ClaraConstants.SERVICE_FUSION, enable ? 1 : 0);
+        }
+
+        @Override
+        String getData() {
+            return data;
+        }
+    }
+
+    /**
+     * A request to change the pool size of a running service.
+     */
+    public static class ServicePoolRequest extends DataRequest<ServicePoolRequest> {
+
+        private final String data;
+
+        ServicePoolRequest(ClaraBase base, ClaraComponent frontEnd,
+                           ServiceName service, int poolSize) {
+            super(base, frontEnd, service.canonicalName());
+            data = MessageUtil.buildData(ClaraConstants.SERVICE_POOL_SIZE, poolSize);
+        }
+
+        @Override
+        String getData() {
+            return data;
+        }
+    }
+
+    /**
+     * A request to setup the recycling of request containers of a service.
+     */
+    public static class ServiceRecyclingRequest extends DataRequest<ServiceRecyclingRequest> {
+
+        private final String data;
+
+        ServiceRecyclingRequest(ClaraBase base, ClaraComponent frontEnd,
+                                ServiceName service, boolean enable) {
+            super(base, frontEnd, service.canonicalName());
+            data = MessageUtil.buildData(ClaraConstants.SERVICE_RECYCLING, enable ? 1 : 0);
+        }
+
+        @Override
+        String getData() {
+            return data;
+        }
+    }
+
+    /**
+     * A request to setup the persistent connections of a service.
+     */
+    public static class ServiceConnectionsRequest extends DataRequest<ServiceConnectionsRequest> {
+
+        private final String data;
+
+        ServiceConnectionsRequest(ClaraBase base, ClaraComponent frontEnd,
+                                  ServiceName service, boolean enable) {
+            super(base, frontEnd, service.canonicalName());
+            data = MessageUtil.buildData(ClaraConstants.SERVICE_CONNECTIONS, enable ? 1 : 0);
+        }
+
+        @Override
+        String getData() {
+            return data;
+        }
+    }
+
+    /**
+     * A request to setup the execution deadline of a service.
+     */
+    public static class ServiceDeadlineRequest extends DataRequest<ServiceDeadlineRequest> {
+
+        private final String data;
+
+        ServiceDeadlineRequest(ClaraBase base, ClaraComponent frontEnd,
+                               ServiceName service, long deadline, boolean replace) {
+            super(base, frontEnd, service.canonicalName());
+            data = MessageUtil.buildData(ClaraConstants.SERVICE_DEADLINE,
+                                         deadline, replace ? 1 : 0);
+        }
+
+        @Override
+        String getData() {
+            return data;
+        }
+    }
+
+    /**
+     * A request to setup the profiling of the requests of a service.
+     */
+    public static class ServiceProfilingRequest extends DataRequest<ServiceProfilingRequest> {
+
+        private final String data;
+
+        ServiceProfilingRequest(ClaraBase base, ClaraComponent frontEnd,
+                                ServiceName service, boolean enable) {
+            super(base, frontEnd, service.canonicalName());
+            data = MessageUtil.buildData(ClaraConstants.SERVICE_PROFILING, enable ? 1 : 0);
+        }
+
+        @Override
+        String getData() {
+            return data;
+        }
+    }
+
+    /**
+     * A request to setup the compression of the output data of a service.
+     */
+    public static class ServiceCompressionRequest
+            extends DataRequest<ServiceCompressionRequest> {
+
+        private final String data;
+
+        ServiceCompressionRequest(ClaraBase base, ClaraComponent frontEnd,
+                                  ServiceName service, String codec, int minSize) {
+            super(base, frontEnd, service.canonicalName());
+            if (codec != null) {
+                data = MessageUtil.buildData(ClaraConstants.SERVICE_COMPRESSION, 1,
+                                             codec, minSize);
+            } else {
+                data = MessageUtil.buildData(ClaraConstants.SERVICE_COMPRESSION, 0);
+            }
+        }
+
+        @Override
+        String getData() {
+            return data;
+        }
+    }
+
     /**
      * Builds a request to configure a service.
      * A service can be configured with data,
@@ -519,6 +864,244 @@ public final class ClaraRequests {
         ServiceReportRequest startDataRingReporting() {
             return new ServiceReportRequest(base, frontEnd, service, ReportType.RING, 1);
         }
+
+        /**
+         * Creates a request to start processing the execute requests of the
+         * specified service in batches.
+         * Configures the service to collect up to <code>batchSize</code>
+         * requests, waiting at most the given timeout for new requests,
+         * and to process all of them with a single call to
+         * {@link org.jlab.clara.engine.Engine#executeGroup executeGroup}.
+         * If the service does not exist, the message is lost.
+         *
+         * @param batchSize the maximum number of requests in a batch
+         * @param timeout the maximum time to wait for requests to fill a batch
+         * @param unit the unit of the timeout
+         * @return a service configuration request to be run
+         */
+        public ServiceBatchRequest startBatching(int batchSize, long timeout, TimeUnit unit) {
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+            }
+            if (timeout < 0) {
+                throw new IllegalArgumentException("Invalid batch timeout: " + timeout);
+            }
+            return new ServiceBatchRequest(base, frontEnd, service,
+                                           batchSize, unit.toMicros(timeout));
+        }
+
+        /**
+         * Creates a request to stop processing the execute requests of the
+         * specified service in batches.
+         * Configures the service to process every request individually.
+         * If the service does not exist, the message is lost.
+         *
+         * @return a service configuration request to be run
+         */
+        public ServiceBatchRequest stopBatching() {
+            return new ServiceBatchRequest(base, frontEnd, service, 1, 0);
+        }
+
+        /**
+         * Creates a request to start running the next service of the
+         * composition in the same thread as the specified service.
+         * Configures the service to execute the output of every request with
+         * an idle engine of the next service, when the composition has a single
+         * link to a service running in the same DPE, instead of queuing it.
+         * Otherwise the output is routed normally.
+         * If the service does not exist, the message is lost.
+         *
+         * @return a service configuration request to be run
+         */
+        public ServiceFusionRequest startChainFusion() {
+            return new ServiceFusionRequest(base, frontEnd, service, true);
+        }
+
+        /**
+         * Creates a request to stop running the next service of the
+         * composition in the same thread as the specified service.
+         * Configures the service to queue its outputs to the next services.
+         * If the service does not exist, the message is lost.
+         *
+         * @return a service configuration request to be run
+         */
+        public ServiceFusionRequest stopChainFusion() {
+            return new ServiceFusionRequest(base, frontEnd, service, false);
+        }
+
+        /**
+         * Creates a request to change the number of engines and threads
+         * used by the specified service to process requests.
+         * The new size is bounded by the maximum number of cores that a
+         * service can use in the DPE.
+         * Requests being processed when the pool shrinks are not dropped.
+         * If the service does not exist, the message is lost.
+         *
+         * @param poolSize the new size of the pool
+         * @return a service configuration request to be run
+         */
+        public ServicePoolRequest withPoolSize(int poolSize) {
+            if (poolSize <= 0) {
+                throw new IllegalArgumentException("Invalid pool size: " + poolSize);
+            }
+            return new ServicePoolRequest(base, frontEnd, service, poolSize);
+        }
+
+        /**
+         * Creates a request to start recycling the containers of the requests
+         * received by the specified service.
+         * Every engine of the service reuses the same {@link EngineData}
+         * object for the input data of its requests, and the same metadata
+         * for the outputs sent through shared memory, instead of creating new
+         * ones for each request.
+         * The engine must not keep references to the input data after its
+         * {@link org.jlab.clara.engine.Engine#execute execute} method returns,
+         * unless it returns the input data as the result.
+         * Group executions are not affected.
+         * If the service does not exist, the message is lost.
+         *
+         * @return a service configuration request to be run
+         */
+        public ServiceRecyclingRequest startRecycling() {
+            return new ServiceRecyclingRequest(base, frontEnd, service, true);
+        }
+
+        /**
+         * Creates a request to stop recycling the containers of the requests
+         * received by the specified service.
+         * If the service does not exist, the message is lost.
+         *
+         * @return a service configuration request to be run
+         */
+        public ServiceRecyclingRequest stopRecycling() {
+            return new ServiceRecyclingRequest(base, frontEnd, service, false);
+        }
+
+        /**
+         * Creates a request to start using persistent connections to publish
+         * the messages of the specified service.
+         * Every execution thread of the service keeps its own connection to
+         * each destination proxy, instead of checking out a connection from
+         * the shared pool for every message.
+         * Connections that fail are replaced, and all of them are closed
+         * when the service is stopped.
+         * This reduces the contention on the pool for services that send
+         * many messages to many destinations.
+         * If the service does not exist, the message is lost.
+         *
+         * @return a service configuration request to be run
+         */
+        public ServiceConnectionsRequest startPersistentConnections() {
+            return new ServiceConnectionsRequest(base, frontEnd, service, true);
+        }
+
+        /**
+         * Creates a request to stop using persistent connections to publish
+         * the messages of the specified service.
+         * The connections are returned to the pool by each thread
+         * when it sends its next message.
+         * If the service does not exist, the message is lost.
+         *
+         * @return a service configuration request to be run
+         */
+        public ServiceConnectionsRequest stopPersistentConnections() {
+            return new ServiceConnectionsRequest(base, frontEnd, service, false);
+        }
+
+        /**
+         * Creates a request to set a deadline for the execution of each
+         * request of the specified service.
+         * The DPE reports the requests that exceed the deadline as overruns,
+         * and it can replace the stuck engine with a new one, to keep the
+         * throughput of the service.
+         * The stuck engine is removed from the service when its execution
+         * returns.
+         * Stuck engines cannot be replaced if the DPE runs all services
+         * on a shared pool.
+         * If the service does not exist, the message is lost.
+         *
+         * @param deadline the maximum execution time of a request,
+         *                 at least one millisecond
+         * @param unit the unit of the deadline
+         * @param replaceStuckEngines if stuck engines should be replaced
+         * @return a service configuration request to be run
+         * @see ClaraSubscriptions.ServiceSubscriptionBuilder#overruns()
+         */
+        public ServiceDeadlineRequest withExecutionDeadline(long deadline, TimeUnit unit,
+                                                            boolean replaceStuckEngines) {
+            if (deadline <= 0 || unit.toMillis(deadline) == 0) {
+                throw new IllegalArgumentException("Invalid deadline: " + deadline);
+            }
+            return new ServiceDeadlineRequest(base, frontEnd, service,
+                                              unit.toMillis(deadline), replaceStuckEngines);
+        }
+
+        /**
+         * Creates a request to remove the execution deadline of the
+         * specified service.
+         * If the service does not exist, the message is lost.
+         *
+         * @return a service configuration request to be run
+         */
+        public ServiceDeadlineRequest withoutExecutionDeadline() {
+            return new ServiceDeadlineRequest(base, frontEnd, service, 0, false);
+        }
+
+        /**
+         * Creates a request to start measuring the CPU time and the memory
+         * allocated by the engine of the specified service on each request.
+         * The totals are published in the runtime report of the service.
+         * The allocated memory is only measured on JVMs that support it.
+         * If the service does not exist, the message is lost.
+         *
+         * @return a service configuration request to be run
+         */
+        public ServiceProfilingRequest startProfiling() {
+            return new ServiceProfilingRequest(base, frontEnd, service, true);
+        }
+
+        /**
+         * Creates a request to stop measuring the CPU time and the memory
+         * allocated by the engine of the specified service.
+         * If the service does not exist, the message is lost.
+         *
+         * @return a service configuration request to be run
+         */
+        public ServiceProfilingRequest stopProfiling() {
+            return new ServiceProfilingRequest(base, frontEnd, service, false);
+        }
+
+        /**
+         * Creates a request to start compressing the output data that the
+         * specified service sends to services running in other nodes.
+         * Data sent to services in the same node, data smaller than the given
+         * size, and data that cannot be compressed are sent as they are.
+         * The codec must be registered in the DPEs of the receivers.
+         * If the service does not exist, the message is lost.
+         *
+         * @param codec the name of the codec
+         * @param minSize the minimum size of the serialized data to be compressed
+         * @return a service configuration request to be run
+         * @see org.jlab.clara.base.core.DataCodecs
+         */
+        public ServiceCompressionRequest startCompression(String codec, int minSize) {
+            ArgUtils.requireNonEmpty(codec, "codec");
+            if (minSize < 0) {
+                throw new IllegalArgumentException("Invalid minimum size: " + minSize);
+            }
+            return new ServiceCompressionRequest(base, frontEnd, service, codec, minSize);
+        }
+
+        /**
+         * Creates a request to stop compressing the output data of the
+         * specified service.
+         * If the service does not exist, the message is lost.
+         *
+         * @return a service configuration request to be run
+         */
+        public ServiceCompressionRequest stopCompression() {
+            return new ServiceCompressionRequest(base, frontEnd, service, null, 0);
+        }
     }
 
     /**
@@ -291,6 +291,21 @@ public class ClaraSubscriptions {
                                            getTopic(status.toString(), component));
         }
 
+        /**
+         * A subscription to the execution overrun reports of the selected service.
+         * <p>
+         * Services with an execution deadline will publish an overrun report
+         * when a request exceeds the deadline. The report has an error status,
+         * the communication id of the request, and the stack trace of the
+         * stuck engine as data.
+         *
+         * @return a service subscription to listen overrun reports
+         */
+        public ServiceSubscription overruns() {
+            return new ServiceSubscription(base, subscriptions, dataTypes, frontEnd,
+                                           getTopic(ClaraConstants.OVERRUN, component));
+        }
+
         /**
          * A subscription to the "done" reports of the selected service.
          * <p>
@@ -0,0 +1,120 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+package org.jlab.clara.base;
+
+import org.jlab.clara.util.report.LatencyHistogram;
+import org.json.JSONObject;
+
+/**
+ * The latency distribution of some activity of a running service.
+ * All values are in microseconds, and they cover all the requests processed
+ * by the service since it was deployed.
+ */
+public class LatencyData {
+
+    private final JSONObject json;
+
+    private final long count;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    LatencyData(JSONObject json) {
+        JSONObject data = json != null ? json : new JSONObject();
+        this.json = data;
+        this.count = data.optLong("count");
+        this.p50 = data.optLong("p50");
+        this.p90 = data.optLong("p90");
+        this.p99 = data.optLong("p99");
+        this.p999 = data.optLong("p999");
+        this.max = data.optLong("max");
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return the number of values in the distribution
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Gets the median of the distribution.
+     *
+     * @return the 50th percentile, in microseconds
+     */
+    public long p50() {
+        return p50;
+    }
+
+    /**
+     * Gets the 90th percentile of the distribution.
+     *
+     * @return the 90th percentile, in microseconds
+     */
+    public long p90() {
+        return p90;
+    }
+
+    /**
+     * Gets the 99th percentile of the distribution.
+     *
+     * @return the 99th percentile, in microseconds
+     */
+    public long p99() {
+        return p99;
+    }
+
+    /**
+     * Gets the 99.9th percentile of the distribution.
+     *
+     * @return the 99.9th percentile, in microseconds
+     */
+    public long p999() {
+        return p999;
+    }
+
+    /**
+     * Gets the maximum recorded value.
+     *
+     * @return the maximum value, in microseconds
+     */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * Gets the distribution of the values recorded after an earlier report.
+     *
+     * @param earlier the latency data of an earlier report of the same service
+     * @return the distribution of the values recorded between both reports
+     */
+    public LatencyData since(LatencyData earlier) {
+        LatencyHistogram window = LatencyHistogram.fromJson(json);
+        window.subtract(LatencyHistogram.fromJson(earlier.json));
+        return new LatencyData(window.toJson());
+    }
+}
@@ -36,22 +36,66 @@ public class ServiceRuntimeData implements ClaraReportData<ServiceName> {
     private final LocalDateTime snapshotTime;
     private final long numRequest;
     private final long numFailures;
+    private final long numOverruns;
     private final long shmReads;
     private final long shmWrites;
+    private final long localDispatches;
     private final long bytesRecv;
     private final long bytesSent;
+    private final long codecBytesIn;
+    private final long codecBytesOut;
+    private final long codecTime;
+    private final long connCheckouts;
+    private final long connReuses;
+    private final long connFailures;
+    private final long reportsDropped;
+    private final long reportsCoalesced;
+    private final long reportsSuppressed;
     private final long execTime;
+    private final long profiledRequests;
+    private final long cpuTime;
+    private final long allocBytes;
+    private final long warmUpRequests;
+    private final long warmUpTime;
+    private final int queueSize;
+    private final LatencyData execLatency;
+    private final LatencyData queueLatency;
+    private final LatencyData serLatency;
+    private final LatencyData checkoutLatency;
+    private final LatencyData controlLatency;
 
     ServiceRuntimeData(JSONObject json) {
         this.name = new ServiceName(json.getString("name"));
         this.snapshotTime = JsonUtils.getDate(json, "snapshot_time");
         this.numRequest = json.optLong("n_requests");
         this.numFailures = json.optLong("n_failures");
+        this.numOverruns = json.optLong("n_overruns");
         this.shmReads = json.optLong("shm_reads");
         this.shmWrites = json.optLong("shm_writes");
+        this.localDispatches = json.optLong("local_dispatches");
         this.bytesRecv = json.optLong("bytes_recv");
         this.bytesSent = json.optLong("bytes_sent");
+        this.codecBytesIn = json.optLong("codec_bytes_in");
+        this.codecBytesOut = json.optLong("codec_bytes_out");
+        this.codecTime = json.optLong("codec_time");
+        this.connCheckouts = json.optLong("conn_checkouts");
+        this.connReuses = json.optLong("conn_reuses");
+        this.connFailures = json.optLong("conn_failures");
+        this.reportsDropped = json.optLong("reports_dropped");
+        this.reportsCoalesced = json.optLong("reports_coalesced");
+        this.reportsSuppressed = json.optLong("reports_suppressed");
         this.execTime = json.optLong("exec_time");
+        this.profiledRequests = json.optLong("profiled_requests");
+        this.cpuTime = json.optLong("cpu_time");
+        this.allocBytes = json.optLong("alloc_bytes");
+        this.warmUpRequests = json.optLong("warmup_requests");
+        this.warmUpTime = json.optLong("warmup_time");
+        this.queueSize = json.optInt("queue_size");
+        this.execLatency = new LatencyData(json.optJSONObject("exec_latency"));
+        this.queueLatency = new LatencyData(json.optJSONObject("queue_latency"));
+        this.serLatency = new LatencyData(json.optJSONObject("ser_latency"));
+        this.checkoutLatency = new LatencyData(json.optJSONObject("checkout_latency"));
+        this.controlLatency = new LatencyData(json.optJSONObject("control_latency"));
     }
 
     @Override
@@ -91,6 +135,19 @@ public class ServiceRuntimeData implements ClaraReportData<ServiceName> {
         return numFailures;
     }
 
+
+    /**
+     * Gets the total number of requests that exceeded the execution deadline
+     * of the service.
+     * An overrun is counted when it is detected, even if the request
+     * eventually finishes.
+     *
+     * @return the accumulated number of execution overruns
+     */
+    public long numOverruns() {
+        return numOverruns;
+    }
+
     /**
      * Gets the total number of requests received by the service through the
      * shared memory of the DPE.
@@ -122,6 +179,17 @@ public class ServiceRuntimeData implements ClaraReportData<ServiceName> {
         return shmWrites;
     }
 
+    /**
+     * Gets the total number of requests sent by the service directly to the
+     * queue of services running in the same DPE, without using the proxy.
+     * This is the number of all requests sent since the service was deployed.
+     *
+     * @return the accumulated number of requests dispatched locally
+     */
+    public long localDispatches() {
+        return localDispatches;
+    }
+
     /**
      * Gets the total amount of bytes received by the service through the
      * network.
@@ -153,6 +221,114 @@ public class ServiceRuntimeData implements ClaraReportData<ServiceName> {
         return bytesSent;
     }
 
+    /**
+     * Gets the total amount of bytes compressed by the service.
+     * This is the sum of the size of the serialized output data sent
+     * compressed to services in other nodes since the service was deployed.
+     *
+     * @return the accumulated amount of bytes before compression
+     */
+    public long compressedBytesIn() {
+        return codecBytesIn;
+    }
+
+    /**
+     * Gets the total amount of compressed bytes sent by the service.
+     * This is the sum of the size of the compressed output data sent
+     * to services in other nodes since the service was deployed.
+     *
+     * @return the accumulated amount of bytes after compression
+     */
+    public long compressedBytesOut() {
+        return codecBytesOut;
+    }
+
+    /**
+     * Gets the compression ratio of the output data of the service.
+     * This is the ratio between the size of the data before and after
+     * compression, for all the data compressed since the service was deployed.
+     *
+     * @return the compression ratio, or 1 if no data has been compressed
+     */
+    public double compressionRatio() {
+        if (codecBytesOut == 0) {
+            return 1;
+        }
+        return (double) codecBytesIn / codecBytesOut;
+    }
+
+    /**
+     * Gets the total time spent by the service compressing output data
+     * and decompressing input data.
+     *
+     * @return the accumulated compression time, in microseconds
+     */
+    public long compressionTime() {
+        return codecTime;
+    }
+
+    /**
+     * Gets the number of connections checked out from the connection pool
+     * by the service to publish messages.
+     * Without persistent connections, every message published through the
+     * network checks out a connection.
+     *
+     * @return the accumulated number of connection checkouts
+     */
+    public long connectionCheckouts() {
+        return connCheckouts;
+    }
+
+    /**
+     * Gets the number of messages published by the service with a persistent
+     * connection, without checking out a connection from the pool.
+     *
+     * @return the accumulated number of reused connections
+     */
+    public long connectionReuses() {
+        return connReuses;
+    }
+
+    /**
+     * Gets the number of connections that failed to publish a message
+     * and were discarded by the service.
+     *
+     * @return the accumulated number of failed connections
+     */
+    public long connectionFailures() {
+        return connFailures;
+    }
+
+    /**
+     * Gets the number of reports that the service could not publish
+     * because the report channel of the DPE was full.
+     *
+     * @return the accumulated number of dropped reports
+     */
+    public long reportsDropped() {
+        return reportsDropped;
+    }
+
+    /**
+     * Gets the number of done reports that were merged into a previous
+     * done report of the service still waiting to be published.
+     *
+     * @return the accumulated number of coalesced done reports
+     */
+    public long reportsCoalesced() {
+        return reportsCoalesced;
+    }
+
+    /**
+     * Gets the number of error and warning reports that were not published
+     * because the same problem had just been reported by the service.
+     *
+     * @return the accumulated number of suppressed problem reports
+     */
+    public long reportsSuppressed() {
+        return reportsSuppressed;
+    }
+
     /**
      * Gets the total execution time of the service.
      * This is the sum of the execution time of all requests processed by the
@@ -163,4 +339,120 @@ public class ServiceRuntimeData implements ClaraReportData<ServiceName> {
     public long executionTime() {
         return execTime;
     }
+
+    /**
+     * Gets the number of requests for which the service measured the
+     * CPU time and the allocated memory of the engine.
+     * Requests are only measured while profiling is enabled for the service.
+     *
+     * @return the accumulated number of profiled requests
+     */
+    public long profiledRequests() {
+        return profiledRequests;
+    }
+
+    /**
+     * Gets the total CPU time used by the engine of the service
+     * on the profiled requests.
+     * An execution time much larger than the CPU time shows that the engine
+     * is blocked on I/O, locks or garbage collection.
+     *
+     * @return the accumulated CPU time, in microseconds
+     */
+    public long cpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * Gets the total memory allocated by the engine of the service
+     * on the profiled requests.
+     *
+     * @return the accumulated amount of allocated bytes
+     */
+    public long allocatedBytes() {
+        return allocBytes;
+    }
+
+    /**
+     * Gets the number of sample executions of the warm-up phase of the
+     * service, before it was registered.
+     * Warm-up executions are not counted as requests.
+     *
+     * @return the number of warm-up executions, or 0 if there was no warm-up
+     */
+    public long warmUpRequests() {
+        return warmUpRequests;
+    }
+
+    /**
+     * Gets the duration of the warm-up phase of the service.
+     *
+     * @return the warm-up time, in microseconds, or 0 if there was no warm-up
+     */
+    public long warmUpTime() {
+        return warmUpTime;
+    }
+
+    /**
+     * Gets the number of requests waiting for a free engine of the service.
+     * This is the size of the queue of pending requests at the time the
+     * runtime data was collected.
+     *
+     * @return the number of queued requests
+     */
+    public int queueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Gets the distribution of the execution time of the requests
+     * processed by the service.
+     *
+     * @return the execution latency percentiles
+     */
+    public LatencyData executionLatency() {
+        return execLatency;
+    }
+
+    /**
+     * Gets the distribution of the time that requests waited in the queue
+     * of the service for a free engine.
+     *
+     * @return the queue latency percentiles
+     */
+    public LatencyData queueLatency() {
+        return queueLatency;
+    }
+
+    /**
+     * Gets the distribution of the time spent serializing and deserializing
+     * the data of the requests processed by the service.
+     *
+     * @return the serialization latency percentiles
+     */
+    public LatencyData serializationLatency() {
+        return serLatency;
+    }
+
+    /**
+     * Gets the distribution of the time spent checking out connections
+     * from the connection pool.
+     * High values show contention on the pool.
+     *
+     * @return the checkout latency percentiles
+     */
+    public LatencyData checkoutLatency() {
+        return checkoutLatency;
+    }
+
+    /**
+     * Gets the distribution of the time that control requests
+     * (i.e. configuration) waited for a free engine of the service.
+     * Control requests are served before the queued execute requests.
+     *
+     * @return the control latency percentiles
+     */
+    public LatencyData controlLatency() {
+        return controlLatency;
+    }
 }
@@ -72,6 +72,14 @@ public final class ClaraConstants {
     public static final String SERVICE_REPORT_DONE = "serviceReportDone";
     public static final String SERVICE_REPORT_DATA = "serviceReportData";
     public static final String SERVICE_REPORT_RING = "serviceReportRing";
+    public static final String SERVICE_BATCH = "serviceBatch";
+    public static final String SERVICE_FUSION = "serviceFusion";
+    public static final String SERVICE_POOL_SIZE = "servicePoolSize";
+    public static final String SERVICE_COMPRESSION = "serviceCompression";
+    public static final String SERVICE_RECYCLING = "serviceRecycling";
+    public static final String SERVICE_CONNECTIONS = "serviceConnections";
+    public static final String SERVICE_PROFILING = "serviceProfiling";
+    public static final String SERVICE_DEADLINE = "serviceDeadline";
 
     public static final String SET_FRONT_END = "setFrontEnd";
     public static final String SET_FRONT_END_REMOTE = "setFrontEndRemote";
@@ -97,6 +105,7 @@ public final class ClaraConstants {
     public static final String INFO = "INFO";
     public static final String WARNING = "WARNING";
     public static final String ERROR = "ERROR";
+    public static final String OVERRUN = "OVERRUN";
     public static final String DONE = "done";
     public static final String DATA = "data";
 
@@ -0,0 +1,63 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.base.core;
+
+import org.jlab.clara.base.error.ClaraException;
+
+/**
+ * Compresses the serialized data of messages sent between DPEs.
+ * <p>
+ * Codecs are registered in {@link DataCodecs} by name. The name of the codec
+ * is sent with the message, so the receiver can find the same codec
+ * to decompress the data.
+ * Implementations must be thread-safe.
+ */
+public interface DataCodec {
+
+    /**
+     * Gets the name of the codec.
+     * It cannot contain spaces or semicolons.
+     *
+     * @return the name that identifies the codec
+     */
+    String name();
+
+    /**
+     * Compresses the given bytes.
+     *
+     * @param data the serialized data
+     * @return the compressed data, with enough information to restore
+     *         the original bytes
+     */
+    byte[] encode(byte[] data);
+
+    /**
+     * Restores the bytes compressed by {@link #encode}.
+     *
+     * @param data the compressed data
+     * @return the original data
+     * @throws ClaraException if the compressed data is corrupted
+     */
+    byte[] decode(byte[] data) throws ClaraException;
+}
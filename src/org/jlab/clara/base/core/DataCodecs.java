@@ -0,0 +1,122 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.base.core;
+
+import org.jlab.clara.base.error.ClaraException;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The registry of compression codecs.
+ * <p>
+ * The {@link #DEFLATE deflate} and {@link #LZ lz} codecs only depend on the
+ * JDK and they are always available. New codecs must be registered in all
+ * the DPEs that exchange data compressed with them.
+ */
+public final class DataCodecs {
+
+    /**
+     * The DEFLATE codec of {@link java.util.zip}, tuned for speed.
+     */
+    public static final DataCodec DEFLATE = new DeflateCodec();
+
+    /**
+     * A fast LZ77 codec, with lower compression ratio than DEFLATE.
+     */
+    public static final DataCodec LZ = new LzCodec();
+
+    /**
+     * The number of bytes used by the codecs to store the size of the
+     * original data at the start of the compressed data.
+     */
+    static final int SIZE_BYTES = 4;
+
+    private static final ConcurrentMap<String, DataCodec> CODECS = new ConcurrentHashMap<>();
+
+    static {
+        register(DEFLATE);
+        register(LZ);
+    }
+
+    private DataCodecs() { }
+
+    /**
+     * Registers a new codec.
+     *
+     * @param codec the codec
+     * @throws IllegalArgumentException if the name of the codec is invalid
+     *         or another codec is already registered with the same name
+     */
+    public static void register(DataCodec codec) {
+        String name = codec.name();
+        if (name.isEmpty() || name.contains(";") || name.contains(" ")) {
+            throw new IllegalArgumentException("Invalid codec name: " + name);
+        }
+        if (CODECS.putIfAbsent(name, codec) != null) {
+            throw new IllegalArgumentException("Codec already registered: " + name);
+        }
+    }
+
+    /**
+     * Gets the codec with the given name.
+     *
+     * @param name the name of the codec
+     * @return the codec, or null if there is no codec with that name
+     */
+    public static DataCodec get(String name) {
+        return CODECS.get(name);
+    }
+
+    static void writeSize(byte[] output, int size) {
+        output[0] = (byte) (size >>> 24);
+        output[1] = (byte) (size >>> 16);
+        output[2] = (byte) (size >>> 8);
+        output[3] = (byte) size;
+    }
+
+    /**
+     * Reads the size of the original data from the start of the compressed
+     * data. The size is checked against the maximum compression ratio of the
+     * codec, so corrupted data cannot make the codec allocate a huge array.
+     *
+     * @param input the compressed data
+     * @param maxRatio the maximum compression ratio of the codec
+     * @return the size of the original data
+     * @throws ClaraException if the size is not valid
+     */
+    static int readSize(byte[] input, int maxRatio) throws ClaraException {
+        if (input.length < SIZE_BYTES) {
+            throw new ClaraException("corrupted compressed data");
+        }
+        int size = ((input[0] & 0xFF) << 24)
+                 | ((input[1] & 0xFF) << 16)
+                 | ((input[2] & 0xFF) << 8)
+                 | (input[3] & 0xFF);
+        if (size < 0 || size > (long) maxRatio * (input.length - SIZE_BYTES)) {
+            throw new ClaraException("corrupted compressed data");
+        }
+        return size;
+    }
+}
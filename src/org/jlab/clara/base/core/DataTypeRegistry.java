@@ -0,0 +1,121 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.base.core;
+
+import org.jlab.clara.engine.EngineDataType;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An indexed table of the data types supported by an engine.
+ * <p>
+ * Every mime-type is interned to a small integer id, shared by all the
+ * engines of the process, when the table is created. Finding the data type
+ * of a message costs a single hash lookup of its mime-type followed by an
+ * array index, instead of comparing the mime-type against all the
+ * supported data types.
+ * <p>
+ * The table is immutable and it can be shared by several threads.
+ */
+public final class DataTypeRegistry {
+
+    private static final ConcurrentMap<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private final EngineDataType[] types;
+
+    /**
+     * Creates the table of the given data types.
+     * The mime-types of all the data types are interned.
+     *
+     * @param dataTypes the data types supported by an engine
+     */
+    public DataTypeRegistry(Set<EngineDataType> dataTypes) {
+        int size = 0;
+        int[] ids = new int[dataTypes.size()];
+        EngineDataType[] values = dataTypes.toArray(new EngineDataType[0]);
+        for (int i = 0; i < values.length; i++) {
+            ids[i] = register(values[i].mimeType());
+            size = Math.max(size, ids[i] + 1);
+        }
+        types = new EngineDataType[size];
+        for (int i = 0; i < values.length; i++) {
+            if (types[ids[i]] == null) {
+                types[ids[i]] = values[i];
+            }
+        }
+    }
+
+    /**
+     * Interns the given mime-type.
+     *
+     * @param mimeType the mime-type
+     * @return the id of the mime-type
+     */
+    public static int register(String mimeType) {
+        Integer id = IDS.get(mimeType);
+        if (id == null) {
+            id = IDS.computeIfAbsent(mimeType, k -> NEXT_ID.getAndIncrement());
+        }
+        return id;
+    }
+
+    /**
+     * Gets the id of the given mime-type, if it was interned.
+     * Unknown mime-types are not interned.
+     *
+     * @param mimeType the mime-type
+     * @return the id of the mime-type, or -1 if it is not registered
+     */
+    public static int idOf(String mimeType) {
+        Integer id = IDS.get(mimeType);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Gets the data type with the given id.
+     *
+     * @param id the id of a mime-type
+     * @return the data type, or null if it is not supported
+     */
+    public EngineDataType get(int id) {
+        if (id < 0 || id >= types.length) {
+            return null;
+        }
+        return types[id];
+    }
+
+    /**
+     * Gets the data type with the given mime-type.
+     *
+     * @param mimeType the mime-type
+     * @return the data type, or null if it is not supported
+     */
+    public EngineDataType find(String mimeType) {
+        return get(idOf(mimeType));
+    }
+}
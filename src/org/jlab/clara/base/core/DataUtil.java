@@ -24,6 +24,8 @@ package org.jlab.clara.base.core;
 
 import org.jlab.clara.base.ClaraUtil;
 import org.jlab.clara.base.error.ClaraException;
+import org.jlab.clara.engine.ByteBufferPool;
+import org.jlab.clara.engine.ClaraSerializer;
 import org.jlab.clara.engine.EngineData;
 import org.jlab.clara.engine.EngineDataType;
 import org.jlab.clara.engine.EngineStatus;
@@ -39,6 +41,10 @@ public final class DataUtil {
 
     private static final EngineDataAccessor DATA_ACCESSOR = EngineDataAccessor.getDefault();
 
+    private static final String CODEC_PARAM = ";codec=";
+
+    private static final String DONE_COUNT = "done_count=";
+
     private DataUtil() { }
 
     public static EngineData buildErrorData(String msg, int severity, Throwable exception) {
@@ -60,6 +66,61 @@ public final class DataUtil {
         return DATA_ACCESSOR.getMetadata(data);
     }
 
+    /**
+     * Checks if the user-data is set, without decoding the received data.
+     *
+     * @param data the engine data
+     * @return true if the user-data is set or it has not been decoded yet
+     */
+    public static boolean hasData(EngineData data) {
+        return DATA_ACCESSOR.hasData(data);
+    }
+
+    /**
+     * Creates a new engine data with a copy of the metadata of the given data
+     * and a different user-data. The original data is not decoded.
+     *
+     * @param data the engine data to be copied
+     * @param mimeType the mime-type of the new user-data
+     * @param userData the new user-data
+     * @return the new engine data
+     */
+    public static EngineData copyWithData(EngineData data, String mimeType, Object userData) {
+        EngineData copy = DATA_ACCESSOR.build(null, DATA_ACCESSOR.getMetadata(data).clone());
+        copy.setData(mimeType, userData);
+        return copy;
+    }
+
+    /**
+     * Gets the number of processed requests represented by a done report.
+     * A service publishes a single done report for several requests when
+     * the front-end cannot keep up with the reports.
+     *
+     * @param data the data of the done report
+     * @return the number of coalesced done reports, at least 1
+     */
+    public static int getDoneCount(EngineData data) {
+        String description = data.getDescription();
+        if (description.startsWith(DONE_COUNT)) {
+            try {
+                return Math.max(1, Integer.parseInt(description.substring(DONE_COUNT.length())));
+            } catch (NumberFormatException e) {
+                return 1;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Sets the number of processed requests represented by a done report.
+     *
+     * @param data the data of the done report
+     * @param count the number of coalesced done reports
+     */
+    public static void setDoneCount(EngineData data, int count) {
+        data.setDescription(DONE_COUNT + count);
+    }
+
     /**
      * Builds a message by serializing passed data object using serialization
      * routine defined in one of the data types objects.
@@ -73,31 +134,131 @@ public final class DataUtil {
                                         EngineData data,
                                         Set<EngineDataType> dataTypes)
             throws ClaraException {
+        return serialize(topic, data, dataTypes, null);
+    }
 
+    /**
+     * Builds a message by serializing passed data object using serialization
+     * routine defined in one of the data types objects.
+     * The serializer can borrow buffers from the given pool,
+     * which are returned to the pool before this method returns.
+     *
+     * @param topic     the topic where the data will be published
+     * @param data      the data to be serialized
+     * @param dataTypes the set of registered data types
+     * @param pool      the pool of reusable buffers, it can be null
+     * @throws ClaraException if the data could not be serialized
+     */
+    public static xMsgMessage serialize(xMsgTopic topic,
+                                        EngineData data,
+                                        Set<EngineDataType> dataTypes,
+                                        ByteBufferPool pool)
+            throws ClaraException {
+
+        String mimeType = DATA_ACCESSOR.getMetadata(data).getDataType();
+        return serialize(topic, data, findType(dataTypes, mimeType), pool);
+    }
+
+    /**
+     * Builds a message by serializing passed data object using serialization
+     * routine defined in one of the data types of the registry.
+     * The serializer can borrow buffers from the given pool,
+     * which are returned to the pool before this method returns.
+     *
+     * @param topic     the topic where the data will be published
+     * @param data      the data to be serialized
+     * @param dataTypes the registry of supported data types
+     * @param pool      the pool of reusable buffers, it can be null
+     * @throws ClaraException if the data could not be serialized
+     */
+    public static xMsgMessage serialize(xMsgTopic topic,
+                                        EngineData data,
+                                        DataTypeRegistry dataTypes,
+                                        ByteBufferPool pool)
+            throws ClaraException {
+        String mimeType = DATA_ACCESSOR.getMetadata(data).getDataType();
+        return serialize(topic, data, dataTypes.find(mimeType), pool);
+    }
+
+    private static xMsgMessage serialize(xMsgTopic topic,
+                                         EngineData data,
+                                         EngineDataType dt,
+                                         ByteBufferPool pool)
+            throws ClaraException {
         xMsgMeta.Builder metadata = DATA_ACCESSOR.getMetadata(data);
         String mimeType = metadata.getDataType();
-        for (EngineDataType dt : dataTypes) {
-            if (dt.mimeType().equals(mimeType)) {
-                try {
+        if (dt != null) {
+            ByteBuffer rawData = DATA_ACCESSOR.getRawData(data);
+            if (rawData != null) {
+                setByteOrder(metadata, rawData);
+                return new xMsgMessage(topic, metadata, getBytes(rawData));
+            }
+            try {
+                if (pool == null) {
                     ByteBuffer bb = dt.serializer().write(data.getData());
-                    if (bb.order() == ByteOrder.BIG_ENDIAN) {
-                        metadata.setByteOrder(xMsgMeta.Endian.Big);
-                    } else {
-                        metadata.setByteOrder(xMsgMeta.Endian.Little);
-                    }
-                    return new xMsgMessage(topic, metadata, bb.array());
-                } catch (ClaraException e) {
-                    throw new ClaraException("Could not serialize " + mimeType, e);
+                    setByteOrder(metadata, bb);
+                    return new xMsgMessage(topic, metadata, getBytes(bb));
+                }
+                try {
+                    ByteBuffer bb = dt.serializer().write(data.getData(), pool);
+                    setByteOrder(metadata, bb);
+                    // the result must be copied only if it may be a pooled buffer
+                    byte[] bytes = pool.hasBorrowed() ? copyBytes(bb) : getBytes(bb);
+                    return new xMsgMessage(topic, metadata, bytes);
+                } finally {
+                    pool.releaseAll();
                 }
+            } catch (ClaraException e) {
+                throw new ClaraException("Could not serialize " + mimeType, e);
             }
         }
         if (mimeType.equals(EngineDataType.STRING.mimeType())) {
             ByteBuffer bb = EngineDataType.STRING.serializer().write(data.getData());
-            return new xMsgMessage(topic, metadata, bb.array());
+            return new xMsgMessage(topic, metadata, getBytes(bb));
         }
         throw new ClaraException("Unsupported mime-type = " + mimeType);
     }
 
+    private static EngineDataType findType(Set<EngineDataType> dataTypes, String mimeType) {
+        for (EngineDataType dt : dataTypes) {
+            if (dt.mimeType().equals(mimeType)) {
+                return dt;
+            }
+        }
+        return null;
+    }
+
+    private static void setByteOrder(xMsgMeta.Builder metadata, ByteBuffer bb) {
+        if (bb.order() == ByteOrder.BIG_ENDIAN) {
+            metadata.setByteOrder(xMsgMeta.Endian.Big);
+        } else {
+            metadata.setByteOrder(xMsgMeta.Endian.Little);
+        }
+    }
+
+    /**
+     * Gets the bytes between the position and the limit of the buffer.
+     * The backing array is used without copying when the buffer spans
+     * all of it.
+     */
+    static byte[] getBytes(ByteBuffer bb) {
+        if (bb.hasArray() && bb.arrayOffset() == 0 && bb.position() == 0
+                && bb.remaining() == bb.array().length) {
+            return bb.array();
+        }
+        return copyBytes(bb);
+    }
+
+    /**
+     * Copies the bytes between the position and the limit of the buffer.
+     * The buffer can be a direct buffer, and its position is not modified.
+     */
+    static byte[] copyBytes(ByteBuffer bb) {
+        byte[] bytes = new byte[bb.remaining()];
+        bb.duplicate().get(bytes);
+        return bytes;
+    }
+
     /**
      * De-serializes data of the message {@link org.jlab.coda.xmsg.core.xMsgMessage},
      * represented as a byte[] into an object of az type defined using the mimeType/dataType
@@ -113,23 +274,164 @@ public final class DataUtil {
      */
     public static EngineData deserialize(xMsgMessage msg, Set<EngineDataType> dataTypes)
             throws ClaraException {
+        xMsgMessage data = decompress(msg);
+        String mimeType = data.getMetaData().getDataType();
+        return deserialize(data, findType(dataTypes, mimeType));
+    }
+
+    /**
+     * De-serializes data of the message into an object of the type defined by
+     * the mime-type of the meta-data, using the serialization routine of the
+     * matching data type of the registry.
+     *
+     * @param msg the message with the serialized data
+     * @param dataTypes the registry of supported data types
+     * @return the de-serialized data and metadata
+     * @throws ClaraException if the data could not be de-serialized
+     */
+    public static EngineData deserialize(xMsgMessage msg, DataTypeRegistry dataTypes)
+            throws ClaraException {
+        xMsgMessage data = decompress(msg);
+        String mimeType = data.getMetaData().getDataType();
+        return deserialize(data, dataTypes.find(mimeType));
+    }
+
+    private static EngineData deserialize(xMsgMessage msg, EngineDataType dt)
+            throws ClaraException {
         xMsgMeta.Builder metadata = msg.getMetaData();
         String mimeType = metadata.getDataType();
-        for (EngineDataType dt : dataTypes) {
-            if (dt.mimeType().equals(mimeType)) {
-                try {
-                    ByteBuffer bb = ByteBuffer.wrap(msg.getData());
-                    if (metadata.getByteOrder() == xMsgMeta.Endian.Little) {
-                        bb.order(ByteOrder.LITTLE_ENDIAN);
-                    }
-                    Object userData = dt.serializer().read(bb);
-                    return DATA_ACCESSOR.build(userData, metadata);
-                } catch (ClaraException e) {
-                    throw new ClaraException("CLARA-Error: Could not deserialize " + mimeType, e);
-                }
+        if (dt == null) {
+            throw new ClaraException("CLARA-Error: Unsupported mime-type = " + mimeType);
+        }
+        try {
+            ByteBuffer bb = ByteBuffer.wrap(msg.getData());
+            if (metadata.getByteOrder() == xMsgMeta.Endian.Little) {
+                bb.order(ByteOrder.LITTLE_ENDIAN);
             }
+            Object userData = dt.serializer().read(bb);
+            return DATA_ACCESSOR.build(userData, metadata);
+        } catch (ClaraException e) {
+            throw new ClaraException("CLARA-Error: Could not deserialize " + mimeType, e);
+        }
+    }
+
+
+    /**
+     * Wraps the data of the message into engine data that keeps the serialized
+     * bytes, without de-serializing them.
+     * The bytes are de-serialized on the first access to the user-data,
+     * using the matching data type of the registry.
+     * If the user-data is never accessed nor replaced,
+     * the same bytes are published when the engine data is serialized again.
+     *
+     * @param msg the message with the serialized data
+     * @param dataTypes the registry of supported data types
+     * @return the engine data with the serialized bytes and the metadata
+     * @throws ClaraException if the mime-type of the data is not supported
+     */
+    public static EngineData deserializeLazily(xMsgMessage msg, DataTypeRegistry dataTypes)
+            throws ClaraException {
+        return deserializeLazily(msg, dataTypes, null);
+    }
+
+    /**
+     * Wraps the data of the message into the given engine data, which is
+     * reset to keep the serialized bytes and the metadata of the message.
+     * The previous user-data and metadata of the engine data are discarded,
+     * so it must not be referenced anymore by anyone else.
+     *
+     * @param msg the message with the serialized data
+     * @param dataTypes the registry of supported data types
+     * @param reuse the engine data to be recycled, or null to create a new one
+     * @return the engine data with the serialized bytes and the metadata
+     * @throws ClaraException if the mime-type of the data is not supported
+     * @see #deserializeLazily(xMsgMessage, DataTypeRegistry)
+     */
+    public static EngineData deserializeLazily(xMsgMessage msg,
+                                               DataTypeRegistry dataTypes,
+                                               EngineData reuse)
+            throws ClaraException {
+        xMsgMessage data = decompress(msg);
+        xMsgMeta.Builder metadata = data.getMetaData();
+        String mimeType = metadata.getDataType();
+        EngineDataType dt = dataTypes.find(mimeType);
+        if (dt == null) {
+            throw new ClaraException("CLARA-Error: Unsupported mime-type = " + mimeType);
+        }
+        ByteBuffer bb = ByteBuffer.wrap(data.getData());
+        if (metadata.getByteOrder() == xMsgMeta.Endian.Little) {
+            bb.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (reuse != null) {
+            DATA_ACCESSOR.reset(reuse, bb, dt.serializer(), metadata);
+            return reuse;
+        }
+        return DATA_ACCESSOR.buildRaw(bb, dt.serializer(), metadata);
+    }
+
+
+    /**
+     * Compresses the serialized data of the message with the given codec.
+     * The name of the codec is added as a parameter of the mime-type
+     * of the message, and it is removed when the message is de-serialized.
+     * The message is not modified if the compressed data is not smaller
+     * than the original data. The metadata of the new message is a copy,
+     * since the metadata of the message may be shared with the serialized
+     * engine data, which can still be sent to other destinations.
+     *
+     * @param msg the message with the serialized data
+     * @param codec the codec to compress the data
+     * @return a new message with the compressed data,
+     *         or the same message if the data could not be compressed
+     */
+    public static xMsgMessage compress(xMsgMessage msg, DataCodec codec) {
+        byte[] data = codec.encode(msg.getData());
+        if (data.length >= msg.getDataSize()) {
+            return msg;
+        }
+        xMsgMeta.Builder metadata = msg.getMetaData().clone();
+        metadata.setDataType(metadata.getDataType() + CODEC_PARAM + codec.name());
+        return new xMsgMessage(msg.getTopic(), metadata, data);
+    }
+
+    /**
+     * Checks if the data of the message was compressed with a codec.
+     *
+     * @param msg the message with the serialized data
+     * @return true if the data is compressed
+     */
+    public static boolean isCompressed(xMsgMessage msg) {
+        return msg.getMetaData().getDataType().contains(CODEC_PARAM);
+    }
+
+    /**
+     * Restores the serialized data of a message compressed with
+     * {@link #compress}. The codec is found by its name in {@link DataCodecs}.
+     *
+     * @param msg the message with the compressed data
+     * @return a new message with the original data and mime-type,
+     *         or the same message if the data is not compressed
+     * @throws ClaraException if the codec is not registered or the data is corrupted
+     */
+    public static xMsgMessage decompress(xMsgMessage msg) throws ClaraException {
+        xMsgMeta.Builder metadata = msg.getMetaData();
+        String mimeType = metadata.getDataType();
+        int index = mimeType.indexOf(CODEC_PARAM);
+        if (index < 0) {
+            return msg;
+        }
+        String name = mimeType.substring(index + CODEC_PARAM.length());
+        DataCodec codec = DataCodecs.get(name);
+        if (codec == null) {
+            throw new ClaraException("CLARA-Error: Unsupported codec = " + name);
+        }
+        try {
+            byte[] data = codec.decode(msg.getData());
+            metadata.setDataType(mimeType.substring(0, index));
+            return new xMsgMessage(msg.getTopic(), metadata, data);
+        } catch (ClaraException e) {
+            throw new ClaraException("CLARA-Error: Could not decompress " + mimeType, e);
         }
-        throw new ClaraException("CLARA-Error: Unsupported mime-type = " + mimeType);
     }
 
 
@@ -156,5 +458,18 @@ public final class DataUtil {
         protected abstract xMsgMeta.Builder getMetadata(EngineData data);
 
         protected abstract EngineData build(Object data, xMsgMeta.Builder metadata);
+
+        protected abstract EngineData buildRaw(ByteBuffer rawData,
+                                               ClaraSerializer reader,
+                                               xMsgMeta.Builder metadata);
+
+        protected abstract void reset(EngineData data,
+                                      ByteBuffer rawData,
+                                      ClaraSerializer reader,
+                                      xMsgMeta.Builder metadata);
+
+        protected abstract ByteBuffer getRawData(EngineData data);
+
+        protected abstract boolean hasData(EngineData data);
     }
 }
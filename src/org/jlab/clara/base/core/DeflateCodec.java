@@ -0,0 +1,99 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.base.core;
+
+import org.jlab.clara.base.error.ClaraException;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses data with {@link Deflater}.
+ * The compressed data starts with the size of the original data,
+ * so it can be inflated into an array of the exact size.
+ */
+final class DeflateCodec implements DataCodec {
+
+    // the maximum compression ratio of the DEFLATE format
+    private static final int MAX_RATIO = 1032;
+
+    @Override
+    public String name() {
+        return "deflate";
+    }
+
+    @Override
+    public byte[] encode(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] output = new byte[data.length + data.length / 1000 + 64];
+            DataCodecs.writeSize(output, data.length);
+            int size = DataCodecs.SIZE_BYTES;
+            while (!deflater.finished()) {
+                if (size == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                size += deflater.deflate(output, size, output.length - size);
+            }
+            return Arrays.copyOf(output, size);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public byte[] decode(byte[] data) throws ClaraException {
+        int size = DataCodecs.readSize(data, MAX_RATIO);
+        Inflater inflater = new Inflater();
+        try {
+            int offset = DataCodecs.SIZE_BYTES;
+            inflater.setInput(data, offset, data.length - offset);
+            byte[] output = new byte[size];
+            int read = 0;
+            while (!inflater.finished()) {
+                if (read < size) {
+                    read += inflater.inflate(output, read, size - read);
+                } else if (inflater.inflate(new byte[1]) > 0) {
+                    throw new ClaraException("corrupted deflate data");
+                }
+                if (!inflater.finished()
+                        && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new ClaraException("corrupted deflate data");
+                }
+            }
+            if (read != size) {
+                throw new ClaraException("corrupted deflate data");
+            }
+            return output;
+        } catch (DataFormatException e) {
+            throw new ClaraException("corrupted deflate data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.base.core;
+
+import org.jlab.clara.base.error.ClaraException;
+
+import java.util.Arrays;
+
+/**
+ * A fast LZ77 codec, with a block format similar to LZ4.
+ * <p>
+ * The compressed data starts with the size of the original data, followed by
+ * a list of sequences. Every sequence has a token byte with the number of
+ * literals in the high 4 bits and the length of the match (minus 4) in the
+ * low 4 bits, the extra bytes of the literal length (if it is 15 or more),
+ * the literals, the offset of the match as two little-endian bytes,
+ * and the extra bytes of the match length (if it is 15 or more).
+ * The last sequence only has literals.
+ * <p>
+ * Matches are found with a single-entry hash table of 4-byte sequences,
+ * which is fast but does not find all the possible matches.
+ */
+final class LzCodec implements DataCodec {
+
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_BITS = 12;
+    private static final int RUN_MASK = 15;
+
+    // every extra byte of a match length adds at most 255 bytes
+    private static final int MAX_RATIO = 255;
+
+    @Override
+    public String name() {
+        return "lz";
+    }
+
+    @Override
+    public byte[] encode(byte[] data) {
+        int length = data.length;
+        byte[] output = new byte[DataCodecs.SIZE_BYTES + length + length / 255 + 16];
+        DataCodecs.writeSize(output, length);
+        int op = DataCodecs.SIZE_BYTES;
+
+        int[] table = new int[1 << HASH_BITS];
+        int anchor = 0;
+        int ip = 0;
+        int limit = length - LAST_LITERALS;
+        while (ip + MIN_MATCH <= limit) {
+            int sequence = readInt(data, ip);
+            int hash = hash(sequence);
+            int ref = table[hash] - 1;
+            table[hash] = ip + 1;
+            if (ref < 0 || ip - ref > MAX_OFFSET || readInt(data, ref) != sequence) {
+                ip++;
+                continue;
+            }
+            int matchLength = MIN_MATCH;
+            while (ip + matchLength < limit && data[ref + matchLength] == data[ip + matchLength]) {
+                matchLength++;
+            }
+            int token = op;
+            op = writeSequence(data, anchor, ip - anchor, output, op);
+            output[op++] = (byte) (ip - ref);
+            output[op++] = (byte) ((ip - ref) >>> 8);
+            int extra = matchLength - MIN_MATCH;
+            output[token] |= (byte) Math.min(extra, RUN_MASK);
+            if (extra >= RUN_MASK) {
+                op = writeLength(output, op, extra - RUN_MASK);
+            }
+            ip += matchLength;
+            anchor = ip;
+        }
+        op = writeSequence(data, anchor, length - anchor, output, op);
+        return Arrays.copyOf(output, op);
+    }
+
+    @Override
+    public byte[] decode(byte[] data) throws ClaraException {
+        int size = DataCodecs.readSize(data, MAX_RATIO);
+        byte[] output = new byte[size];
+        int ip = DataCodecs.SIZE_BYTES;
+        int op = 0;
+        try {
+            while (ip < data.length) {
+                int token = data[ip++] & 0xFF;
+                int literals = token >>> 4;
+                if (literals == RUN_MASK) {
+                    int b;
+                    do {
+                        b = data[ip++] & 0xFF;
+                        literals += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(data, ip, output, op, literals);
+                ip += literals;
+                op += literals;
+                if (ip == data.length) {
+                    break;
+                }
+                int offset = (data[ip++] & 0xFF) | ((data[ip++] & 0xFF) << 8);
+                int matchLength = token & RUN_MASK;
+                if (matchLength == RUN_MASK) {
+                    int b;
+                    do {
+                        b = data[ip++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+                int ref = op - offset;
+                if (offset == 0 || ref < 0 || op + matchLength > size) {
+                    throw new ClaraException("corrupted lz data");
+                }
+                for (int i = 0; i < matchLength; i++) {
+                    output[op++] = output[ref++];
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new ClaraException("corrupted lz data", e);
+        }
+        if (op != size) {
+            throw new ClaraException("corrupted lz data");
+        }
+        return output;
+    }
+
+    private static int writeSequence(byte[] data, int start, int literals,
+                                     byte[] output, int op) {
+        output[op++] = (byte) (Math.min(literals, RUN_MASK) << 4);
+        if (literals >= RUN_MASK) {
+            op = writeLength(output, op, literals - RUN_MASK);
+        }
+        System.arraycopy(data, start, output, op, literals);
+        return op + literals;
+    }
+
+    private static int writeLength(byte[] output, int op, int length) {
+        int remaining = length;
+        while (remaining >= 255) {
+            output[op++] = (byte) 255;
+            remaining -= 255;
+        }
+        output[op++] = (byte) remaining;
+        return op;
+    }
+
+    private static int readInt(byte[] data, int i) {
+        return (data[i] & 0xFF)
+             | (data[i + 1] & 0xFF) << 8
+             | (data[i + 2] & 0xFF) << 16
+             | (data[i + 3] & 0xFF) << 24;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_BITS);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of reusable byte buffers for serialization.
+ * <p>
+ * A {@link ClaraSerializer serializer} can borrow a buffer to write the
+ * serialized data, instead of allocating a new buffer for every request.
+ * All the buffers borrowed by a thread are returned to the pool by CLARA
+ * once the serialized data has been copied into the message to be sent,
+ * so the serializer must not keep any reference to them.
+ * <p>
+ * Buffers are pooled by capacity, in powers of two from 1 KiB to 64 MiB.
+ * Larger buffers are allocated every time and never pooled.
+ */
+public class ByteBufferPool {
+
+    private static final int MIN_SIZE_BITS = 10;
+    private static final int MAX_SIZE_BITS = 26;
+
+    private final int maxBuffers;
+    private final List<Queue<ByteBuffer>> buffers = new ArrayList<>();
+    private final List<AtomicInteger> counts = new ArrayList<>();
+    private final ThreadLocal<List<ByteBuffer>> borrowed = ThreadLocal.withInitial(ArrayList::new);
+
+    /**
+     * Creates a new pool.
+     *
+     * @param maxBuffers the maximum number of buffers of each capacity
+     *        kept in the pool
+     */
+    public ByteBufferPool(int maxBuffers) {
+        if (maxBuffers <= 0) {
+            throw new IllegalArgumentException("Invalid number of buffers: " + maxBuffers);
+        }
+        this.maxBuffers = maxBuffers;
+        for (int i = MIN_SIZE_BITS; i <= MAX_SIZE_BITS; i++) {
+            buffers.add(new ConcurrentLinkedQueue<>());
+            counts.add(new AtomicInteger());
+        }
+    }
+
+    /**
+     * Borrows a heap buffer with at least the given capacity.
+     * The buffer is cleared and its byte order is big-endian.
+     * It will be returned to the pool when {@link #releaseAll} is called
+     * by the same thread.
+     *
+     * @param capacity the minimum capacity of the buffer
+     * @return a buffer from the pool, or a new buffer if the pool was empty
+     */
+    public ByteBuffer acquire(int capacity) {
+        int index = sizeIndex(capacity);
+        if (index < 0) {
+            return ByteBuffer.allocate(capacity);
+        }
+        ByteBuffer buffer = buffers.get(index).poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocate(1 << (index + MIN_SIZE_BITS));
+        } else {
+            counts.get(index).getAndDecrement();
+            buffer.clear();
+            buffer.order(ByteOrder.BIG_ENDIAN);
+        }
+        borrowed.get().add(buffer);
+        return buffer;
+    }
+
+    /**
+     * Checks if the calling thread has borrowed buffers from the pool
+     * that have not been returned yet.
+     *
+     * @return true if the thread has borrowed buffers
+     */
+    public boolean hasBorrowed() {
+        return !borrowed.get().isEmpty();
+    }
+
+    /**
+     * Returns to the pool all the buffers borrowed by the calling thread.
+     */
+    public void releaseAll() {
+        List<ByteBuffer> list = borrowed.get();
+        if (list.isEmpty()) {
+            return;
+        }
+        for (ByteBuffer buffer : list) {
+            int index = sizeIndex(buffer.capacity());
+            if (counts.get(index).incrementAndGet() <= maxBuffers) {
+                buffers.get(index).offer(buffer);
+            } else {
+                counts.get(index).getAndDecrement();
+            }
+        }
+        list.clear();
+    }
+
+    /**
+     * Gets the number of buffers that are ready to be borrowed.
+     *
+     * @return the number of pooled buffers
+     */
+    public int size() {
+        int size = 0;
+        for (AtomicInteger count : counts) {
+            size += count.get();
+        }
+        return size;
+    }
+
+    private static int sizeIndex(int capacity) {
+        if (capacity > 1 << MAX_SIZE_BITS) {
+            return -1;
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(capacity, 1) - 1);
+        return Math.max(bits, MIN_SIZE_BITS) - MIN_SIZE_BITS;
+    }
+}
@@ -41,6 +41,26 @@ public interface ClaraSerializer {
      */
     ByteBuffer write(Object data) throws ClaraException;
 
+    /**
+     * Serializes the user object into a byte buffer and returns it,
+     * optionally writing into a buffer borrowed from the given pool.
+     * <p>
+     * The returned buffer can be a direct buffer, or a slice of a larger
+     * buffer. Only the bytes between its position and its limit are sent.
+     * Borrowed buffers are returned to the pool after the data has been
+     * copied into the message, so no reference to them should be kept.
+     * <p>
+     * By default the pool is not used.
+     *
+     * @param data the user object stored on the {@link EngineData}
+     * @param pool a pool of reusable buffers
+     * @throws ClaraException if the data could not be serialized
+     * @return the serialized user object
+     */
+    default ByteBuffer write(Object data, ByteBufferPool pool) throws ClaraException {
+        return write(data);
+    }
+
     /**
      * De-serializes the byte buffer into the user object and returns it.
      *
@@ -58,6 +58,13 @@ public interface Engine {
      * Executes the engine with the given set of input data.
      * <p>
      * This method can be executed concurrently in several threads.
+     * <p>
+     * When the service is set to process requests in batches, the set contains
+     * the input data of each request of the batch, in order of arrival.
+     * The data of the result must be a {@link java.util.List} with one
+     * {@link EngineData} for each input, in the same order,
+     * which will be routed as the result of the corresponding request.
+     * An error status in the result is reported for all requests of the batch.
      *
      * @param inputs the data set to execute the engine with
      * @return the result and/or status of the execution request,
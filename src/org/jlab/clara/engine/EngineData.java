@@ -23,15 +23,26 @@
 package org.jlab.clara.engine;
 
 import org.jlab.clara.base.core.DataUtil.EngineDataAccessor;
+import org.jlab.clara.base.error.ClaraException;
 import org.jlab.coda.xmsg.data.xMsgM.xMsgMeta;
 
+import java.nio.ByteBuffer;
+
 /**
  * Engine data passed in/out to the service engine.
+ * <p>
+ * The data received by a service engine keeps the serialized bytes of the
+ * request, and it is decoded on the first call to {@link #getData}.
+ * If the user-data is never accessed nor replaced, the original bytes are
+ * sent again when the data is the result of the engine.
  */
 public class EngineData {
 
     private Object data;
-    private xMsgMeta.Builder metadata = xMsgMeta.newBuilder();
+    private xMsgMeta.Builder metadata;
+
+    private volatile ByteBuffer rawData;
+    private ClaraSerializer rawReader;
 
     /**
      * Creates an empty engine data object.
@@ -46,18 +57,59 @@ public class EngineData {
         this.metadata = metadata;
     }
 
+    private EngineData(ByteBuffer rawData, ClaraSerializer rawReader, xMsgMeta.Builder metadata) {
+        this.rawData = rawData;
+        this.rawReader = rawReader;
+        this.metadata = metadata;
+    }
+
     private xMsgMeta.Builder getMetadata() {
         return metadata;
     }
 
+    private void reset(ByteBuffer rawData, ClaraSerializer rawReader, xMsgMeta.Builder metadata) {
+        synchronized (this) {
+            this.rawReader = rawReader;
+            this.rawData = rawData;
+        }
+        this.data = null;
+        this.metadata = metadata;
+    }
+
+    private ByteBuffer getRawData() {
+        return rawData;
+    }
+
+    private boolean hasData() {
+        return rawData != null || data != null;
+    }
+
+    private synchronized void decode() {
+        ByteBuffer bb = rawData;
+        if (bb == null) {
+            return;
+        }
+        try {
+            data = rawReader.read(bb.duplicate().order(bb.order()));
+        } catch (ClaraException e) {
+            throw new IllegalStateException("Could not deserialize " + getMimeType(), e);
+        }
+        rawReader = null;
+        rawData = null;
+    }
+
     /**
      * Gets the user-data.
      * The value must be cast to its proper Java class.
      * Use {@link #getMimeType} to get information about the type of the data.
      *
      * @return the user-data or null if not set
+     * @throws IllegalStateException if the received data could not be decoded
      */
     public Object getData() {
+        if (rawData != null) {
+            decode();
+        }
         return data;
     }
 
@@ -106,6 +158,10 @@ public class EngineData {
      * @param data the object with the user-data
      */
     public void setData(String mimeType, Object data) {
+        synchronized (this) {
+            this.rawReader = null;
+            this.rawData = null;
+        }
         this.data = data;
         this.metadata.setDataType(mimeType);
     }
@@ -320,6 +376,9 @@ public class EngineData {
 
     @Override
     public String toString() {
+        if (rawData != null) {
+            return "EngineData: " + metadata.getDataType() + " (not decoded)";
+        }
         return "EngineData: " + metadata.getDataType() + " " + data;
     }
 
@@ -339,5 +398,30 @@ public class EngineData {
         protected EngineData build(Object data, xMsgMeta.Builder metadata) {
             return new EngineData(data, metadata);
         }
+
+        @Override
+        protected EngineData buildRaw(ByteBuffer rawData,
+                                      ClaraSerializer reader,
+                                      xMsgMeta.Builder metadata) {
+            return new EngineData(rawData, reader, metadata);
+        }
+
+        @Override
+        protected void reset(EngineData data,
+                             ByteBuffer rawData,
+                             ClaraSerializer reader,
+                             xMsgMeta.Builder metadata) {
+            data.reset(rawData, reader, metadata);
+        }
+
+        @Override
+        protected ByteBuffer getRawData(EngineData data) {
+            return data.getRawData();
+        }
+
+        @Override
+        protected boolean hasData(EngineData data) {
+            return data.hasData();
+        }
     }
 }
@@ -29,6 +29,7 @@ import org.jlab.coda.xmsg.data.xMsgD.xMsgData;
 import org.jlab.coda.xmsg.data.xMsgD.xMsgPayload;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Objects;
@@ -117,6 +118,35 @@ public class EngineDataType {
      * An array of strings.
      */
     public static final EngineDataType ARRAY_STRING = buildPrimitive(MimeType.ARRAY_STRING);
+    /**
+     * An <code>int[]</code> array, packed as little-endian 32 bits integers.
+     * <p>
+     * Packed arrays are copied in bulk into a byte buffer,
+     * without boxing the elements.
+     * Use {@link PrimitiveArrays} to convert the boxed arrays of the
+     * {@link #ARRAY_SINT32} and {@link #ARRAY_SFIXED32} types.
+     */
+    public static final EngineDataType PACKED_INT32 = buildPacked(MimeType.PACKED_INT32);
+    /**
+     * A <code>long[]</code> array, packed as little-endian 64 bits integers.
+     *
+     * @see #PACKED_INT32
+     */
+    public static final EngineDataType PACKED_INT64 = buildPacked(MimeType.PACKED_INT64);
+    /**
+     * A <code>float[]</code> array, packed as little-endian 32 bits
+     * floating-point numbers.
+     *
+     * @see #PACKED_INT32
+     */
+    public static final EngineDataType PACKED_FLOAT = buildPacked(MimeType.PACKED_FLOAT);
+    /**
+     * A <code>double[]</code> array, packed as little-endian 64 bits
+     * floating-point numbers.
+     *
+     * @see #PACKED_INT32
+     */
+    public static final EngineDataType PACKED_DOUBLE = buildPacked(MimeType.PACKED_DOUBLE);
     /**
      * JSON text.
      */
@@ -157,6 +187,10 @@ public class EngineDataType {
         return new EngineDataType(mimeType.toString(), new PrimitiveSerializer(mimeType));
     }
 
+    private static EngineDataType buildPacked(MimeType mimeType) {
+        return new EngineDataType(mimeType.toString(), new PackedArraySerializer(mimeType));
+    }
+
     private static EngineDataType buildRawBytes() {
         return new EngineDataType(MimeType.BYTES.toString(), new RawBytesSerializer());
     }
@@ -217,6 +251,11 @@ public class EngineDataType {
         ARRAY_STRING    ("binary/array-string"),
         ARRAY_BYTES     ("binary/array-string"),
 
+        PACKED_INT32    ("binary/packed-int32"),
+        PACKED_INT64    ("binary/packed-int64"),
+        PACKED_FLOAT    ("binary/packed-float"),
+        PACKED_DOUBLE   ("binary/packed-double"),
+
         JSON            ("application/json"),
 
         NATIVE_DATA     ("xmsg/data"),
@@ -303,6 +342,97 @@ public class EngineDataType {
     }
 
 
+    private static class PackedArraySerializer implements ClaraSerializer {
+
+        private final MimeType mimeType;
+
+        PackedArraySerializer(MimeType mimeType) {
+            this.mimeType = mimeType;
+        }
+
+        @Override
+        public ByteBuffer write(Object data) throws ClaraException {
+            return write(data, null);
+        }
+
+        @Override
+        public ByteBuffer write(Object data, ByteBufferPool pool) throws ClaraException {
+            switch (mimeType) {
+                case PACKED_INT32: {
+                    int[] a = (int[]) data;
+                    ByteBuffer bb = allocate(a.length * Integer.BYTES, pool);
+                    bb.asIntBuffer().put(a);
+                    return bb;
+                }
+                case PACKED_INT64: {
+                    long[] a = (long[]) data;
+                    ByteBuffer bb = allocate(a.length * Long.BYTES, pool);
+                    bb.asLongBuffer().put(a);
+                    return bb;
+                }
+                case PACKED_FLOAT: {
+                    float[] a = (float[]) data;
+                    ByteBuffer bb = allocate(a.length * Float.BYTES, pool);
+                    bb.asFloatBuffer().put(a);
+                    return bb;
+                }
+                case PACKED_DOUBLE: {
+                    double[] a = (double[]) data;
+                    ByteBuffer bb = allocate(a.length * Double.BYTES, pool);
+                    bb.asDoubleBuffer().put(a);
+                    return bb;
+                }
+                default:
+                    throw new IllegalStateException("Invalid mime-type: " + mimeType.toString());
+            }
+        }
+
+        @Override
+        public Object read(ByteBuffer data) throws ClaraException {
+            // do not change the byte order of the given buffer
+            ByteBuffer bb = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            switch (mimeType) {
+                case PACKED_INT32: {
+                    int[] a = new int[length(bb, Integer.BYTES)];
+                    bb.asIntBuffer().get(a);
+                    return a;
+                }
+                case PACKED_INT64: {
+                    long[] a = new long[length(bb, Long.BYTES)];
+                    bb.asLongBuffer().get(a);
+                    return a;
+                }
+                case PACKED_FLOAT: {
+                    float[] a = new float[length(bb, Float.BYTES)];
+                    bb.asFloatBuffer().get(a);
+                    return a;
+                }
+                case PACKED_DOUBLE: {
+                    double[] a = new double[length(bb, Double.BYTES)];
+                    bb.asDoubleBuffer().get(a);
+                    return a;
+                }
+                default:
+                    throw new IllegalStateException("Invalid mime-type: " + mimeType.toString());
+            }
+        }
+
+        private static ByteBuffer allocate(int size, ByteBufferPool pool) {
+            ByteBuffer bb = pool != null ? pool.acquire(size) : ByteBuffer.allocate(size);
+            bb.limit(size);
+            return bb.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        private int length(ByteBuffer bb, int elementSize) throws ClaraException {
+            int size = bb.remaining();
+            if (size % elementSize != 0) {
+                throw new ClaraException("Invalid " + mimeType + " data size: " + size);
+            }
+            return size / elementSize;
+        }
+    }
+
+
     private static class PrimitiveSerializer implements ClaraSerializer {
 
         private final MimeType mimeType;
@@ -0,0 +1,157 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.engine;
+
+/**
+ * Converts between the boxed arrays used by the <code>ARRAY_*</code> data
+ * types and the primitive arrays used by the <code>PACKED_*</code> data types.
+ *
+ * @see EngineDataType#PACKED_INT32
+ */
+public final class PrimitiveArrays {
+
+    private PrimitiveArrays() { }
+
+    /**
+     * Converts an {@link EngineDataType#ARRAY_SINT32} or
+     * {@link EngineDataType#ARRAY_SFIXED32} array
+     * into an {@link EngineDataType#PACKED_INT32} array.
+     *
+     * @param array the boxed array, it cannot contain null elements
+     * @return a new primitive array with the same values
+     */
+    public static int[] toPrimitive(Integer[] array) {
+        int[] result = new int[array.length];
+        for (int i = 0; i < array.length; i++) {
+            result[i] = array[i];
+        }
+        return result;
+    }
+
+    /**
+     * Converts an {@link EngineDataType#ARRAY_SINT64} or
+     * {@link EngineDataType#ARRAY_SFIXED64} array
+     * into an {@link EngineDataType#PACKED_INT64} array.
+     *
+     * @param array the boxed array, it cannot contain null elements
+     * @return a new primitive array with the same values
+     */
+    public static long[] toPrimitive(Long[] array) {
+        long[] result = new long[array.length];
+        for (int i = 0; i < array.length; i++) {
+            result[i] = array[i];
+        }
+        return result;
+    }
+
+    /**
+     * Converts an {@link EngineDataType#ARRAY_FLOAT} array
+     * into an {@link EngineDataType#PACKED_FLOAT} array.
+     *
+     * @param array the boxed array, it cannot contain null elements
+     * @return a new primitive array with the same values
+     */
+    public static float[] toPrimitive(Float[] array) {
+        float[] result = new float[array.length];
+        for (int i = 0; i < array.length; i++) {
+            result[i] = array[i];
+        }
+        return result;
+    }
+
+    /**
+     * Converts an {@link EngineDataType#ARRAY_DOUBLE} array
+     * into an {@link EngineDataType#PACKED_DOUBLE} array.
+     *
+     * @param array the boxed array, it cannot contain null elements
+     * @return a new primitive array with the same values
+     */
+    public static double[] toPrimitive(Double[] array) {
+        double[] result = new double[array.length];
+        for (int i = 0; i < array.length; i++) {
+            result[i] = array[i];
+        }
+        return result;
+    }
+
+    /**
+     * Converts an {@link EngineDataType#PACKED_INT32} array
+     * into an {@link EngineDataType#ARRAY_SINT32} array.
+     *
+     * @param array the primitive array
+     * @return a new boxed array with the same values
+     */
+    public static Integer[] toBoxed(int[] array) {
+        Integer[] result = new Integer[array.length];
+        for (int i = 0; i < array.length; i++) {
+            result[i] = array[i];
+        }
+        return result;
+    }
+
+    /**
+     * Converts an {@link EngineDataType#PACKED_INT64} array
+     * into an {@link EngineDataType#ARRAY_SINT64} array.
+     *
+     * @param array the primitive array
+     * @return a new boxed array with the same values
+     */
+    public static Long[] toBoxed(long[] array) {
+        Long[] result = new Long[array.length];
+        for (int i = 0; i < array.length; i++) {
+            result[i] = array[i];
+        }
+        return result;
+    }
+
+    /**
+     * Converts an {@link EngineDataType#PACKED_FLOAT} array
+     * into an {@link EngineDataType#ARRAY_FLOAT} array.
+     *
+     * @param array the primitive array
+     * @return a new boxed array with the same values
+     */
+    public static Float[] toBoxed(float[] array) {
+        Float[] result = new Float[array.length];
+        for (int i = 0; i < array.length; i++) {
+            result[i] = array[i];
+        }
+        return result;
+    }
+
+    /**
+     * Converts an {@link EngineDataType#PACKED_DOUBLE} array
+     * into an {@link EngineDataType#ARRAY_DOUBLE} array.
+     *
+     * @param array the primitive array
+     * @return a new boxed array with the same values
+     */
+    public static Double[] toBoxed(double[] array) {
+        Double[] result = new Double[array.length];
+        for (int i = 0; i < array.length; i++) {
+            result[i] = array[i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.engine;
+
+/**
+ * Optional interface for engines that can provide sample input data
+ * to warm up a new service.
+ * <p>
+ * When a service is deployed with a warm-up phase, the engine is executed
+ * with the sample data several times before the service is registered,
+ * so the JIT compiler optimizes the execution path before the first
+ * real request arrives. The results of the warm-up executions are discarded.
+ */
+public interface WarmUpSource {
+
+    /**
+     * Gets a sample input for a warm-up execution of the engine.
+     * This method is called before every warm-up execution, and it can
+     * return the same data or new data every time.
+     * <p>
+     * The engine is not configured yet when the warm-up runs, so the
+     * sample should be processed by the engine without a configuration.
+     *
+     * @return the sample input data, it cannot be null
+     */
+    EngineData getWarmUpData();
+}
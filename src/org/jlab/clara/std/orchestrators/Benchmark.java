@@ -22,6 +22,7 @@
 
 package org.jlab.clara.std.orchestrators;
 
+import org.jlab.clara.base.LatencyData;
 import org.jlab.clara.base.ServiceName;
 import org.jlab.clara.base.ServiceRuntimeData;
 
@@ -55,6 +56,7 @@ class Benchmark {
             Runtime r = runtimeStats.get(key(s.name()));
             if (r != null) {
                 r.initialTime = s.executionTime();
+                r.initialLatency = s.executionLatency();
             }
         });
     }
@@ -64,6 +66,9 @@ class Benchmark {
             Runtime r = runtimeStats.get(key(s.name()));
             if (r != null) {
                 r.totalTime = s.executionTime();
+                r.latency = r.initialLatency != null
+                        ? s.executionLatency().since(r.initialLatency)
+                        : s.executionLatency();
             }
         });
     }
@@ -76,6 +81,14 @@ class Benchmark {
         throw new OrchestratorException("Invalid runtime report: missing " + service.name);
     }
 
+    LatencyData latency(ServiceInfo service) {
+        Runtime r = runtimeStats.get(service);
+        if (r != null) {
+            return r.latency;
+        }
+        throw new OrchestratorException("Invalid runtime report: missing " + service.name);
+    }
+
     private static ServiceInfo key(ServiceName service) {
         return new ServiceInfo("", service.container().name(), service.name(), service.language());
     }
@@ -83,5 +96,7 @@ class Benchmark {
     private static class Runtime {
         long initialTime = 0;
         long totalTime = 0;
+        LatencyData initialLatency = null;
+        LatencyData latency = null;
     }
 }
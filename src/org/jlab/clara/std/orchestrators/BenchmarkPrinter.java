@@ -22,6 +22,8 @@
 
 package org.jlab.clara.std.orchestrators;
 
+import org.jlab.clara.base.LatencyData;
+
 class BenchmarkPrinter {
 
     private final Benchmark benchmark;
@@ -48,6 +50,7 @@ class BenchmarkPrinter {
         long time = benchmark.time(service);
         totalTime += time;
         print(label, time, totalRequests);
+        printLatency(benchmark.latency(service));
     }
 
     private void printTotal() {
@@ -61,4 +64,13 @@ class BenchmarkPrinter {
                 name, requests, time / 1e6,
                 timePerEvent);
     }
+
+    private void printLatency(LatencyData latency) {
+        if (latency == null || latency.count() == 0) {
+            return;
+        }
+        Logging.info("  %-12.12s   execution time percentiles:"
+                + "    p50 = %7.2f ms    p99 = %7.2f ms    p99.9 = %7.2f ms",
+                "", latency.p50() / 1e3, latency.p99() / 1e3, latency.p999() / 1e3);
+    }
 }
@@ -44,6 +44,7 @@ import org.jlab.clara.base.ClaraLang;
 import org.jlab.clara.base.ClaraUtil;
 import org.jlab.clara.base.DpeName;
 import org.jlab.clara.base.EngineCallback;
+import org.jlab.clara.base.core.DataUtil;
 import org.jlab.clara.engine.EngineData;
 import org.jlab.clara.std.orchestrators.CoreOrchestrator.DpeCallBack;
 import org.jlab.clara.util.EnvUtils;
@@ -578,18 +579,19 @@ public final class GenericOrchestrator extends AbstractOrchestrator {
 
         @Override
         public void callback(EngineData data) {
-            int totalEvents = localNode.eventNumber.addAndGet(options.reportFreq);
+            int reportEvents = options.reportFreq * DataUtil.getDoneCount(data);
+            int totalEvents = localNode.eventNumber.addAndGet(reportEvents);
             long endTime = System.currentTimeMillis();
 
             double totalTime = (endTime - localNode.startTime.get());
             double sliceTime = (endTime - localNode.lastReportTime.getAndSet(endTime));
-            double timePerEvent = sliceTime /  options.reportFreq;
+            double timePerEvent = sliceTime / reportEvents;
 
             Logging.info("Processed %4d events in %6.2f s"
                          + "   average event time = "
                          + (options.maxThreads > 2 ? "%6.2f ms" : "%8.2f ms")
                          + "   [ total %5d events %8.2f s ]",
-                         options.reportFreq, sliceTime / 1000L, timePerEvent,
+                         reportEvents, sliceTime / 1000L, timePerEvent,
                          totalEvents, totalTime / 1000L);
         }
     }
@@ -53,6 +53,11 @@ class ConnectionPools implements AutoCloseable {
                 .build();
     }
 
+    ConnectionPools(xMsgConnectionPool mainPool, xMsgConnectionPool uncheckedPool) {
+        this.mainPool = mainPool;
+        this.uncheckedPool = uncheckedPool;
+    }
+
     @Override
     public void close() {
         mainPool.close();
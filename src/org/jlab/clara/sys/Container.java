@@ -73,14 +73,21 @@ class Container extends AbstractActor {
         Logging.info("removed container = %s", base.getName());
     }
 
+    // checkstyle.off: ParameterNumber
     public void addService(ClaraComponent comp,
+                           ServiceSysConfig sysConfig,
                            ClaraComponent frontEnd,
                            ConnectionPools connectionPools,
+                           ReportChannel reportChannel,
+                           ServiceScheduler scheduler,
+                           DpeConfig dpeConfig,
                            String session) throws ClaraException {
         String serviceName = comp.getCanonicalName();
         Service service = myServices.get(serviceName);
         if (service == null) {
-            service = new Service(comp, frontEnd, connectionPools, session);
+            service = new Service(comp, sysConfig, frontEnd,
+                                  connectionPools, reportChannel, scheduler,
+                                  dpeConfig, session);
             Service result = myServices.putIfAbsent(serviceName, service);
             if (result == null) {
                 try {
@@ -98,6 +105,7 @@ class Container extends AbstractActor {
             Logging.error("service = %s already exists. No new service is deployed", serviceName);
         }
     }
+    // checkstyle.on: ParameterNumber
 
     public boolean removeService(String serviceName) {
         Service service = myServices.remove(serviceName);
@@ -0,0 +1,586 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+package org.jlab.clara.sys;
+
+import org.jlab.clara.util.report.LatencyHistogram;
+import org.jlab.clara.util.report.ServiceReport;
+import org.jlab.coda.xmsg.core.xMsgMessage;
+import org.jlab.coda.xmsg.data.xMsgM.xMsgMeta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Dispatches the requests received by a service to its pool of engines.
+ * <p>
+ * When all the engines are busy, the requests are parked in a bounded queue
+ * until an engine is released. When the queue is full, the subscription thread
+ * publishing a new request blocks until there is space in the queue,
+ * which pushes back on the senders instead of spinning for a free engine.
+ * <p>
+ * With chain fusion, a local service that has just produced the input of this
+ * service can {@link #tryRun run} the request with an idle engine in its own
+ * thread, skipping the queue handoff.
+ * Local services of the same DPE can {@link #offer offer} requests
+ * directly to the queue, without blocking.
+ * <p>
+ * An engine that finishes a request takes the next queued request,
+ * so the execution threads keep running while there is pending work.
+ * <p>
+ * When batching is enabled for the service, an engine collects consecutive
+ * execute requests, up to the batch size or until the batch timeout expires,
+ * and processes all of them in a single group execution.
+ * A new control request closes the batch that is being collected.
+ * <p>
+ * Control requests (i.e. configuration) are parked in a separate unbounded
+ * queue that is always served before the execute requests, so they only wait
+ * for the next free engine, even if the service is saturated with events.
+ * The time that control requests wait for an engine is recorded separately.
+ * <p>
+ * When the service runs on the shared {@link ServiceScheduler scheduler}
+ * of the DPE, an engine yields its thread to the other services after
+ * processing the quantum of its lane, and continues with the pending
+ * requests in a new task. An engine waiting for the requests of a batch
+ * lets the pool run other tasks in the meantime.
+ */
+class DispatchQueue {
+
+    /**
+     * The maximum number of nested requests that a thread can process
+     * with {@link #tryRun}.
+     */
+    static final int MAX_RUN_DEPTH = 16;
+
+    private static final ThreadLocal<int[]> RUN_DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final String name;
+    private final BlockingDeque<Request> requests;
+    private final BlockingQueue<Request> controlRequests;
+    private final BlockingQueue<ServiceEngine> idleEngines;
+    private final ExecutorService executionPool;
+    private final ServiceSysConfig sysConfig;
+    private final ServiceReport sysReport;
+    private final RequestHandler handler;
+    private final LatencyHistogram controlLatency;
+    private final ServiceScheduler.Lane lane;
+    private final int quantum;
+
+    private final AtomicInteger pendingRemovals = new AtomicInteger();
+    private final Set<Thread> batchWaiters = ConcurrentHashMap.newKeySet();
+    private final Set<ServiceEngine> retiredEngines = ConcurrentHashMap.newKeySet();
+
+
+    /**
+     * Processes requests with the given engine.
+     */
+    interface RequestHandler {
+
+        void handle(ServiceEngine engine, xMsgMessage msg);
+
+        void handleGroup(ServiceEngine engine, List<xMsgMessage> msgs);
+
+        void remove(ServiceEngine engine);
+    }
+
+
+    DispatchQueue(String name,
+                  int capacity,
+                  ServiceEngine[] engines,
+                  ExecutorService executionPool,
+                  ServiceSysConfig sysConfig,
+                  ServiceReport sysReport,
+                  RequestHandler handler) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid queue capacity: " + capacity);
+        }
+        this.name = name;
+        this.requests = new LinkedBlockingDeque<>(capacity);
+        this.controlRequests = new LinkedBlockingQueue<>();
+        this.idleEngines = new LinkedBlockingQueue<>();
+        this.executionPool = executionPool;
+        this.sysConfig = sysConfig;
+        this.sysReport = sysReport;
+        this.handler = handler;
+        this.controlLatency = sysReport.newControlHistogram();
+        if (executionPool instanceof ServiceScheduler.Lane) {
+            this.lane = (ServiceScheduler.Lane) executionPool;
+            this.quantum = lane.quantum();
+        } else {
+            this.lane = null;
+            this.quantum = Integer.MAX_VALUE;
+        }
+        for (ServiceEngine engine : engines) {
+            idleEngines.add(engine);
+        }
+    }
+
+
+    /**
+     * Queues a new request to be processed by the next available engine.
+     * Blocks if the queue is full.
+     *
+     * @param msg the request
+     * @throws InterruptedException if interrupted while waiting for space in the queue
+     */
+    void put(xMsgMessage msg) throws InterruptedException {
+        requests.put(new Request(msg));
+        sysReport.incrementQueueSize();
+        wakeUpBatchWaiters();
+        schedule();
+    }
+
+
+    /**
+     * Queues a new control request to be processed by the next available
+     * engine, before any queued execute request.
+     * Never blocks.
+     *
+     * @param msg the control request
+     */
+    void putControl(xMsgMessage msg) {
+        controlRequests.add(new Request(msg, true));
+        sysReport.incrementQueueSize();
+        wakeUpBatchWaiters();
+        schedule();
+    }
+
+
+    /**
+     * Queues a new request to be processed by the next available engine,
+     * if there is space in the queue.
+     *
+     * @param msg the request
+     * @return true if the request was queued, false if the queue is full
+     */
+    boolean offer(xMsgMessage msg) {
+        if (!requests.offer(new Request(msg))) {
+            return false;
+        }
+        sysReport.incrementQueueSize();
+        wakeUpBatchWaiters();
+        schedule();
+        return true;
+    }
+
+
+    /**
+     * Processes the request in the calling thread with an idle engine.
+     * The request is not processed if there are queued requests, if all the
+     * engines are busy, if batching is enabled, if the service runs on the
+     * shared pool and it is already running its maximum number of requests,
+     * or if the calling thread is already processing too many nested requests
+     * (i.e. a fused chain of services that loops back).
+     * The request takes a slot of the lane of the service, like the
+     * requests dispatched to the pool.
+     *
+     * @param msg the request
+     * @return true if the request was processed
+     */
+    boolean tryRun(xMsgMessage msg) {
+        if (hasRequests() || sysConfig.isBatchRequest()) {
+            return false;
+        }
+        int[] depth = RUN_DEPTH.get();
+        if (depth[0] >= MAX_RUN_DEPTH) {
+            return false;
+        }
+        if (lane != null && !lane.tryAcquire()) {
+            return false;
+        }
+        ServiceEngine engine = idleEngines.poll();
+        if (engine == null) {
+            if (lane != null) {
+                lane.release();
+            }
+            return false;
+        }
+        depth[0]++;
+        try {
+            engine.recordQueueTime(0);
+            handler.handle(engine, msg);
+        } finally {
+            depth[0]--;
+            release(engine);
+            if (lane != null) {
+                lane.release();
+            }
+            schedule();
+        }
+        return true;
+    }
+
+
+    /**
+     * Adds a new engine to the pool.
+     * The engine starts processing queued requests immediately.
+     *
+     * @param engine the new engine
+     */
+    void addEngine(ServiceEngine engine) {
+        idleEngines.add(engine);
+        schedule();
+    }
+
+
+    /**
+     * Removes engines from the pool.
+     * Idle engines are removed immediately, and busy engines are removed
+     * when they finish their current request, so no request is dropped.
+     * Every removed engine is passed to the request handler.
+     *
+     * @param count the number of engines to be removed
+     */
+    void removeEngines(int count) {
+        pendingRemovals.addAndGet(count);
+        while (pendingRemovals.get() > 0) {
+            ServiceEngine engine = idleEngines.poll();
+            if (engine == null) {
+                return;
+            }
+            release(engine);
+        }
+    }
+
+
+    /**
+     * Removes a busy engine from the pool when it finishes its current
+     * request, even if there are queued requests.
+     * The removed engine is passed to the request handler.
+     *
+     * @param engine the engine to be removed
+     * @return true if the engine will be removed,
+     *         false if it is idle or it is already being removed
+     */
+    boolean retireEngine(ServiceEngine engine) {
+        if (idleEngines.contains(engine)) {
+            return false;
+        }
+        return retiredEngines.add(engine);
+    }
+
+
+    /**
+     * Cancels the removal of busy engines that have not finished yet.
+     *
+     * @param count the maximum number of removals to cancel
+     * @return the number of engines that will be kept in the pool
+     */
+    int cancelRemovals(int count) {
+        int cancelled = 0;
+        while (cancelled < count && takeRemoval()) {
+            cancelled++;
+        }
+        return cancelled;
+    }
+
+
+    /**
+     * Gets the number of engines waiting for requests.
+     *
+     * @return the number of idle engines
+     */
+    int idleEngines() {
+        return idleEngines.size();
+    }
+
+
+    private void release(ServiceEngine engine) {
+        if (retiredEngines.remove(engine)) {
+            handler.remove(engine);
+        } else if (takeRemoval()) {
+            handler.remove(engine);
+        } else {
+            idleEngines.add(engine);
+        }
+    }
+
+
+    private boolean takeRemoval() {
+        int pending = pendingRemovals.get();
+        while (pending > 0) {
+            if (pendingRemovals.compareAndSet(pending, pending - 1)) {
+                return true;
+            }
+            pending = pendingRemovals.get();
+        }
+        return false;
+    }
+
+
+    private boolean hasRequests() {
+        return !controlRequests.isEmpty() || !requests.isEmpty();
+    }
+
+
+    private xMsgMessage poll(ServiceEngine engine) {
+        Request control = controlRequests.poll();
+        if (control != null) {
+            return take(engine, control);
+        }
+        return take(engine, requests.poll());
+    }
+
+
+    /**
+     * Waits for the next request of a batch.
+     * A new control request wakes up the engine before the timeout,
+     * so it can close the batch.
+     */
+    private xMsgMessage poll(ServiceEngine engine, long timeout) {
+        if (timeout <= 0 || !controlRequests.isEmpty()) {
+            return poll(engine);
+        }
+        // on the shared pool, the pool can run other tasks while waiting
+        BatchWait wait = new BatchWait(System.nanoTime() + timeout);
+        Thread thread = Thread.currentThread();
+        batchWaiters.add(thread);
+        try {
+            ForkJoinPool.managedBlock(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            batchWaiters.remove(thread);
+        }
+        if (wait.request != null) {
+            return take(engine, wait.request);
+        }
+        return poll(engine);
+    }
+
+
+    /**
+     * Unparks the engines waiting for the requests of a batch,
+     * so they can check the queues again.
+     */
+    private void wakeUpBatchWaiters() {
+        if (!batchWaiters.isEmpty()) {
+            for (Thread thread : batchWaiters) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+
+    /**
+     * Gets the next request for an engine that has just finished one,
+     * unless the engine must be removed from the pool.
+     */
+    private xMsgMessage pollNext(ServiceEngine engine) {
+        if (pendingRemovals.get() > 0 || retiredEngines.contains(engine)) {
+            return null;
+        }
+        return poll(engine);
+    }
+
+
+    private xMsgMessage take(ServiceEngine engine, Request request) {
+        if (request == null) {
+            return null;
+        }
+        sysReport.decrementQueueSize();
+        long queueTime = System.nanoTime() - request.queuedTime;
+        if (request.isControl) {
+            controlLatency.record(TimeUnit.NANOSECONDS.toMicros(queueTime));
+        } else {
+            engine.recordQueueTime(queueTime);
+        }
+        return request.msg;
+    }
+
+
+    /**
+     * Pairs queued requests with idle engines.
+     * Both the senders (after queuing a request) and the engines (after
+     * becoming idle) call this method, so a request is never left in the queue
+     * while there is an idle engine.
+     */
+    private void schedule() {
+        while (hasRequests()) {
+            ServiceEngine engine = idleEngines.poll();
+            if (engine == null) {
+                return;
+            }
+            xMsgMessage msg = poll(engine);
+            if (msg == null) {
+                release(engine);
+                continue;
+            }
+            try {
+                executionPool.execute(() -> run(engine, msg));
+            } catch (RejectedExecutionException e) {
+                Logging.error("service = %s: request rejected: execution pool is shut down",
+                              name);
+                idleEngines.add(engine);
+                return;
+            }
+        }
+    }
+
+
+    private void run(ServiceEngine engine, xMsgMessage msg) {
+        xMsgMessage next = msg;
+        int processed = 0;
+        while (next != null) {
+            if (processed++ >= quantum && resumeLater(engine, next)) {
+                return;
+            }
+            if (sysConfig.isBatchRequest() && isExecute(next)) {
+                next = runGroup(engine, next);
+            } else {
+                handler.handle(engine, next);
+                next = pollNext(engine);
+            }
+        }
+        release(engine);
+        schedule();
+    }
+
+
+    /**
+     * Continues processing requests with the given engine in a new task,
+     * so the current thread can run the requests of other services.
+     * The engine is kept busy in the meantime.
+     */
+    private boolean resumeLater(ServiceEngine engine, xMsgMessage msg) {
+        try {
+            lane.resume(() -> run(engine, msg));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Collects a batch of execute requests starting with the given one,
+     * and processes them as a group.
+     * A control request closes the batch, and it is returned to be processed
+     * next by the same engine.
+     */
+    private xMsgMessage runGroup(ServiceEngine engine, xMsgMessage first) {
+        int batchSize = sysConfig.getBatchSize();
+        long timeout = TimeUnit.MICROSECONDS.toNanos(sysConfig.getBatchTimeout());
+        long deadline = System.nanoTime() + timeout;
+
+        List<xMsgMessage> group = new ArrayList<>(batchSize);
+        group.add(first);
+
+        xMsgMessage next = null;
+        while (group.size() < batchSize) {
+            xMsgMessage msg = poll(engine, deadline - System.nanoTime());
+            if (msg == null) {
+                break;
+            }
+            if (!isExecute(msg)) {
+                next = msg;
+                break;
+            }
+            group.add(msg);
+        }
+
+        if (group.size() == 1) {
+            handler.handle(engine, first);
+        } else {
+            handler.handleGroup(engine, group);
+        }
+
+        return next != null ? next : pollNext(engine);
+    }
+
+
+    private static boolean isExecute(xMsgMessage msg) {
+        return msg.getMetaData().getAction() == xMsgMeta.ControlAction.EXECUTE;
+    }
+
+
+    /**
+     * Waits for the next request of a batch in a thread of the shared pool,
+     * which can start a spare thread to run other tasks in the meantime.
+     */
+    /**
+     * Waits for the next request of a batch, until the deadline expires or
+     * a control request arrives. The waiting thread is parked, and it is
+     * unparked by the senders of new requests.
+     */
+    private final class BatchWait implements ForkJoinPool.ManagedBlocker {
+
+        private final long deadline;
+        private Request request;
+
+        private BatchWait(long deadline) {
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            while (!isReleasable()) {
+                LockSupport.parkNanos(this, deadline - System.nanoTime());
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            if (request == null) {
+                request = requests.poll();
+            }
+            return request != null
+                    || !controlRequests.isEmpty()
+                    || System.nanoTime() - deadline >= 0;
+        }
+    }
+
+
+    private static final class Request {
+
+        private final xMsgMessage msg;
+        private final long queuedTime;
+        private final boolean isControl;
+
+        private Request(xMsgMessage msg) {
+            this(msg, false);
+        }
+
+        private Request(xMsgMessage msg, boolean isControl) {
+            this.msg = msg;
+            this.queuedTime = System.nanoTime();
+            this.isControl = isControl;
+        }
+    }
+}
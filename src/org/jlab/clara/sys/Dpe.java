@@ -32,6 +32,7 @@ import org.jlab.clara.base.error.ClaraException;
 import org.jlab.clara.engine.EngineDataType;
 import org.jlab.clara.sys.DpeOptionsParser.DpeOptionsException;
 import org.jlab.clara.sys.RequestParser.RequestException;
+import org.jlab.clara.sys.ccc.CompositionCache;
 import org.jlab.clara.util.report.DpeReport;
 import org.jlab.clara.util.report.JsonReportBuilder;
 import org.jlab.coda.xmsg.core.xMsgCallBack;
@@ -48,6 +49,9 @@ import org.zeromq.ZMQ;
 import org.zeromq.ZMQ.Socket;
 import org.zeromq.ZMsg;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -77,6 +81,10 @@ public final class Dpe extends AbstractActor {
     static final int DEFAULT_MAX_CORES = Runtime.getRuntime().availableProcessors();
     static final int DEFAULT_POOL_SIZE = DpeConfig.calculatePoolSize(DEFAULT_MAX_CORES);
     static final long DEFAULT_REPORT_PERIOD = 10_000;
+    static final int DEFAULT_MAX_QUEUE_SIZE = 1024;
+
+    static final long DEFAULT_SHARED_MEMORY_MAX_AGE = 60_000;
+    static final long SHARED_MEMORY_REAP_PERIOD = 10_000;
 
     static final int DEFAULT_MAX_SOCKETS = 1024;
     static final int DEFAULT_IO_THREADS = 1;
@@ -85,10 +93,17 @@ public final class Dpe extends AbstractActor {
     private Proxy proxy = null;
     private FrontEnd frontEnd = null;
     private xMsgSubscription subscriptionHandler;
+    private ScheduledExecutorService sharedMemoryReaper;
+    private PoolAutoScaler poolAutoScaler;
+    private ExecutionWatchdog executionWatchdog;
+    private ServiceScheduler scheduler;
 
     // shared connection pools between all services
     private volatile ConnectionPools connectionPools;
 
+    // asynchronous reports of all services to the front-end
+    private final ReportChannel reportChannel = new ReportChannel(ReportChannel.DEFAULT_CAPACITY);
+
     // session ID
     private volatile String session = "";
 
@@ -96,7 +111,7 @@ public final class Dpe extends AbstractActor {
     private final ConcurrentMap<String, Container> myContainers = new ConcurrentHashMap<>();
 
     private final ReportService reportService;
-    private final int maxCores;
+    private final DpeConfig config;
 
 
     public static void main(String[] args) {
@@ -147,6 +162,10 @@ public final class Dpe extends AbstractActor {
         int poolSize = DEFAULT_POOL_SIZE;
         int maxCores = DEFAULT_MAX_CORES;
         long reportPeriod = DEFAULT_REPORT_PERIOD;
+        int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+        boolean autoScale = false;
+        boolean sharedPool = false;
+        long sharedMemoryMaxAge = DEFAULT_SHARED_MEMORY_MAX_AGE;
         String description = "";
 
         /**
@@ -279,6 +298,73 @@ public final class Dpe extends AbstractActor {
             return this;
         }
 
+        /**
+         * Sets the maximum number of requests that a service can keep queued
+         * while all its engines are busy.
+         * When the queue of a service is full, new requests will wait
+         * until an engine is free.
+         *
+         * @param maxQueueSize the maximum size of the request queue of a service
+         * @return this builder, so methods can be chained
+         */
+        public Builder withMaxQueueSize(int maxQueueSize) {
+            if (maxQueueSize <= 0) {
+                throw new IllegalArgumentException("Invalid queue size: " + maxQueueSize);
+            }
+            this.maxQueueSize = maxQueueSize;
+            return this;
+        }
+
+        /**
+         * Adjusts the pool size of the services to their load.
+         * The pool of a service grows while requests are queued and the CPU
+         * is not saturated, up to the maximum number of cores, and shrinks
+         * back to its deployed size while engines are idle.
+         *
+         * @return this builder, so methods can be chained
+         */
+        public Builder withAutoScaling() {
+            this.autoScale = true;
+            return this;
+        }
+
+        /**
+         * Runs all the services on a single work-stealing pool, with one
+         * thread per core, instead of a dedicated thread-pool per service.
+         * Idle services do not hold any thread, and the cores are used by the
+         * services with pending requests. The concurrency and the share of
+         * every service can be set when it is deployed.
+         * <p>
+         * Stuck engines cannot be replaced, since the thread of a stuck engine
+         * is a thread of the shared pool, and it cannot be compensated.
+         *
+         * @return this builder, so methods can be chained
+         */
+        public Builder withSharedPool() {
+            this.sharedPool = true;
+            return this;
+        }
+
+        /**
+         * Sets the age after which the data passed through shared memory
+         * between local services is removed, if it was never taken by its
+         * receiver. The age must be longer than the time a request can wait
+         * in the queue of a saturated or batching service, or the receiver
+         * will fail to get the data of the request.
+         * If zero, the data is never removed.
+         *
+         * @param maxAge the maximum age of the shared memory data
+         * @param unit the time unit for the maximum age
+         * @return this builder, so methods can be chained
+         */
+        public Builder withSharedMemoryMaxAge(long maxAge, TimeUnit unit) {
+            if (maxAge < 0) {
+                throw new IllegalArgumentException("Invalid shared memory age: " + maxAge);
+            }
+            this.sharedMemoryMaxAge = unit.toMillis(maxAge);
+            return this;
+        }
+
 
         /**
          * Sets a description for this DPE.
@@ -298,7 +384,8 @@ public final class Dpe extends AbstractActor {
          * @return a new DPE
          */
         public Dpe build() {
-            DpeConfig config = new DpeConfig(poolSize, maxCores, reportPeriod);
+            DpeConfig config = new DpeConfig(maxCores, poolSize, reportPeriod, maxQueueSize,
+                                             autoScale, sharedPool, sharedMemoryMaxAge);
             return new Dpe(isFrontEnd, localAddress, frontEndAddress,
                            config, session, description);
         }
@@ -333,7 +420,7 @@ public final class Dpe extends AbstractActor {
         AbstractActor.isFrontEnd.set(isFrontEnd);
         this.reportService = new ReportService(config.reportPeriod(), session);
         this.session = session;
-        this.maxCores = config.maxCores();
+        this.config = config;
     }
 
     /**
@@ -383,8 +470,13 @@ public final class Dpe extends AbstractActor {
             try {
                 startProxyAndFrontEnd();
                 startConnectionPool();
+                startReportChannel();
+                startScheduler();
                 startSubscription();
                 startHeartBeatReport();
+                startSharedMemoryReaper();
+                startPoolAutoScaler();
+                startExecutionWatchdog();
             } catch (ClaraException e) {
                 stop();
                 throw e;
@@ -397,8 +489,13 @@ public final class Dpe extends AbstractActor {
         isShutDown.set(true);
         if (proxy != null) {
             stopHeartBeatReport();
+            stopSharedMemoryReaper();
+            stopPoolAutoScaler();
+            stopExecutionWatchdog();
             stopSubscription();
             stopContainers();
+            stopScheduler();
+            stopReportChannel();
             stopConnectionPool();
             stopProxyAndFrontEnd();
         }
@@ -420,9 +517,20 @@ public final class Dpe extends AbstractActor {
         connectionPools = new ConnectionPools(base.getDefaultProxyAddress());
     }
 
+    private void startReportChannel() {
+        reportChannel.start();
+    }
+
+    private void startScheduler() {
+        if (config.sharedPool()) {
+            scheduler = new ServiceScheduler(config.maxCores());
+        }
+    }
+
     private void cacheConnections() throws ClaraException {
         base.cacheLocalConnection();
 
+        int maxCores = config.maxCores();
         int cachedConnections = (int) (maxCores * 1.5);
         int createdConnections = IntStream.range(0, cachedConnections)
                 .parallel()
@@ -468,6 +576,61 @@ public final class Dpe extends AbstractActor {
         reportService.stop();
     }
 
+    private void startSharedMemoryReaper() {
+        long maxAge = config.sharedMemoryMaxAge();
+        if (maxAge == 0) {
+            return;
+        }
+        long period = Math.min(SHARED_MEMORY_REAP_PERIOD, maxAge);
+        sharedMemoryReaper = Executors.newSingleThreadScheduledExecutor();
+        sharedMemoryReaper.scheduleAtFixedRate(() -> {
+            int leaked = SharedMemory.reap(maxAge, TimeUnit.MILLISECONDS);
+            if (leaked > 0) {
+                Logging.error("removed %d unclaimed shared memory entries", leaked);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private void stopSharedMemoryReaper() {
+        if (sharedMemoryReaper != null) {
+            sharedMemoryReaper.shutdownNow();
+        }
+    }
+
+    private void startPoolAutoScaler() {
+        if (config.autoScale()) {
+            poolAutoScaler = new PoolAutoScaler(this::runningServices,
+                                                PoolAutoScaler.DEFAULT_PERIOD);
+            poolAutoScaler.start();
+        }
+    }
+
+    private void stopPoolAutoScaler() {
+        if (poolAutoScaler != null) {
+            poolAutoScaler.stop();
+        }
+    }
+
+    private void startExecutionWatchdog() {
+        executionWatchdog = new ExecutionWatchdog(this::runningServices,
+                                                  ExecutionWatchdog.DEFAULT_PERIOD);
+        executionWatchdog.start();
+    }
+
+    private void stopExecutionWatchdog() {
+        if (executionWatchdog != null) {
+            executionWatchdog.stop();
+        }
+    }
+
+    private Collection<Service> runningServices() {
+        List<Service> services = new ArrayList<>();
+        for (Container container : myContainers.values()) {
+            services.addAll(container.geServices().values());
+        }
+        return services;
+    }
+
     private void stopSubscription() {
         if (subscriptionHandler != null) {
             base.stopListening(subscriptionHandler);
@@ -487,6 +650,16 @@ public final class Dpe extends AbstractActor {
         myContainers.clear();
     }
 
+    private void stopScheduler() {
+        if (scheduler != null) {
+            scheduler.stop();
+        }
+    }
+
+    private void stopReportChannel() {
+        reportChannel.stop();
+    }
+
     private void stopConnectionPool() {
         if (connectionPools != null) {
             connectionPools.close();
@@ -581,10 +754,25 @@ public final class Dpe extends AbstractActor {
         int poolSize = parser.nextInteger();
         String description = parser.nextString();
         String initialState = parser.nextString();
+        int batchSize = parser.nextInteger(1);
+        long batchTimeout = parser.nextLong(0);
+        boolean prototypeEngine = Boolean.parseBoolean(parser.nextString("false"));
+        long executionDeadline = parser.nextLong(0);
+        boolean replaceStuckEngines = Boolean.parseBoolean(parser.nextString("false"));
+        int warmUpIterations = parser.nextInteger(0);
+        long warmUpTime = parser.nextLong(0);
+        String warmUpSampleType = parser.nextString(ClaraConstants.UNDEFINED);
+        String warmUpSampleFile = parser.nextString(ClaraConstants.UNDEFINED);
+        int maxConcurrency = parser.nextInteger(0);
+        int schedulingWeight = parser.nextInteger(1);
+        if (replaceStuckEngines && scheduler != null) {
+            throw new RequestException("could not start service = " + engineName
+                    + ": replacing stuck engines is not supported with a shared pool");
+        }
         if (poolSize <= 0) {
             poolSize = 1;
-        } else if (poolSize > maxCores) {
-            poolSize = maxCores;
+        } else if (poolSize > config.maxCores()) {
+            poolSize = config.maxCores();
         }
         ClaraComponent serComp = ClaraComponent.service(base.getMe().getDpeHost(),
                                                         base.getMe().getDpePort(),
@@ -596,13 +784,23 @@ public final class Dpe extends AbstractActor {
                                                         description,
                                                         initialState);
 
+        ServiceSysConfig sysConfig = new ServiceSysConfig(serComp.getCanonicalName(),
+                                                          initialState);
+        sysConfig.setBatching(batchSize, batchTimeout);
+        sysConfig.setPrototypeEngine(prototypeEngine);
+        sysConfig.setExecutionDeadline(executionDeadline, replaceStuckEngines);
+        sysConfig.setWarmUp(new WarmUp(warmUpIterations, warmUpTime,
+                                       warmUpSampleType, warmUpSampleFile));
+        sysConfig.setScheduling(maxConcurrency, schedulingWeight);
+
         Container container = myContainers.get(containerName);
         if (container == null) {
             String error = "could not start service = %s: missing container";
             throw new RequestException(String.format(error, serComp));
         }
         try {
-            container.addService(serComp, base.getFrontEnd(), connectionPools, session);
+            container.addService(serComp, sysConfig, base.getFrontEnd(),
+                                 connectionPools, reportChannel, scheduler, config, session);
         } catch (ClaraException e) {
             throw new DpeException("could not start service " + serComp, e);
         }
@@ -726,6 +924,11 @@ public final class Dpe extends AbstractActor {
         }
 
         public String jsonReport() {
+            CompositionCache cache = CompositionCache.shared();
+            myReport.setCompositionCache(cache.hits(), cache.misses());
+            myReport.setSharedMemory(SharedMemory.occupancy(),
+                                     SharedMemory.leakedCount(),
+                                     SharedMemory.rejectedCount());
             return myReportBuilder.generateReport(myReport);
         }
 
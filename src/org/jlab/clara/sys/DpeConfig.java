@@ -27,11 +27,25 @@ class DpeConfig {
     private final int maxCores;
     private final int poolSize;
     private final long reportPeriod;
+    private final int maxQueueSize;
+    private final boolean autoScale;
+    private final boolean sharedPool;
+    private final long sharedMemoryMaxAge;
 
-    DpeConfig(int maxCores, int poolSize, long reportPeriod) {
+    DpeConfig(int maxCores, int poolSize, long reportPeriod, int maxQueueSize) {
+        this(maxCores, poolSize, reportPeriod, maxQueueSize, false, false,
+             Dpe.DEFAULT_SHARED_MEMORY_MAX_AGE);
+    }
+
+    DpeConfig(int maxCores, int poolSize, long reportPeriod, int maxQueueSize,
+              boolean autoScale, boolean sharedPool, long sharedMemoryMaxAge) {
         this.maxCores = maxCores;
         this.poolSize = poolSize;
         this.reportPeriod = reportPeriod;
+        this.maxQueueSize = maxQueueSize;
+        this.autoScale = autoScale;
+        this.sharedPool = sharedPool;
+        this.sharedMemoryMaxAge = sharedMemoryMaxAge;
     }
 
     int maxCores() {
@@ -46,6 +60,22 @@ class DpeConfig {
         return reportPeriod;
     }
 
+    int maxQueueSize() {
+        return maxQueueSize;
+    }
+
+    boolean autoScale() {
+        return autoScale;
+    }
+
+    boolean sharedPool() {
+        return sharedPool;
+    }
+
+    long sharedMemoryMaxAge() {
+        return sharedMemoryMaxAge;
+    }
+
 
     static int calculatePoolSize(int cores) {
         int halfCores = cores / 2;
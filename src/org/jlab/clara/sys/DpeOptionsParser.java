@@ -49,6 +49,10 @@ class DpeOptionsParser {
     private final OptionSpec<Integer> poolSize;
     private final OptionSpec<Integer> maxCores;
     private final OptionSpec<Long> reportPeriod;
+    private final OptionSpec<Integer> maxQueueSize;
+    private final OptionSpec<Void> autoScale;
+    private final OptionSpec<Void> sharedPool;
+    private final OptionSpec<Long> sharedMemoryMaxAge;
 
     private final OptionSpec<Integer> maxSockets;
     private final OptionSpec<Integer> ioThreads;
@@ -81,6 +85,10 @@ class DpeOptionsParser {
         poolSize = parser.accepts("poolsize").withRequiredArg().ofType(Integer.class);
         maxCores = parser.accepts("max-cores").withRequiredArg().ofType(Integer.class);
         reportPeriod = parser.accepts("report").withRequiredArg().ofType(Long.class);
+        maxQueueSize = parser.accepts("max-queue").withRequiredArg().ofType(Integer.class);
+        autoScale = parser.accepts("autoscale");
+        sharedPool = parser.accepts("shared-pool");
+        sharedMemoryMaxAge = parser.accepts("shm-max-age").withRequiredArg().ofType(Long.class);
 
         maxSockets = parser.accepts("max-sockets").withRequiredArg().ofType(Integer.class);
         ioThreads = parser.accepts("io-threads").withRequiredArg().ofType(Integer.class);
@@ -156,7 +164,24 @@ class DpeOptionsParser {
         long reportPeriodSeconds = valueOf(reportPeriod, defaultPeriodSeconds);
         long dpeReportPeriod = TimeUnit.SECONDS.toMillis(reportPeriodSeconds);
 
-        return new DpeConfig(dpeMaxCores, dpePoolSize, dpeReportPeriod);
+        int dpeMaxQueueSize = valueOf(maxQueueSize, Dpe.DEFAULT_MAX_QUEUE_SIZE);
+        if (dpeMaxQueueSize <= 0) {
+            error("Invalid queue size: " + dpeMaxQueueSize);
+        }
+
+        boolean dpeAutoScale = options.has(autoScale);
+        boolean dpeSharedPool = options.has(sharedPool);
+
+        long defaultAgeSeconds = TimeUnit.MILLISECONDS.toSeconds(
+                Dpe.DEFAULT_SHARED_MEMORY_MAX_AGE);
+        long maxAgeSeconds = valueOf(sharedMemoryMaxAge, defaultAgeSeconds);
+        if (maxAgeSeconds < 0) {
+            error("Invalid shared memory age: " + maxAgeSeconds);
+        }
+        long dpeSharedMemoryMaxAge = TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+
+        return new DpeConfig(dpeMaxCores, dpePoolSize, dpeReportPeriod, dpeMaxQueueSize,
+                             dpeAutoScale, dpeSharedPool, dpeSharedMemoryMaxAge);
     }
 
     public int maxSockets() {
@@ -191,6 +216,14 @@ class DpeOptionsParser {
              + OptUtils.optionHelp(poolSize, "size", "size of thread pool to handle requests")
              + OptUtils.optionHelp(maxCores, "cores", "how many cores can be used by a service")
              + OptUtils.optionHelp(reportPeriod, "seconds", "the period to publish reports")
+             + OptUtils.optionHelp(maxQueueSize, "size",
+                                   "maximum number of requests queued by a service")
+             + OptUtils.optionHelp(autoScale, null,
+                                   "adjust the pool size of the services to their load")
+             + OptUtils.optionHelp(sharedPool, null,
+                                   "run all services on a single pool sized to the cores")
+             + OptUtils.optionHelp(sharedMemoryMaxAge, "seconds",
+                                   "age to remove unclaimed shared memory data (0 never)")
              + String.format("%n  Advanced options:%n")
              + OptUtils.optionHelp(maxSockets, "sockets", "maximum number of allowed ZMQ sockets")
              + OptUtils.optionHelp(ioThreads, "threads", "size of ZMQ thread pool to handle I/O");
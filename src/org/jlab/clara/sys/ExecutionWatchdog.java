@@ -0,0 +1,72 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.sys;
+
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Periodically checks that the engines of the services of a DPE are not
+ * stuck on a request.
+ * <p>
+ * Services with an execution deadline report every request that exceeds it,
+ * and optionally replace the stuck engine, so the pool of the service does
+ * not shrink silently.
+ */
+class ExecutionWatchdog {
+
+    static final long DEFAULT_PERIOD = 1_000;
+
+    private final Supplier<Collection<Service>> services;
+    private final ScheduledExecutorService scheduler;
+    private final long period;
+
+    ExecutionWatchdog(Supplier<Collection<Service>> services, long periodMillis) {
+        this.services = services;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.period = periodMillis;
+    }
+
+    void start() {
+        scheduler.scheduleWithFixedDelay(this::run, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private void run() {
+        for (Service service : services.get()) {
+            try {
+                service.checkDeadline();
+            } catch (Exception e) {
+                Logging.error("could not check deadline of service = %s: %s",
+                              service.getReport().getName(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.sys;
+
+import org.jlab.coda.xmsg.core.xMsgMessage;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The services running in this process.
+ * <p>
+ * Requests between services of the same DPE are put directly into the
+ * dispatch queue of the receiving service, skipping the round trip through
+ * the local proxy. The data of these requests is usually passed through the
+ * {@link SharedMemory shared memory}.
+ */
+final class LocalServices {
+
+    private static final Map<String, DispatchQueue>
+            services = new ConcurrentHashMap<>(); // nocheck: ConstantName
+
+    private LocalServices() {
+    }
+
+    static void register(String name, DispatchQueue queue) {
+        services.put(name, queue);
+    }
+
+    static void deregister(String name) {
+        services.remove(name);
+    }
+
+    static boolean contains(String name) {
+        return services.containsKey(name);
+    }
+
+    /**
+     * Dispatches the request to the given service, if it is running in this
+     * process and its queue has free space.
+     * The request is not dispatched otherwise, and it must be published
+     * through the proxy.
+     *
+     * @param name the name of the receiving service
+     * @param msg the request
+     * @return true if the request was dispatched
+     */
+    static boolean dispatch(String name, xMsgMessage msg) {
+        DispatchQueue queue = services.get(name);
+        if (queue == null) {
+            return false;
+        }
+        return queue.offer(msg);
+    }
+
+    /**
+     * Processes the request with the given service in the calling thread,
+     * if it is running in this process and it has an idle engine.
+     * If the service runs on the shared pool, the request also needs a free
+     * slot in the lane of the service, as if it was dispatched to the pool.
+     * The request is not processed otherwise, and it must be dispatched
+     * normally.
+     *
+     * @param name the name of the receiving service
+     * @param msg the request
+     * @return true if the request was processed
+     */
+    static boolean run(String name, xMsgMessage msg) {
+        DispatchQueue queue = services.get(name);
+        if (queue == null) {
+            return false;
+        }
+        return queue.tryRun(msg);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.sys;
+
+import org.jlab.clara.util.report.SystemStats;
+
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Periodically adjusts the pool size of the services of a DPE to their load.
+ * <p>
+ * A service gets a new engine when it has queued requests and no idle
+ * engines, as long as the CPU usage of the DPE is below a threshold.
+ * A service loses an engine when it has no queued requests and more than one
+ * idle engine. The pool size is kept between its deployed size and
+ * the maximum number of cores that a service can use.
+ */
+class PoolAutoScaler {
+
+    static final long DEFAULT_PERIOD = 5_000;
+    static final double MAX_CPU_USAGE = 90.0;
+
+    private final Supplier<Collection<Service>> services;
+    private final ScheduledExecutorService scheduler;
+    private final long period;
+
+    PoolAutoScaler(Supplier<Collection<Service>> services, long periodMillis) {
+        this.services = services;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.period = periodMillis;
+    }
+
+    void start() {
+        scheduler.scheduleWithFixedDelay(this::run, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    void run() {
+        double cpuUsage = SystemStats.getCpuUsage();
+        for (Service service : services.get()) {
+            try {
+                int poolSize = service.getPoolSize();
+                int newSize = nextPoolSize(poolSize,
+                                           service.getInitialPoolSize(),
+                                           service.getMaxPoolSize(),
+                                           service.getReport().getQueueSize(),
+                                           service.getIdleEngines(),
+                                           cpuUsage);
+                if (newSize != poolSize) {
+                    service.resize(newSize);
+                }
+            } catch (Exception e) {
+                Logging.error("could not resize service = %s: %s",
+                              service.getReport().getName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Calculates the new pool size of a service.
+     *
+     * @param poolSize the current pool size
+     * @param minSize the minimum pool size
+     * @param maxSize the maximum pool size
+     * @param queueSize the number of queued requests
+     * @param idleEngines the number of idle engines
+     * @param cpuUsage the CPU usage of the DPE, as a percentage
+     * @return the new pool size, or the same if it should not change
+     */
+    static int nextPoolSize(int poolSize, int minSize, int maxSize,
+                            int queueSize, int idleEngines, double cpuUsage) {
+        if (queueSize > 0 && idleEngines == 0) {
+            if (poolSize < maxSize && !(cpuUsage >= MAX_CPU_USAGE)) {
+                return poolSize + 1;
+            }
+        } else if (queueSize == 0 && idleEngines > 1) {
+            if (poolSize > minSize) {
+                return poolSize - 1;
+            }
+        }
+        return poolSize;
+    }
+}
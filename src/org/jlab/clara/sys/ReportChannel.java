@@ -0,0 +1,325 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.sys;
+
+import org.jlab.clara.base.core.DataUtil;
+import org.jlab.clara.base.error.ClaraException;
+import org.jlab.clara.engine.EngineData;
+import org.jlab.clara.util.report.ServiceReport;
+import org.jlab.coda.xmsg.core.xMsgMessage;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the reports of all the services of a DPE to the front-end.
+ * <p>
+ * The engines queue their done, data, warning and error reports into a
+ * bounded channel, and a single background thread publishes them,
+ * so a slow or remote front-end never blocks the execution threads.
+ * When the channel is full, new reports are dropped.
+ * <p>
+ * A done report that is still waiting in the channel absorbs the next done
+ * reports of the same service, and it is published with the number of
+ * coalesced reports (see {@link DataUtil#getDoneCount}).
+ * Identical errors and warnings of a service are published at most once
+ * per {@link #PROBLEM_INTERVAL interval}, and the repetitions are dropped.
+ * <p>
+ * All dropped, coalesced and suppressed reports are counted in the runtime
+ * report of the service.
+ */
+class ReportChannel {
+
+    /**
+     * The default maximum number of reports waiting to be published.
+     */
+    static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The minimum time between two identical problem reports of a service.
+     */
+    static final long PROBLEM_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * The maximum number of different problems tracked for each service.
+     */
+    static final int MAX_TRACKED_PROBLEMS = 256;
+
+    private final BlockingQueue<Report> reports;
+    private Thread publisher;
+
+
+    /**
+     * Creates the serialized message of a done report.
+     */
+    interface ReportBuilder {
+
+        xMsgMessage build(EngineData data) throws ClaraException;
+    }
+
+
+    ReportChannel(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid channel capacity: " + capacity);
+        }
+        this.reports = new LinkedBlockingQueue<>(capacity);
+    }
+
+
+    /**
+     * Starts publishing the queued reports.
+     */
+    synchronized void start() {
+        if (publisher == null) {
+            publisher = new Thread(this::run, "clara-report-channel");
+            publisher.setDaemon(true);
+            publisher.start();
+        }
+    }
+
+
+    /**
+     * Stops publishing reports.
+     * The reports still waiting in the channel are discarded.
+     */
+    synchronized void stop() {
+        if (publisher != null) {
+            publisher.interrupt();
+            try {
+                publisher.join(TimeUnit.SECONDS.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            publisher = null;
+        }
+        reports.clear();
+    }
+
+
+    /**
+     * Creates the entry point to the channel for the given service.
+     *
+     * @param actor publishes the reports of the service
+     * @param sysReport counts the reports of the service
+     * @return a new reporter for the service
+     */
+    Reporter newReporter(ServiceActor actor, ServiceReport sysReport) {
+        return new Reporter(actor, sysReport);
+    }
+
+
+    /**
+     * Gets the number of reports waiting to be published.
+     *
+     * @return the size of the channel
+     */
+    int size() {
+        return reports.size();
+    }
+
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                publish(reports.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    /**
+     * Publishes the next queued report in the calling thread.
+     *
+     * @return true if a report was published, false if the channel is empty
+     */
+    boolean publishNext() {
+        Report report = reports.poll();
+        if (report == null) {
+            return false;
+        }
+        publish(report);
+        return true;
+    }
+
+
+    private void publish(Report report) {
+        try {
+            report.publish();
+        } catch (ClaraException e) {
+            Logging.error("service = %s: could not publish report: %s",
+                          report.service(), e.getMessage());
+        } catch (Exception e) {
+            Logging.error("service = %s: could not publish report", report.service());
+            e.printStackTrace();
+        }
+    }
+
+
+    /**
+     * Queues the reports of a single service.
+     * The methods of the reporter never block.
+     */
+    final class Reporter {
+
+        private final ServiceActor actor;
+        private final ServiceReport sysReport;
+        private final Map<String, Long> lastProblems = new ConcurrentHashMap<>();
+
+        // guarded by this
+        private DoneReport pendingDone;
+
+        private Reporter(ServiceActor actor, ServiceReport sysReport) {
+            this.actor = actor;
+            this.sysReport = sysReport;
+        }
+
+        /**
+         * Queues a serialized report.
+         *
+         * @param msg the report
+         * @return true if the report was queued, false if it was dropped
+         */
+        boolean publish(xMsgMessage msg) {
+            return offer(new MessageReport(msg));
+        }
+
+        /**
+         * Queues a done report, or adds it to the done report that is already
+         * waiting in the channel. The report is serialized when it is
+         * published, with the total number of coalesced reports.
+         *
+         * @param done the data of the done report
+         * @param builder serializes the done report
+         */
+        synchronized void publishDone(EngineData done, ReportBuilder builder) {
+            if (pendingDone != null) {
+                pendingDone.data = done;
+                pendingDone.count++;
+                sysReport.incrementReportsCoalesced();
+                return;
+            }
+            DoneReport report = new DoneReport(done, builder);
+            if (offer(report)) {
+                pendingDone = report;
+            }
+        }
+
+        /**
+         * Checks if the same problem has been reported recently.
+         * A problem is identified by the status and the description of the
+         * data. Repeated problems are counted as suppressed reports.
+         *
+         * @param data the data with an error or warning status
+         * @return true if the problem should not be reported again yet
+         */
+        boolean isRepeatedProblem(EngineData data) {
+            String key = data.getStatus() + ":" + data.getDescription();
+            long now = System.nanoTime();
+            Long last = lastProblems.get(key);
+            if (last != null && now - last < PROBLEM_INTERVAL) {
+                sysReport.incrementReportsSuppressed();
+                return true;
+            }
+            if (lastProblems.size() >= MAX_TRACKED_PROBLEMS) {
+                lastProblems.clear();
+            }
+            lastProblems.put(key, now);
+            return false;
+        }
+
+        private boolean offer(Report report) {
+            if (!reports.offer(report)) {
+                sysReport.incrementReportsDropped();
+                return false;
+            }
+            return true;
+        }
+
+        private synchronized EngineData takeDone(DoneReport report) {
+            if (pendingDone == report) {
+                pendingDone = null;
+            }
+            if (report.count > 1) {
+                DataUtil.setDoneCount(report.data, report.count);
+            }
+            return report.data;
+        }
+
+
+        private final class MessageReport implements Report {
+
+            private final xMsgMessage msg;
+
+            private MessageReport(xMsgMessage msg) {
+                this.msg = msg;
+            }
+
+            @Override
+            public String service() {
+                return actor.getName();
+            }
+
+            @Override
+            public void publish() throws ClaraException {
+                actor.send(actor.getFrontEnd(), msg);
+            }
+        }
+
+
+        private final class DoneReport implements Report {
+
+            private final ReportBuilder builder;
+            private EngineData data;
+            private int count = 1;
+
+            private DoneReport(EngineData data, ReportBuilder builder) {
+                this.data = data;
+                this.builder = builder;
+            }
+
+            @Override
+            public String service() {
+                return actor.getName();
+            }
+
+            @Override
+            public void publish() throws ClaraException {
+                actor.send(actor.getFrontEnd(), builder.build(takeDone(this)));
+            }
+        }
+    }
+
+
+    private interface Report {
+
+        String service();
+
+        void publish() throws ClaraException;
+    }
+}
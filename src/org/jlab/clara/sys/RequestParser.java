@@ -70,6 +70,22 @@ final class RequestParser {
         }
     }
 
+    public int nextInteger(int defaultValue) throws RequestException {
+        return tokenizer.hasMoreElements() ? nextInteger() : defaultValue;
+    }
+
+    public long nextLong() throws RequestException {
+        try {
+            return Long.parseLong(tokenizer.nextToken());
+        } catch (NoSuchElementException | NumberFormatException e) {
+            throw new RequestException(invalidRequestMsg() + ": " + cmdData);
+        }
+    }
+
+    public long nextLong(long defaultValue) throws RequestException {
+        return tokenizer.hasMoreElements() ? nextLong() : defaultValue;
+    }
+
     public String request() {
         return cmdData;
     }
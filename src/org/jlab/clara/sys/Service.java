@@ -24,7 +24,10 @@ package org.jlab.clara.sys;
 
 import org.jlab.clara.base.core.ClaraConstants;
 import org.jlab.clara.base.core.ClaraComponent;
+import org.jlab.clara.base.core.DataCodec;
+import org.jlab.clara.base.core.DataCodecs;
 import org.jlab.clara.base.error.ClaraException;
+import org.jlab.clara.engine.ByteBufferPool;
 import org.jlab.clara.engine.Engine;
 import org.jlab.clara.sys.RequestParser.RequestException;
 import org.jlab.clara.util.report.ServiceReport;
@@ -37,8 +40,13 @@ import org.jlab.coda.xmsg.data.xMsgM.xMsgMeta;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -48,20 +56,40 @@ import java.util.concurrent.TimeUnit;
  * where N is user specified value (usually equals to the number of cores).
  * A thread pool contains threads to run each object within.
  * Number of threads in the pool is equal to the size of the object pool.
- * Thread pool is fixed size, however object pool is capable of expanding.
+ * Requests received while all engines are busy wait in a bounded
+ * {@link DispatchQueue dispatch queue}.
+ * <p>
+ * By default all the objects in the pool share the same user engine.
+ * In prototype mode every object has its own engine instance,
+ * so the engine is never executed concurrently by several threads.
+ * <p>
+ * The size of the pools can be changed while the service is running,
+ * up to the maximum number of cores that a service can use.
  */
 class Service extends AbstractActor {
 
     private final String name;
+    private final String engineClass;
+    private final EngineLoader engineLoader;
     private final Engine userEngine;
 
     private final ExecutorService executionPool;
-    private final ServiceEngine[] enginePool;
+    private final List<ServiceEngine> enginePool = new CopyOnWriteArrayList<>();
+    private final Set<ServiceEngine> stuckEngines = ConcurrentHashMap.newKeySet();
+    private final List<Engine> coldEngines = new ArrayList<>();
+    private final ServiceActor engineActor;
+    private final ReportChannel.Reporter reporter;
+    private final ByteBufferPool bufferPool;
+    private final int initialPoolSize;
+    private final int maxPoolSize;
+    private int poolSize;
+    private final DispatchQueue dispatchQueue;
     private final ServiceSysConfig sysConfig;
     private final ServiceReport sysReport;
 
     private xMsgSubscription subscription;
 
+    // checkstyle.off: ParameterNumber
     /**
      * Constructor of a service.
      * <p>
@@ -69,40 +97,61 @@ class Service extends AbstractActor {
      * Create object pool to hold the engines this service.
      * Object pool size is set to be 2 in case it was requested
      * to be 0 or negative number.
+     * Create the queue to hold the requests waiting for a free engine.
      *
      * @throws ClaraException
      */
     Service(ClaraComponent comp,
+            ServiceSysConfig sysConfig,
             ClaraComponent frontEnd,
             ConnectionPools connectionPools,
+            ReportChannel reportChannel,
+            ServiceScheduler scheduler,
+            DpeConfig dpeConfig,
             String session) throws ClaraException {
         super(comp, frontEnd);
 
         name = comp.getCanonicalName();
-        sysConfig = new ServiceSysConfig(name, comp.getInitialState());
+        engineClass = comp.getEngineClass();
+        this.sysConfig = sysConfig;
 
         // Dynamic loading of the CLARA engine class
         // Note: using system class loader
-        EngineLoader cl = new EngineLoader(ClassLoader.getSystemClassLoader());
-        userEngine = cl.load(comp.getEngineClass());
+        engineLoader = new EngineLoader(ClassLoader.getSystemClassLoader());
+        userEngine = engineLoader.load(engineClass);
+        coldEngines.add(userEngine);
 
         sysReport = new ServiceReport(comp, userEngine, session);
 
-        // Creating thread pool
-        executionPool = xMsgUtil.newThreadPool(comp.getSubscriptionPoolSize(), name);
-
-        // Creating service object pool
-        enginePool = new ServiceEngine[comp.getSubscriptionPoolSize()];
+        // Creating thread pool, or a lane in the shared pool of the DPE
+        if (scheduler != null) {
+            executionPool = scheduler.newLane(name, sysConfig.getMaxConcurrency(),
+                                              sysConfig.getSchedulingWeight());
+        } else {
+            executionPool = xMsgUtil.newThreadPool(comp.getSubscriptionPoolSize(), name);
+        }
 
         // Fill the object pool
-        ServiceActor engineActor = new ServiceActor(comp, frontEnd, connectionPools);
-        for (int i = 0; i < comp.getSubscriptionPoolSize(); i++) {
-            enginePool[i] = new ServiceEngine(userEngine, engineActor, sysConfig, sysReport);
+        engineActor = new ServiceActor(comp, frontEnd, connectionPools, sysConfig, sysReport);
+        reporter = reportChannel.newReporter(engineActor, sysReport);
+        initialPoolSize = comp.getSubscriptionPoolSize();
+        maxPoolSize = Math.max(dpeConfig.maxCores(), initialPoolSize);
+        poolSize = initialPoolSize;
+        bufferPool = new ByteBufferPool(2 * maxPoolSize);
+        for (int i = 0; i < poolSize; i++) {
+            enginePool.add(newEngine(i > 0));
         }
 
+        // Creating the queue of pending requests
+        dispatchQueue = new DispatchQueue(name, dpeConfig.maxQueueSize(),
+                                          enginePool.toArray(new ServiceEngine[0]),
+                                          executionPool, sysConfig, sysReport,
+                                          new EngineHandler());
+
         // Register with the shared memory
         SharedMemory.addReceiver(name);
     }
+    // checkstyle.on: ParameterNumber
 
 
     @Override
@@ -111,7 +160,7 @@ class Service extends AbstractActor {
 
         // start the engines
         try {
-            Arrays.stream(enginePool).parallel().forEach(s -> {
+            enginePool.parallelStream().forEach(s -> {
                 try {
                     s.start();
                 } catch (ClaraException e) {
@@ -122,18 +171,52 @@ class Service extends AbstractActor {
             throw e.getCause();
         }
 
+        warmUp();
+
         // subscribe and register
         xMsgTopic topic = base.getMe().getTopic();
         xMsgCallBack callback = new ServiceCallBack();
         String description = base.getDescription();
         subscription = startRegisteredSubscription(topic, callback, description);
+
+        // accept requests from local services
+        LocalServices.register(name, dispatchQueue);
+    }
+
+
+    /**
+     * Warms up the user engines that have not received any request yet.
+     * Every engine instance is warmed up once: the shared engine, or every
+     * prototype engine, including those created to resize the pool or to
+     * replace a stuck engine.
+     */
+    synchronized void warmUp() {
+        WarmUp warmUp = sysConfig.getWarmUp();
+        if (warmUp.isEnabled()) {
+            for (Engine engine : coldEngines) {
+                try {
+                    WarmUp.Result result = warmUp.run(engine);
+                    sysReport.addWarmUp(result.iterations, result.time);
+                    Logging.info("warmed up service = %s  iterations = %d  failures = %d"
+                                 + "  time = %d ms",
+                                 name, result.iterations, result.failures,
+                                 TimeUnit.MICROSECONDS.toMillis(result.time));
+                } catch (ClaraException e) {
+                    Logging.error("could not warm up service = %s: %s", name, e.getMessage());
+                }
+            }
+        }
+        coldEngines.clear();
     }
 
 
     @Override
     void end() {
+        LocalServices.deregister(name);
         stopSubscription();
         destroyEngines();
+        engineActor.releaseConnections();
+        SharedMemory.removeReceiver(name);
     }
 
 
@@ -149,65 +232,214 @@ class Service extends AbstractActor {
     }
 
 
-    private void configure(final xMsgMessage msg) throws Exception {
-        while (true) {
-            for (final ServiceEngine engine : enginePool) {
-                if (engine.tryAcquire()) {
-                    executionPool.submit(() -> {
-                        try {
-                            engine.configure(msg);
-                        } catch (Exception e) {
-                            printUnhandledException(e);
-                        } finally {
-                            engine.release();
-                        }
-                    });
-                    return;
-                }
+    private void configure(xMsgMessage msg) {
+        dispatchQueue.putControl(msg);
+    }
+
+
+    void execute(xMsgMessage msg) throws InterruptedException {
+        dispatchQueue.put(msg);
+    }
+
+
+    private ServiceEngine newEngine(boolean isNewSlot) throws ClaraException {
+        Engine engine = userEngine;
+        if (sysConfig.isPrototypeEngine() && isNewSlot) {
+            engine = engineLoader.load(engineClass);
+            coldEngines.add(engine);
+        }
+        return new ServiceEngine(engine, engineActor, sysConfig, sysReport, reporter, bufferPool);
+    }
+
+
+    /**
+     * Changes the number of engines and threads of the service.
+     * New engines are started and warmed up before they receive requests,
+     * and busy engines are removed once they finish the current request.
+     *
+     * @param size the new pool size, bounded by the maximum number of cores
+     * @throws ClaraException if a new engine could not be created
+     */
+    synchronized void resize(int size) throws ClaraException {
+        int newSize = Math.max(1, Math.min(size, maxPoolSize));
+        if (newSize == poolSize) {
+            return;
+        }
+        if (newSize > poolSize) {
+            int missing = newSize - poolSize - dispatchQueue.cancelRemovals(newSize - poolSize);
+            List<ServiceEngine> engines = new ArrayList<>(missing);
+            for (int i = 0; i < missing; i++) {
+                ServiceEngine engine = newEngine(true);
+                engine.start();
+                engines.add(engine);
             }
+            warmUp();
+            resizeExecutionPool(newSize + stuckEngines.size());
+            for (ServiceEngine engine : engines) {
+                enginePool.add(engine);
+                dispatchQueue.addEngine(engine);
+            }
+        } else {
+            dispatchQueue.removeEngines(poolSize - newSize);
+            resizeExecutionPool(newSize + stuckEngines.size());
         }
+        poolSize = newSize;
+        sysReport.setPoolSize(newSize);
+        Logging.info("resized service = %s  pool_size = %d", name, newSize);
     }
 
 
-    private void execute(final xMsgMessage msg) {
-        while (true) {
-            for (final ServiceEngine engine : enginePool) {
-                if (engine.tryAcquire()) {
-                    executionPool.submit(() -> {
-                        try {
-                            engine.execute(msg);
-                        } catch (Exception e) {
-                            printUnhandledException(e);
-                        } finally {
-                            engine.release();
-                        }
-                    });
-                    return;
+    /**
+     * Checks if any engine has exceeded the execution deadline of the service.
+     * Every overrun is reported once. If the service is set to replace stuck
+     * engines, a new engine (and thread) takes the slot of the stuck engine,
+     * which is removed from the pool once its execution finally returns.
+     */
+    void checkDeadline() {
+        long deadline = TimeUnit.MILLISECONDS.toNanos(sysConfig.getExecutionDeadline());
+        if (deadline <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (ServiceEngine engine : enginePool) {
+            if (engine.checkOverrun(now, deadline)) {
+                sysReport.incrementOverrunCount();
+                if (sysConfig.isReplacingStuckEngines()) {
+                    try {
+                        replaceEngine(engine);
+                    } catch (ClaraException e) {
+                        Logging.error("service = %s: could not replace stuck engine: %s",
+                                      name, e.getMessage());
+                    }
                 }
             }
         }
     }
 
 
-    private void setup(xMsgMessage msg) throws RequestException {
+    private synchronized void replaceEngine(ServiceEngine stuckEngine) throws ClaraException {
+        if (!dispatchQueue.retireEngine(stuckEngine)) {
+            return;
+        }
+        stuckEngines.add(stuckEngine);
+        ServiceEngine engine = newEngine(true);
+        engine.start();
+        warmUp();
+        resizeExecutionPool(poolSize + stuckEngines.size());
+        enginePool.add(engine);
+        dispatchQueue.addEngine(engine);
+        Logging.info("replaced stuck engine of service = %s", name);
+    }
+
+
+    private synchronized void releaseStuckEngine(ServiceEngine engine) {
+        if (stuckEngines.remove(engine)) {
+            resizeExecutionPool(poolSize + stuckEngines.size());
+        }
+    }
+
+
+    private void resizeExecutionPool(int size) {
+        if (executionPool instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executionPool;
+            if (size > pool.getMaximumPoolSize()) {
+                pool.setMaximumPoolSize(size);
+                pool.setCorePoolSize(size);
+            } else {
+                pool.setCorePoolSize(size);
+                pool.setMaximumPoolSize(size);
+            }
+        } else if (executionPool instanceof ServiceScheduler.Lane) {
+            // stuck engines do not count against the concurrency cap
+            int maxConcurrency = sysConfig.getMaxConcurrency();
+            if (maxConcurrency > 0) {
+                ServiceScheduler.Lane lane = (ServiceScheduler.Lane) executionPool;
+                lane.setMaxConcurrency(maxConcurrency + stuckEngines.size());
+            }
+        }
+    }
+
+
+    synchronized int getPoolSize() {
+        return poolSize;
+    }
+
+
+    int getInitialPoolSize() {
+        return initialPoolSize;
+    }
+
+
+    int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+
+    int getIdleEngines() {
+        return dispatchQueue.idleEngines();
+    }
+
+
+    private void setup(xMsgMessage msg) throws RequestException, ClaraException {
         RequestParser setup = RequestParser.build(msg);
         String report = setup.nextString();
-        int value = setup.nextInteger();
+        long value = setup.nextLong();
         boolean publishReport = value > 0; // 0 is used to cancel reports
         switch (report) {
             case ClaraConstants.SERVICE_REPORT_DONE:
                 sysConfig.setDoneRequest(publishReport);
-                sysConfig.setDoneReportThreshold(value);
+                sysConfig.setDoneReportThreshold(toInt(value));
                 sysConfig.resetDoneRequestCount();
                 break;
             case ClaraConstants.SERVICE_REPORT_DATA:
                 sysConfig.setDataRequest(publishReport);
-                sysConfig.setDataReportThreshold(value);
+                sysConfig.setDataReportThreshold(toInt(value));
                 sysConfig.resetDataRequestCount();
                 break;
             case ClaraConstants.SERVICE_REPORT_RING:
                 sysConfig.setRingRequest(publishReport);
                 break;
+            case ClaraConstants.SERVICE_BATCH:
+                sysConfig.setBatching(toInt(value), setup.nextLong());
+                break;
+            case ClaraConstants.SERVICE_FUSION:
+                sysConfig.setChainFusion(value > 0);
+                break;
+            case ClaraConstants.SERVICE_POOL_SIZE:
+                resize(toInt(value));
+                break;
+            case ClaraConstants.SERVICE_RECYCLING:
+                sysConfig.setRecycling(value > 0);
+                break;
+            case ClaraConstants.SERVICE_CONNECTIONS:
+                sysConfig.setPersistentConnections(value > 0);
+                break;
+            case ClaraConstants.SERVICE_DEADLINE:
+                boolean replaceStuckEngines = value > 0 && setup.nextInteger() > 0;
+                if (replaceStuckEngines && executionPool instanceof ServiceScheduler.Lane) {
+                    throw new RequestException("Replacing stuck engines is not supported "
+                                               + "with a shared pool");
+                }
+                sysConfig.setExecutionDeadline(value, replaceStuckEngines);
+                break;
+            case ClaraConstants.SERVICE_PROFILING:
+                if (value > 0) {
+                    ThreadUsage.enable();
+                }
+                sysConfig.setProfiling(value > 0);
+                break;
+            case ClaraConstants.SERVICE_COMPRESSION:
+                if (value > 0) {
+                    String codecName = setup.nextString();
+                    DataCodec codec = DataCodecs.get(codecName);
+                    if (codec == null) {
+                        throw new RequestException("Unsupported codec: " + codecName);
+                    }
+                    sysConfig.setCompression(codec, setup.nextInteger());
+                } else {
+                    sysConfig.setCompression(null, 0);
+                }
+                break;
             default:
                 throw new RequestException("Invalid report request: " + report);
         }
@@ -217,6 +449,14 @@ class Service extends AbstractActor {
     }
 
 
+    private static int toInt(long value) throws RequestException {
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new RequestException("Invalid value: " + value);
+        }
+        return (int) value;
+    }
+
+
     private void printUnhandledException(Exception e) {
         StringWriter errors = new StringWriter();
         errors.write(name + ": CLARA error: ");
@@ -251,8 +491,12 @@ class Service extends AbstractActor {
 
     private void destroyEngines() {
         destroyPool();
-        Arrays.stream(enginePool).parallel().forEach(ServiceEngine::stop);
-        userEngine.destroy();
+        enginePool.parallelStream().forEach(ServiceEngine::stop);
+        if (sysConfig.isPrototypeEngine()) {
+            enginePool.parallelStream().forEach(ServiceEngine::destroy);
+        } else {
+            userEngine.destroy();
+        }
     }
 
 
@@ -272,6 +516,42 @@ class Service extends AbstractActor {
     }
 
 
+    private class EngineHandler implements DispatchQueue.RequestHandler {
+
+        @Override
+        public void handle(ServiceEngine engine, xMsgMessage msg) {
+            try {
+                if (msg.getMetaData().getAction().equals(xMsgMeta.ControlAction.CONFIGURE)) {
+                    engine.configure(msg);
+                } else {
+                    engine.execute(msg);
+                }
+            } catch (Exception e) {
+                printUnhandledException(e);
+            }
+        }
+
+        @Override
+        public void handleGroup(ServiceEngine engine, List<xMsgMessage> msgs) {
+            try {
+                engine.executeGroup(msgs);
+            } catch (Exception e) {
+                printUnhandledException(e);
+            }
+        }
+
+        @Override
+        public void remove(ServiceEngine engine) {
+            enginePool.remove(engine);
+            releaseStuckEngine(engine);
+            engine.stop();
+            if (sysConfig.isPrototypeEngine()) {
+                engine.destroy();
+            }
+        }
+    }
+
+
     private class ServiceCallBack implements xMsgCallBack {
 
         @Override
@@ -285,6 +565,8 @@ class Service extends AbstractActor {
                 } else {
                     execute(msg);
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             } catch (Exception e) {
                 e.printStackTrace();
                 if (msg.hasReplyTopic()) {
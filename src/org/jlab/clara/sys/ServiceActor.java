@@ -25,20 +25,58 @@ package org.jlab.clara.sys;
 import org.jlab.clara.base.core.ClaraBase;
 import org.jlab.clara.base.core.ClaraComponent;
 import org.jlab.clara.base.error.ClaraException;
+import org.jlab.clara.util.report.LatencyHistogram;
+import org.jlab.clara.util.report.ServiceReport;
 import org.jlab.coda.xmsg.core.xMsgConnection;
 import org.jlab.coda.xmsg.core.xMsgConnectionPool;
 import org.jlab.coda.xmsg.core.xMsgMessage;
 import org.jlab.coda.xmsg.excp.xMsgException;
 import org.jlab.coda.xmsg.net.xMsgProxyAddress;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the messages of a service.
+ * <p>
+ * By default, every message checks out a connection from the shared pool
+ * and returns it after publishing. With persistent connections, every thread
+ * keeps its own connection to each proxy for as long as the service runs.
+ * A connection that fails to publish is discarded and the message is sent
+ * again with a new connection. Connections that have been idle for too long
+ * are replaced before being used again.
+ */
 class ServiceActor {
 
+    /**
+     * The time after which an idle persistent connection is replaced.
+     */
+    static final long MAX_IDLE_TIME = TimeUnit.SECONDS.toNanos(30);
+
     private final ClaraBase base;
     private final ConnectionPools connectionPools;
-
-    ServiceActor(ClaraComponent me, ClaraComponent frontEnd, ConnectionPools connectionPools) {
+    private final ServiceSysConfig sysConfig;
+    private final ServiceReport sysReport;
+    private final LatencyHistogram checkoutLatency;
+
+    private final ThreadLocal<ThreadConnections> threadConnections = new ThreadLocal<>();
+    private final Set<ThreadConnections> allConnections = ConcurrentHashMap.newKeySet();
+    private volatile boolean isReleased;
+
+    ServiceActor(ClaraComponent me,
+                 ClaraComponent frontEnd,
+                 ConnectionPools connectionPools,
+                 ServiceSysConfig sysConfig,
+                 ServiceReport sysReport) {
         this.base = new ClaraBase(me, frontEnd);
         this.connectionPools = connectionPools;
+        this.sysConfig = sysConfig;
+        this.sysReport = sysReport;
+        this.checkoutLatency = sysReport.newCheckoutHistogram();
     }
 
     public void close() {
@@ -67,13 +105,56 @@ class ServiceActor {
 
     private void sendMsg(xMsgConnectionPool pool, xMsgProxyAddress address, xMsgMessage msg)
             throws ClaraException {
-        try (xMsgConnection con = pool.getConnection(address)) {
+        if (pool == connectionPools.mainPool) {
+            if (sysConfig.isPersistentConnections() && !isReleased) {
+                getThreadConnections().send(address, msg);
+                return;
+            }
+            ThreadConnections connections = threadConnections.get();
+            if (connections != null) {
+                connections.closeAll();
+            }
+        }
+        try (xMsgConnection con = checkout(pool, address)) {
             base.send(con, msg);
         } catch (xMsgException e) {
+            sysReport.incrementConnectionFailures();
             throw new ClaraException("Could not send message", e);
         }
     }
 
+    private xMsgConnection checkout(xMsgConnectionPool pool, xMsgProxyAddress address)
+            throws xMsgException {
+        long startTime = System.nanoTime();
+        xMsgConnection con = pool.getConnection(address);
+        checkoutLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+        sysReport.incrementConnectionCheckouts();
+        return con;
+    }
+
+    private ThreadConnections getThreadConnections() {
+        ThreadConnections connections = threadConnections.get();
+        if (connections == null) {
+            connections = new ThreadConnections();
+            threadConnections.set(connections);
+            allConnections.add(connections);
+        }
+        return connections;
+    }
+
+    /**
+     * Returns the persistent connections of all threads to the pool.
+     * New messages will use the pool for every message.
+     * Must be called when the service is stopped.
+     */
+    public void releaseConnections() {
+        isReleased = true;
+        for (ThreadConnections connections : allConnections) {
+            connections.closeAll();
+        }
+        allConnections.clear();
+    }
+
     public String getName() {
         return base.getName();
     }
@@ -89,4 +170,74 @@ class ServiceActor {
     public xMsgProxyAddress getFrontEnd() {
         return base.getFrontEnd().getProxyAddress();
     }
+
+
+    /**
+     * The persistent connections of a single thread.
+     * Only the owner thread publishes through these connections,
+     * but they can be closed by the thread that stops the service.
+     * Failed or stale connections are destroyed instead of being returned
+     * to the pool, so they are never checked out again.
+     */
+    private final class ThreadConnections {
+
+        private final Map<xMsgProxyAddress, PersistentConnection> connections = new HashMap<>();
+
+        synchronized void send(xMsgProxyAddress address, xMsgMessage msg)
+                throws ClaraException {
+            long now = System.nanoTime();
+            PersistentConnection pc = connections.get(address);
+            if (pc != null && now - pc.lastUse > MAX_IDLE_TIME) {
+                destroy(address);
+                pc = null;
+            }
+            try {
+                if (pc != null) {
+                    sysReport.incrementConnectionReuses();
+                    try {
+                        base.send(pc.con, msg);
+                        pc.lastUse = now;
+                        return;
+                    } catch (xMsgException e) {
+                        sysReport.incrementConnectionFailures();
+                        destroy(address);
+                    }
+                }
+                pc = new PersistentConnection(checkout(connectionPools.mainPool, address));
+                pc.lastUse = now;
+                connections.put(address, pc);
+                base.send(pc.con, msg);
+            } catch (xMsgException e) {
+                sysReport.incrementConnectionFailures();
+                destroy(address);
+                throw new ClaraException("Could not send message", e);
+            }
+        }
+
+        private void destroy(xMsgProxyAddress address) {
+            PersistentConnection pc = connections.remove(address);
+            if (pc != null) {
+                pc.con.destroy();
+            }
+        }
+
+        synchronized void closeAll() {
+            Iterator<PersistentConnection> it = connections.values().iterator();
+            while (it.hasNext()) {
+                it.next().con.close();
+                it.remove();
+            }
+        }
+    }
+
+
+    private static final class PersistentConnection {
+
+        private final xMsgConnection con;
+        private long lastUse;
+
+        PersistentConnection(xMsgConnection con) {
+            this.con = con;
+        }
+    }
 }
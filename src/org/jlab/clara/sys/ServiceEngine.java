@@ -25,22 +25,28 @@ package org.jlab.clara.sys;
 import org.jlab.clara.base.DpeName;
 import org.jlab.clara.base.core.ClaraConstants;
 import org.jlab.clara.base.core.ClaraComponent;
+import org.jlab.clara.base.core.DataCodec;
+import org.jlab.clara.base.core.DataTypeRegistry;
 import org.jlab.clara.base.core.DataUtil;
 import org.jlab.clara.base.error.ClaraException;
+import org.jlab.clara.engine.ByteBufferPool;
 import org.jlab.clara.engine.Engine;
 import org.jlab.clara.engine.EngineData;
 import org.jlab.clara.engine.EngineDataType;
 import org.jlab.clara.engine.EngineStatus;
-import org.jlab.clara.sys.ccc.CompositionCompiler;
-import org.jlab.clara.sys.ccc.ServiceState;
+import org.jlab.clara.sys.ccc.CompiledComposition;
+import org.jlab.clara.sys.ccc.CompositionCache;
+import org.jlab.clara.sys.ccc.Destination;
+import org.jlab.clara.util.report.LatencyHistogram;
 import org.jlab.clara.util.report.ServiceReport;
 import org.jlab.coda.xmsg.core.xMsgConstants;
 import org.jlab.coda.xmsg.core.xMsgMessage;
 import org.jlab.coda.xmsg.core.xMsgTopic;
 import org.jlab.coda.xmsg.data.xMsgM.xMsgMeta;
 
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -52,34 +58,72 @@ import java.util.concurrent.TimeUnit;
  */
 class ServiceEngine {
 
+    private static final byte[] SHARED_MEMORY_DATA = ClaraConstants.SHARED_MEMORY_KEY.getBytes();
+
     private final Engine engine;
     private final ServiceActor base;
 
     private final ServiceSysConfig sysConfig;
     private final ServiceReport sysReport;
+    private final ReportChannel.Reporter reporter;
+    private final ReportChannel.ReportBuilder doneBuilder;
+    private final ByteBufferPool bufferPool;
 
-    private final Semaphore semaphore = new Semaphore(1);
+    private final DataTypeRegistry inputTypes;
+    private final DataTypeRegistry outputTypes;
 
-    private final CompositionCompiler compiler;
+    private final LatencyHistogram executionLatency;
+    private final LatencyHistogram queueLatency;
+    private final LatencyHistogram serializationLatency;
 
     private final ClaraComponent monitorFe;
 
     // Already recorded (previous) composition
     private String prevComposition = ClaraConstants.UNDEFINED;
+    private CompiledComposition compiledComposition;
 
     // The last execution time
     private long executionTime;
 
+    // The current execution, checked by the watchdog of the DPE
+    private volatile long executionStart;
+    private volatile int executionId;
+    private volatile Thread executionThread;
+    private volatile boolean isOverrun;
+
+    // The thread usage when the last execution started (profiling mode only)
+    private long startCpuTime = -1;
+    private long startAllocatedBytes = -1;
+
+    // The last configuration applied to the engine (prototype mode only)
+    private EngineData currentConfiguration;
+
+    // Containers reused by the next request (recycling mode only)
+    private EngineData spareInput;
+    private xMsgMeta.Builder spareMetadata;
+
+    // The input data created for the current request
+    private EngineData ownedInput;
+
 
     ServiceEngine(Engine userEngine,
                   ServiceActor base,
                   ServiceSysConfig config,
-                  ServiceReport report) {
+                  ServiceReport report,
+                  ReportChannel.Reporter reporter,
+                  ByteBufferPool bufferPool) {
         this.base = base;
         this.engine = userEngine;
         this.sysConfig = config;
         this.sysReport = report;
-        this.compiler = new CompositionCompiler(base.getName());
+        this.reporter = reporter;
+        this.doneBuilder = data -> serializeReport(ClaraConstants.DONE, data);
+        this.bufferPool = bufferPool;
+        this.inputTypes = new DataTypeRegistry(userEngine.getInputDataTypes());
+        this.outputTypes = new DataTypeRegistry(userEngine.getOutputDataTypes());
+        this.executionLatency = report.newExecutionHistogram();
+        this.queueLatency = report.newQueueHistogram();
+        this.serializationLatency = report.newSerializationHistogram();
 
         DpeName monFeDpe = FrontEnd.getMonitorFrontEnd();
         this.monitorFe = monFeDpe != null ? ClaraComponent.dpe(monFeDpe.canonicalName()) : null;
@@ -90,7 +134,11 @@ class ServiceEngine {
     }
 
     void stop() {
-        // nothing
+        sysReport.retireEngineHistograms(executionLatency, queueLatency, serializationLatency);
+    }
+
+    void destroy() {
+        engine.destroy();
     }
 
     public void configure(xMsgMessage message) throws ClaraException {
@@ -100,6 +148,14 @@ class ServiceEngine {
         try {
             inputData = getEngineData(message);
             outData = configureEngine(inputData);
+            if (sysConfig.isPrototypeEngine() && outData.getStatus() != EngineStatus.ERROR) {
+                // decode now, the shared data will be read by the other engines
+                inputData.getData();
+                sysConfig.setConfiguration(inputData);
+                currentConfiguration = inputData;
+            }
+        } catch (ExpiredDataException e) {
+            outData = expiredDataError(e);
         } catch (Exception e) {
             Logging.error("UNHANDLED EXCEPTION ON SERVICE CONFIGURATION: %s", base.getName());
             e.printStackTrace();
@@ -132,7 +188,7 @@ class ServiceEngine {
         if (outData == null) {
             outData = new EngineData();
         }
-        if (outData.getData() == null) {
+        if (!DataUtil.hasData(outData)) {
             outData.setData(EngineDataType.STRING.mimeType(), "done");
         }
 
@@ -140,7 +196,51 @@ class ServiceEngine {
     }
 
 
+    /**
+     * In prototype mode every slot has its own engine, but a configuration
+     * request is received by only one of them.
+     * The other engines are configured with the same data before they execute
+     * their next request. Since the configuration request was already replied,
+     * a failure is reported as an error of the service.
+     */
+    private void updateConfiguration() {
+        if (!sysConfig.isPrototypeEngine()) {
+            return;
+        }
+        EngineData configuration = sysConfig.getConfiguration();
+        if (configuration == null || configuration == currentConfiguration) {
+            return;
+        }
+        currentConfiguration = configuration;
+
+        EngineData outData;
+        try {
+            outData = engine.configure(configuration);
+        } catch (Exception e) {
+            Logging.error("UNHANDLED EXCEPTION ON SERVICE CONFIGURATION: %s", base.getName());
+            e.printStackTrace();
+            outData = DataUtil.buildErrorData("unhandled exception", 4, e);
+        }
+        if (outData == null || outData.getStatus() != EngineStatus.ERROR) {
+            return;
+        }
+        Logging.error("service = %s: engine configuration failed: %s",
+                      base.getName(), outData.getDescription());
+        if (!DataUtil.hasData(outData)) {
+            outData.setData(EngineDataType.STRING.mimeType(), outData.getDescription());
+        }
+        updateMetadata(DataUtil.getMetadata(configuration), DataUtil.getMetadata(outData));
+        try {
+            reportProblem(outData);
+        } catch (ClaraException e) {
+            Logging.error("service = %s: %s", base.getName(), e.getMessage());
+        }
+    }
+
+
     public void execute(xMsgMessage message) throws ClaraException {
+        updateConfiguration();
+
         sysConfig.addRequest();
         sysReport.incrementRequestCount();
 
@@ -152,6 +252,9 @@ class ServiceEngine {
             parseComposition(inData);
             outData = executeEngine(inData);
             sysReport.addExecutionTime(executionTime);
+            executionLatency.record(executionTime);
+        } catch (ExpiredDataException e) {
+            outData = expiredDataError(e);
         } catch (Exception e) {
             Logging.error("UNHANDLED EXCEPTION ON SERVICE EXECUTION: %s", base.getName());
             e.printStackTrace();
@@ -165,6 +268,81 @@ class ServiceEngine {
             resetClock();
         }
 
+        sendOutput(message, inData, outData);
+        recycleInput(inData, outData);
+    }
+
+
+    public void executeGroup(List<xMsgMessage> messages) throws ClaraException {
+        updateConfiguration();
+
+        int size = messages.size();
+        EngineData[] inputs = new EngineData[size];
+        EngineData[] outputs = new EngineData[size];
+        Set<EngineData> group = new LinkedHashSet<>();
+
+        for (int i = 0; i < size; i++) {
+            sysConfig.addRequest();
+            sysReport.incrementRequestCount();
+            try {
+                inputs[i] = getEngineData(messages.get(i));
+                parseComposition(inputs[i]);
+                group.add(inputs[i]);
+            } catch (ExpiredDataException e) {
+                outputs[i] = expiredDataError(e);
+            } catch (Exception e) {
+                Logging.error("UNHANDLED EXCEPTION ON SERVICE EXECUTION: %s", base.getName());
+                e.printStackTrace();
+                outputs[i] = DataUtil.buildErrorData("unhandled exception", 4, e);
+            }
+        }
+
+        resetClock();
+        boolean executed = false;
+        try {
+            if (!group.isEmpty()) {
+                EngineData[] results = executeEngineGroup(group);
+                for (int i = 0, j = 0; i < size; i++) {
+                    if (outputs[i] == null) {
+                        outputs[i] = results[j++];
+                    }
+                }
+                sysReport.addExecutionTime(executionTime);
+                executed = true;
+            }
+        } catch (Exception e) {
+            Logging.error("UNHANDLED EXCEPTION ON SERVICE EXECUTION: %s", base.getName());
+            e.printStackTrace();
+            fillErrors(outputs, "unhandled exception", e);
+        } catch (Throwable e) {
+            Logging.error("UNHANDLED CRITICAL ERROR ON SERVICE EXECUTION: %s", base.getName());
+            e.printStackTrace();
+            fillErrors(outputs, "unhandled critical error", e);
+        }
+
+        // the execution time of the group is shared by all requests
+        executionTime /= size;
+        for (int i = 0; i < size; i++) {
+            xMsgMessage message = messages.get(i);
+            if (executed) {
+                executionLatency.record(executionTime);
+            }
+            updateMetadata(message.getMetaData(), DataUtil.getMetadata(outputs[i]));
+            try {
+                if (inputs[i] != null) {
+                    parseComposition(inputs[i]);
+                }
+                sendOutput(message, inputs[i], outputs[i]);
+            } catch (ClaraException e) {
+                Logging.error("service = %s: %s", base.getName(), e.getMessage());
+            }
+        }
+        resetClock();
+    }
+
+
+    private void sendOutput(xMsgMessage message, EngineData inData, EngineData outData)
+            throws ClaraException {
         String replyTo = getReplyTo(message);
         if (replyTo != null) {
             sendResponse(outData, replyTo);
@@ -195,32 +373,39 @@ class ServiceEngine {
     private void parseComposition(EngineData inData) throws ClaraException {
         String currentComposition = inData.getComposition();
         if (!currentComposition.equals(prevComposition)) {
-            compiler.compile(currentComposition);
+            compiledComposition = CompositionCache.shared().get(currentComposition,
+                                                                base.getName());
             prevComposition = currentComposition;
         }
     }
 
-    private Set<String> getLinks(EngineData inData, EngineData outData) {
-        ServiceState ownerSS = new ServiceState(outData.getEngineName(),
-                                                outData.getExecutionState());
-        ServiceState inputSS = new ServiceState(inData.getEngineName(),
-                                                inData.getExecutionState());
-
-        return compiler.getLinks(ownerSS, inputSS);
+    private Destination[] getLinks(EngineData inData, EngineData outData) {
+        return compiledComposition.getDestinations(outData.getEngineName(),
+                                            outData.getExecutionState(),
+                                            inData.getEngineName(),
+                                            inData.getExecutionState());
     }
 
     private EngineData executeEngine(EngineData inData)
             throws ClaraException {
+        startUsage();
         long startTime = startClock();
+        beginExecution(inData.getCommunicationId(), startTime);
 
-        EngineData outData = engine.execute(inData);
+        EngineData outData;
+        try {
+            outData = engine.execute(inData);
+        } finally {
+            endExecution();
+        }
 
         stopClock(startTime);
+        stopUsage(1);
 
         if (outData == null) {
             throw new ClaraException("null engine result");
         }
-        if (outData.getData() == null) {
+        if (!DataUtil.hasData(outData)) {
             if (outData.getStatus() == EngineStatus.ERROR) {
                 outData.setData(EngineDataType.STRING.mimeType(),
                                 ClaraConstants.UNDEFINED);
@@ -232,6 +417,87 @@ class ServiceEngine {
         return outData;
     }
 
+    private EngineData[] executeEngineGroup(Set<EngineData> inputs)
+            throws ClaraException {
+        startUsage();
+        long startTime = startClock();
+        beginExecution(inputs.iterator().next().getCommunicationId(), startTime);
+
+        EngineData outData;
+        try {
+            outData = engine.executeGroup(inputs);
+        } finally {
+            endExecution();
+        }
+
+        stopClock(startTime);
+        stopUsage(inputs.size());
+
+        if (outData == null) {
+            throw new ClaraException("null engine result");
+        }
+
+        EngineData[] results = new EngineData[inputs.size()];
+        if (outData.getStatus() == EngineStatus.ERROR) {
+            for (int i = 0; i < results.length; i++) {
+                results[i] = copyError(outData);
+            }
+            return results;
+        }
+
+        Object data = outData.getData();
+        if (!(data instanceof List)) {
+            throw new ClaraException("invalid engine group result: expected a list of data");
+        }
+        List<?> outputs = (List<?>) data;
+        if (outputs.size() != results.length) {
+            throw new ClaraException("invalid engine group result: expected "
+                    + results.length + " results but got " + outputs.size());
+        }
+        for (int i = 0; i < results.length; i++) {
+            Object output = outputs.get(i);
+            if (!(output instanceof EngineData)) {
+                throw new ClaraException("invalid engine group result: unexpected element type");
+            }
+            results[i] = checkResult((EngineData) output);
+        }
+
+        return results;
+    }
+
+    private EngineData checkResult(EngineData outData) throws ClaraException {
+        if (!DataUtil.hasData(outData)) {
+            if (outData.getStatus() == EngineStatus.ERROR) {
+                outData.setData(EngineDataType.STRING.mimeType(),
+                                ClaraConstants.UNDEFINED);
+            } else {
+                throw new ClaraException("empty engine result");
+            }
+        }
+        return outData;
+    }
+
+    private EngineData copyError(EngineData error) {
+        EngineData outData = new EngineData();
+        Object data = error.getData();
+        if (data != null) {
+            outData.setData(error.getMimeType(), data);
+        } else {
+            outData.setData(EngineDataType.STRING.mimeType(), ClaraConstants.UNDEFINED);
+        }
+        outData.setDescription(error.getDescription());
+        outData.setStatus(EngineStatus.ERROR, error.getStatusSeverity());
+        return outData;
+    }
+
+    private void fillErrors(EngineData[] outputs, String msg, Throwable e) {
+        for (int i = 0; i < outputs.length; i++) {
+            if (outputs[i] == null) {
+                outputs[i] = DataUtil.buildErrorData(msg, 4, e);
+            }
+        }
+    }
+
     private void updateMetadata(xMsgMeta.Builder inMeta, xMsgMeta.Builder outMeta) {
         outMeta.setAuthor(base.getName());
         outMeta.setVersion(engine.getVersion());
@@ -260,45 +526,76 @@ class ServiceEngine {
     }
 
     private void sendResponse(EngineData outData, String replyTo) throws ClaraException {
-        base.send(putEngineData(outData, replyTo));
+        xMsgMessage msg = putEngineData(outData, Destination.reply(replyTo));
+        base.send(msg);
+        recycleMetadata(msg);
     }
 
-    private void sendResult(EngineData outData, Set<String> outLinks) throws ClaraException {
-        for (String ss : outLinks) {
-            ClaraComponent comp = ClaraComponent.dpe(ss);
+    private void sendResult(EngineData outData, Destination[] outLinks) throws ClaraException {
+        // a linear chain of local services can be fused in this thread
+        boolean fuse = sysConfig.isChainFusion() && outLinks.length == 1;
+        for (Destination ss : outLinks) {
             xMsgMessage msg = putEngineData(outData, ss);
-            base.send(comp.getProxyAddress(), msg);
+            if (!sendLocal(ss, msg, fuse)) {
+                base.send(ss.proxyAddress(), msg);
+                recycleMetadata(msg);
+            }
         }
     }
 
-    private void reportDone(EngineData data) throws ClaraException {
-        String mt = data.getMimeType();
-        Object ob = data.getData();
-        data.setData(EngineDataType.STRING.mimeType(), ClaraConstants.DONE);
-
-        sendReport(ClaraConstants.DONE, data);
+    private boolean sendLocal(Destination receiver, xMsgMessage msg, boolean fuse) {
+        msg.getMetaData().setSender(base.getName());
+        if (!receiver.isSharedMemory()) {
+            return false;
+        }
+        if (fuse && LocalServices.run(receiver.name(), msg)) {
+            sysReport.incrementLocalDispatches();
+            return true;
+        }
+        if (LocalServices.dispatch(receiver.name(), msg)) {
+            sysReport.incrementLocalDispatches();
+            return true;
+        }
+        return false;
+    }
 
-        data.setData(mt, ob);
+    private void reportDone(EngineData data) {
+        EngineData done = DataUtil.copyWithData(data, EngineDataType.STRING.mimeType(),
+                                                ClaraConstants.DONE);
+        reporter.publishDone(done, doneBuilder);
     }
 
     private void reportData(EngineData data) throws ClaraException {
-        sendReport(ClaraConstants.DATA, data);
+        reporter.publish(serializeReport(ClaraConstants.DATA, data));
     }
 
     private void reportProblem(EngineData data) throws ClaraException {
         EngineStatus status = data.getStatus();
         if (status.equals(EngineStatus.ERROR)) {
-            sendReport(ClaraConstants.ERROR, data);
+            if (!reporter.isRepeatedProblem(data)) {
+                reporter.publish(serializeReport(ClaraConstants.ERROR, data));
+            }
         } else if (status.equals(EngineStatus.WARNING)) {
-            sendReport(ClaraConstants.WARNING, data);
+            if (!reporter.isRepeatedProblem(data)) {
+                reporter.publish(serializeReport(ClaraConstants.WARNING, data));
+            }
         }
     }
 
 
-    private void sendReport(String topicPrefix, EngineData data) throws ClaraException {
+    /**
+     * Serializes a report to the front-end.
+     * Reports are published asynchronously by the report channel of the DPE,
+     * so the data is serialized before the engine can modify it.
+     * The metadata is copied too, because the serialized message shares it
+     * with the data, which is still modified when it is sent to the next
+     * services of the composition.
+     */
+    private xMsgMessage serializeReport(String topicPrefix, EngineData data)
+            throws ClaraException {
         xMsgTopic topic = xMsgTopic.wrap(topicPrefix + xMsgConstants.TOPIC_SEP + base.getName());
-        xMsgMessage transit = DataUtil.serialize(topic, data, engine.getOutputDataTypes());
-        base.send(base.getFrontEnd(), transit);
+        xMsgMessage msg = DataUtil.serialize(topic, data, outputTypes, bufferPool);
+        return new xMsgMessage(topic, msg.getMetaData().clone(), msg.getData());
     }
 
     private void sendMonitorData(String state, EngineData data) throws ClaraException {
@@ -307,7 +604,7 @@ class ServiceEngine {
                     + xMsgConstants.TOPIC_SEP + state
                     + xMsgConstants.TOPIC_SEP + sysReport.getSession()
                     + xMsgConstants.TOPIC_SEP + base.getEngine());
-            xMsgMessage transit = DataUtil.serialize(topic, data, engine.getOutputDataTypes());
+            xMsgMessage transit = DataUtil.serialize(topic, data, outputTypes, bufferPool);
             base.sendUncheck(monitorFe.getProxyAddress(), transit);
         }
     }
@@ -320,34 +617,132 @@ class ServiceEngine {
             sysReport.incrementShrmReads();
             String sender = metadata.getSender();
             int id = metadata.getCommunicationId();
-            return SharedMemory.getEngineData(base.getName(), sender, id);
+            EngineData data = SharedMemory.getEngineData(base.getName(), sender, id);
+            if (data == null) {
+                throw new ExpiredDataException(String.format(
+                        "shared-memory data expired: request %d from %s", id, sender));
+            }
+            return data;
         } else {
             sysReport.addBytesReceived(message.getDataSize());
-            return DataUtil.deserialize(message, engine.getInputDataTypes());
+            xMsgMessage input = decompress(message);
+            long startTime = startClock();
+            EngineData data = DataUtil.deserializeLazily(input, inputTypes, takeSpareInput());
+            ownedInput = data;
+            recordSerializationTime(startTime);
+            return data;
         }
     }
 
-    private xMsgMessage putEngineData(EngineData data, String receiver)
+    private EngineData expiredDataError(ExpiredDataException e) {
+        Logging.error("service = %s: %s", base.getName(), e.getMessage());
+        return DataUtil.buildErrorData(e.getMessage(), 4, e);
+    }
+
+    private xMsgMessage putEngineData(EngineData data, Destination receiver)
             throws ClaraException {
-        xMsgTopic topic = xMsgTopic.wrap(receiver);
-        if (SharedMemory.containsReceiver(receiver)) {
-            int id = data.getCommunicationId();
-            SharedMemory.putEngineData(receiver, base.getName(), id, data);
+        xMsgTopic topic = receiver.topic();
+        int id = data.getCommunicationId();
+        if (receiver.isSharedMemory()
+                && SharedMemory.containsReceiver(receiver.name())
+                && SharedMemory.putEngineData(receiver.name(), base.getName(), id, data)) {
             sysReport.incrementShrmWrites();
 
-            xMsgMeta.Builder metadata = xMsgMeta.newBuilder();
+            xMsgMeta.Builder metadata = newMetadata();
             metadata.setAuthor(base.getName());
             metadata.setComposition(data.getComposition());
             metadata.setCommunicationId(id);
             metadata.setAction(xMsgMeta.ControlAction.EXECUTE);
             metadata.setDataType(ClaraConstants.SHARED_MEMORY_KEY);
 
-            return new xMsgMessage(topic, metadata, ClaraConstants.SHARED_MEMORY_KEY.getBytes());
+            return new xMsgMessage(topic, metadata, SHARED_MEMORY_DATA);
         } else {
-            xMsgMessage output = DataUtil.serialize(topic, data, engine.getOutputDataTypes());
+            long startTime = startClock();
+            xMsgMessage output = DataUtil.serialize(topic, data, outputTypes, bufferPool);
+            recordSerializationTime(startTime);
+            output = compress(output, receiver);
             sysReport.addBytesSent(output.getDataSize());
+            if (receiver.isSharedMemory()) {
+                // the message may be dispatched to a local queue, and the
+                // serialized message shares the metadata of the output data
+                return new xMsgMessage(topic, output.getMetaData().clone(), output.getData());
+            }
+            return output;
+        }
+    }
+
+    private EngineData takeSpareInput() {
+        EngineData input = spareInput;
+        spareInput = null;
+        return sysConfig.isRecycling() ? input : null;
+    }
+
+    /**
+     * Keeps the input data to be reused by the next request, unless it may
+     * still be referenced: the engine returned it as the result, it was
+     * forwarded to the next services of the data ring, or it was received
+     * through shared memory from another service.
+     */
+    private void recycleInput(EngineData inData, EngineData outData) {
+        if (sysConfig.isRecycling()
+                && inData != null
+                && inData == ownedInput
+                && inData != outData
+                && !sysConfig.isRingRequest()) {
+            spareInput = inData;
+        }
+        ownedInput = null;
+    }
+
+    private xMsgMeta.Builder newMetadata() {
+        xMsgMeta.Builder metadata = spareMetadata;
+        spareMetadata = null;
+        if (metadata != null && sysConfig.isRecycling()) {
+            return metadata.clear();
+        }
+        return xMsgMeta.newBuilder();
+    }
+
+    /**
+     * Keeps the metadata of a shared memory message that has already been
+     * published through the proxy, to be reused by the next one.
+     * Messages dispatched to local queues are still referenced by the queue.
+     */
+    private void recycleMetadata(xMsgMessage msg) {
+        xMsgMeta.Builder metadata = msg.getMetaData();
+        if (sysConfig.isRecycling()
+                && metadata.getDataType().equals(ClaraConstants.SHARED_MEMORY_KEY)) {
+            spareMetadata = metadata;
+        }
+    }
+
+    /**
+     * Compresses the output data if the receiver runs in another node.
+     */
+    private xMsgMessage compress(xMsgMessage output, Destination receiver) {
+        DataCodec codec = sysConfig.getCompressionCodec();
+        if (codec == null
+                || receiver.isSameHost()
+                || output.getDataSize() < sysConfig.getCompressionThreshold()) {
             return output;
         }
+        long startTime = startClock();
+        xMsgMessage compressed = DataUtil.compress(output, codec);
+        recordCodecTime(startTime);
+        if (compressed != output) {
+            sysReport.addCompressedBytes(output.getDataSize(), compressed.getDataSize());
+        }
+        return compressed;
+    }
+
+    private xMsgMessage decompress(xMsgMessage input) throws ClaraException {
+        if (!DataUtil.isCompressed(input)) {
+            return input;
+        }
+        long startTime = startClock();
+        xMsgMessage decompressed = DataUtil.decompress(input);
+        recordCodecTime(startTime);
+        return decompressed;
     }
 
 
@@ -372,12 +767,122 @@ class ServiceEngine {
         executionTime = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - watch);
     }
 
+    private void beginExecution(int id, long startTime) {
+        executionId = id;
+        executionThread = Thread.currentThread();
+        isOverrun = false;
+        executionStart = startTime;
+    }
+
+    private void endExecution() {
+        executionStart = 0;
+        executionThread = null;
+    }
+
+    /**
+     * Checks if the current execution of the engine has been running for
+     * longer than the given deadline.
+     * An overrun is detected and reported only once per execution.
+     * The report is published on the overrun topic, with an error status,
+     * the communication id of the request, and the stack trace of the
+     * execution thread as data.
+     *
+     * @param now the current time, in nanoseconds
+     * @param deadline the maximum execution time, in nanoseconds
+     * @return true if a new overrun was detected
+     */
+    boolean checkOverrun(long now, long deadline) {
+        long start = executionStart;
+        Thread thread = executionThread;
+        if (start == 0 || thread == null || isOverrun || now - start <= deadline) {
+            return false;
+        }
+        isOverrun = true;
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(now - start);
+        int id = executionId;
+        Logging.error("service = %s: request %d exceeded the execution deadline: %d ms",
+                      base.getName(), id, elapsed);
+        try {
+            reporter.publish(serializeReport(ClaraConstants.OVERRUN,
+                                             overrunData(id, elapsed, thread)));
+        } catch (ClaraException e) {
+            Logging.error("service = %s: could not report overrun: %s",
+                          base.getName(), e.getMessage());
+        }
+        return true;
+    }
 
-    public boolean tryAcquire() {
-        return semaphore.tryAcquire();
+    private EngineData overrunData(int id, long elapsed, Thread thread) {
+        StringBuilder stackTrace = new StringBuilder(thread.toString());
+        for (StackTraceElement element : thread.getStackTrace()) {
+            stackTrace.append(System.lineSeparator()).append("\tat ").append(element);
+        }
+        EngineData data = new EngineData();
+        data.setData(EngineDataType.STRING.mimeType(), stackTrace.toString());
+        data.setDescription(String.format("execution deadline exceeded: %d ms", elapsed));
+        data.setStatus(EngineStatus.ERROR, 3);
+        data.setCommunicationId(id);
+        xMsgMeta.Builder metadata = DataUtil.getMetadata(data);
+        metadata.setAuthor(base.getName());
+        metadata.setVersion(engine.getVersion());
+        metadata.setExecutionTime(TimeUnit.MILLISECONDS.toMicros(elapsed));
+        return data;
     }
 
-    public void release() {
-        semaphore.release();
+    private void startUsage() {
+        if (sysConfig.isProfiling()) {
+            startCpuTime = ThreadUsage.cpuTime();
+            startAllocatedBytes = ThreadUsage.allocatedBytes();
+        } else {
+            startCpuTime = -1;
+            startAllocatedBytes = -1;
+        }
+    }
+
+    private void stopUsage(int requests) {
+        if (startCpuTime < 0 && startAllocatedBytes < 0) {
+            return;
+        }
+        long cpuTime = -1;
+        long allocatedBytes = -1;
+        if (startCpuTime >= 0) {
+            long stopCpuTime = ThreadUsage.cpuTime();
+            if (stopCpuTime >= 0) {
+                cpuTime = TimeUnit.NANOSECONDS.toMicros(stopCpuTime - startCpuTime);
+            }
+        }
+        if (startAllocatedBytes >= 0) {
+            long stopAllocatedBytes = ThreadUsage.allocatedBytes();
+            if (stopAllocatedBytes >= 0) {
+                allocatedBytes = stopAllocatedBytes - startAllocatedBytes;
+            }
+        }
+        sysReport.addThreadUsage(requests, cpuTime, allocatedBytes);
+        startCpuTime = -1;
+        startAllocatedBytes = -1;
+    }
+
+    private void recordSerializationTime(long watch) {
+        serializationLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - watch));
+    }
+
+    private void recordCodecTime(long watch) {
+        sysReport.addCodecTime(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - watch));
+    }
+
+    void recordQueueTime(long nanos) {
+        queueLatency.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+
+    /**
+     * The data of a shared memory request was removed before the service
+     * could take it, because it was not taken before the maximum age.
+     */
+    private static final class ExpiredDataException extends ClaraException {
+
+        ExpiredDataException(String message) {
+            super(message);
+        }
     }
 }
@@ -0,0 +1,336 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.sys;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the requests of all the services of a DPE on a single work-stealing
+ * pool, sized to the number of cores of the DPE.
+ * <p>
+ * Every service gets a {@link Lane} to submit its executions. Services that
+ * are idle do not hold any thread, so the cores flow to the services with
+ * pending requests, i.e. the current bottleneck of the chain.
+ * A lane can cap the number of requests of the service that run in parallel,
+ * and its weight sets how many consecutive requests an engine of the service
+ * can process before yielding the thread to the other services.
+ * <p>
+ * Tasks submitted by a pool thread are pushed to the local queue of the
+ * thread, and idle threads steal them from the busy ones.
+ * When an engine yields, the oldest task submitted from outside the pool
+ * (i.e. a new request received by another service) is moved ahead of the
+ * continuation of the engine, so a busy service cannot starve the others.
+ * <p>
+ * Engines run on the pool threads, so requests that block for a long time
+ * keep a core busy as with dedicated pools.
+ * Engines waiting for the requests of a batch are managed blockers,
+ * so the pool can run other tasks in the meantime.
+ * But the pool cannot compensate the thread of a stuck engine,
+ * so stuck engines cannot be replaced when using the shared pool.
+ */
+class ServiceScheduler {
+
+    /**
+     * The number of consecutive requests that an engine of a service with
+     * the default weight processes before yielding its thread.
+     */
+    static final int DEFAULT_QUANTUM = 16;
+
+    private final SchedulerPool pool;
+
+
+    ServiceScheduler(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+        }
+        this.pool = new SchedulerPool(parallelism);
+    }
+
+
+    /**
+     * Creates a new lane to run the requests of a service.
+     *
+     * @param name the name of the service
+     * @param maxConcurrency the maximum number of tasks running in parallel,
+     *                       or 0 for no limit
+     * @param weight the share of the service when other services have
+     *               pending requests
+     * @return the executor of the service
+     */
+    Lane newLane(String name, int maxConcurrency, int weight) {
+        return new Lane(name, maxConcurrency, weight);
+    }
+
+
+    int parallelism() {
+        return pool.getParallelism();
+    }
+
+
+    /**
+     * Moves the oldest external task to the local queue of the current pool
+     * thread, so it runs before any task that the thread submits next.
+     */
+    private void yieldThread() {
+        if (ForkJoinTask.getPool() == pool) {
+            ForkJoinTask<?> task = pool.nextSubmission();
+            if (task != null) {
+                task.fork();
+            }
+        }
+    }
+
+
+    void stop() {
+        pool.shutdownNow();
+        try {
+            if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                Logging.error("scheduler pool did not terminate");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * The executor of a single service on the shared pool.
+     * <p>
+     * Tasks above the concurrency cap are parked in the lane, and submitted
+     * to the pool when a running task of the same service finishes.
+     * Shutting down a lane does not affect the shared pool: it only rejects
+     * new tasks and waits for the submitted tasks of the service.
+     * Running tasks are never interrupted.
+     */
+    final class Lane extends AbstractExecutorService {
+
+        private final String name;
+        private final int weight;
+        private final Queue<Runnable> pending = new ArrayDeque<>();
+
+        private int maxConcurrency;
+        private int running;
+        private boolean isShutdown;
+
+        private Lane(String name, int maxConcurrency, int weight) {
+            if (maxConcurrency < 0) {
+                throw new IllegalArgumentException("Invalid concurrency: " + maxConcurrency);
+            }
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Invalid weight: " + weight);
+            }
+            this.name = name;
+            this.maxConcurrency = maxConcurrency;
+            this.weight = weight;
+        }
+
+        /**
+         * Gets the number of consecutive requests that an engine of the
+         * service can process before yielding its thread.
+         *
+         * @return the quantum of the lane, proportional to its weight
+         */
+        int quantum() {
+            return weight * DEFAULT_QUANTUM;
+        }
+
+        /**
+         * Changes the maximum number of tasks running in parallel.
+         * Parked tasks are submitted immediately if the cap is raised.
+         *
+         * @param maxConcurrency the new cap, or 0 for no limit
+         */
+        synchronized void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = Math.max(maxConcurrency, 0);
+            while (hasFreeSlot() && !pending.isEmpty()) {
+                running++;
+                submitTask(pending.poll());
+            }
+        }
+
+        synchronized int running() {
+            return running;
+        }
+
+        synchronized int pending() {
+            return pending.size();
+        }
+
+        /**
+         * Continues a running task of the service in a new task, after
+         * giving a turn to the services waiting for a thread.
+         * The continuation keeps the slot of the running task, so it is not
+         * limited by the concurrency cap, and it is accepted even if the lane
+         * is shut down.
+         *
+         * @param task the continuation of the running task
+         */
+        synchronized void resume(Runnable task) {
+            running++;
+            yieldThread();
+            submitTask(task);
+        }
+
+        /**
+         * Takes a slot of the lane to run a task in the calling thread,
+         * if the concurrency cap allows it and there are no parked tasks.
+         *
+         * @return true if the slot was taken, and it must be released
+         *         with {@link #release}
+         */
+        synchronized boolean tryAcquire() {
+            if (isShutdown || !hasFreeSlot() || !pending.isEmpty()) {
+                return false;
+            }
+            running++;
+            return true;
+        }
+
+        /**
+         * Releases a slot taken with {@link #tryAcquire}.
+         */
+        void release() {
+            finish();
+        }
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            if (isShutdown) {
+                throw new RejectedExecutionException("service = " + name + ": lane is shut down");
+            }
+            if (hasFreeSlot()) {
+                running++;
+                submitTask(task);
+            } else {
+                pending.add(task);
+            }
+        }
+
+        private boolean hasFreeSlot() {
+            return maxConcurrency == 0 || running < maxConcurrency;
+        }
+
+        private void submitTask(Runnable task) {
+            try {
+                pool.execute(() -> run(task));
+            } catch (RejectedExecutionException e) {
+                running--;
+                notifyAll();
+                throw e;
+            }
+        }
+
+        private void run(Runnable task) {
+            try {
+                task.run();
+            } finally {
+                finish();
+            }
+        }
+
+        private synchronized void finish() {
+            // the slot of the finished task is passed to the next parked task,
+            // unless the cap has been lowered below the running tasks
+            boolean keepSlot = maxConcurrency == 0 || running <= maxConcurrency;
+            Runnable next = keepSlot ? pending.poll() : null;
+            if (next == null) {
+                running--;
+                notifyAll();
+                return;
+            }
+            try {
+                submitTask(next);
+            } catch (RejectedExecutionException e) {
+                Logging.error("service = %s: task rejected: scheduler is shut down", name);
+            }
+        }
+
+        @Override
+        public synchronized void shutdown() {
+            isShutdown = true;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized List<Runnable> shutdownNow() {
+            isShutdown = true;
+            List<Runnable> tasks = new ArrayList<>(pending);
+            pending.clear();
+            notifyAll();
+            return tasks;
+        }
+
+        @Override
+        public synchronized boolean isShutdown() {
+            return isShutdown;
+        }
+
+        @Override
+        public synchronized boolean isTerminated() {
+            return isShutdown && running == 0 && pending.isEmpty();
+        }
+
+        @Override
+        public synchronized boolean awaitTermination(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (!isTerminated()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return true;
+        }
+    }
+
+
+    private static final class SchedulerPool extends ForkJoinPool {
+
+        SchedulerPool(int parallelism) {
+            super(parallelism, SchedulerPool::newThread, null, true);
+        }
+
+        private static ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread =
+                    ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("clara-scheduler-" + thread.getPoolIndex());
+            return thread;
+        }
+
+        ForkJoinTask<?> nextSubmission() {
+            return pollSubmission();
+        }
+    }
+}
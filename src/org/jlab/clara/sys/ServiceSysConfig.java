@@ -22,6 +22,8 @@
 
 package org.jlab.clara.sys;
 
+import org.jlab.clara.base.core.DataCodec;
+import org.jlab.clara.engine.EngineData;
 import org.jlab.clara.sys.ccc.ServiceState;
 
 /**
@@ -41,6 +43,31 @@ class ServiceSysConfig {
     private int dataRequestCount;
     private int doneRequestCount;
 
+    private boolean isPrototypeEngine;
+    private volatile EngineData configuration;
+
+    private volatile int batchSize = 1;
+    private volatile long batchTimeout;
+
+    private volatile boolean isChainFusion;
+
+    private volatile boolean isRecycling;
+
+    private volatile boolean isPersistentConnections;
+
+    private volatile boolean isProfiling;
+
+    private volatile WarmUp warmUp = WarmUp.NONE;
+
+    private volatile long executionDeadline;
+    private volatile boolean isReplacingStuckEngines;
+
+    private volatile int maxConcurrency;
+    private volatile int schedulingWeight = 1;
+
+    private volatile DataCodec compressionCodec;
+    private volatile int compressionThreshold;
+
     ServiceSysConfig(String name, String initialState) {
         state = new ServiceState(name, initialState);
     }
@@ -106,6 +133,118 @@ class ServiceSysConfig {
         return doneRequestCount;
     }
 
+    public boolean isPrototypeEngine() {
+        return isPrototypeEngine;
+    }
+
+    public void setPrototypeEngine(boolean isPrototypeEngine) {
+        this.isPrototypeEngine = isPrototypeEngine;
+    }
+
+    public EngineData getConfiguration() {
+        return configuration;
+    }
+
+    public void setConfiguration(EngineData configuration) {
+        this.configuration = configuration;
+    }
+
+    public boolean isBatchRequest() {
+        return batchSize > 1;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getBatchTimeout() {
+        return batchTimeout;
+    }
+
+    public void setBatching(int batchSize, long batchTimeout) {
+        this.batchSize = Math.max(batchSize, 1);
+        this.batchTimeout = Math.max(batchTimeout, 0);
+    }
+
+    public boolean isChainFusion() {
+        return isChainFusion;
+    }
+
+    public void setChainFusion(boolean isChainFusion) {
+        this.isChainFusion = isChainFusion;
+    }
+
+    public boolean isRecycling() {
+        return isRecycling;
+    }
+
+    public void setRecycling(boolean isRecycling) {
+        this.isRecycling = isRecycling;
+    }
+
+    public boolean isPersistentConnections() {
+        return isPersistentConnections;
+    }
+
+    public void setPersistentConnections(boolean isPersistentConnections) {
+        this.isPersistentConnections = isPersistentConnections;
+    }
+
+    public boolean isProfiling() {
+        return isProfiling;
+    }
+
+    public void setProfiling(boolean isProfiling) {
+        this.isProfiling = isProfiling;
+    }
+
+    WarmUp getWarmUp() {
+        return warmUp;
+    }
+
+    void setWarmUp(WarmUp warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    public long getExecutionDeadline() {
+        return executionDeadline;
+    }
+
+    public boolean isReplacingStuckEngines() {
+        return isReplacingStuckEngines;
+    }
+
+    public void setExecutionDeadline(long deadline, boolean replaceStuckEngines) {
+        this.isReplacingStuckEngines = replaceStuckEngines;
+        this.executionDeadline = Math.max(deadline, 0);
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getSchedulingWeight() {
+        return schedulingWeight;
+    }
+
+    public void setScheduling(int maxConcurrency, int weight) {
+        this.maxConcurrency = Math.max(maxConcurrency, 0);
+        this.schedulingWeight = Math.max(weight, 1);
+    }
+
+    public DataCodec getCompressionCodec() {
+        return compressionCodec;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public void setCompression(DataCodec codec, int threshold) {
+        this.compressionThreshold = Math.max(threshold, 0);
+        this.compressionCodec = codec;
+    }
+
     public void updateState(String newState) {
         state.setState(newState);
     }
@@ -26,52 +26,247 @@ import org.jlab.clara.engine.EngineData;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Local transport of engine data between services of the same DPE.
+ * <p>
+ * Every receiver has its own bounded store, where the data is keyed by
+ * the sender and the communication ID. Sender names are interned to integer
+ * IDs, so the key is a primitive long and storing or taking data does not
+ * allocate. When the store of a receiver is full, the data is rejected and
+ * the sender should publish it through the proxy. The same happens if the
+ * receiver is not registered (i.e. because it was just removed).
+ * <p>
+ * Data that is never taken by its receiver (i.e. because the request was
+ * lost) is removed by a periodic {@link #reap reaper}, and counted as leaked.
+ */
 final class SharedMemory {
 
-    /*
-      key = <receiver-service>
-      value = map where:
-          key = <sender-service>:<communication-id>,
-          value = EngineData object
-    */
-    private static final Map<String, Map<String, EngineData>>
-            sharedData = new ConcurrentHashMap<>(); // nocheck: ConstantName
+    /**
+     * The default maximum number of entries stored for each receiver.
+     */
+    static final int DEFAULT_CAPACITY = 8192;
+
+    private static final Map<String, DataStore>
+            receivers = new ConcurrentHashMap<>(); // nocheck: ConstantName
+
+    private static final Map<String, Integer>
+            senderIds = new ConcurrentHashMap<>(); // nocheck: ConstantName
+
+    private static final AtomicInteger NEXT_SENDER_ID = new AtomicInteger();
+    private static final AtomicLong LEAKED_COUNT = new AtomicLong();
+    private static final AtomicLong REJECTED_COUNT = new AtomicLong();
 
     private SharedMemory() {
     }
 
-    static void putEngineData(String receiver, String sender, int id, EngineData data) {
-        Map<String, EngineData> inputs = sharedData.get(receiver);
-        if (inputs != null) {
-            String key = sender + ":" + id;
-            inputs.put(key, data);
-        } else {
-            throw new IllegalStateException("Receiver not registered: " + receiver);
+    static boolean putEngineData(String receiver, String sender, int id, EngineData data) {
+        DataStore inputs = receivers.get(receiver);
+        if (inputs == null) {
+            // the receiver was removed, the data must be sent through the proxy
+            return false;
+        }
+        if (!inputs.put(key(sender, id), data, System.nanoTime())) {
+            REJECTED_COUNT.getAndIncrement();
+            return false;
         }
+        return true;
     }
 
-
     static EngineData getEngineData(String receiver, String sender, int id) {
-        Map<String, EngineData> inputs = sharedData.get(receiver);
-        EngineData data = null;
+        DataStore inputs = receivers.get(receiver);
         if (inputs != null) {
-            String key = sender + ":" + id;
-            data = inputs.get(key);
-            inputs.remove(key);
+            return inputs.remove(key(sender, id));
         }
-        return data;
+        return null;
     }
 
     static void addReceiver(String receiver) {
-        sharedData.put(receiver, new ConcurrentHashMap<>());
+        addReceiver(receiver, DEFAULT_CAPACITY);
+    }
+
+    static void addReceiver(String receiver, int capacity) {
+        receivers.put(receiver, new DataStore(capacity));
     }
 
     static void removeReceiver(String receiver) {
-        sharedData.remove(receiver);
+        receivers.remove(receiver);
     }
 
     static boolean containsReceiver(String receiver) {
-        return sharedData.containsKey(receiver);
+        return receivers.containsKey(receiver);
+    }
+
+    /**
+     * Removes all entries older than the given age.
+     *
+     * @param maxAge the maximum age of an entry
+     * @param unit the unit of the age
+     * @return the number of removed entries
+     */
+    static int reap(long maxAge, TimeUnit unit) {
+        long deadline = System.nanoTime() - unit.toNanos(maxAge);
+        int removed = 0;
+        for (DataStore store : receivers.values()) {
+            removed += store.removeOlderThan(deadline);
+        }
+        LEAKED_COUNT.getAndAdd(removed);
+        return removed;
+    }
+
+    /**
+     * Gets the number of entries waiting to be taken by their receivers.
+     *
+     * @return the current number of stored entries
+     */
+    static int occupancy() {
+        int size = 0;
+        for (DataStore store : receivers.values()) {
+            size += store.size();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the number of entries that were never taken by their receivers,
+     * and were removed by the reaper.
+     *
+     * @return the total number of leaked entries
+     */
+    static long leakedCount() {
+        return LEAKED_COUNT.get();
+    }
+
+    /**
+     * Gets the number of entries that were rejected because the store of the
+     * receiver was full.
+     *
+     * @return the total number of rejected entries
+     */
+    static long rejectedCount() {
+        return REJECTED_COUNT.get();
+    }
+
+    private static long key(String sender, int id) {
+        Integer senderId = senderIds.get(sender);
+        if (senderId == null) {
+            senderId = senderIds.computeIfAbsent(sender, s -> NEXT_SENDER_ID.getAndIncrement());
+        }
+        return ((long) senderId << 32) | (id & 0xFFFFFFFFL);
+    }
+
+
+    /**
+     * An open-addressing hash table with primitive long keys.
+     */
+    static final class DataStore {
+
+        private final int capacity;
+        private final int mask;
+
+        private final long[] keys;
+        private final long[] times;
+        private final EngineData[] values;
+
+        private int size;
+
+        DataStore(int capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("Invalid capacity: " + capacity);
+            }
+            int length = Integer.highestOneBit(capacity * 2 - 1) << 1;
+            this.capacity = capacity;
+            this.mask = length - 1;
+            this.keys = new long[length];
+            this.times = new long[length];
+            this.values = new EngineData[length];
+        }
+
+        synchronized boolean put(long key, EngineData data, long time) {
+            int i = index(key);
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    values[i] = data;
+                    times[i] = time;
+                    return true;
+                }
+                i = (i + 1) & mask;
+            }
+            if (size >= capacity) {
+                return false;
+            }
+            keys[i] = key;
+            times[i] = time;
+            values[i] = data;
+            size++;
+            return true;
+        }
+
+        synchronized EngineData remove(long key) {
+            int i = index(key);
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    EngineData data = values[i];
+                    delete(i);
+                    return data;
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        synchronized int removeOlderThan(long deadline) {
+            int removed = 0;
+            int i = 0;
+            while (i < values.length) {
+                if (values[i] != null && times[i] - deadline < 0) {
+                    // the slot is refilled with a shifted entry, so check it again
+                    delete(i);
+                    removed++;
+                } else {
+                    i++;
+                }
+            }
+            return removed;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private int index(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        /**
+         * Removes the entry at the given slot, shifting back the following
+         * entries of the probe sequence, so no tombstones are needed.
+         */
+        private void delete(int slot) {
+            int hole = slot;
+            int i = slot;
+            while (true) {
+                i = (i + 1) & mask;
+                if (values[i] == null) {
+                    break;
+                }
+                int home = index(keys[i]);
+                // move the entry if its home slot is not between the hole and it
+                boolean canMove = hole <= i ? (home <= hole || home > i)
+                                            : (home <= hole && home > i);
+                if (canMove) {
+                    keys[hole] = keys[i];
+                    times[hole] = times[i];
+                    values[hole] = values[i];
+                    hole = i;
+                }
+            }
+            values[hole] = null;
+            size--;
+        }
     }
 }
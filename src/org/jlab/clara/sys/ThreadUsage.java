@@ -0,0 +1,94 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.sys;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the CPU time and the memory allocated by the current thread.
+ * <p>
+ * The measurements rely on the platform thread MX bean. The allocated memory
+ * is only available on JVMs that implement the HotSpot extension of the bean.
+ * Unsupported measurements return -1.
+ */
+final class ThreadUsage {
+
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN =
+            THREAD_BEAN instanceof com.sun.management.ThreadMXBean
+                    ? (com.sun.management.ThreadMXBean) THREAD_BEAN
+                    : null;
+
+    private ThreadUsage() { }
+
+    /**
+     * Enables the measurements that are supported but disabled in this JVM.
+     */
+    static void enable() {
+        try {
+            if (THREAD_BEAN.isCurrentThreadCpuTimeSupported()
+                    && !THREAD_BEAN.isThreadCpuTimeEnabled()) {
+                THREAD_BEAN.setThreadCpuTimeEnabled(true);
+            }
+            if (ALLOCATION_BEAN != null
+                    && ALLOCATION_BEAN.isThreadAllocatedMemorySupported()
+                    && !ALLOCATION_BEAN.isThreadAllocatedMemoryEnabled()) {
+                ALLOCATION_BEAN.setThreadAllocatedMemoryEnabled(true);
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+            Logging.error("could not enable thread usage measurements: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the CPU time used by the current thread.
+     *
+     * @return the CPU time in nanoseconds, or -1 if it cannot be measured
+     */
+    static long cpuTime() {
+        try {
+            return THREAD_BEAN.getCurrentThreadCpuTime();
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the total memory allocated by the current thread.
+     *
+     * @return the allocated bytes, or -1 if they cannot be measured
+     */
+    static long allocatedBytes() {
+        if (ALLOCATION_BEAN == null) {
+            return -1;
+        }
+        try {
+            return ALLOCATION_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+        } catch (UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.sys;
+
+import org.jlab.clara.base.core.ClaraConstants;
+import org.jlab.clara.base.core.DataUtil;
+import org.jlab.clara.base.error.ClaraException;
+import org.jlab.clara.engine.Engine;
+import org.jlab.clara.engine.EngineData;
+import org.jlab.clara.engine.EngineStatus;
+import org.jlab.clara.engine.WarmUpSource;
+import org.jlab.coda.xmsg.core.xMsgMessage;
+import org.jlab.coda.xmsg.core.xMsgTopic;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The warm-up phase of a new service.
+ * <p>
+ * The engine is executed with sample data for a number of iterations and/or
+ * a period of time, whichever limit is reached first, before the service
+ * is registered. The sample data is provided by the engine, if it is
+ * a {@link WarmUpSource}, or it is read from a recorded sample file,
+ * containing the serialized data of the given mime-type.
+ * <p>
+ * The warm-up executions are not counted as requests of the service.
+ */
+final class WarmUp {
+
+    static final WarmUp NONE = new WarmUp(0, 0, ClaraConstants.UNDEFINED,
+                                          ClaraConstants.UNDEFINED);
+
+    private final int iterations;
+    private final long duration;
+    private final String sampleType;
+    private final String sampleFile;
+
+
+    /**
+     * The result of the warm-up phase.
+     */
+    static final class Result {
+
+        final int iterations;
+        final int failures;
+        final long time;
+
+        private Result(int iterations, int failures, long time) {
+            this.iterations = iterations;
+            this.failures = failures;
+            this.time = time;
+        }
+    }
+
+
+    /**
+     * Defines the warm-up phase of a service.
+     *
+     * @param iterations the maximum number of executions, or 0 for no limit
+     * @param duration the maximum time of the warm-up, in milliseconds,
+     *                 or 0 for no limit
+     * @param sampleType the mime-type of the recorded sample,
+     *                   or undefined to use the engine as the source
+     * @param sampleFile the path to the recorded sample,
+     *                   or undefined to use the engine as the source
+     */
+    WarmUp(int iterations, long duration, String sampleType, String sampleFile) {
+        this.iterations = Math.max(iterations, 0);
+        this.duration = Math.max(duration, 0);
+        this.sampleType = sampleType;
+        this.sampleFile = sampleFile;
+    }
+
+
+    boolean isEnabled() {
+        return iterations > 0 || duration > 0;
+    }
+
+
+    private boolean hasSampleFile() {
+        return !sampleFile.equals(ClaraConstants.UNDEFINED)
+                && !sampleType.equals(ClaraConstants.UNDEFINED);
+    }
+
+
+    /**
+     * Runs the warm-up phase with the given engine.
+     *
+     * @param engine the engine to be warmed up
+     * @return the number of executions and the warm-up time
+     * @throws ClaraException if there is no source of sample data
+     */
+    Result run(Engine engine) throws ClaraException {
+        SampleSupplier samples = sampleSupplier(engine);
+
+        long startTime = System.nanoTime();
+        long deadline = startTime + TimeUnit.MILLISECONDS.toNanos(duration);
+        int count = 0;
+        int failures = 0;
+        while (!isDone(count, deadline)) {
+            try {
+                EngineData result = engine.execute(samples.next());
+                if (result == null || result.getStatus() == EngineStatus.ERROR) {
+                    failures++;
+                }
+            } catch (Exception e) {
+                failures++;
+            }
+            count++;
+        }
+        long time = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime);
+        return new Result(count, failures, time);
+    }
+
+
+    private boolean isDone(int count, long deadline) {
+        if (iterations > 0 && count >= iterations) {
+            return true;
+        }
+        return duration > 0 && System.nanoTime() - deadline >= 0;
+    }
+
+
+    private SampleSupplier sampleSupplier(Engine engine) throws ClaraException {
+        if (hasSampleFile()) {
+            byte[] sample;
+            try {
+                sample = Files.readAllBytes(Paths.get(sampleFile));
+            } catch (IOException e) {
+                throw new ClaraException("could not read warm-up sample: " + sampleFile, e);
+            }
+            xMsgTopic topic = xMsgTopic.wrap(ClaraConstants.UNDEFINED);
+            return () -> DataUtil.deserialize(new xMsgMessage(topic, sampleType, sample),
+                                              engine.getInputDataTypes());
+        }
+        if (engine instanceof WarmUpSource) {
+            WarmUpSource source = (WarmUpSource) engine;
+            return source::getWarmUpData;
+        }
+        throw new ClaraException("missing warm-up sample: the engine does not provide one");
+    }
+
+
+    private interface SampleSupplier {
+
+        EngineData next() throws ClaraException;
+    }
+}
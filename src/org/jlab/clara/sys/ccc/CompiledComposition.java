@@ -0,0 +1,121 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+package org.jlab.clara.sys.ccc;
+
+import org.jlab.clara.base.error.ClaraException;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The routing instructions of a composition, compiled for a given service.
+ * <p>
+ * Instances are immutable and can be shared by all the engines of a service,
+ * and by all the services of the same DPE that receive the same composition.
+ *
+ * @see CompositionCache
+ */
+public final class CompiledComposition {
+
+    private final String composition;
+    private final String serviceName;
+    private final Set<Instruction> instructions;
+    private final Set<String> unconditionalLinks;
+    private final RoutingTable routingTable;
+
+    /**
+     * Compiles the given composition for the given service.
+     *
+     * @param composition the composition to be compiled
+     * @param serviceName the name of the service relative to which to compile
+     * @return the compiled composition
+     * @throws ClaraException if the composition is invalid
+     */
+    public static CompiledComposition compile(String composition, String serviceName)
+            throws ClaraException {
+        CompositionCompiler compiler = new CompositionCompiler(serviceName);
+        compiler.compile(composition);
+        return new CompiledComposition(composition, serviceName, compiler.getInstructions());
+    }
+
+    private CompiledComposition(String composition,
+                                String serviceName,
+                                Set<Instruction> instructions) {
+        this.composition = composition;
+        this.serviceName = serviceName;
+        this.instructions = Collections.unmodifiableSet(new LinkedHashSet<>(instructions));
+        this.unconditionalLinks = Collections.unmodifiableSet(
+                CompositionCompiler.getUnconditionalLinks(this.instructions));
+        this.routingTable = new RoutingTable(this.instructions, serviceName);
+    }
+
+    public String getComposition() {
+        return composition;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    Set<Instruction> getInstructions() {
+        return instructions;
+    }
+
+    public Set<String> getUnconditionalLinks() {
+        return unconditionalLinks;
+    }
+
+    /**
+     * Gets the output links for the given owner and input service states.
+     * The returned array is shared and must not be modified.
+     *
+     * @param ownerName the name of the service that owns the composition
+     * @param ownerState the current state of the owner service
+     * @param inputName the name of the service that sent the input data
+     * @param inputState the state of the input service
+     * @return the names of the services that should receive the output data
+     */
+    public String[] getLinks(String ownerName, String ownerState,
+                             String inputName, String inputState) {
+        return routingTable.getLinks(ownerName, ownerState, inputName, inputState);
+    }
+
+    /**
+     * Gets the resolved destinations of the output links for the given owner
+     * and input service states.
+     * The destinations are resolved when the composition is compiled,
+     * and the returned array is shared and must not be modified.
+     *
+     * @param ownerName the name of the service that owns the composition
+     * @param ownerState the current state of the owner service
+     * @param inputName the name of the service that sent the input data
+     * @param inputState the state of the input service
+     * @return the destinations that should receive the output data
+     * @see #getLinks
+     */
+    public Destination[] getDestinations(String ownerName, String ownerState,
+                                         String inputName, String inputState) {
+        return routingTable.getDestinations(ownerName, ownerState, inputName, inputState);
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.sys.ccc;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The syntax tree of a CLARA composition, as produced by the
+ * {@link CompositionParser}.
+ * <p>
+ * A composition is a sequence of routing statements and conditionals.
+ * Every node keeps the line and column where it starts in the composition
+ * text, to report errors. All nodes are immutable.
+ */
+final class CompositionAst {
+
+    private CompositionAst() { }
+
+
+    /**
+     * The base of all nodes, with its position in the composition text.
+     */
+    abstract static class Node {
+
+        private final int line;
+        private final int column;
+
+        Node(int line, int column) {
+            this.line = line;
+            this.column = column;
+        }
+
+        int line() {
+            return line;
+        }
+
+        int column() {
+            return column;
+        }
+    }
+
+
+    /**
+     * A top-level element of a composition:
+     * a {@link RoutingStatement} or a {@link Conditional}.
+     */
+    abstract static class Element extends Node {
+
+        Element(int line, int column) {
+            super(line, column);
+        }
+    }
+
+
+    /**
+     * A full composition.
+     */
+    static final class Program {
+
+        private final List<Element> elements;
+
+        Program(List<Element> elements) {
+            this.elements = Collections.unmodifiableList(elements);
+        }
+
+        List<Element> elements() {
+            return elements;
+        }
+
+        @Override
+        public String toString() {
+            return elements.stream()
+                           .map(Object::toString)
+                           .collect(Collectors.joining(" "));
+        }
+    }
+
+
+    /**
+     * A routing statement, i.e. a sequence of stages linked with {@code +}.
+     * The output of every service of a stage is sent to all the services of
+     * the next stage. Example: {@code S1,S2+&S3+S4,S5}.
+     */
+    static final class RoutingStatement extends Element {
+
+        private final List<Stage> stages;
+
+        RoutingStatement(int line, int column, List<Stage> stages) {
+            super(line, column);
+            this.stages = Collections.unmodifiableList(stages);
+        }
+
+        List<Stage> stages() {
+            return stages;
+        }
+
+        /**
+         * Gets the first stage that contains the given service.
+         *
+         * @param service the canonical name of a service
+         * @return the index of the stage, or -1 if the service is not present
+         */
+        int indexOf(String service) {
+            for (int i = 0; i < stages.size(); i++) {
+                if (stages.get(i).services().contains(service)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        boolean contains(String service) {
+            return indexOf(service) >= 0;
+        }
+
+        @Override
+        public String toString() {
+            return stages.stream()
+                         .map(Object::toString)
+                         .collect(Collectors.joining("+"));
+        }
+    }
+
+
+    /**
+     * A group of services in a routing statement, separated by {@code ,}.
+     * A stage with a single service can be marked with {@code &} to wait for
+     * the outputs of all the services of the previous stage.
+     */
+    static final class Stage extends Node {
+
+        private final List<String> services;
+        private final boolean isLogAnd;
+
+        Stage(int line, int column, List<String> services, boolean isLogAnd) {
+            super(line, column);
+            this.services = Collections.unmodifiableList(services);
+            this.isLogAnd = isLogAnd;
+        }
+
+        List<String> services() {
+            return services;
+        }
+
+        boolean isLogAnd() {
+            return isLogAnd;
+        }
+
+        @Override
+        public String toString() {
+            return (isLogAnd ? "&" : "") + String.join(",", services);
+        }
+    }
+
+
+    /**
+     * A conditional routing: one {@code if} branch, optionally followed by
+     * {@code elseif} branches and a final {@code else} branch.
+     */
+    static final class Conditional extends Element {
+
+        private final List<Branch> branches;
+
+        Conditional(int line, int column, List<Branch> branches) {
+            super(line, column);
+            this.branches = Collections.unmodifiableList(branches);
+        }
+
+        List<Branch> branches() {
+            return branches;
+        }
+
+        boolean contains(String service) {
+            for (Branch branch : branches) {
+                for (RoutingStatement statement : branch.statements()) {
+                    if (statement.contains(service)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return branches.stream()
+                           .map(Object::toString)
+                           .collect(Collectors.joining(" "));
+        }
+    }
+
+
+    /**
+     * The type of a branch of a conditional.
+     */
+    enum BranchType {
+        IF("if"),
+        ELSEIF("elseif"),
+        ELSE("else");
+
+        private final String keyword;
+
+        BranchType(String keyword) {
+            this.keyword = keyword;
+        }
+
+        @Override
+        public String toString() {
+            return keyword;
+        }
+    }
+
+
+    /**
+     * A branch of a conditional, with the routing statements of its block.
+     * The {@code else} branch has no condition.
+     */
+    static final class Branch extends Node {
+
+        private final BranchType type;
+        private final Condition condition;
+        private final List<RoutingStatement> statements;
+
+        Branch(int line, int column, BranchType type,
+                Condition condition, List<RoutingStatement> statements) {
+            super(line, column);
+            this.type = type;
+            this.condition = condition;
+            this.statements = Collections.unmodifiableList(statements);
+        }
+
+        BranchType type() {
+            return type;
+        }
+
+        Condition condition() {
+            return condition;
+        }
+
+        List<RoutingStatement> statements() {
+            return statements;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(type);
+            if (condition != null) {
+                sb.append(" (").append(condition).append(")");
+            }
+            sb.append(" {");
+            for (RoutingStatement statement : statements) {
+                sb.append(" ").append(statement).append(";");
+            }
+            sb.append(" }");
+            return sb.toString();
+        }
+    }
+
+
+    /**
+     * The logical operator that joins the predicates of a condition.
+     */
+    enum LogicOperator {
+        AND("&&"),
+        OR("!!");
+
+        private final String symbol;
+
+        LogicOperator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        @Override
+        public String toString() {
+            return symbol;
+        }
+    }
+
+
+    /**
+     * The condition of a branch: one or more predicates on the states of
+     * services, all joined by the same logical operator.
+     */
+    static final class Condition extends Node {
+
+        private final List<Predicate> predicates;
+        private final LogicOperator operator;
+
+        Condition(int line, int column, List<Predicate> predicates, LogicOperator operator) {
+            super(line, column);
+            this.predicates = Collections.unmodifiableList(predicates);
+            this.operator = operator;
+        }
+
+        List<Predicate> predicates() {
+            return predicates;
+        }
+
+        /**
+         * Gets the logical operator of the condition.
+         *
+         * @return the operator, or null if the condition has a single predicate
+         */
+        LogicOperator operator() {
+            return operator;
+        }
+
+        @Override
+        public String toString() {
+            String separator = operator != null ? " " + operator + " " : "";
+            return predicates.stream()
+                             .map(Object::toString)
+                             .collect(Collectors.joining(separator));
+        }
+    }
+
+
+    /**
+     * A comparison of the state of a service,
+     * like {@code S1 == "state"} or {@code S1 != "state"}.
+     */
+    static final class Predicate extends Node {
+
+        private final String service;
+        private final boolean isEqual;
+        private final String state;
+
+        Predicate(int line, int column, String service, boolean isEqual, String state) {
+            super(line, column);
+            this.service = service;
+            this.isEqual = isEqual;
+            this.state = state;
+        }
+
+        String service() {
+            return service;
+        }
+
+        boolean isEqual() {
+            return isEqual;
+        }
+
+        String state() {
+            return state;
+        }
+
+        @Override
+        public String toString() {
+            return service + (isEqual ? " == " : " != ") + "\"" + state + "\"";
+        }
+    }
+}
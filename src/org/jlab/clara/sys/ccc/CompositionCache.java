@@ -0,0 +1,168 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+package org.jlab.clara.sys.ccc;
+
+import org.jlab.clara.base.error.ClaraException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of compiled compositions.
+ * <p>
+ * Compositions are keyed by the composition string and the name of the
+ * service relative to which they were compiled.
+ * When the cache is full, the least recently used composition is evicted.
+ * <p>
+ * A single cache is shared by all the services of the process,
+ * so a composition is compiled only once for each service,
+ * no matter how many engines the service has.
+ */
+public final class CompositionCache {
+
+    /**
+     * The default maximum number of compositions kept by the shared cache.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final CompositionCache SHARED = new CompositionCache(DEFAULT_CAPACITY);
+
+    private final Map<Key, CompiledComposition> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Gets the cache shared by all services.
+     *
+     * @return the process-wide composition cache
+     */
+    public static CompositionCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param capacity the maximum number of compiled compositions
+     */
+    public CompositionCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.cache = new LinkedHashMap<Key, CompiledComposition>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CompiledComposition> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Gets the given composition compiled for the given service.
+     * The composition is compiled if it is not already in the cache.
+     * Compositions that cannot be compiled are not cached.
+     *
+     * @param composition the composition
+     * @param serviceName the name of the service relative to which to compile
+     * @return the compiled composition
+     * @throws ClaraException if the composition is invalid
+     */
+    public CompiledComposition get(String composition, String serviceName)
+            throws ClaraException {
+        Key key = new Key(composition, serviceName);
+        CompiledComposition compiled;
+        synchronized (cache) {
+            compiled = cache.get(key);
+        }
+        if (compiled != null) {
+            hits.getAndIncrement();
+            return compiled;
+        }
+        misses.getAndIncrement();
+        compiled = CompiledComposition.compile(composition, serviceName);
+        synchronized (cache) {
+            CompiledComposition previous = cache.putIfAbsent(key, compiled);
+            return previous != null ? previous : compiled;
+        }
+    }
+
+    /**
+     * Removes all compiled compositions.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+
+    private static final class Key {
+
+        private final String composition;
+        private final String serviceName;
+        private final int hash;
+
+        private Key(String composition, String serviceName) {
+            this.composition = composition;
+            this.serviceName = serviceName;
+            this.hash = Objects.hash(composition, serviceName);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return composition.equals(other.composition)
+                    && serviceName.equals(other.serviceName);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -27,10 +27,6 @@ import org.jlab.clara.base.error.ClaraException;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.StringTokenizer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
 
 /**
  * CLARA compiler. Compiles the application logical description, i.e.
@@ -48,6 +44,8 @@ import java.util.regex.PatternSyntaxException;
  * }
  * S4,S5 + &S8;
  * </pre>
+ * The composition is parsed by the {@code CompositionParser},
+ * which reports syntax errors with their line and column.
  *
  * @author gurjyan
  * @version 4.x
@@ -57,20 +55,35 @@ public class CompositionCompiler {
 
     /**
      * IP address regex.
+     *
+     * @deprecated compositions are no longer compiled with regular expressions
      */
+    @Deprecated
     public static final String IP = "([0-9]{1,3})\\.([0-9]{1,3})\\.([0-9]{1,3})\\.([0-9]{1,3})";
 
     /**
      * String that starts with a character and can have preceding number.
+     *
+     * @deprecated compositions are no longer compiled with regular expressions
      */
+    @Deprecated
     public static final String WORD = "([a-zA-Z_0-9-]*)";
-//    public static final String WORD = "([A-Z|a-z]+[0-9]*)";
+
+    /**
+     * Optional port of the DPE.
+     *
+     * @deprecated compositions are no longer compiled with regular expressions
+     */
+    @Deprecated
     public static final String PORT = "(%+[0-9]*)*";
 
     /**
      * Service canonical name.
      * Format: {@code dpe_name:container_name:engine_name}
+     *
+     * @deprecated compositions are no longer compiled with regular expressions
      */
+    @Deprecated
     public static final String SERV_NAME = IP + PORT + "_(java|python|cpp):" + WORD + ":" + WORD;
 
     /**
@@ -83,7 +96,10 @@ public class CompositionCompiler {
      * <li>{@code S1;}</li>
      * </ul>
      * Note that regular expression does not include end of statement operator.
+     *
+     * @deprecated compositions are no longer compiled with regular expressions
      */
+    @Deprecated
     public static final String STATEMENT = SERV_NAME + "(," + SERV_NAME + ")*"
                                          + "((\\+&?" + SERV_NAME + ")*|(\\+" + SERV_NAME
                                          + "(," + SERV_NAME + ")*)*)";
@@ -92,7 +108,10 @@ public class CompositionCompiler {
      * CLARA simple Condition. Example:
      * <li>{@code Service == "state_name}"</li>
      * <li>{@code Service != "state_name"</li>
+     *
+     * @deprecated compositions are no longer compiled with regular expressions
      */
+    @Deprecated
     public static final String SIMP_COND = SERV_NAME + "(==|!=)\"" + WORD + "\"";
 
     /**
@@ -101,12 +120,18 @@ public class CompositionCompiler {
      * <li>{@code (Service1 == "state_name1" !!
      *             Service2 == "state_name2" !!
      *             Service2 != "state_name3")}</li>
+     *
+     * @deprecated compositions are no longer compiled with regular expressions
      */
+    @Deprecated
     public static final String COMP_COND = SIMP_COND + "((&&|!!)" + SIMP_COND + ")*";
 
     /**
      * CLARA conditional statement.
+     *
+     * @deprecated compositions are no longer compiled with regular expressions
      */
+    @Deprecated
     public static final String COND = "((\\}?if|\\}elseif)\\(" + COMP_COND + "\\)\\{"
                                     + STATEMENT + ")|(\\}else\\{" + STATEMENT + ")";
 
@@ -124,247 +149,103 @@ public class CompositionCompiler {
         myServiceName = service;
     }
 
+    /**
+     * Compiles the given composition into the set of routing instructions
+     * relevant to the service.
+     * <p>
+     * Every routing statement that contains the service is compiled into an
+     * unconditional instruction. Every conditional with a branch that routes
+     * the service is compiled into one instruction for each of its branches,
+     * with the statements of the branch that contain the service,
+     * so the branches are evaluated in order.
+     *
+     * @param iCode the text of the composition
+     * @throws ClaraException if the composition has syntax errors,
+     *                        or it does not contain the service
+     */
     public void compile(String iCode) throws ClaraException {
 
         // This is a new request reset
         reset();
 
-        // Create a single string with no blanks
-        String pCode = noBlanks(iCode);
-
-        // split single string program using
-        // CLARA ; end of statement operator
-        // in case of the conditional statements the }
-        // scope operator can be the first after tokenize with,
-        // so preProcess will take of that too.
-        Set<String> pp = preProcess(pCode);
-
-        // start analysing and building compiled instructions
-        String[] ppi = pp.toArray(new String[pp.size()]);
-
-        int i = -1;
-        while (++i < ppi.length) {
-
-            String scs1 = ppi[i];
-
-            // conditional statement
-            if (scs1.startsWith("if(")
-                    || scs1.startsWith("}if(")
-                    || scs1.startsWith("}elseif(")
-                    || scs1.startsWith("}else")) {
-
-                Instruction instruction = parseCondition(scs1);
+        CompositionAst.Program program = CompositionParser.parse(iCode);
 
-                // ADB: assuming the intention here was to allow multiple
-                // statements under one conditional -- otherwise why make it
-                // nested?
-                while (++i < ppi.length) {
-
-                    String scs2 = ppi[i];
-
-                    if (!scs2.startsWith("}")
-                            && !scs2.startsWith("if(")
-                            && !scs2.startsWith("}if(")
-                            && !scs2.startsWith("}elseif(")
-                            && !scs2.startsWith("}else")) {
-
-                        // if ignoring the conditional, then ignore its statements also
-                        if (instruction != null) {
-                            parseConditionalStatement(scs2, instruction);
-                        }
-                    } else {
-                        break;
-                    }
-                }
-                if (instruction != null) {
-                    instructions.add(instruction);
-                }
-                i--;
-                // routing statement
+        for (CompositionAst.Element element : program.elements()) {
+            if (element instanceof CompositionAst.RoutingStatement) {
+                compileStatement((CompositionAst.RoutingStatement) element);
             } else {
-                parseStatement(scs1);
+                compileConditional((CompositionAst.Conditional) element);
             }
         }
 
         if (instructions.isEmpty()) {
             throw new ClaraException("Composition is irrelevant for a service.");
         }
-
     }
 
-    /**
-     * Tokenize code by CLARA end of statement operator ";".
-     *
-     * @param pCode code string
-     * @return set of tokens, including simple routing statements as well as conditionals
-     * @throws ClaraException
-     */
-    private Set<String> preProcess(String pCode) throws ClaraException {
-        if (!pCode.contains(";") && !pCode.endsWith(";")) {
-            throw new ClaraException("Syntax error in the CLARA routing program. "
-                    + "Missing end of statement operator = \";\"");
-        }
-        Set<String> r = new LinkedHashSet<>();
-        // tokenize by ;
-        StringTokenizer st = new StringTokenizer(pCode, ";");
-
-        while (st.hasMoreTokens()) {
-
-            String text = st.nextToken();
-
-            // ADB: by stripping out the closing brace here you lose the ability
-            //      to correctly parse multiple statements in a block
-            //
-            // this will get read of very last }
-            //text = CUtility.removeFirst(text, "}");
-
-            // ignore
-            if (!text.equals("") && !text.equals("}")) {
-                r.add(text);
-            }
+    private void compileStatement(CompositionAst.RoutingStatement statement)
+            throws ClaraException {
+        // ignore statements not concerning me
+        if (!statement.contains(myServiceName)) {
+            return;
         }
-        return r;
-    }
-
-    private boolean parseStatement(String iStmt) throws ClaraException {
-        boolean b = false;
         Instruction ti = new Instruction(myServiceName);
-
-        // ignore a leading }
-        iStmt = CompositionParser.removeFirst(iStmt, "}");
-
-        // unconditional routing statement
-        try {
-            Pattern p = Pattern.compile(STATEMENT);
-            Matcher m = p.matcher(iStmt);
-
-            if (m.matches()) {
-
-                // ignore conditional statements not concerning me
-                if (!iStmt.contains(myServiceName)) {
-                    return false;
-                }
-
-                Statement ts = new Statement(iStmt, myServiceName);
-                ti.addUnCondStatement(ts);
-                instructions.add(ti);
-                b = true;
-            } else {
-                System.out.println("DDD ----- > statement = " + iStmt);
-
-                throw new ClaraException("Syntax error in the CLARA routing program. "
-                        + "Malformed routing statement");
-            }
-        } catch (PatternSyntaxException e) {
-            System.err.println(e.getDescription());
-        }
-        return b;
+        ti.addUnCondStatement(new Statement(statement, myServiceName));
+        instructions.add(ti);
     }
 
-    private boolean parseConditionalStatement(String iStmt, Instruction ti) throws ClaraException {
-        boolean b = false;
-
-        // unconditional routing statement
-        Pattern p = Pattern.compile(STATEMENT);
-        Matcher m = p.matcher(iStmt);
-        if (m.matches()) {
-
-            // ignore conditional statements not concerning me
-            if (!iStmt.contains(myServiceName)) {
-                return false;
-            }
-
-            Statement ts = new Statement(iStmt, myServiceName);
-
-            // inside condition, so add as the corect type
-            if (ti.getIfCondition() != null) {
-                ti.addIfCondStatement(ts);
-            } else if (ti.getElseifCondition() != null) {
-                ti.addElseifCondStatement(ts);
-            } else {
-                ti.addElseCondStatement(ts);
-            }
-            b = true;
-        } else {
-            System.out.println("DDD ----- > statement = " + iStmt);
-
-            throw new ClaraException("Syntax error in the CLARA routing program. "
-                    + "Malformed routing statement");
+    private void compileConditional(CompositionAst.Conditional conditional)
+            throws ClaraException {
+        // ignore conditionals not concerning me
+        if (!conditional.contains(myServiceName)) {
+            return;
         }
-
-        return b;
-    }
-
-    private Instruction parseCondition(String iCnd) throws ClaraException {
-        Instruction ti;
-
-        Pattern p = Pattern.compile(COND);
-        Matcher m = p.matcher(iCnd);
-
-        if (m.matches()) {
-            try {
-                // get first statement and analyze it
-                String statementStr = iCnd.substring(iCnd.indexOf("{"));
-
-                // ignore conditions not concerning me
-                if (!statementStr.contains(myServiceName)) {
-                    return null;
+        for (CompositionAst.Branch branch : conditional.branches()) {
+            Instruction ti = new Instruction(myServiceName);
+            for (CompositionAst.RoutingStatement statement : branch.statements()) {
+                if (!statement.contains(myServiceName)) {
+                    continue;
                 }
-
-                Statement ts = new Statement(statementStr, myServiceName);
-
-                // create Instruction
-                ti = new Instruction(myServiceName);
-                if (iCnd.startsWith("}if(") || iCnd.startsWith("if(")) {
-                    String conditionStr = iCnd.substring(iCnd.indexOf("(") + 1,
-                                                         iCnd.lastIndexOf(")"));
-                    Condition tc = new Condition(conditionStr, myServiceName);
-                    ti.setIfCondition(tc);
-                    ti.addIfCondStatement(ts);
-                } else if (iCnd.startsWith("}elseif(")) {
-                    String conditionStr = iCnd.substring(iCnd.indexOf("(") + 1,
-                                                         iCnd.lastIndexOf(")"));
-                    Condition tc = new Condition(conditionStr, myServiceName);
-                    ti.setElseifCondition(tc);
-                    ti.addElseifCondStatement(ts);
-                } else if (iCnd.startsWith("}else")) {
-                    ti.addElseCondStatement(ts);
+                Statement ts = new Statement(statement, myServiceName);
+                switch (branch.type()) {
+                    case IF:
+                        ti.addIfCondStatement(ts);
+                        break;
+                    case ELSEIF:
+                        ti.addElseifCondStatement(ts);
+                        break;
+                    default:
+                        ti.addElseCondStatement(ts);
+                        break;
                 }
-            } catch (StringIndexOutOfBoundsException e) {
-                throw new ClaraException("Syntax error in the CLARA routing program. "
-                            + "Missing parenthesis");
             }
-        } else {
-            throw new ClaraException("Syntax error in the CLARA routing program. "
-                    + "Malformed conditional statement");
+            switch (branch.type()) {
+                case IF:
+                    ti.setIfCondition(new Condition(branch.condition(), myServiceName));
+                    break;
+                case ELSEIF:
+                    ti.setElseifCondition(new Condition(branch.condition(), myServiceName));
+                    break;
+                default:
+                    break;
+            }
+            instructions.add(ti);
         }
-        return ti;
     }
 
     public void reset() {
         instructions.clear();
     }
 
-    /**
-     * Returns an entire program one consequent string.
-     *
-     * @param x input program text
-     * @return single string representation of the program
-     */
-    private String noBlanks(String x) {
-        StringTokenizer st = new StringTokenizer(x);
-        StringBuilder sb = new StringBuilder();
-        while (st.hasMoreTokens()) {
-            sb.append(st.nextToken().trim());
-        }
-        return sb.toString();
-    }
-
     public Set<Instruction> getInstructions() {
         return instructions;
     }
 
     public Set<String> getUnconditionalLinks() {
+        return getUnconditionalLinks(instructions);
+    }
+
+    static Set<String> getUnconditionalLinks(Set<Instruction> instructions) {
         Set<String> outputs = new HashSet<>();
         for (Instruction inst : instructions) {
             // NOTE: instruction routing statements are exclusive: will be
@@ -379,6 +260,12 @@ public class CompositionCompiler {
     }
 
     public Set<String> getLinks(ServiceState ownerSS, ServiceState inputSS) {
+        return getLinks(instructions, ownerSS, inputSS);
+    }
+
+    static Set<String> getLinks(Set<Instruction> instructions,
+                                ServiceState ownerSS,
+                                ServiceState inputSS) {
 
         Set<String> outputs = new HashSet<>();
 
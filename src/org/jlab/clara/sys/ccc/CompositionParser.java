@@ -22,53 +22,483 @@
 
 package org.jlab.clara.sys.ccc;
 
+import org.jlab.clara.base.error.ClaraException;
+import org.jlab.clara.sys.ccc.CompositionAst.Branch;
+import org.jlab.clara.sys.ccc.CompositionAst.BranchType;
+import org.jlab.clara.sys.ccc.CompositionAst.Condition;
+import org.jlab.clara.sys.ccc.CompositionAst.Conditional;
+import org.jlab.clara.sys.ccc.CompositionAst.Element;
+import org.jlab.clara.sys.ccc.CompositionAst.LogicOperator;
+import org.jlab.clara.sys.ccc.CompositionAst.Predicate;
+import org.jlab.clara.sys.ccc.CompositionAst.Program;
+import org.jlab.clara.sys.ccc.CompositionAst.RoutingStatement;
+import org.jlab.clara.sys.ccc.CompositionAst.Stage;
+
+import java.util.ArrayList;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.StringTokenizer;
 
+/**
+ * Parses the text of a CLARA composition into a {@link CompositionAst syntax
+ * tree}, in a single pass.
+ * <p>
+ * The grammar of a composition is:
+ * <pre>
+ * program     = { element | ";" } ;
+ * element     = statement ";" | conditional ;
+ * conditional = "if" condition block { "elseif" condition block } [ "else" block ] ;
+ * block       = "{" { statement ";" | ";" } "}" ;
+ * condition   = "(" predicate { ( "&amp;&amp;" | "!!" ) predicate } ")" ;
+ * predicate   = service ( "==" | "!=" ) state ;
+ * statement   = stage { "+" [ "&amp;" ] stage } ;
+ * stage       = service { "," service } ;
+ * </pre>
+ * A service is a canonical service name ({@code host[%port]_lang:container:engine})
+ * and a state is a quoted word. Whitespace is ignored between tokens,
+ * and the last statement of the composition can omit the {@code ;}.
+ * A condition cannot mix {@code &&} and {@code !!} operators,
+ * a stage marked with {@code &} must contain a single service,
+ * and conditionals cannot be nested.
+ * <p>
+ * Syntax errors are reported with the line and column of the offending token.
+ */
 final class CompositionParser {
 
-    private CompositionParser() { }
+    private static final String DELIMITERS = "+,;&(){}=!\"";
+
+    private final String text;
+    private int pos;
+    private int line = 1;
+    private int lineStart;
+
+    private Token token;
+
+
+    /**
+     * A syntax error in the composition text.
+     */
+    static class SyntaxException extends ClaraException {
+
+        private final int line;
+        private final int column;
+
+        SyntaxException(int line, int column, String message) {
+            super(String.format("composition syntax error at line %d, column %d: %s",
+                                line, column, message));
+            this.line = line;
+            this.column = column;
+        }
+
+        int line() {
+            return line;
+        }
 
-    public static String removeFirst(String s) {
-        if (s == null || s.length() == 0) {
-            return s;
+        int column() {
+            return column;
         }
-        return s.substring(1, s.length());
     }
 
-    public static String removeFirst(String input, String firstCharacter) {
-        input = input.startsWith(firstCharacter) ? input.substring(1) : input;
-        return input;
+
+    private enum TokenType {
+        NAME,
+        STATE,
+        PLUS,
+        COMMA,
+        SEMICOLON,
+        AMPERSAND,
+        LEFT_PAREN,
+        RIGHT_PAREN,
+        LEFT_BRACE,
+        RIGHT_BRACE,
+        EQUAL,
+        NOT_EQUAL,
+        AND,
+        OR,
+        END,
     }
 
-    public static String removeLast(String s) {
-        if (s == null || s.length() == 0) {
-            return s;
+
+    private static final class Token {
+
+        private final TokenType type;
+        private final String text;
+        private final int line;
+        private final int column;
+
+        private Token(TokenType type, String text, int line, int column) {
+            this.type = type;
+            this.text = text;
+            this.line = line;
+            this.column = column;
+        }
+
+        private boolean isKeyword(String keyword) {
+            return type == TokenType.NAME && text.equals(keyword);
+        }
+
+        @Override
+        public String toString() {
+            return type == TokenType.END ? "end of composition" : "'" + text + "'";
+        }
+    }
+
+
+    private CompositionParser(String text) {
+        this.text = text;
+    }
+
+
+    /**
+     * Parses the given composition.
+     *
+     * @param composition the text of the composition
+     * @return the syntax tree of the composition
+     * @throws SyntaxException if the composition is not valid
+     */
+    static Program parse(String composition) throws SyntaxException {
+        CompositionParser parser = new CompositionParser(composition);
+        parser.advance();
+        return parser.parseProgram();
+    }
+
+
+    private Program parseProgram() throws SyntaxException {
+        List<Element> elements = new ArrayList<>();
+        while (token.type != TokenType.END) {
+            if (token.type == TokenType.SEMICOLON) {
+                advance();
+            } else if (token.isKeyword("if")) {
+                elements.add(parseConditional());
+            } else if (token.isKeyword("elseif") || token.isKeyword("else")) {
+                throw error(token, "'" + token.text + "' without 'if'");
+            } else {
+                elements.add(parseStatement());
+                if (token.type != TokenType.END) {
+                    expect(TokenType.SEMICOLON, "';'");
+                }
+            }
+        }
+        if (elements.isEmpty()) {
+            throw error(token, "empty composition");
         }
-        return s.substring(0, s.length() - 1);
+        return new Program(elements);
     }
 
-    public static String getFirstService(String composition) {
-        StringTokenizer st = new StringTokenizer(composition, ";");
-        String a = st.nextToken();
 
-        if (a.contains(",")) {
-            StringTokenizer stk = new StringTokenizer(a, ",");
-            return stk.nextToken();
+    private Conditional parseConditional() throws SyntaxException {
+        Token start = token;
+        List<Branch> branches = new ArrayList<>();
+        branches.add(parseBranch(BranchType.IF));
+        while (token.isKeyword("elseif")) {
+            branches.add(parseBranch(BranchType.ELSEIF));
+        }
+        if (token.isKeyword("else")) {
+            branches.add(parseBranch(BranchType.ELSE));
+        }
+        return new Conditional(start.line, start.column, branches);
+    }
+
+
+    private Branch parseBranch(BranchType type) throws SyntaxException {
+        Token start = advance();
+        Condition condition = null;
+        if (type != BranchType.ELSE) {
+            condition = parseCondition();
+        }
+        List<RoutingStatement> statements = parseBlock();
+        return new Branch(start.line, start.column, type, condition, statements);
+    }
+
+
+    private List<RoutingStatement> parseBlock() throws SyntaxException {
+        expect(TokenType.LEFT_BRACE, "'{'");
+        List<RoutingStatement> statements = new ArrayList<>();
+        while (token.type != TokenType.RIGHT_BRACE) {
+            if (token.type == TokenType.SEMICOLON) {
+                advance();
+                continue;
+            }
+            if (token.type == TokenType.END) {
+                throw error(token, "expected '}' but found " + token);
+            }
+            if (token.isKeyword("if")) {
+                throw error(token, "nested conditionals are not supported");
+            }
+            statements.add(parseStatement());
+            expect(TokenType.SEMICOLON, "';'");
+        }
+        advance();
+        return statements;
+    }
+
+
+    private Condition parseCondition() throws SyntaxException {
+        Token start = expect(TokenType.LEFT_PAREN, "'('");
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(parsePredicate());
+        LogicOperator operator = null;
+        while (token.type == TokenType.AND || token.type == TokenType.OR) {
+            Token opToken = advance();
+            LogicOperator op = opToken.type == TokenType.AND ? LogicOperator.AND
+                                                             : LogicOperator.OR;
+            if (operator != null && operator != op) {
+                throw error(opToken, "cannot mix '&&' and '!!' in the same condition");
+            }
+            operator = op;
+            predicates.add(parsePredicate());
+        }
+        expect(TokenType.RIGHT_PAREN, "')'");
+        return new Condition(start.line, start.column, predicates, operator);
+    }
+
+
+    private Predicate parsePredicate() throws SyntaxException {
+        Token start = token;
+        String service = expectService();
+        boolean isEqual;
+        if (token.type == TokenType.EQUAL) {
+            isEqual = true;
+        } else if (token.type == TokenType.NOT_EQUAL) {
+            isEqual = false;
         } else {
-            return a;
+            throw error(token, "expected '==' or '!=' but found " + token);
+        }
+        advance();
+        Token state = expect(TokenType.STATE, "a quoted state");
+        return new Predicate(start.line, start.column, service, isEqual, state.text);
+    }
+
+
+    private RoutingStatement parseStatement() throws SyntaxException {
+        Token start = token;
+        List<Stage> stages = new ArrayList<>();
+        stages.add(parseStage(false));
+        while (token.type == TokenType.PLUS) {
+            advance();
+            boolean isLogAnd = false;
+            if (token.type == TokenType.AMPERSAND) {
+                isLogAnd = true;
+                advance();
+            }
+            stages.add(parseStage(isLogAnd));
+        }
+        return new RoutingStatement(start.line, start.column, stages);
+    }
+
+
+    private Stage parseStage(boolean isLogAnd) throws SyntaxException {
+        Token start = token;
+        List<String> services = new ArrayList<>();
+        services.add(expectService());
+        while (token.type == TokenType.COMMA) {
+            advance();
+            services.add(expectService());
         }
+        if (isLogAnd && services.size() > 1) {
+            throw error(start, "a stage marked with '&' must contain a single service");
+        }
+        return new Stage(start.line, start.column, services, isLogAnd);
+    }
+
+
+    private String expectService() throws SyntaxException {
+        if (token.type != TokenType.NAME) {
+            throw error(token, "expected a service name but found " + token);
+        }
+        if (!isServiceName(token.text)) {
+            throw error(token, "invalid service name " + token);
+        }
+        return advance().text;
+    }
+
+
+    private Token expect(TokenType type, String description) throws SyntaxException {
+        if (token.type != type) {
+            throw error(token, "expected " + description + " but found " + token);
+        }
+        return advance();
+    }
+
+
+    /**
+     * Checks the format {@code host[%port]_lang:container:engine}.
+     */
+    static boolean isServiceName(String name) {
+        int length = name.length();
+        int i = 0;
+        while (i < length && ":%_".indexOf(name.charAt(i)) < 0) {
+            i++;
+        }
+        if (i == 0 || i == length) {
+            return false;
+        }
+        if (name.charAt(i) == '%') {
+            int portStart = ++i;
+            while (i < length && Character.isDigit(name.charAt(i))) {
+                i++;
+            }
+            if (i == portStart || i == length) {
+                return false;
+            }
+        }
+        if (name.charAt(i) != '_') {
+            return false;
+        }
+        int langStart = ++i;
+        int langEnd = name.indexOf(':', langStart);
+        if (langEnd < 0 || !isLang(name.substring(langStart, langEnd))) {
+            return false;
+        }
+        int containerEnd = skipWord(name, langEnd + 1);
+        if (containerEnd == langEnd + 1 || containerEnd == length
+                || name.charAt(containerEnd) != ':') {
+            return false;
+        }
+        int engineEnd = skipWord(name, containerEnd + 1);
+        return engineEnd > containerEnd + 1 && engineEnd == length;
+    }
+
+
+    private static boolean isLang(String lang) {
+        return lang.equals("java") || lang.equals("python") || lang.equals("cpp");
+    }
+
+
+    private static int skipWord(String text, int start) {
+        int i = start;
+        while (i < text.length() && isWordChar(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '_' || c == '-';
     }
 
-    public static String getJSetElementAt(List<String> set, int index) {
-        int ind = -1;
-        for (String s : set) {
-            ind++;
-            if (index == ind) {
-                return s;
+
+    private SyntaxException error(Token at, String message) {
+        return new SyntaxException(at.line, at.column, message);
+    }
+
+
+    /**
+     * Reads the next token and returns the current one.
+     */
+    private Token advance() throws SyntaxException {
+        Token current = token;
+        token = nextToken();
+        return current;
+    }
+
+
+    private Token nextToken() throws SyntaxException {
+        skipWhitespace();
+        int column = pos - lineStart + 1;
+        if (pos >= text.length()) {
+            return new Token(TokenType.END, "", line, column);
+        }
+        char c = text.charAt(pos);
+        switch (c) {
+            case '+':
+                return symbol(TokenType.PLUS, 1, column);
+            case ',':
+                return symbol(TokenType.COMMA, 1, column);
+            case ';':
+                return symbol(TokenType.SEMICOLON, 1, column);
+            case '(':
+                return symbol(TokenType.LEFT_PAREN, 1, column);
+            case ')':
+                return symbol(TokenType.RIGHT_PAREN, 1, column);
+            case '{':
+                return symbol(TokenType.LEFT_BRACE, 1, column);
+            case '}':
+                return symbol(TokenType.RIGHT_BRACE, 1, column);
+            case '&':
+                if (peek(1) == '&') {
+                    return symbol(TokenType.AND, 2, column);
+                }
+                return symbol(TokenType.AMPERSAND, 1, column);
+            case '=':
+                if (peek(1) == '=') {
+                    return symbol(TokenType.EQUAL, 2, column);
+                }
+                throw new SyntaxException(line, column, "unexpected '=', expected '=='");
+            case '!':
+                if (peek(1) == '=') {
+                    return symbol(TokenType.NOT_EQUAL, 2, column);
+                }
+                if (peek(1) == '!') {
+                    return symbol(TokenType.OR, 2, column);
+                }
+                throw new SyntaxException(line, column,
+                                          "unexpected '!', expected '!=' or '!!'");
+            case '"':
+                return state(column);
+            default:
+                return name(column);
+        }
+    }
+
+
+    private void skipWhitespace() {
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c == '\n') {
+                line++;
+                lineStart = pos + 1;
+            } else if (!Character.isWhitespace(c)) {
+                return;
+            }
+            pos++;
+        }
+    }
+
+
+    private char peek(int offset) {
+        int i = pos + offset;
+        return i < text.length() ? text.charAt(i) : '\0';
+    }
+
+
+    private Token symbol(TokenType type, int length, int column) {
+        String symbol = text.substring(pos, pos + length);
+        pos += length;
+        return new Token(type, symbol, line, column);
+    }
+
+
+    private Token state(int column) throws SyntaxException {
+        int start = ++pos;
+        while (pos < text.length() && isWordChar(text.charAt(pos))) {
+            pos++;
+        }
+        if (pos >= text.length() || text.charAt(pos) != '"') {
+            int errorColumn = pos - lineStart + 1;
+            if (pos >= text.length() || Character.isWhitespace(text.charAt(pos))) {
+                throw new SyntaxException(line, column, "unterminated state");
+            }
+            throw new SyntaxException(line, errorColumn,
+                                      "invalid character '" + text.charAt(pos) + "' in state");
+        }
+        if (pos == start) {
+            throw new SyntaxException(line, column, "empty state");
+        }
+        String state = text.substring(start, pos++);
+        return new Token(TokenType.STATE, state, line, column);
+    }
+
+
+    private Token name(int column) {
+        int start = pos;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (Character.isWhitespace(c) || DELIMITERS.indexOf(c) >= 0) {
+                break;
             }
+            pos++;
         }
-        throw new NoSuchElementException();
+        return new Token(TokenType.NAME, text.substring(start, pos), line, column);
     }
 }
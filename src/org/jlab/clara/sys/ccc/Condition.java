@@ -22,13 +22,11 @@
 
 package org.jlab.clara.sys.ccc;
 
-import org.jlab.clara.base.error.ClaraException;
+import org.jlab.clara.sys.ccc.CompositionAst.LogicOperator;
+import org.jlab.clara.sys.ccc.CompositionAst.Predicate;
 
 import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.StringTokenizer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Defines it's own as well as all input service states that if exists in
@@ -56,9 +54,9 @@ class Condition {
     // Required states of services that will make this statement true
     private final Set<ServiceState> orNotStates = new LinkedHashSet<>();
 
-    Condition(String conditionString, String serviceName) throws ClaraException {
+    Condition(CompositionAst.Condition condition, String serviceName) {
         this.serviceName = serviceName;
-        process(conditionString);
+        process(condition);
     }
 
     public String getServiceName() {
@@ -97,120 +95,22 @@ class Condition {
         this.orNotStates.add(orState);
     }
 
-    private void process(String cs) throws ClaraException {
-        if (cs.contains("(")) {
-            cs = cs.replaceAll("\\(", "");
-        }
-        if (cs.contains(")")) {
-            cs = cs.replaceAll("\\)", "");
-        }
-
-        if (cs.contains("&&")) {
-            parseCondition(cs, "&&");
-        } else if (cs.contains("!!")) {
-            parseCondition(cs, "!!");
-        } else {
-            parseCondition(cs, null);
-        }
-    }
-
-    private void parseCondition(String cs, String logicOperator) throws ClaraException {
-        StringTokenizer t0, t1;
-        if (logicOperator == null) {
-            Pattern p = Pattern.compile(CompositionCompiler.SIMP_COND);
-            Matcher m = p.matcher(cs);
-            if (m.matches()) {
-                if (cs.contains("!=")) {
-                    t1 = new StringTokenizer(cs, "!=\"");
-                    if (t1.countTokens() != 2) {
-                        throw new ConditionException();
-                    }
-                    ServiceState sst = new ServiceState(t1.nextToken(), t1.nextToken());
-                    addOrNotState(sst);
-
-                } else if (cs.contains("==")) {
-                    t1 = new StringTokenizer(cs, "==\"");
-                    if (t1.countTokens() != 2) {
-                        throw new ConditionException();
-                    }
-                    ServiceState sst = new ServiceState(t1.nextToken(), t1.nextToken());
-                    addOrState(sst);
-
+    private void process(CompositionAst.Condition condition) {
+        boolean isAnd = condition.operator() == LogicOperator.AND;
+        for (Predicate predicate : condition.predicates()) {
+            ServiceState sst = new ServiceState(predicate.service(), predicate.state());
+            if (isAnd) {
+                if (predicate.isEqual()) {
+                    addAndState(sst);
                 } else {
-                    throw new ConditionException();
+                    addAndNotState(sst);
                 }
             } else {
-                throw new ConditionException();
-            }
-
-        } else {
-
-            if (cs.contains("&&") && !cs.contains("!!")) {
-                t0 = new StringTokenizer(cs, logicOperator);
-                while (t0.hasMoreTokens()) {
-                    String ac = t0.nextToken();
-
-                    Pattern p = Pattern.compile(CompositionCompiler.SIMP_COND);
-                    Matcher m = p.matcher(ac);
-                    if (m.matches()) {
-
-                        if (ac.contains("!=")) {
-                            t1 = new StringTokenizer(t0.nextToken(), "!=\"");
-                            if (t1.countTokens() != 2) {
-                                throw new ConditionException();
-                            }
-                            ServiceState sst = new ServiceState(t1.nextToken(), t1.nextToken());
-                            addAndNotState(sst);
-
-                        } else if (ac.contains("==")) {
-                            t1 = new StringTokenizer(t0.nextToken(), "==\"");
-                            if (t1.countTokens() != 2) {
-                                throw new ConditionException();
-                            }
-                            ServiceState sst = new ServiceState(t1.nextToken(), t1.nextToken());
-                            addAndState(sst);
-
-                        } else {
-                            throw new ConditionException();
-                        }
-                    } else {
-                        throw new ConditionException();
-                    }
-                }
-            } else if (cs.contains("!!") && !cs.contains("&&")) {
-                t0 = new StringTokenizer(cs, logicOperator);
-                while (t0.hasMoreTokens()) {
-                    String ac = t0.nextToken();
-
-                    Pattern p = Pattern.compile(CompositionCompiler.SIMP_COND);
-                    Matcher m = p.matcher(ac);
-                    if (m.matches()) {
-
-                        if (ac.contains("!=")) {
-                            t1 = new StringTokenizer(t0.nextToken(), "!=\"");
-                            if (t1.countTokens() != 2) {
-                                throw new ConditionException();
-                            }
-                            ServiceState sst = new ServiceState(t1.nextToken(), t1.nextToken());
-                            addOrNotState(sst);
-
-                        } else if (ac.contains("==")) {
-                            t1 = new StringTokenizer(t0.nextToken(), "==\"");
-                            if (t1.countTokens() != 2) {
-                                throw new ConditionException();
-                            }
-                            ServiceState sst = new ServiceState(t1.nextToken(), t1.nextToken());
-                            addOrState(sst);
-
-                        } else {
-                            throw new ConditionException();
-                        }
-                    } else {
-                        throw new ConditionException();
-                    }
+                if (predicate.isEqual()) {
+                    addOrState(sst);
+                } else {
+                    addOrNotState(sst);
                 }
-            } else {
-                throw new ConditionException();
             }
         }
     }
@@ -252,12 +152,4 @@ class Condition {
                 + ", orNotStates=" + orNotStates
                 + '}';
     }
-
-
-    public static class ConditionException extends ClaraException {
-
-        ConditionException() {
-            super("composition syntax error: malformed conditional statement");
-        }
-    }
 }
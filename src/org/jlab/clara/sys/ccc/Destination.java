@@ -0,0 +1,134 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.sys.ccc;
+
+import org.jlab.clara.base.ClaraUtil;
+import org.jlab.clara.base.core.ClaraComponent;
+import org.jlab.clara.base.core.ClaraConstants;
+import org.jlab.coda.xmsg.core.xMsgTopic;
+import org.jlab.coda.xmsg.net.xMsgProxyAddress;
+
+/**
+ * A service that receives the output of a composition link,
+ * resolved once when the composition is compiled.
+ * <p>
+ * The destination keeps the topic and the proxy address used to publish the
+ * output data, and the location of the receiver relative to the service that
+ * owns the composition, so sending a result does not need to parse
+ * the canonical name of the receiver.
+ * Instances are immutable.
+ */
+public final class Destination {
+
+    private final String name;
+    private final xMsgTopic topic;
+    private final xMsgProxyAddress proxyAddress;
+    private final boolean isSharedMemory;
+    private final boolean isSameHost;
+
+    /**
+     * Resolves the given receiver of the output of the given service.
+     *
+     * @param name the canonical name of the receiver service
+     * @param ownerName the canonical name of the service sending the output
+     */
+    Destination(String name, String ownerName) {
+        this.name = name;
+        this.topic = xMsgTopic.wrap(name);
+        this.proxyAddress = ClaraComponent.dpe(name).getProxyAddress();
+        this.isSharedMemory = ClaraUtil.getDpeLang(name).equals(ClaraConstants.JAVA_LANG);
+        this.isSameHost = ClaraUtil.getDpeHost(name).equals(ClaraUtil.getDpeHost(ownerName));
+    }
+
+    private Destination(String topic) {
+        this.name = topic;
+        this.topic = xMsgTopic.wrap(topic);
+        this.proxyAddress = null;
+        this.isSharedMemory = false;
+        this.isSameHost = true;
+    }
+
+    /**
+     * Creates a destination for the reply topic of a synchronous request.
+     * Replies are never sent through shared memory,
+     * and they are always published to the proxy of the service.
+     *
+     * @param replyTo the reply topic
+     * @return the destination of the reply
+     */
+    public static Destination reply(String replyTo) {
+        return new Destination(replyTo);
+    }
+
+    /**
+     * Gets the canonical name of the receiver, or the reply topic.
+     *
+     * @return the name of the destination
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Gets the topic used to publish the data to the receiver.
+     *
+     * @return the topic of the destination
+     */
+    public xMsgTopic topic() {
+        return topic;
+    }
+
+    /**
+     * Gets the address of the proxy of the receiver.
+     *
+     * @return the proxy address, or null for replies
+     */
+    public xMsgProxyAddress proxyAddress() {
+        return proxyAddress;
+    }
+
+    /**
+     * Checks if the receiver can get the data through shared memory.
+     * Only Java services can, if they are running in the same process.
+     *
+     * @return true if the receiver is a Java service
+     */
+    public boolean isSharedMemory() {
+        return isSharedMemory;
+    }
+
+    /**
+     * Checks if the receiver runs in the same node as the sender.
+     *
+     * @return true if the receiver and the sender have the same host
+     */
+    public boolean isSameHost() {
+        return isSameHost;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+package org.jlab.clara.sys.ccc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The output links of a compiled composition, precomputed for every
+ * combination of service states that can change the routing.
+ * <p>
+ * The conditions of a composition only compare the owner and input states
+ * with the service states written in the composition, so any other state
+ * routes exactly the same. The states of the conditions are interned to
+ * small ids (with an extra id for all other states), and the output links
+ * are computed once for each pair of (owner, input) ids.
+ * A lookup only needs two map queries on the names and states,
+ * and returns a shared array, so routing a request allocates nothing.
+ * Unconditional compositions just return a constant array.
+ * <p>
+ * The output links are also resolved into {@link Destination destinations}
+ * relative to the service that owns the composition.
+ */
+final class RoutingTable {
+
+    // Compositions with more states than this are evaluated for each request
+    private static final int MAX_STATES = 63;
+
+    private static final ServiceState OTHER_STATE = new ServiceState("", "");
+
+    private final Set<Instruction> instructions;
+    private final String serviceName;
+    private final Map<String, Map<String, Integer>> stateIds = new HashMap<>();
+    private final Map<String, Destination> destinations = new HashMap<>();
+    private final int dimension;
+    private final String[][] table;
+    private final Destination[][] destinationTable;
+
+
+    RoutingTable(Set<Instruction> instructions, String serviceName) {
+        this.instructions = instructions;
+        this.serviceName = serviceName;
+
+        List<ServiceState> states = conditionStates(instructions);
+        if (states.size() > MAX_STATES) {
+            this.dimension = 0;
+            this.table = null;
+            this.destinationTable = null;
+            return;
+        }
+
+        for (int i = 0; i < states.size(); i++) {
+            ServiceState ss = states.get(i);
+            stateIds.computeIfAbsent(ss.getName(), k -> new HashMap<>())
+                    .put(ss.getState(), i + 1);
+        }
+
+        this.dimension = states.size() + 1;
+        this.table = new String[dimension * dimension][];
+        this.destinationTable = new Destination[dimension * dimension][];
+
+        Map<Set<String>, String[]> interned = new HashMap<>();
+        Map<String[], Destination[]> resolved = new IdentityHashMap<>();
+        for (int o = 0; o < dimension; o++) {
+            ServiceState owner = o == 0 ? OTHER_STATE : states.get(o - 1);
+            for (int i = 0; i < dimension; i++) {
+                ServiceState input = i == 0 ? OTHER_STATE : states.get(i - 1);
+                Set<String> links = CompositionCompiler.getLinks(instructions, owner, input);
+                String[] names = interned.computeIfAbsent(
+                        links, k -> k.toArray(new String[k.size()]));
+                table[o * dimension + i] = names;
+                destinationTable[o * dimension + i] = resolved.computeIfAbsent(
+                        names, this::resolve);
+            }
+        }
+    }
+
+
+    String[] getLinks(String ownerName, String ownerState,
+                      String inputName, String inputState) {
+        if (table == null) {
+            ServiceState owner = new ServiceState(ownerName, ownerState);
+            ServiceState input = new ServiceState(inputName, inputState);
+            Set<String> links = CompositionCompiler.getLinks(instructions, owner, input);
+            return links.toArray(new String[links.size()]);
+        }
+        int o = stateId(ownerName, ownerState);
+        int i = stateId(inputName, inputState);
+        return table[o * dimension + i];
+    }
+
+
+    Destination[] getDestinations(String ownerName, String ownerState,
+                                  String inputName, String inputState) {
+        if (destinationTable == null) {
+            return resolve(getLinks(ownerName, ownerState, inputName, inputState));
+        }
+        int o = stateId(ownerName, ownerState);
+        int i = stateId(inputName, inputState);
+        return destinationTable[o * dimension + i];
+    }
+
+
+    private Destination[] resolve(String[] names) {
+        Destination[] result = new Destination[names.length];
+        for (int i = 0; i < names.length; i++) {
+            result[i] = resolve(names[i]);
+        }
+        return result;
+    }
+
+
+    private Destination resolve(String name) {
+        synchronized (destinations) {
+            return destinations.computeIfAbsent(name, k -> new Destination(k, serviceName));
+        }
+    }
+
+
+    private int stateId(String name, String state) {
+        Map<String, Integer> ids = stateIds.get(name);
+        if (ids == null) {
+            return 0;
+        }
+        Integer id = ids.get(state);
+        return id != null ? id : 0;
+    }
+
+
+    private static List<ServiceState> conditionStates(Set<Instruction> instructions) {
+        Set<ServiceState> states = new LinkedHashSet<>();
+        for (Instruction inst : instructions) {
+            addStates(inst.getIfCondition(), states);
+            addStates(inst.getElseifCondition(), states);
+        }
+        return new ArrayList<>(states);
+    }
+
+
+    private static void addStates(Condition condition, Set<ServiceState> states) {
+        if (condition != null) {
+            states.addAll(condition.getAndStates());
+            states.addAll(condition.getAndNotStates());
+            states.addAll(condition.getOrStates());
+            states.addAll(condition.getOrNotStates());
+        }
+    }
+}
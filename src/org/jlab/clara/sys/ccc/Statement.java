@@ -24,14 +24,14 @@ package org.jlab.clara.sys.ccc;
 
 import org.jlab.clara.base.error.ClaraException;
 import org.jlab.clara.engine.EngineData;
+import org.jlab.clara.sys.ccc.CompositionAst.RoutingStatement;
+import org.jlab.clara.sys.ccc.CompositionAst.Stage;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.StringTokenizer;
 
 /**
  * This class presents routing schema for a service, result of the CLARA
@@ -71,14 +71,14 @@ class Statement {
     private final Set<String> outputLinks = new LinkedHashSet<>();
 
 
-    Statement(String statementString, String serviceName) throws ClaraException {
-        if (statementString.contains(serviceName)) {
-            this.statementString = statementString;
-            this.serviceName = serviceName;
-            process(statementString);
-        } else {
+    Statement(RoutingStatement statement, String serviceName) throws ClaraException {
+        int index = statement.indexOf(serviceName);
+        if (index < 0) {
             throw new ClaraException("irrelevant statement");
         }
+        this.statementString = statement.toString();
+        this.serviceName = serviceName;
+        process(statement.stages(), index);
     }
 
     public String getServiceName() {
@@ -102,122 +102,28 @@ class Statement {
     }
 
     /**
-     * Analyses the composition string.
-     *
-     * @param statement string
-     * @throws ClaraException
-     */
-    private void process(String statement) throws ClaraException {
-        // This is new routing statement
-        // clear local containers
-        inputLinks.clear();
-        outputLinks.clear();
-        logAndInputs.clear();
-
-        // parse the new statement to find input and output
-        // linked service names
-        if (statement.contains(serviceName)) {
-            parseLinked(serviceName, statement);
-            if (isLogAnd(serviceName, statement)) {
-                for (String sn : inputLinks) {
-                    logAndInputs.put(sn, null);
-                }
-            }
-        }
-    }
-
-    /**
-     * Parses composition field of the transient data and returns the list of
-     * services output linked to this service, i.e. that are getting output
-     * data of this service.
+     * Finds the input and output links of the service,
+     * which are the services of the stages before and after the stage
+     * that contains the service.
      * <p>
-     * Attention: service name CAN NOT appear twice in the composition.
+     * Attention: only the first appearance of the service in the statement
+     * is used.
      *
-     * @param serviceName the name of the service
-     *                    for which we find input/output links
-     * @param statement the string of the composition
+     * @param stages the stages of the routing statement
+     * @param index the index of the stage that contains the service
      */
-    private void parseLinked(String serviceName, String statement) throws ClaraException {
-
-        // List that contains composition elements
-        List<String> elementSet = new ArrayList<>();
-
-        StringTokenizer st = new StringTokenizer(statement, "+");
-        while (st.hasMoreTokens()) {
-            String el = st.nextToken();
-            el = CompositionParser.removeFirst(el, "&");
-            el = CompositionParser.removeFirst(el, "{");
-            elementSet.add(el);
+    private void process(List<Stage> stages, int index) {
+        if (index > 0) {
+            inputLinks.addAll(stages.get(index - 1).services());
         }
-
-        // See if the string contains this service name, and record the index,
-        // and analyze index+1 element.
-        // Note: multiple services can send to a single service, like: s1,s2+s3.
-        // (this is the reason we use in:contains)
-        int index = -1;
-        for (String s : elementSet) {
-            index++;
-            if (s.contains(serviceName)) {
-                break;
-            }
+        if (index + 1 < stages.size()) {
+            outputLinks.addAll(stages.get(index + 1).services());
         }
-        if (index == -1) {
-            throw new ClaraException("Routing statement parsing exception. "
-                    + "Service name can not be found in the statement.");
-        } else {
-            int pIndex = index - 1;
-            if (pIndex >= 0) {
-                String element = CompositionParser.getJSetElementAt(elementSet, pIndex);
-                // the case to fan out the output of this service
-                elementTokenizer(element, inputLinks);
-            }
-
-            // define output links
-            int nIndex = index + 1;
-            if (elementSet.size() > nIndex) {
-                String element = CompositionParser.getJSetElementAt(elementSet, nIndex);
-                // the case to fan out the output of this service
-                elementTokenizer(element, outputLinks);
-            }
-        }
-    }
-
-    private void elementTokenizer(String element, Set<String> container) {
-        if (element.contains(",")) {
-            StringTokenizer st1 = new StringTokenizer(element, ",");
-            while (st1.hasMoreTokens()) {
-                container.add(st1.nextToken());
-            }
-        } else {
-            container.add(element);
-        }
-    }
-
-    /**
-     * Check to see in the composition this service is required to logically
-     * AND inputs before executing its service.
-     *
-     * @param serviceNname in the composition
-     * @param composition the string of the composition
-     * @return true if component name is programmed as {@code &<service_name>"}
-     */
-    private boolean isLogAnd(String serviceNname, String composition) {
-        String ac = "&" + serviceNname;
-
-        // List that contains composition elements
-        Set<String> elementSet = new LinkedHashSet<>();
-
-        StringTokenizer st = new StringTokenizer(composition, "+");
-        while (st.hasMoreTokens()) {
-            elementSet.add(st.nextToken());
-        }
-
-        for (String s : elementSet) {
-            if (s.equals(ac)) {
-                return true;
+        if (stages.get(index).isLogAnd()) {
+            for (String sn : inputLinks) {
+                logAndInputs.put(sn, null);
             }
         }
-        return false;
     }
 
     @Override
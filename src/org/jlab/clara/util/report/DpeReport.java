@@ -46,6 +46,12 @@ public class DpeReport extends BaseReport {
 
     private final String aliveData;
 
+    private volatile long compositionCacheHits;
+    private volatile long compositionCacheMisses;
+    private volatile int sharedMemoryOccupancy;
+    private volatile long sharedMemoryLeaks;
+    private volatile long sharedMemoryRejections;
+
     private final Map<String, ContainerReport> containers = new ConcurrentHashMap<>();
 
     public DpeReport(ClaraBase base, String session) {
@@ -101,6 +107,37 @@ public class DpeReport extends BaseReport {
         return SystemStats.getSystemLoad();
     }
 
+    public long getCompositionCacheHits() {
+        return compositionCacheHits;
+    }
+
+    public long getCompositionCacheMisses() {
+        return compositionCacheMisses;
+    }
+
+    public void setCompositionCache(long hits, long misses) {
+        this.compositionCacheHits = hits;
+        this.compositionCacheMisses = misses;
+    }
+
+    public int getSharedMemoryOccupancy() {
+        return sharedMemoryOccupancy;
+    }
+
+    public long getSharedMemoryLeaks() {
+        return sharedMemoryLeaks;
+    }
+
+    public long getSharedMemoryRejections() {
+        return sharedMemoryRejections;
+    }
+
+    public void setSharedMemory(int occupancy, long leaks, long rejections) {
+        this.sharedMemoryOccupancy = occupancy;
+        this.sharedMemoryLeaks = leaks;
+        this.sharedMemoryRejections = rejections;
+    }
+
     public Collection<ContainerReport> getContainers() {
         return containers.values();
     }
@@ -43,6 +43,11 @@ public class JsonReportBuilder implements ExternalReport {
         dpeRuntime.put("cpu_usage", dpeData.getCpuUsage());
         dpeRuntime.put("memory_usage", dpeData.getMemoryUsage());
         dpeRuntime.put("load", dpeData.getLoad());
+        dpeRuntime.put("composition_cache_hits", dpeData.getCompositionCacheHits());
+        dpeRuntime.put("composition_cache_misses", dpeData.getCompositionCacheMisses());
+        dpeRuntime.put("shm_occupancy", dpeData.getSharedMemoryOccupancy());
+        dpeRuntime.put("shm_leaked", dpeData.getSharedMemoryLeaks());
+        dpeRuntime.put("shm_rejected", dpeData.getSharedMemoryRejections());
 
         JSONArray containersRuntimeArray = new JSONArray();
         for (ContainerReport cr : dpeData.getContainers()) {
@@ -63,11 +68,33 @@ public class JsonReportBuilder implements ExternalReport {
                 serviceRuntime.put("snapshot_time", snapshotTime);
                 serviceRuntime.put("n_requests", serviceRequests);
                 serviceRuntime.put("n_failures", sr.getFailureCount());
+                serviceRuntime.put("n_overruns", sr.getOverrunCount());
                 serviceRuntime.put("shm_reads", sr.getShrmReads());
                 serviceRuntime.put("shm_writes", sr.getShrmWrites());
+                serviceRuntime.put("local_dispatches", sr.getLocalDispatches());
                 serviceRuntime.put("bytes_recv", sr.getBytesReceived());
                 serviceRuntime.put("bytes_sent", sr.getBytesSent());
+                serviceRuntime.put("codec_bytes_in", sr.getCodecBytesIn());
+                serviceRuntime.put("codec_bytes_out", sr.getCodecBytesOut());
+                serviceRuntime.put("codec_time", sr.getCodecTime());
+                serviceRuntime.put("conn_checkouts", sr.getConnectionCheckouts());
+                serviceRuntime.put("conn_reuses", sr.getConnectionReuses());
+                serviceRuntime.put("conn_failures", sr.getConnectionFailures());
+                serviceRuntime.put("reports_dropped", sr.getReportsDropped());
+                serviceRuntime.put("reports_coalesced", sr.getReportsCoalesced());
+                serviceRuntime.put("reports_suppressed", sr.getReportsSuppressed());
                 serviceRuntime.put("exec_time", sr.getExecutionTime());
+                serviceRuntime.put("profiled_requests", sr.getProfiledRequests());
+                serviceRuntime.put("cpu_time", sr.getCpuTime());
+                serviceRuntime.put("alloc_bytes", sr.getAllocatedBytes());
+                serviceRuntime.put("warmup_requests", sr.getWarmUpRequests());
+                serviceRuntime.put("warmup_time", sr.getWarmUpTime());
+                serviceRuntime.put("queue_size", sr.getQueueSize());
+                serviceRuntime.put("exec_latency", sr.getExecutionLatency().toJson());
+                serviceRuntime.put("queue_latency", sr.getQueueLatency().toJson());
+                serviceRuntime.put("ser_latency", sr.getSerializationLatency().toJson());
+                serviceRuntime.put("checkout_latency", sr.getCheckoutLatency().toJson());
+                serviceRuntime.put("control_latency", sr.getControlLatency().toJson());
 
                 servicesRuntimeArray.put(serviceRuntime);
             }
@@ -0,0 +1,252 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+package org.jlab.clara.util.report;
+
+import org.json.JSONObject;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-memory histogram of latency values, in microseconds.
+ * <p>
+ * Values are counted in log-linear buckets: every power of two is split
+ * into 16 sub-buckets, so the reported percentiles have a relative error
+ * below 6.25%. Values under 16 are counted exactly.
+ * <p>
+ * Recording a value is lock-free, and the histogram can be read while it is
+ * being updated by several threads.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT =
+            (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Merges a group of histograms into a new one.
+     *
+     * @param histograms the histograms to be merged
+     * @return a histogram with the counts of all the given histograms
+     */
+    public static LatencyHistogram merge(Collection<LatencyHistogram> histograms) {
+        LatencyHistogram result = new LatencyHistogram();
+        for (LatencyHistogram h : histograms) {
+            result.add(h);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a histogram from a JSON summary with the counts of the buckets.
+     *
+     * @param json the JSON summary, as created by {@link #toJson()}
+     * @return a histogram with the counts and the maximum value of the summary
+     */
+    public static LatencyHistogram fromJson(JSONObject json) {
+        LatencyHistogram result = new LatencyHistogram();
+        JSONObject buckets = json.optJSONObject("buckets");
+        if (buckets != null) {
+            Iterator<String> keys = buckets.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                int index = Integer.parseInt(key);
+                if (index >= 0 && index < BUCKET_COUNT) {
+                    long count = buckets.getLong(key);
+                    result.counts.set(index, count);
+                    result.totalCount.getAndAdd(count);
+                }
+            }
+        }
+        result.maxValue.set(json.optLong("max"));
+        return result;
+    }
+
+    /**
+     * Records a new latency value.
+     * Negative values are ignored.
+     *
+     * @param value the latency, in microseconds
+     */
+    public void record(long value) {
+        if (value < 0) {
+            return;
+        }
+        counts.getAndIncrement(bucketIndex(Math.min(value, MAX_VALUE)));
+        totalCount.getAndIncrement();
+        updateMax(value);
+    }
+
+    /**
+     * Adds the counts of the given histogram to this histogram.
+     *
+     * @param other the histogram to be added
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.counts.get(i);
+            if (count > 0) {
+                counts.getAndAdd(i, count);
+            }
+        }
+        totalCount.getAndAdd(other.totalCount.get());
+        updateMax(other.maxValue.get());
+    }
+
+    /**
+     * Removes the counts of an earlier snapshot of this histogram,
+     * keeping only the values recorded after it.
+     * The maximum value is bounded by the highest bucket with values left.
+     *
+     * @param earlier the earlier snapshot of the histogram
+     */
+    public void subtract(LatencyHistogram earlier) {
+        long total = 0;
+        int highest = -1;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = Math.max(0, counts.get(i) - earlier.counts.get(i));
+            counts.set(i, count);
+            if (count > 0) {
+                total += count;
+                highest = i;
+            }
+        }
+        totalCount.set(total);
+        maxValue.set(highest < 0 ? 0 : Math.min(highestValue(highest), maxValue.get()));
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return the total count
+     */
+    public long count() {
+        return totalCount.get();
+    }
+
+    /**
+     * Gets the maximum recorded value.
+     *
+     * @return the maximum value, in microseconds
+     */
+    public long max() {
+        return maxValue.get();
+    }
+
+    /**
+     * Gets the value at the given percentile.
+     * The result is the highest value that falls in the same bucket as the
+     * value at the given percentile, bounded by the maximum recorded value.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the value at the percentile, in microseconds,
+     *         or zero if no values have been recorded
+     */
+    public long percentile(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        double p = Math.max(0, Math.min(percentile, 100));
+        long rank = Math.max(1, (long) Math.ceil(p / 100 * total));
+        long accumulated = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            accumulated += snapshot[i];
+            if (accumulated >= rank) {
+                return Math.min(highestValue(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Gets a summary of the distribution as a JSON object.
+     * It contains the count, the maximum value,
+     * the 50th, 90th, 99th and 99.9th percentiles,
+     * and the counts of the non-empty buckets.
+     *
+     * @return the JSON summary
+     */
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("count", count());
+        json.put("p50", percentile(50));
+        json.put("p90", percentile(90));
+        json.put("p99", percentile(99));
+        json.put("p999", percentile(99.9));
+        json.put("max", max());
+        JSONObject buckets = new JSONObject();
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = counts.get(i);
+            if (count > 0) {
+                buckets.put(Integer.toString(i), count);
+            }
+        }
+        json.put("buckets", buckets);
+        return json;
+    }
+
+    private void updateMax(long value) {
+        long current = maxValue.get();
+        while (value > current) {
+            if (maxValue.compareAndSet(current, value)) {
+                return;
+            }
+            current = maxValue.get();
+        }
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long highestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = index % SUB_BUCKET_COUNT;
+        return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+}
@@ -25,6 +25,8 @@ package org.jlab.clara.util.report;
 import org.jlab.clara.base.core.ClaraComponent;
 import org.jlab.clara.engine.Engine;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -38,14 +40,37 @@ public class ServiceReport extends BaseReport {
     private final String className;
     private final String version;
     private final String session;
-    private final int poolSize;
+    private volatile int poolSize;
+    private volatile int warmUpRequests;
+    private volatile long warmUpTime;
 
     private final AtomicInteger failureCount = new AtomicInteger();
+    private final AtomicInteger overrunCount = new AtomicInteger();
     private final AtomicInteger shrmReads = new AtomicInteger();
     private final AtomicInteger shrmWrites = new AtomicInteger();
+    private final AtomicInteger localDispatches = new AtomicInteger();
     private final AtomicLong bytesReceived = new AtomicLong();
     private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong codecBytesIn = new AtomicLong();
+    private final AtomicLong codecBytesOut = new AtomicLong();
+    private final AtomicLong codecTime = new AtomicLong();
+    private final AtomicLong connectionCheckouts = new AtomicLong();
+    private final AtomicLong connectionReuses = new AtomicLong();
+    private final AtomicLong connectionFailures = new AtomicLong();
+    private final AtomicLong reportsDropped = new AtomicLong();
+    private final AtomicLong reportsCoalesced = new AtomicLong();
+    private final AtomicLong reportsSuppressed = new AtomicLong();
     private final AtomicLong executionTime = new AtomicLong();
+    private final AtomicLong profiledRequests = new AtomicLong();
+    private final AtomicLong cpuTime = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicInteger queueSize = new AtomicInteger();
+
+    private final HistogramGroup executionLatency = new HistogramGroup();
+    private final HistogramGroup queueLatency = new HistogramGroup();
+    private final HistogramGroup serializationLatency = new HistogramGroup();
+    private final HistogramGroup checkoutLatency = new HistogramGroup();
+    private final HistogramGroup controlLatency = new HistogramGroup();
 
     public ServiceReport(ClaraComponent comp, Engine engine, String session) {
         super(comp.getCanonicalName(), engine.getAuthor(), engine.getDescription());
@@ -72,6 +97,14 @@ public class ServiceReport extends BaseReport {
         failureCount.getAndIncrement();
     }
 
+    public int getOverrunCount() {
+        return overrunCount.get();
+    }
+
+    public void incrementOverrunCount() {
+        overrunCount.getAndIncrement();
+    }
+
     public int getShrmReads() {
         return shrmReads.get();
     }
@@ -88,6 +121,14 @@ public class ServiceReport extends BaseReport {
         shrmWrites.getAndIncrement();
     }
 
+    public int getLocalDispatches() {
+        return localDispatches.get();
+    }
+
+    public void incrementLocalDispatches() {
+        localDispatches.getAndIncrement();
+    }
+
     public long getBytesReceived() {
         return bytesReceived.get();
     }
@@ -104,6 +145,75 @@ public class ServiceReport extends BaseReport {
         bytesSent.getAndAdd(bytes);
     }
 
+    public long getCodecBytesIn() {
+        return codecBytesIn.get();
+    }
+
+    public long getCodecBytesOut() {
+        return codecBytesOut.get();
+    }
+
+    public void addCompressedBytes(long bytesIn, long bytesOut) {
+        codecBytesIn.getAndAdd(bytesIn);
+        codecBytesOut.getAndAdd(bytesOut);
+    }
+
+    public long getCodecTime() {
+        return codecTime.get();
+    }
+
+    public void addCodecTime(long deltaTime) {
+        codecTime.getAndAdd(deltaTime);
+    }
+
+    public long getConnectionCheckouts() {
+        return connectionCheckouts.get();
+    }
+
+    public void incrementConnectionCheckouts() {
+        connectionCheckouts.getAndIncrement();
+    }
+
+    public long getConnectionReuses() {
+        return connectionReuses.get();
+    }
+
+    public void incrementConnectionReuses() {
+        connectionReuses.getAndIncrement();
+    }
+
+    public long getConnectionFailures() {
+        return connectionFailures.get();
+    }
+
+    public void incrementConnectionFailures() {
+        connectionFailures.getAndIncrement();
+    }
+
+    public long getReportsDropped() {
+        return reportsDropped.get();
+    }
+
+    public void incrementReportsDropped() {
+        reportsDropped.getAndIncrement();
+    }
+
+    public long getReportsCoalesced() {
+        return reportsCoalesced.get();
+    }
+
+    public void incrementReportsCoalesced() {
+        reportsCoalesced.getAndIncrement();
+    }
+
+    public long getReportsSuppressed() {
+        return reportsSuppressed.get();
+    }
+
+    public void incrementReportsSuppressed() {
+        reportsSuppressed.getAndIncrement();
+    }
+
     public long getExecutionTime() {
         return executionTime.get();
     }
@@ -112,6 +222,110 @@ public class ServiceReport extends BaseReport {
         executionTime.getAndAdd(deltaTime);
     }
 
+    public long getProfiledRequests() {
+        return profiledRequests.get();
+    }
+
+    public long getCpuTime() {
+        return cpuTime.get();
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    public void addThreadUsage(int requests, long deltaCpuTime, long deltaBytes) {
+        profiledRequests.getAndAdd(requests);
+        if (deltaCpuTime > 0) {
+            cpuTime.getAndAdd(deltaCpuTime);
+        }
+        if (deltaBytes > 0) {
+            allocatedBytes.getAndAdd(deltaBytes);
+        }
+    }
+
+    public int getWarmUpRequests() {
+        return warmUpRequests;
+    }
+
+    public long getWarmUpTime() {
+        return warmUpTime;
+    }
+
+    public synchronized void addWarmUp(int requests, long time) {
+        this.warmUpRequests += requests;
+        this.warmUpTime += time;
+    }
+
+    public int getQueueSize() {
+        return queueSize.get();
+    }
+
+    public void incrementQueueSize() {
+        queueSize.getAndIncrement();
+    }
+
+    public void decrementQueueSize() {
+        queueSize.getAndDecrement();
+    }
+
+    public LatencyHistogram newExecutionHistogram() {
+        return executionLatency.newHistogram();
+    }
+
+    public LatencyHistogram newQueueHistogram() {
+        return queueLatency.newHistogram();
+    }
+
+    public LatencyHistogram newSerializationHistogram() {
+        return serializationLatency.newHistogram();
+    }
+
+    public LatencyHistogram newCheckoutHistogram() {
+        return checkoutLatency.newHistogram();
+    }
+
+    public LatencyHistogram newControlHistogram() {
+        return controlLatency.newHistogram();
+    }
+
+    /**
+     * Folds the histograms of a removed engine into the accumulated counts,
+     * so the memory used by the report does not grow when the engine pool
+     * is resized or stuck engines are replaced.
+     *
+     * @param execution the execution histogram of the engine
+     * @param queue the queue histogram of the engine
+     * @param serialization the serialization histogram of the engine
+     */
+    public void retireEngineHistograms(LatencyHistogram execution,
+                                       LatencyHistogram queue,
+                                       LatencyHistogram serialization) {
+        executionLatency.retire(execution);
+        queueLatency.retire(queue);
+        serializationLatency.retire(serialization);
+    }
+
+    public LatencyHistogram getExecutionLatency() {
+        return executionLatency.merge();
+    }
+
+    public LatencyHistogram getQueueLatency() {
+        return queueLatency.merge();
+    }
+
+    public LatencyHistogram getSerializationLatency() {
+        return serializationLatency.merge();
+    }
+
+    public LatencyHistogram getCheckoutLatency() {
+        return checkoutLatency.merge();
+    }
+
+    public LatencyHistogram getControlLatency() {
+        return controlLatency.merge();
+    }
+
     public String getVersion() {
         return version;
     }
@@ -123,4 +337,37 @@ public class ServiceReport extends BaseReport {
     public int getPoolSize() {
         return poolSize;
     }
+
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+
+    /**
+     * The histograms of a latency, one for each thread that records values,
+     * and the accumulated counts of the histograms that are no longer used.
+     */
+    private static final class HistogramGroup {
+
+        private final List<LatencyHistogram> histograms = new ArrayList<>();
+        private final LatencyHistogram retired = new LatencyHistogram();
+
+        synchronized LatencyHistogram newHistogram() {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histograms.add(histogram);
+            return histogram;
+        }
+
+        synchronized void retire(LatencyHistogram histogram) {
+            if (histograms.remove(histogram)) {
+                retired.add(histogram);
+            }
+        }
+
+        synchronized LatencyHistogram merge() {
+            LatencyHistogram result = LatencyHistogram.merge(histograms);
+            result.add(retired);
+            return result;
+        }
+    }
 }
@@ -23,8 +23,12 @@
 package org.jlab.clara.base;
 
 import org.jlab.clara.base.ClaraRequests.BaseRequest;
+import org.jlab.clara.base.ClaraRequests.DeployServiceRequest;
+import org.jlab.clara.base.ClaraRequests.ServiceConfigRequestBuilder;
 import org.jlab.clara.base.core.ClaraBase;
 import org.jlab.clara.base.core.ClaraComponent;
+import org.jlab.clara.base.core.ClaraConstants;
+import org.jlab.clara.base.core.MessageUtil;
 import org.jlab.clara.base.error.ClaraException;
 import org.jlab.coda.xmsg.core.xMsgMessage;
 import org.jlab.coda.xmsg.excp.xMsgException;
@@ -34,6 +38,10 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.ArgumentCaptor;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -53,6 +61,7 @@ public class ClaraRequestsTest {
 
     private static final ClaraComponent FRONT_END = ClaraComponent.dpe("10.2.9.1_java");
     private static final String TOPIC = "dpe:10.2.9.6_java";
+    private static final ServiceName SERVICE = new ServiceName("10.2.9.6_java:cont:Engine");
 
     @Rule
     public ExpectedException expectedEx = ExpectedException.none();
@@ -196,6 +205,66 @@ public class ClaraRequestsTest {
     }
 
 
+    @Test
+    public void deployServiceWithDefaultOptionsSendsBaseFields() throws Exception {
+        DeployServiceRequest deploy = deployRequest();
+
+        assertThat(deploy.getData(), is(deployData()));
+    }
+
+
+    @Test
+    public void deployServiceSendsOptionsUpToLastNonDefault() throws Exception {
+        DeployServiceRequest deploy = deployRequest()
+                .withBatching(8, 10, TimeUnit.MILLISECONDS)
+                .withPrototypeEngine();
+
+        assertThat(deploy.getData(), is(deployData(8, 10000, true)));
+    }
+
+
+    @Test
+    public void deployServiceSendsAllOptionsBeforeNonDefault() throws Exception {
+        DeployServiceRequest deploy = deployRequest().withScheduling(0, 2);
+
+        assertThat(deploy.getData(),
+                   is(deployData(1, 0, false, 0, false, 0, 0,
+                                 ClaraConstants.UNDEFINED, ClaraConstants.UNDEFINED, 0, 2)));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void startBatchingRejectsInvalidSize() throws Exception {
+        configRequest().startBatching(0, 10, TimeUnit.MILLISECONDS);
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void startBatchingRejectsInvalidTimeout() throws Exception {
+        configRequest().startBatching(8, -1, TimeUnit.MILLISECONDS);
+    }
+
+
+    private DeployServiceRequest deployRequest() {
+        return new DeployServiceRequest(baseMock, FRONT_END, SERVICE, "org.example.Engine");
+    }
+
+
+    private static String deployData(Object... options) {
+        List<Object> data = new ArrayList<>(Arrays.asList(
+                ClaraConstants.START_SERVICE, SERVICE.container().name(), SERVICE.name(),
+                "org.example.Engine", 1, ClaraConstants.UNDEFINED, ClaraConstants.UNDEFINED));
+        data.addAll(Arrays.asList(options));
+        return MessageUtil.buildData(data.toArray());
+    }
+
+
+    private ServiceConfigRequestBuilder configRequest() {
+        return new ServiceConfigRequestBuilder(baseMock, FRONT_END, SERVICE,
+                                               Collections.emptySet());
+    }
+
+
 
     public static class TestRequest extends BaseRequest<TestRequest, String> {
 
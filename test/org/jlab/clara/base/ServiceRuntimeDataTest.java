@@ -33,6 +33,7 @@ import static org.junit.Assert.assertThat;
 import org.jlab.clara.IntegrationTest;
 import org.jlab.clara.base.core.ClaraConstants;
 import org.jlab.clara.util.report.JsonUtils;
+import org.jlab.clara.util.report.LatencyHistogram;
 
 @Category(IntegrationTest.class)
 public class ServiceRuntimeDataTest {
@@ -66,6 +67,11 @@ public class ServiceRuntimeDataTest {
         assertThat(data.numFailures(), is(200L));
     }
 
+    @Test
+    public void numOverruns() throws Exception {
+        assertThat(data.numOverruns(), is(3L));
+    }
+
     @Test
     public void sharedMemoryReads() throws Exception {
         assertThat(data.sharedMemoryReads(), is(1800L));
@@ -90,4 +96,89 @@ public class ServiceRuntimeDataTest {
     public void executionTime() throws Exception {
         assertThat(data.executionTime(), is(243235243543L));
     }
+
+    @Test
+    public void threadUsage() throws Exception {
+        assertThat(data.profiledRequests(), is(1000L));
+        assertThat(data.cpuTime(), is(98500000L));
+        assertThat(data.allocatedBytes(), is(5120000000L));
+    }
+
+    @Test
+    public void warmUp() throws Exception {
+        assertThat(data.warmUpRequests(), is(500L));
+        assertThat(data.warmUpTime(), is(2500000L));
+    }
+
+    @Test
+    public void localDispatches() throws Exception {
+        assertThat(data.localDispatches(), is(1750L));
+    }
+
+    @Test
+    public void compression() throws Exception {
+        assertThat(data.compressedBytesIn(), is(800L));
+        assertThat(data.compressedBytesOut(), is(200L));
+        assertThat(data.compressionRatio(), is(4.0));
+        assertThat(data.compressionTime(), is(1500L));
+    }
+
+    @Test
+    public void connections() throws Exception {
+        assertThat(data.connectionCheckouts(), is(40L));
+        assertThat(data.connectionReuses(), is(1960L));
+        assertThat(data.connectionFailures(), is(2L));
+    }
+
+    @Test
+    public void reports() throws Exception {
+        assertThat(data.reportsDropped(), is(5L));
+        assertThat(data.reportsCoalesced(), is(60L));
+        assertThat(data.reportsSuppressed(), is(190L));
+    }
+
+    @Test
+    public void queueSize() throws Exception {
+        assertThat(data.queueSize(), is(12));
+    }
+
+    @Test
+    public void executionLatency() throws Exception {
+        LatencyData latency = data.executionLatency();
+
+        assertThat(latency.count(), is(2000L));
+        assertThat(latency.p50(), is(1150L));
+        assertThat(latency.p99(), is(8700L));
+        assertThat(latency.max(), is(20250L));
+    }
+
+    @Test
+    public void checkoutLatency() throws Exception {
+        LatencyData latency = data.checkoutLatency();
+
+        assertThat(latency.count(), is(40L));
+        assertThat(latency.p90(), is(35L));
+        assertThat(latency.max(), is(180L));
+    }
+
+    @Test
+    public void missingLatencyIsEmpty() throws Exception {
+        assertThat(data.queueLatency().count(), is(0L));
+    }
+
+    @Test
+    public void latencySinceEarlierReport() throws Exception {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(20_000);
+        LatencyData first = new LatencyData(h.toJson());
+        h.record(10);
+        h.record(10);
+        LatencyData last = new LatencyData(h.toJson());
+
+        LatencyData window = last.since(first);
+
+        assertThat(window.count(), is(2L));
+        assertThat(window.p99(), is(10L));
+        assertThat(window.max(), is(10L));
+    }
 }
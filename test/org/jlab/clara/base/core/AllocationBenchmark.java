@@ -0,0 +1,115 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.base.core;
+
+import org.jlab.clara.engine.EngineData;
+import org.jlab.clara.engine.EngineDataType;
+import org.jlab.coda.xmsg.core.xMsgMessage;
+import org.jlab.coda.xmsg.core.xMsgTopic;
+import org.jlab.coda.xmsg.data.xMsgM.xMsgMeta;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+/**
+ * Measures the bytes allocated per request by the containers that a service
+ * engine creates to receive a request and to notify a shared memory output,
+ * with and without recycling.
+ * <p>
+ * Run it with {@code gradle allocationBenchmark}.
+ */
+public final class AllocationBenchmark {
+
+    private static final int WARMUP_REQUESTS = 200_000;
+    private static final int REQUESTS = 1_000_000;
+
+    private final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final DataTypeRegistry dataTypes =
+            new DataTypeRegistry(Collections.singleton(EngineDataType.BYTES));
+    private final xMsgMessage request;
+
+    private EngineData spareInput;
+    private xMsgMeta.Builder spareMetadata;
+    private long sink;
+
+    private AllocationBenchmark() {
+        xMsgMeta.Builder metadata = xMsgMeta.newBuilder();
+        metadata.setDataType(EngineDataType.BYTES.mimeType());
+        metadata.setComposition("10.1.1.1_java:cont:S1+10.1.1.1_java:cont:S2;");
+        request = new xMsgMessage(xMsgTopic.wrap("10.1.1.1_java:cont:S1"),
+                                  metadata, new byte[1024]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        AllocationBenchmark benchmark = new AllocationBenchmark();
+        benchmark.run(false, WARMUP_REQUESTS);
+        benchmark.run(true, WARMUP_REQUESTS);
+
+        double created = benchmark.run(false, REQUESTS);
+        double recycled = benchmark.run(true, REQUESTS);
+
+        System.out.printf("new containers:      %8.1f bytes/request%n", created);
+        System.out.printf("recycled containers: %8.1f bytes/request%n", recycled);
+        System.out.printf("reduction:           %8.1f %%%n", 100 * (1 - recycled / created));
+        if (benchmark.sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private double run(boolean recycling, int requests) throws Exception {
+        long threadId = Thread.currentThread().getId();
+        long start = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < requests; i++) {
+            processRequest(recycling, i);
+        }
+        long end = threadBean.getThreadAllocatedBytes(threadId);
+        return (double) (end - start) / requests;
+    }
+
+    private void processRequest(boolean recycling, int id) throws Exception {
+        EngineData input = DataUtil.deserializeLazily(request, dataTypes,
+                                                      recycling ? spareInput : null);
+        spareInput = null;
+
+        xMsgMeta.Builder metadata;
+        if (recycling && spareMetadata != null) {
+            metadata = spareMetadata.clear();
+            spareMetadata = null;
+        } else {
+            metadata = xMsgMeta.newBuilder();
+        }
+        metadata.setComposition(input.getComposition());
+        metadata.setCommunicationId(id);
+        metadata.setAction(xMsgMeta.ControlAction.EXECUTE);
+        metadata.setDataType(ClaraConstants.SHARED_MEMORY_KEY);
+        sink += metadata.getCommunicationId();
+
+        if (recycling) {
+            spareInput = input;
+            spareMetadata = metadata;
+        }
+    }
+}
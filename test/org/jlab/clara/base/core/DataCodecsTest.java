@@ -0,0 +1,136 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.base.core;
+
+import org.jlab.clara.base.error.ClaraException;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class DataCodecsTest {
+
+    private static final DataCodec[] CODECS = {DataCodecs.DEFLATE, DataCodecs.LZ};
+
+    @Test
+    public void builtinCodecsAreRegistered() throws Exception {
+        assertThat(DataCodecs.get("deflate"), is(sameInstance(DataCodecs.DEFLATE)));
+        assertThat(DataCodecs.get("lz"), is(sameInstance(DataCodecs.LZ)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicatedCodecIsRejected() throws Exception {
+        DataCodecs.register(DataCodecs.LZ);
+    }
+
+    @Test
+    public void roundTripEmptyData() throws Exception {
+        checkRoundTrip(new byte[0]);
+    }
+
+    @Test
+    public void roundTripShortData() throws Exception {
+        checkRoundTrip(new byte[] {1, 2, 3, 4, 5, 6, 7});
+    }
+
+    @Test
+    public void roundTripRandomData() throws Exception {
+        byte[] data = new byte[100_000];
+        new Random(7).nextBytes(data);
+
+        checkRoundTrip(data);
+    }
+
+    @Test
+    public void roundTripLongRuns() throws Exception {
+        byte[] data = new byte[70_000];
+        Arrays.fill(data, 10_000, 60_000, (byte) 3);
+
+        checkRoundTrip(data);
+    }
+
+    @Test
+    public void compressRepetitiveData() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(11);
+        for (int i = 0; i < 5000; i++) {
+            sb.append("hit ").append(random.nextInt(64)).append(' ').append(i % 32).append(';');
+        }
+        byte[] data = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+        for (DataCodec codec : CODECS) {
+            byte[] encoded = codec.encode(data);
+            assertThat(codec.name(), encoded.length, is(lessThan(data.length / 2)));
+            assertThat(codec.name(), codec.decode(encoded), is(data));
+        }
+    }
+
+    @Test
+    public void corruptedDataIsRejected() throws Exception {
+        byte[] data = new byte[1000];
+        Arrays.fill(data, (byte) 5);
+
+        for (DataCodec codec : CODECS) {
+            byte[] encoded = codec.encode(data);
+            byte[] truncated = Arrays.copyOf(encoded, encoded.length - 1);
+            try {
+                codec.decode(truncated);
+                throw new AssertionError(codec.name() + ": corrupted data was decoded");
+            } catch (ClaraException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void roundTripHighlyCompressibleData() throws Exception {
+        checkRoundTrip(new byte[4_000_000]);
+    }
+
+    @Test
+    public void hugeDeclaredSizeIsRejected() throws Exception {
+        for (DataCodec codec : CODECS) {
+            byte[] encoded = codec.encode(new byte[] {1, 2, 3, 4, 5, 6, 7});
+            encoded[0] = 0x7F;
+            try {
+                codec.decode(encoded);
+                throw new AssertionError(codec.name() + ": huge size was accepted");
+            } catch (ClaraException e) {
+                // expected
+            }
+        }
+    }
+
+    private static void checkRoundTrip(byte[] data) throws Exception {
+        for (DataCodec codec : CODECS) {
+            assertThat(codec.name(), codec.decode(codec.encode(data)), is(data));
+        }
+    }
+}
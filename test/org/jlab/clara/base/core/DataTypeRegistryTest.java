@@ -0,0 +1,77 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.base.core;
+
+import org.jlab.clara.engine.EngineDataType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class DataTypeRegistryTest {
+
+    @Test
+    public void mimeTypesAreInternedOnce() throws Exception {
+        int id = DataTypeRegistry.register("binary/registry-test");
+
+        assertThat(DataTypeRegistry.register("binary/registry-test"), is(id));
+        assertThat(DataTypeRegistry.idOf("binary/registry-test"), is(id));
+    }
+
+    @Test
+    public void unknownMimeTypesAreNotInterned() throws Exception {
+        assertThat(DataTypeRegistry.idOf("binary/registry-unknown"), is(-1));
+        assertThat(DataTypeRegistry.idOf("binary/registry-unknown"), is(-1));
+    }
+
+    @Test
+    public void findSupportedDataTypes() throws Exception {
+        DataTypeRegistry registry = new DataTypeRegistry(new HashSet<>(Arrays.asList(
+                EngineDataType.STRING, EngineDataType.PACKED_DOUBLE)));
+
+        assertThat(registry.find(EngineDataType.STRING.mimeType()),
+                   is(sameInstance(EngineDataType.STRING)));
+        assertThat(registry.find(EngineDataType.PACKED_DOUBLE.mimeType()),
+                   is(sameInstance(EngineDataType.PACKED_DOUBLE)));
+
+        int id = DataTypeRegistry.idOf(EngineDataType.STRING.mimeType());
+        assertThat(registry.get(id), is(sameInstance(EngineDataType.STRING)));
+    }
+
+    @Test
+    public void findUnsupportedDataTypes() throws Exception {
+        DataTypeRegistry.register(EngineDataType.JSON.mimeType());
+        DataTypeRegistry registry = new DataTypeRegistry(new HashSet<>(Arrays.asList(
+                EngineDataType.STRING)));
+
+        assertThat(registry.find(EngineDataType.JSON.mimeType()), is(nullValue()));
+        assertThat(registry.find("binary/registry-missing"), is(nullValue()));
+        assertThat(registry.get(-1), is(nullValue()));
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.base.core;
+
+import org.jlab.clara.base.error.ClaraException;
+import org.jlab.clara.engine.ByteBufferPool;
+import org.jlab.clara.engine.ClaraSerializer;
+import org.jlab.clara.engine.EngineData;
+import org.jlab.clara.engine.EngineDataType;
+import org.jlab.coda.xmsg.core.xMsgMessage;
+import org.jlab.coda.xmsg.core.xMsgTopic;
+import org.jlab.coda.xmsg.data.xMsgM.xMsgMeta;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class DataUtilTest {
+
+    private static final xMsgTopic TOPIC = xMsgTopic.wrap("test");
+
+    @Test
+    public void serializeUsesFullBackingArray() throws Exception {
+        byte[] bytes = new byte[] {1, 2, 3, 4};
+        xMsgMessage msg = serialize(ByteBuffer.wrap(bytes), null);
+
+        assertThat(msg.getData(), is(sameInstance(bytes)));
+    }
+
+    @Test
+    public void serializeCopiesSlicedBuffer() throws Exception {
+        ByteBuffer bb = ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5, 6}, 1, 4).slice();
+        bb.limit(3);
+
+        xMsgMessage msg = serialize(bb, null);
+
+        assertThat(msg.getData(), is(new byte[] {2, 3, 4}));
+    }
+
+    @Test
+    public void serializeCopiesDirectBuffer() throws Exception {
+        ByteBuffer bb = ByteBuffer.allocateDirect(8);
+        bb.put(new byte[] {1, 2, 3});
+        bb.flip();
+
+        xMsgMessage msg = serialize(bb, null);
+
+        assertThat(msg.getData(), is(new byte[] {1, 2, 3}));
+        assertThat(bb.position(), is(0));
+    }
+
+    @Test
+    public void serializeReleasesBorrowedBuffers() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(4);
+        EngineData data = new EngineData();
+        data.setData(EngineDataType.PACKED_INT32.mimeType(), new int[] {1, 2, 3});
+        Set<EngineDataType> dataTypes = Collections.singleton(EngineDataType.PACKED_INT32);
+
+        xMsgMessage msg = DataUtil.serialize(TOPIC, data, dataTypes, pool);
+
+        assertThat(msg.getData(), is(new byte[] {1, 0, 0, 0, 2, 0, 0, 0, 3, 0, 0, 0}));
+        assertThat(pool.size(), is(1));
+    }
+
+    @Test
+    public void serializeWithPoolDoesNotCopyUnpooledBuffer() throws Exception {
+        byte[] array = new byte[] {1, 2, 3};
+        ByteBufferPool pool = new ByteBufferPool(4);
+
+        xMsgMessage msg = serialize(ByteBuffer.wrap(array), pool);
+
+        assertThat(msg.getData(), is(sameInstance(array)));
+    }
+
+    @Test
+    public void serializeAndDeserializeWithRegistry() throws Exception {
+        DataTypeRegistry dataTypes = new DataTypeRegistry(
+                new HashSet<>(Arrays.asList(EngineDataType.STRING, EngineDataType.SFIXED32)));
+        EngineData data = new EngineData();
+        data.setData(EngineDataType.SFIXED32.mimeType(), 42);
+
+        xMsgMessage msg = DataUtil.serialize(TOPIC, data, dataTypes, null);
+        EngineData result = DataUtil.deserialize(msg, dataTypes);
+
+        assertThat(result.getData(), is(42));
+    }
+
+    @Test(expected = ClaraException.class)
+    public void deserializeWithRegistryRejectsUnsupportedType() throws Exception {
+        DataTypeRegistry dataTypes = new DataTypeRegistry(
+                Collections.singleton(EngineDataType.SFIXED32));
+        EngineData data = new EngineData();
+        data.setData(EngineDataType.STRING.mimeType(), "test");
+
+        xMsgMessage msg = DataUtil.serialize(TOPIC, data, dataTypes, null);
+        DataUtil.deserialize(msg, dataTypes);
+    }
+
+
+    @Test
+    public void lazyDataIsDecodedOnFirstAccess() throws Exception {
+        CountingSerializer serializer = new CountingSerializer();
+        DataTypeRegistry dataTypes = registry(serializer);
+        EngineData data = DataUtil.deserializeLazily(message(1, 2, 3), dataTypes);
+
+        assertThat(serializer.reads, is(0));
+        assertThat(DataUtil.hasData(data), is(true));
+
+        assertThat(data.getData(), is(new byte[] {1, 2, 3}));
+        assertThat(data.getData(), is(new byte[] {1, 2, 3}));
+        assertThat(serializer.reads, is(1));
+    }
+
+    @Test
+    public void untouchedLazyDataIsSentWithOriginalBytes() throws Exception {
+        CountingSerializer serializer = new CountingSerializer();
+        DataTypeRegistry dataTypes = registry(serializer);
+        xMsgMessage input = message(1, 2, 3);
+        EngineData data = DataUtil.deserializeLazily(input, dataTypes);
+
+        xMsgMessage output = DataUtil.serialize(TOPIC, data, dataTypes, null);
+
+        assertThat(output.getData(), is(sameInstance(input.getData())));
+        assertThat(serializer.reads, is(0));
+        assertThat(serializer.writes, is(0));
+    }
+
+    @Test
+    public void replacedLazyDataIsSerializedAgain() throws Exception {
+        CountingSerializer serializer = new CountingSerializer();
+        DataTypeRegistry dataTypes = registry(serializer);
+        EngineData data = DataUtil.deserializeLazily(message(1, 2, 3), dataTypes);
+
+        data.setData(data.getMimeType(), new byte[] {4, 5});
+        xMsgMessage output = DataUtil.serialize(TOPIC, data, dataTypes, null);
+
+        assertThat(output.getData(), is(new byte[] {4, 5}));
+        assertThat(serializer.reads, is(0));
+        assertThat(serializer.writes, is(1));
+    }
+
+    @Test
+    public void lazyDataCanBeRecycled() throws Exception {
+        CountingSerializer serializer = new CountingSerializer();
+        DataTypeRegistry dataTypes = registry(serializer);
+        EngineData first = DataUtil.deserializeLazily(message(1, 2, 3), dataTypes);
+        first.getData();
+
+        xMsgMessage msg = message(4, 5);
+        msg.getMetaData().setCommunicationId(8);
+        EngineData second = DataUtil.deserializeLazily(msg, dataTypes, first);
+
+        assertThat(second, is(sameInstance(first)));
+        assertThat(second.getCommunicationId(), is(8));
+        assertThat(second.getData(), is(new byte[] {4, 5}));
+        assertThat(serializer.reads, is(2));
+    }
+
+    @Test(expected = ClaraException.class)
+    public void lazyDeserializeRejectsUnsupportedType() throws Exception {
+        DataTypeRegistry dataTypes = new DataTypeRegistry(
+                Collections.singleton(EngineDataType.SFIXED32));
+
+        DataUtil.deserializeLazily(message(1, 2, 3), dataTypes);
+    }
+
+    @Test
+    public void copyWithDataKeepsOriginalData() throws Exception {
+        CountingSerializer serializer = new CountingSerializer();
+        EngineData data = DataUtil.deserializeLazily(message(1, 2, 3), registry(serializer));
+        data.setCommunicationId(7);
+
+        EngineData copy = DataUtil.copyWithData(data, EngineDataType.STRING.mimeType(), "done");
+
+        assertThat(copy.getData(), is("done"));
+        assertThat(copy.getCommunicationId(), is(7));
+        assertThat(data.getMimeType(), is(CountingSerializer.MIME_TYPE));
+        assertThat(serializer.reads, is(0));
+    }
+
+
+    @Test
+    public void compressedMessageIsDeserialized() throws Exception {
+        DataTypeRegistry dataTypes = registry(new CountingSerializer());
+        byte[] bytes = new byte[4096];
+        Arrays.fill(bytes, (byte) 9);
+        xMsgMessage msg = new xMsgMessage(TOPIC, message().getMetaData(), bytes);
+
+        xMsgMessage compressed = DataUtil.compress(msg, DataCodecs.LZ);
+
+        assertThat(DataUtil.isCompressed(compressed), is(true));
+        assertThat(compressed.getDataSize() < bytes.length, is(true));
+
+        EngineData data = DataUtil.deserialize(compressed, dataTypes);
+
+        assertThat(data.getMimeType(), is(CountingSerializer.MIME_TYPE));
+        assertThat(data.getData(), is(bytes));
+    }
+
+    @Test
+    public void compressionDoesNotModifyEngineData() throws Exception {
+        DataTypeRegistry dataTypes = registry(new CountingSerializer());
+        byte[] bytes = new byte[4096];
+        Arrays.fill(bytes, (byte) 9);
+        EngineData data = new EngineData();
+        data.setData(CountingSerializer.MIME_TYPE, bytes);
+
+        // fan-out to two links in other nodes
+        for (int i = 0; i < 2; i++) {
+            xMsgMessage msg = DataUtil.serialize(TOPIC, data, dataTypes, null);
+            xMsgMessage compressed = DataUtil.compress(msg, DataCodecs.LZ);
+
+            assertThat(DataUtil.isCompressed(compressed), is(true));
+            assertThat(DataUtil.isCompressed(msg), is(false));
+            assertThat(data.getMimeType(), is(CountingSerializer.MIME_TYPE));
+            assertThat(DataUtil.deserialize(compressed, dataTypes).getData(), is(bytes));
+        }
+    }
+
+    @Test
+    public void incompressibleMessageIsNotModified() throws Exception {
+        xMsgMessage msg = message(1, 2, 3);
+
+        xMsgMessage result = DataUtil.compress(msg, DataCodecs.DEFLATE);
+
+        assertThat(result, is(sameInstance(msg)));
+        assertThat(DataUtil.isCompressed(result), is(false));
+        assertThat(DataUtil.decompress(result), is(sameInstance(msg)));
+    }
+
+    @Test(expected = ClaraException.class)
+    public void decompressRejectsUnknownCodec() throws Exception {
+        xMsgMessage msg = message(1, 2, 3);
+        msg.getMetaData().setDataType(CountingSerializer.MIME_TYPE + ";codec=unknown");
+
+        DataUtil.decompress(msg);
+    }
+
+
+    private static DataTypeRegistry registry(ClaraSerializer serializer) {
+        return new DataTypeRegistry(Collections.singleton(
+                new EngineDataType(CountingSerializer.MIME_TYPE, serializer)));
+    }
+
+    private static xMsgMessage message(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        xMsgMeta.Builder meta = xMsgMeta.newBuilder();
+        meta.setDataType(CountingSerializer.MIME_TYPE);
+        return new xMsgMessage(TOPIC, meta, bytes);
+    }
+
+    private static xMsgMessage serialize(ByteBuffer bb, ByteBufferPool pool)
+            throws ClaraException {
+        EngineDataType dt = new EngineDataType("binary/test", new ClaraSerializer() {
+            @Override
+            public ByteBuffer write(Object data) throws ClaraException {
+                return bb;
+            }
+
+            @Override
+            public Object read(ByteBuffer buffer) throws ClaraException {
+                return buffer;
+            }
+        });
+        EngineData data = new EngineData();
+        data.setData(dt.mimeType(), bb);
+        return DataUtil.serialize(TOPIC, data, Collections.singleton(dt), pool);
+    }
+
+
+    private static class CountingSerializer implements ClaraSerializer {
+
+        private static final String MIME_TYPE = "binary/counting-test";
+
+        private int reads;
+        private int writes;
+
+        @Override
+        public ByteBuffer write(Object data) throws ClaraException {
+            writes++;
+            return ByteBuffer.wrap((byte[]) data);
+        }
+
+        @Override
+        public Object read(ByteBuffer buffer) throws ClaraException {
+            reads++;
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        }
+    }
+}
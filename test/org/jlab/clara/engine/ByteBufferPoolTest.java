@@ -0,0 +1,101 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.engine;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class ByteBufferPoolTest {
+
+    @Test
+    public void acquireRoundsCapacityToPowerOfTwo() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(2);
+
+        assertThat(pool.acquire(10).capacity(), is(1024));
+        assertThat(pool.acquire(1024).capacity(), is(1024));
+        assertThat(pool.acquire(1025).capacity(), is(2048));
+    }
+
+    @Test
+    public void releasedBufferIsReused() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(2);
+
+        ByteBuffer first = pool.acquire(3000);
+        first.order(ByteOrder.LITTLE_ENDIAN);
+        first.putInt(5);
+        pool.releaseAll();
+
+        ByteBuffer second = pool.acquire(4000);
+
+        assertThat(second, is(sameInstance(first)));
+        assertThat(second.position(), is(0));
+        assertThat(second.order(), is(ByteOrder.BIG_ENDIAN));
+    }
+
+    @Test
+    public void borrowedBuffersAreTrackedUntilReleased() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(2);
+
+        assertThat(pool.hasBorrowed(), is(false));
+
+        pool.acquire(100);
+
+        assertThat(pool.hasBorrowed(), is(true));
+
+        pool.releaseAll();
+
+        assertThat(pool.hasBorrowed(), is(false));
+    }
+
+    @Test
+    public void poolKeepsLimitedNumberOfBuffers() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(2);
+
+        pool.acquire(100);
+        pool.acquire(100);
+        pool.acquire(100);
+        pool.releaseAll();
+
+        assertThat(pool.size(), is(2));
+    }
+
+    @Test
+    public void largeBuffersAreNotPooled() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(2);
+
+        ByteBuffer first = pool.acquire((1 << 26) + 1);
+        pool.releaseAll();
+        ByteBuffer second = pool.acquire((1 << 26) + 1);
+
+        assertThat(pool.size(), is(0));
+        assertThat(second, is(not(sameInstance(first))));
+    }
+}
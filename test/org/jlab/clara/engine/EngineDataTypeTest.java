@@ -22,6 +22,7 @@
 
 package org.jlab.clara.engine;
 
+import org.jlab.clara.base.error.ClaraException;
 import org.jlab.coda.xmsg.data.xMsgD.xMsgData;
 import org.jlab.coda.xmsg.data.xMsgD.xMsgPayload;
 import org.junit.Test;
@@ -111,6 +112,69 @@ public class EngineDataTypeTest {
         assertThat(d, is(v));
     }
 
+    @Test
+    public void testPackedIntegerSerializer() throws Exception {
+        ClaraSerializer s = EngineDataType.PACKED_INT32.serializer();
+
+        int[] v = RANDOM.ints(1000).toArray();
+        ByteBuffer b = s.write(v);
+        int[] d = (int[]) s.read(b);
+
+        assertThat(b.remaining(), is(v.length * Integer.BYTES));
+        assertThat(d, is(v));
+    }
+
+    @Test
+    public void testPackedLongSerializer() throws Exception {
+        ClaraSerializer s = EngineDataType.PACKED_INT64.serializer();
+
+        long[] v = RANDOM.longs(1000).toArray();
+        long[] d = (long[]) s.read(s.write(v));
+
+        assertThat(d, is(v));
+    }
+
+    @Test
+    public void testPackedFloatSerializer() throws Exception {
+        ClaraSerializer s = EngineDataType.PACKED_FLOAT.serializer();
+
+        float[] v = new float[] {4.1f, -5.6f, Float.MAX_VALUE, Float.NaN};
+        float[] d = (float[]) s.read(s.write(v));
+
+        assertThat(d, is(v));
+    }
+
+    @Test
+    public void testPackedDoubleSerializer() throws Exception {
+        ClaraSerializer s = EngineDataType.PACKED_DOUBLE.serializer();
+
+        double[] v = RANDOM.doubles(1000).toArray();
+        double[] d = (double[]) s.read(s.write(v));
+
+        assertThat(d, is(v));
+    }
+
+    @Test
+    public void testPackedSerializerReadsLittleEndian() throws Exception {
+        ClaraSerializer s = EngineDataType.PACKED_INT32.serializer();
+
+        byte[] r = new byte[] {-1, -1, -1, -1, 1, 0, 0, 0, 2, 0, 0, 0};
+        ByteBuffer b = ByteBuffer.wrap(r, 4, 8).order(ByteOrder.BIG_ENDIAN);
+
+        int[] d = (int[]) s.read(b);
+
+        assertThat(d, is(new int[] {1, 2}));
+        assertThat(b.order(), is(ByteOrder.BIG_ENDIAN));
+        assertThat(b.position(), is(4));
+    }
+
+    @Test(expected = ClaraException.class)
+    public void testPackedSerializerRejectsInvalidSize() throws Exception {
+        ClaraSerializer s = EngineDataType.PACKED_DOUBLE.serializer();
+
+        s.read(ByteBuffer.allocate(12));
+    }
+
     @Test
     public void testNativeDataSerializer() throws Exception {
         xMsgData.Builder builder = xMsgData.newBuilder();
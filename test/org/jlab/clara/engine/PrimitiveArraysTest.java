@@ -0,0 +1,68 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.engine;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class PrimitiveArraysTest {
+
+    @Test
+    public void convertIntegerArrays() throws Exception {
+        Integer[] boxed = new Integer[] {4, -5, 6};
+        int[] primitive = new int[] {4, -5, 6};
+
+        assertThat(PrimitiveArrays.toPrimitive(boxed), is(primitive));
+        assertThat(PrimitiveArrays.toBoxed(primitive), is(boxed));
+    }
+
+    @Test
+    public void convertLongArrays() throws Exception {
+        Long[] boxed = new Long[] {4L, -5L, Long.MAX_VALUE};
+        long[] primitive = new long[] {4L, -5L, Long.MAX_VALUE};
+
+        assertThat(PrimitiveArrays.toPrimitive(boxed), is(primitive));
+        assertThat(PrimitiveArrays.toBoxed(primitive), is(boxed));
+    }
+
+    @Test
+    public void convertFloatArrays() throws Exception {
+        Float[] boxed = new Float[] {4.1f, -5.6f};
+        float[] primitive = new float[] {4.1f, -5.6f};
+
+        assertThat(PrimitiveArrays.toPrimitive(boxed), is(primitive));
+        assertThat(PrimitiveArrays.toBoxed(primitive), is(boxed));
+    }
+
+    @Test
+    public void convertDoubleArrays() throws Exception {
+        Double[] boxed = new Double[] {4.1, -5.6};
+        double[] primitive = new double[] {4.1, -5.6};
+
+        assertThat(PrimitiveArrays.toPrimitive(boxed), is(primitive));
+        assertThat(PrimitiveArrays.toBoxed(primitive), is(boxed));
+    }
+}
@@ -0,0 +1,497 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+package org.jlab.clara.sys;
+
+import org.jlab.clara.base.core.ClaraComponent;
+import org.jlab.clara.engine.Engine;
+import org.jlab.clara.util.report.ServiceReport;
+import org.jlab.coda.xmsg.core.xMsgMessage;
+import org.jlab.coda.xmsg.core.xMsgTopic;
+import org.jlab.coda.xmsg.data.xMsgM.xMsgMeta;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+
+public class DispatchQueueTest {
+
+    private ExecutorService executionPool;
+    private ServiceSysConfig sysConfig;
+    private ServiceReport sysReport;
+    private TestHandler handler;
+    private DispatchQueue queue;
+
+    @Before
+    public void setUp() throws Exception {
+        executionPool = Executors.newSingleThreadExecutor();
+        sysConfig = new ServiceSysConfig("10.1.1.1_java:cont:Engine", "undefined");
+        sysReport = new ServiceReport(ClaraComponent.service("10.1.1.1_java:cont:Engine"),
+                                      mock(Engine.class), "");
+        handler = new TestHandler();
+        queue = new DispatchQueue("10.1.1.1_java:cont:Engine", 10,
+                                  new ServiceEngine[] {mock(ServiceEngine.class)},
+                                  executionPool, sysConfig, sysReport,
+                                  handler);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executionPool.shutdown();
+    }
+
+
+    @Test
+    public void requestsAreProcessedOneByOne() throws Exception {
+        dispatchAll(execute(2), execute(3), execute(4));
+
+        assertThat(handler.calls, contains("1", "2", "3", "4"));
+    }
+
+
+    @Test
+    public void executeRequestsAreProcessedInBatches() throws Exception {
+        sysConfig.setBatching(3, 0);
+
+        dispatchAll(execute(2), execute(3), execute(4), execute(5));
+
+        assertThat(handler.calls, contains("1", "2,3,4", "5"));
+    }
+
+
+    @Test
+    public void controlRequestClosesBatch() throws Exception {
+        sysConfig.setBatching(3, 0);
+
+        dispatchAll(execute(2), execute(3), configure(4), execute(5));
+
+        assertThat(handler.calls, contains("1", "2,3", "4", "5"));
+    }
+
+
+    @Test
+    public void controlRequestWakesUpEngineWaitingForBatch() throws Exception {
+        sysConfig.setBatching(3, 5_000_000);
+        handler.blocker.countDown();
+
+        queue.put(execute(1));
+        queue.put(execute(2));
+        Thread.sleep(100);
+        queue.putControl(configure(3));
+        executionPool.shutdown();
+
+        assertThat(executionPool.awaitTermination(2, TimeUnit.SECONDS), is(true));
+        assertThat(handler.calls, contains("1,2", "3"));
+    }
+
+
+    @Test
+    public void newRequestWakesUpEngineWaitingForBatch() throws Exception {
+        sysConfig.setBatching(2, 5_000_000);
+        handler.blocker.countDown();
+
+        queue.put(execute(1));
+        Thread.sleep(100);
+        assertThat(queue.offer(execute(2)), is(true));
+        executionPool.shutdown();
+
+        assertThat(executionPool.awaitTermination(2, TimeUnit.SECONDS), is(true));
+        assertThat(handler.calls, contains("1,2"));
+    }
+
+
+    @Test
+    public void wakingUpEngineWaitingForBatchLeavesNoQueuedRequests() throws Exception {
+        sysConfig.setBatching(3, 5_000_000);
+        handler.blocker.countDown();
+
+        queue.put(execute(1));
+        Thread.sleep(100);
+        queue.putControl(configure(2));
+        Thread.sleep(100);
+        sysConfig.setBatching(0, 0);
+
+        assertThat(queue.tryRun(execute(3)), is(true));
+        assertThat(handler.calls, contains("1", "2", "3"));
+    }
+
+
+    @Test
+    public void controlRequestsAreProcessedBeforeQueuedRequests() throws Exception {
+        queue.put(execute(1));
+        handler.started.await(5, TimeUnit.SECONDS);
+        queue.put(execute(2));
+        queue.put(execute(3));
+        queue.putControl(configure(4));
+        queue.putControl(configure(5));
+        handler.blocker.countDown();
+
+        executionPool.shutdown();
+        executionPool.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertThat(handler.calls, contains("1", "4", "5", "2", "3"));
+        assertThat(sysReport.getControlLatency().count(), is(2L));
+        assertThat(sysReport.getQueueSize(), is(0));
+    }
+
+
+    @Test
+    public void controlRequestIsProcessedBeforeBatch() throws Exception {
+        sysConfig.setBatching(3, 0);
+
+        queue.put(execute(1));
+        handler.started.await(5, TimeUnit.SECONDS);
+        queue.put(execute(2));
+        queue.put(execute(3));
+        queue.putControl(configure(4));
+        queue.put(execute(5));
+        handler.blocker.countDown();
+
+        executionPool.shutdown();
+        executionPool.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertThat(handler.calls, contains("1", "4", "2,3,5"));
+    }
+
+
+    @Test
+    public void controlRequestIsAcceptedWhenQueueIsFull() throws Exception {
+        queue.put(execute(1));
+        handler.started.await(5, TimeUnit.SECONDS);
+        for (int i = 2; i <= 11; i++) {
+            queue.put(execute(i));
+        }
+        queue.putControl(configure(12));
+        handler.blocker.countDown();
+
+        executionPool.shutdown();
+        executionPool.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertThat(handler.calls.size(), is(12));
+        assertThat(handler.calls.get(1), is("12"));
+    }
+
+
+    @Test
+    public void offerRejectsRequestWhenQueueIsFull() throws Exception {
+        queue.put(execute(1));
+        handler.started.await(5, TimeUnit.SECONDS);
+        for (int i = 2; i <= 11; i++) {
+            assertThat(queue.offer(execute(i)), is(true));
+        }
+        assertThat(queue.offer(execute(12)), is(false));
+        handler.blocker.countDown();
+
+        executionPool.shutdown();
+        executionPool.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertThat(handler.calls.size(), is(11));
+    }
+
+
+    @Test
+    public void tryRunProcessesRequestInCallingThread() throws Exception {
+        handler.blocker.countDown();
+
+        assertThat(queue.tryRun(execute(1)), is(true));
+        assertThat(handler.calls, contains("1"));
+    }
+
+
+    @Test
+    public void tryRunRejectsRequestWhenEnginesAreBusy() throws Exception {
+        queue.put(execute(1));
+        handler.started.await(5, TimeUnit.SECONDS);
+
+        assertThat(queue.tryRun(execute(2)), is(false));
+        handler.blocker.countDown();
+
+        executionPool.shutdown();
+        executionPool.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertThat(handler.calls, contains("1"));
+    }
+
+
+    @Test
+    public void tryRunRejectsRequestWhenLaneIsAtCap() throws Exception {
+        ServiceScheduler scheduler = new ServiceScheduler(2);
+        try {
+            ServiceScheduler.Lane lane = scheduler.newLane("S1", 1, 1);
+            queue = new DispatchQueue("10.1.1.1_java:cont:Engine", 10,
+                                      new ServiceEngine[] {mock(ServiceEngine.class),
+                                                           mock(ServiceEngine.class)},
+                                      lane, sysConfig, sysReport,
+                                      handler);
+
+            queue.put(execute(1));
+            handler.started.await(5, TimeUnit.SECONDS);
+
+            assertThat(queue.idleEngines(), is(1));
+            assertThat(queue.tryRun(execute(2)), is(false));
+
+            handler.blocker.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (lane.running() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertThat(queue.tryRun(execute(3)), is(true));
+            assertThat(lane.running(), is(0));
+            assertThat(handler.calls, contains("1", "3"));
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+
+    @Test
+    public void removeIdleEngine() throws Exception {
+        queue.removeEngines(1);
+
+        assertThat(handler.removed, is(1));
+        assertThat(queue.idleEngines(), is(0));
+    }
+
+
+    @Test
+    public void busyEngineIsRemovedWithoutDroppingRequests() throws Exception {
+        queue.put(execute(1));
+        handler.started.await(5, TimeUnit.SECONDS);
+        queue.put(execute(2));
+        queue.removeEngines(1);
+        handler.blocker.countDown();
+
+        queue.addEngine(mock(ServiceEngine.class));
+
+        executionPool.shutdown();
+        executionPool.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertThat(handler.calls, contains("1", "2"));
+        assertThat(handler.removed, is(1));
+    }
+
+
+    @Test
+    public void retiredEngineIsRemovedAfterCurrentRequest() throws Exception {
+        ServiceEngine engine = mock(ServiceEngine.class);
+        queue.removeEngines(1);
+        queue.addEngine(engine);
+
+        queue.put(execute(1));
+        handler.started.await(5, TimeUnit.SECONDS);
+        queue.put(execute(2));
+
+        assertThat(queue.retireEngine(engine), is(true));
+        assertThat(queue.retireEngine(engine), is(false));
+
+        queue.addEngine(mock(ServiceEngine.class));
+        handler.blocker.countDown();
+
+        executionPool.shutdown();
+        executionPool.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertThat(handler.calls, contains("1", "2"));
+        assertThat(handler.removed, is(2));
+    }
+
+
+    @Test
+    public void idleEngineCannotBeRetired() throws Exception {
+        ServiceEngine engine = mock(ServiceEngine.class);
+        queue.addEngine(engine);
+
+        assertThat(queue.retireEngine(engine), is(false));
+    }
+
+
+    @Test
+    public void engineYieldsSharedThreadAfterQuantum() throws Exception {
+        ServiceScheduler scheduler = new ServiceScheduler(1);
+        try {
+            ServiceScheduler.Lane lane = scheduler.newLane("S1", 0, 1);
+            ServiceScheduler.Lane otherLane = scheduler.newLane("S2", 0, 1);
+            queue = new DispatchQueue("10.1.1.1_java:cont:Engine", 100,
+                                      new ServiceEngine[] {mock(ServiceEngine.class)},
+                                      lane, sysConfig, sysReport,
+                                      handler);
+
+            int quantum = ServiceScheduler.DEFAULT_QUANTUM;
+            queue.put(execute(1));
+            handler.started.await(5, TimeUnit.SECONDS);
+            for (int i = 2; i <= 2 * quantum; i++) {
+                queue.put(execute(i));
+            }
+            otherLane.execute(() -> handler.calls.add("other"));
+            handler.blocker.countDown();
+
+            lane.shutdown();
+            lane.awaitTermination(5, TimeUnit.SECONDS);
+
+            assertThat(handler.calls.size(), is(2 * quantum + 1));
+            assertThat(handler.calls.get(quantum), is("other"));
+            assertThat(handler.calls.get(quantum + 1), is(String.valueOf(quantum + 1)));
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+
+    @Test
+    public void engineWaitingForBatchDoesNotHoldSharedThread() throws Exception {
+        ServiceScheduler scheduler = new ServiceScheduler(1);
+        try {
+            ServiceScheduler.Lane lane = scheduler.newLane("S1", 0, 1);
+            ServiceScheduler.Lane otherLane = scheduler.newLane("S2", 0, 1);
+            queue = new DispatchQueue("10.1.1.1_java:cont:Engine", 10,
+                                      new ServiceEngine[] {mock(ServiceEngine.class)},
+                                      lane, sysConfig, sysReport,
+                                      handler);
+            sysConfig.setBatching(3, 5_000_000);
+            handler.blocker.countDown();
+
+            queue.put(execute(1));
+            CountDownLatch otherDone = new CountDownLatch(1);
+            otherLane.execute(otherDone::countDown);
+
+            assertThat(otherDone.await(2, TimeUnit.SECONDS), is(true));
+
+            queue.put(execute(2));
+            queue.put(execute(3));
+            lane.shutdown();
+            lane.awaitTermination(5, TimeUnit.SECONDS);
+
+            assertThat(handler.calls, contains("1,2,3"));
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+
+    @Test
+    public void controlRequestWakesUpEngineWaitingForBatchInSharedThread() throws Exception {
+        ServiceScheduler scheduler = new ServiceScheduler(1);
+        try {
+            ServiceScheduler.Lane lane = scheduler.newLane("S1", 0, 1);
+            queue = new DispatchQueue("10.1.1.1_java:cont:Engine", 10,
+                                      new ServiceEngine[] {mock(ServiceEngine.class)},
+                                      lane, sysConfig, sysReport,
+                                      handler);
+            sysConfig.setBatching(3, 5_000_000);
+            handler.blocker.countDown();
+
+            queue.put(execute(1));
+            queue.put(execute(2));
+            Thread.sleep(100);
+            queue.putControl(configure(3));
+            lane.shutdown();
+
+            assertThat(lane.awaitTermination(2, TimeUnit.SECONDS), is(true));
+            assertThat(handler.calls, contains("1,2", "3"));
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+
+    private void dispatchAll(xMsgMessage... msgs) throws Exception {
+        // the first request blocks the engine until all others are queued
+        queue.put(execute(1));
+        handler.started.await(5, TimeUnit.SECONDS);
+        for (xMsgMessage msg : msgs) {
+            queue.put(msg);
+        }
+        handler.blocker.countDown();
+
+        executionPool.shutdown();
+        executionPool.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+
+    private static xMsgMessage execute(int id) {
+        return request(id, xMsgMeta.ControlAction.EXECUTE);
+    }
+
+
+    private static xMsgMessage configure(int id) {
+        return request(id, xMsgMeta.ControlAction.CONFIGURE);
+    }
+
+
+    private static xMsgMessage request(int id, xMsgMeta.ControlAction action) {
+        xMsgMeta.Builder meta = xMsgMeta.newBuilder();
+        meta.setCommunicationId(id);
+        meta.setAction(action);
+        return new xMsgMessage(xMsgTopic.wrap("test"), meta, new byte[0]);
+    }
+
+
+    private static String ids(List<xMsgMessage> msgs) {
+        return msgs.stream()
+                   .map(m -> String.valueOf(m.getMetaData().getCommunicationId()))
+                   .collect(Collectors.joining(","));
+    }
+
+
+    private static class TestHandler implements DispatchQueue.RequestHandler {
+
+        private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch blocker = new CountDownLatch(1);
+        private volatile int removed;
+
+        @Override
+        public void handle(ServiceEngine engine, xMsgMessage msg) {
+            handleGroup(engine, Arrays.asList(msg));
+        }
+
+        @Override
+        public void handleGroup(ServiceEngine engine, List<xMsgMessage> msgs) {
+            calls.add(ids(msgs));
+            started.countDown();
+            try {
+                blocker.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public synchronized void remove(ServiceEngine engine) {
+            removed++;
+        }
+    }
+}
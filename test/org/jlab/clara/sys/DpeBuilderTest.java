@@ -187,6 +187,48 @@ public class DpeBuilderTest {
         assertThat(builder.reportPeriod, is(20_000L));
     }
 
+    @Test
+    public void dpeUsesDefaultMaxQueueSize() throws Exception {
+        Builder builder = new Builder();
+
+        assertThat(builder.maxQueueSize, is(Dpe.DEFAULT_MAX_QUEUE_SIZE));
+    }
+
+    @Test
+    public void dpeReceivesOptionalMaxQueueSize() throws Exception {
+        Builder builder = new Builder().withMaxQueueSize(64);
+
+        assertThat(builder.maxQueueSize, is(64));
+    }
+
+    @Test
+    public void dpeDoesNotAutoScaleByDefault() throws Exception {
+        Builder builder = new Builder();
+
+        assertThat(builder.autoScale, is(false));
+    }
+
+    @Test
+    public void dpeReceivesOptionalAutoScale() throws Exception {
+        Builder builder = new Builder().withAutoScaling();
+
+        assertThat(builder.autoScale, is(true));
+    }
+
+    @Test
+    public void dpeUsesDefaultSharedMemoryMaxAge() throws Exception {
+        Builder builder = new Builder();
+
+        assertThat(builder.sharedMemoryMaxAge, is(Dpe.DEFAULT_SHARED_MEMORY_MAX_AGE));
+    }
+
+    @Test
+    public void dpeReceivesOptionalSharedMemoryMaxAge() throws Exception {
+        Builder builder = new Builder().withSharedMemoryMaxAge(5, TimeUnit.MINUTES);
+
+        assertThat(builder.sharedMemoryMaxAge, is(300_000L));
+    }
+
 
     private xMsgProxyAddress proxy(String host) throws Exception {
         return new xMsgProxyAddress(host, Dpe.DEFAULT_PROXY_PORT);
@@ -47,6 +47,10 @@ public class DpeOptionsParserTest {
     private static final String POOL_OPT = "--poolsize";
     private static final String CORES_OPT = "--max-cores";
     private static final String REPORT_OPT = "--report";
+    private static final String QUEUE_OPT = "--max-queue";
+    private static final String AUTOSCALE_OPT = "--autoscale";
+    private static final String SHARED_POOL_OPT = "--shared-pool";
+    private static final String SHM_AGE_OPT = "--shm-max-age";
 
     private static final String SOCKETS_OPT = "--max-sockets";
     private static final String IO_THREADS_OPT = "--io-threads";
@@ -218,6 +222,62 @@ public class DpeOptionsParserTest {
         assertThat(parser.config().reportPeriod(), is(20_000L));
     }
 
+    @Test
+    public void dpeUsesDefaultMaxQueueSize() throws Exception {
+        parse();
+
+        assertThat(parser.config().maxQueueSize(), is(Dpe.DEFAULT_MAX_QUEUE_SIZE));
+    }
+
+    @Test
+    public void dpeReceivesOptionalMaxQueueSize() throws Exception {
+        parse(QUEUE_OPT, "64");
+
+        assertThat(parser.config().maxQueueSize(), is(64));
+    }
+
+    @Test
+    public void dpeDoesNotAutoScaleByDefault() throws Exception {
+        parse();
+
+        assertThat(parser.config().autoScale(), is(false));
+    }
+
+    @Test
+    public void dpeReceivesOptionalAutoScale() throws Exception {
+        parse(AUTOSCALE_OPT);
+
+        assertThat(parser.config().autoScale(), is(true));
+    }
+
+    @Test
+    public void dpeUsesDedicatedPoolsByDefault() throws Exception {
+        parse();
+
+        assertThat(parser.config().sharedPool(), is(false));
+    }
+
+    @Test
+    public void dpeReceivesOptionalSharedPool() throws Exception {
+        parse(SHARED_POOL_OPT);
+
+        assertThat(parser.config().sharedPool(), is(true));
+    }
+
+    @Test
+    public void dpeUsesDefaultSharedMemoryMaxAge() throws Exception {
+        parse();
+
+        assertThat(parser.config().sharedMemoryMaxAge(), is(Dpe.DEFAULT_SHARED_MEMORY_MAX_AGE));
+    }
+
+    @Test
+    public void dpeReceivesOptionalSharedMemoryMaxAge() throws Exception {
+        parse(SHM_AGE_OPT, "300");
+
+        assertThat(parser.config().sharedMemoryMaxAge(), is(300_000L));
+    }
+
     @Test
     public void dpeUsesDefaultMaxSockets() throws Exception {
         parse();
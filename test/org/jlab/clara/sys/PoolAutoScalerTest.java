@@ -0,0 +1,108 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.sys;
+
+import org.jlab.clara.util.report.ServiceReport;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PoolAutoScalerTest {
+
+    @Test
+    public void growPoolWhenRequestsAreQueued() throws Exception {
+        assertThat(PoolAutoScaler.nextPoolSize(4, 2, 8, 10, 0, 50.0), is(5));
+    }
+
+    @Test
+    public void growPoolWhenCpuUsageIsUnknown() throws Exception {
+        assertThat(PoolAutoScaler.nextPoolSize(4, 2, 8, 10, 0, Double.NaN), is(5));
+    }
+
+    @Test
+    public void doNotGrowPoolWhenCpuIsSaturated() throws Exception {
+        assertThat(PoolAutoScaler.nextPoolSize(4, 2, 8, 10, 0, 95.0), is(4));
+    }
+
+    @Test
+    public void doNotGrowPoolOverMaxSize() throws Exception {
+        assertThat(PoolAutoScaler.nextPoolSize(8, 2, 8, 10, 0, 50.0), is(8));
+    }
+
+    @Test
+    public void doNotGrowPoolWithIdleEngines() throws Exception {
+        assertThat(PoolAutoScaler.nextPoolSize(4, 2, 8, 10, 1, 50.0), is(4));
+    }
+
+    @Test
+    public void shrinkPoolWhenEnginesAreIdle() throws Exception {
+        assertThat(PoolAutoScaler.nextPoolSize(4, 2, 8, 0, 2, 50.0), is(3));
+    }
+
+    @Test
+    public void doNotShrinkPoolUnderMinSize() throws Exception {
+        assertThat(PoolAutoScaler.nextPoolSize(2, 2, 8, 0, 2, 50.0), is(2));
+    }
+
+    @Test
+    public void keepPoolWithSingleIdleEngine() throws Exception {
+        assertThat(PoolAutoScaler.nextPoolSize(4, 2, 8, 0, 1, 50.0), is(4));
+    }
+
+    @Test
+    public void failedResizeDoesNotStopOtherServices() throws Exception {
+        Service failed = idleService("failed");
+        Service other = idleService("other");
+        doThrow(new IllegalStateException("no engine")).when(failed).resize(3);
+        PoolAutoScaler scaler = new PoolAutoScaler(() -> Arrays.asList(failed, other),
+                                                   PoolAutoScaler.DEFAULT_PERIOD);
+
+        scaler.run();
+
+        verify(failed).resize(3);
+        verify(other).resize(3);
+    }
+
+
+    private static Service idleService(String name) {
+        ServiceReport report = mock(ServiceReport.class);
+        when(report.getName()).thenReturn(name);
+        when(report.getQueueSize()).thenReturn(0);
+
+        Service service = mock(Service.class);
+        when(service.getReport()).thenReturn(report);
+        when(service.getPoolSize()).thenReturn(4);
+        when(service.getInitialPoolSize()).thenReturn(2);
+        when(service.getMaxPoolSize()).thenReturn(8);
+        when(service.getIdleEngines()).thenReturn(2);
+        return service;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.sys;
+
+import org.jlab.clara.base.core.ClaraComponent;
+import org.jlab.clara.base.core.DataUtil;
+import org.jlab.clara.engine.Engine;
+import org.jlab.clara.engine.EngineData;
+import org.jlab.clara.engine.EngineDataType;
+import org.jlab.clara.engine.EngineStatus;
+import org.jlab.clara.util.report.ServiceReport;
+import org.jlab.coda.xmsg.core.xMsgMessage;
+import org.jlab.coda.xmsg.core.xMsgTopic;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ReportChannelTest {
+
+    private ServiceActor actor;
+    private ServiceReport sysReport;
+
+    @Before
+    public void setUp() throws Exception {
+        ClaraComponent service = ClaraComponent.service("10.1.1.1_java:cont:Engine");
+        actor = mock(ServiceActor.class);
+        sysReport = new ServiceReport(service, mock(Engine.class), "");
+    }
+
+
+    @Test
+    public void pendingDoneReportsAreCoalesced() throws Exception {
+        ReportChannel channel = new ReportChannel(10);
+        ReportChannel.Reporter reporter = channel.newReporter(actor, sysReport);
+        List<Integer> counts = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            reporter.publishDone(done(), data -> {
+                counts.add(DataUtil.getDoneCount(data));
+                return message();
+            });
+        }
+        channel.publishNext();
+        reporter.publishDone(done(), data -> {
+            counts.add(DataUtil.getDoneCount(data));
+            return message();
+        });
+        channel.publishNext();
+
+        assertThat(counts, contains(3, 1));
+        assertThat(sysReport.getReportsCoalesced(), is(2L));
+        verify(actor, times(2)).send(any(), any());
+    }
+
+
+    @Test
+    public void reportsAreDroppedWhenChannelIsFull() throws Exception {
+        ReportChannel channel = new ReportChannel(2);
+        ReportChannel.Reporter reporter = channel.newReporter(actor, sysReport);
+
+        assertThat(reporter.publish(message()), is(true));
+        assertThat(reporter.publish(message()), is(true));
+        assertThat(reporter.publish(message()), is(false));
+
+        assertThat(channel.size(), is(2));
+        assertThat(sysReport.getReportsDropped(), is(1L));
+    }
+
+
+    @Test
+    public void repeatedProblemsAreSuppressed() throws Exception {
+        ReportChannel channel = new ReportChannel(10);
+        ReportChannel.Reporter reporter = channel.newReporter(actor, sysReport);
+
+        assertThat(reporter.isRepeatedProblem(error("bad event")), is(false));
+        assertThat(reporter.isRepeatedProblem(error("bad event")), is(true));
+        assertThat(reporter.isRepeatedProblem(error("bad file")), is(false));
+        assertThat(reporter.isRepeatedProblem(error("bad event")), is(true));
+
+        assertThat(sysReport.getReportsSuppressed(), is(2L));
+    }
+
+
+    @Test
+    public void backgroundThreadPublishesReports() throws Exception {
+        ReportChannel channel = new ReportChannel(10);
+        ReportChannel.Reporter reporter = channel.newReporter(actor, sysReport);
+        channel.start();
+        try {
+            reporter.publish(message());
+            reporter.publish(message());
+
+            verify(actor, timeout(5000).times(2)).send(any(), any());
+        } finally {
+            channel.stop();
+        }
+    }
+
+
+    private static EngineData done() {
+        EngineData data = new EngineData();
+        data.setData(EngineDataType.STRING.mimeType(), "done");
+        return data;
+    }
+
+
+    private static EngineData error(String description) {
+        EngineData data = new EngineData();
+        data.setStatus(EngineStatus.ERROR);
+        data.setDescription(description);
+        return data;
+    }
+
+
+    private static xMsgMessage message() {
+        return new xMsgMessage(xMsgTopic.wrap("done:test"), "text/string", new byte[0]);
+    }
+}
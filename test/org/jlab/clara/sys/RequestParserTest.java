@@ -0,0 +1,73 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+package org.jlab.clara.sys;
+
+import org.jlab.clara.base.core.MessageUtil;
+import org.jlab.clara.sys.RequestParser.RequestException;
+import org.jlab.coda.xmsg.core.xMsgMessage;
+import org.jlab.coda.xmsg.core.xMsgTopic;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class RequestParserTest {
+
+    @Test
+    public void parseValuesOfEveryType() throws Exception {
+        RequestParser parser = parse(MessageUtil.buildData("setup", 10, 3_000_000_000L));
+
+        assertThat(parser.nextString(), is("setup"));
+        assertThat(parser.nextInteger(), is(10));
+        assertThat(parser.nextLong(), is(3_000_000_000L));
+    }
+
+    @Test
+    public void missingValuesUseDefaults() throws Exception {
+        RequestParser parser = parse(MessageUtil.buildData("setup"));
+
+        assertThat(parser.nextString(), is("setup"));
+        assertThat(parser.nextInteger(1), is(1));
+        assertThat(parser.nextLong(2), is(2L));
+        assertThat(parser.nextString("none"), is("none"));
+    }
+
+    @Test(expected = RequestException.class)
+    public void integerOverflowIsRejected() throws Exception {
+        RequestParser parser = parse(MessageUtil.buildData(3_000_000_000L));
+
+        parser.nextInteger();
+    }
+
+    @Test(expected = RequestException.class)
+    public void invalidLongIsRejected() throws Exception {
+        RequestParser parser = parse(MessageUtil.buildData("ten"));
+
+        parser.nextLong();
+    }
+
+    private static RequestParser parse(String data) throws Exception {
+        xMsgTopic topic = xMsgTopic.wrap("10.1.1.1_java:cont:Engine");
+        return RequestParser.build(new xMsgMessage(topic, "text/string", data.getBytes()));
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.sys;
+
+import org.jlab.clara.base.core.ClaraComponent;
+import org.jlab.clara.engine.Engine;
+import org.jlab.clara.util.report.ServiceReport;
+import org.jlab.coda.xmsg.core.xMsgConnection;
+import org.jlab.coda.xmsg.core.xMsgConnectionPool;
+import org.jlab.coda.xmsg.core.xMsgMessage;
+import org.jlab.coda.xmsg.core.xMsgTopic;
+import org.jlab.coda.xmsg.excp.xMsgException;
+import org.jlab.coda.xmsg.net.xMsgProxyAddress;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ServiceActorTest {
+
+    private static final xMsgProxyAddress PROXY1 = new xMsgProxyAddress("10.1.1.1");
+    private static final xMsgProxyAddress PROXY2 = new xMsgProxyAddress("10.1.1.2");
+
+    private final List<xMsgConnection> connections = new ArrayList<>();
+
+    private xMsgConnectionPool pool;
+    private ServiceSysConfig sysConfig;
+    private ServiceReport sysReport;
+    private ServiceActor actor;
+
+    @Before
+    public void setUp() throws Exception {
+        pool = mock(xMsgConnectionPool.class);
+        when(pool.getConnection(any())).thenAnswer(i -> {
+            xMsgConnection con = mock(xMsgConnection.class);
+            connections.add(con);
+            return con;
+        });
+
+        ClaraComponent service = ClaraComponent.service("10.1.1.1_java:cont:Engine");
+        sysConfig = new ServiceSysConfig(service.getCanonicalName(), "undefined");
+        sysReport = new ServiceReport(service, mock(Engine.class), "");
+        actor = new ServiceActor(service, ClaraComponent.dpe(),
+                                 new ConnectionPools(pool, mock(xMsgConnectionPool.class)),
+                                 sysConfig, sysReport);
+    }
+
+
+    @Test
+    public void everyMessageChecksOutConnectionByDefault() throws Exception {
+        sendAll(PROXY1, PROXY1, PROXY2);
+
+        assertThat(sysReport.getConnectionCheckouts(), is(3L));
+        assertThat(sysReport.getConnectionReuses(), is(0L));
+        assertThat(sysReport.getCheckoutLatency().count(), is(3L));
+        for (xMsgConnection con : connections) {
+            verify(con).close();
+        }
+    }
+
+
+    @Test
+    public void persistentConnectionsAreReusedPerProxy() throws Exception {
+        sysConfig.setPersistentConnections(true);
+
+        sendAll(PROXY1, PROXY1, PROXY2, PROXY1, PROXY2);
+
+        assertThat(sysReport.getConnectionCheckouts(), is(2L));
+        assertThat(sysReport.getConnectionReuses(), is(3L));
+        for (xMsgConnection con : connections) {
+            verify(con, times(0)).close();
+        }
+    }
+
+
+    @Test
+    public void releaseClosesPersistentConnections() throws Exception {
+        sysConfig.setPersistentConnections(true);
+        sendAll(PROXY1, PROXY2);
+
+        actor.releaseConnections();
+        sendAll(PROXY1);
+
+        assertThat(sysReport.getConnectionCheckouts(), is(3L));
+        for (xMsgConnection con : connections) {
+            verify(con).close();
+        }
+    }
+
+
+    @Test
+    public void disablingPersistentConnectionsClosesThem() throws Exception {
+        sysConfig.setPersistentConnections(true);
+        sendAll(PROXY1);
+
+        sysConfig.setPersistentConnections(false);
+        sendAll(PROXY1);
+
+        assertThat(sysReport.getConnectionCheckouts(), is(2L));
+        for (xMsgConnection con : connections) {
+            verify(con).close();
+        }
+    }
+
+
+    @Test
+    public void failedPersistentConnectionIsDestroyed() throws Exception {
+        sysConfig.setPersistentConnections(true);
+        sendAll(PROXY1);
+
+        xMsgConnection failed = connections.get(0);
+        doThrow(new xMsgException("broken")).when(failed).publish(any());
+        sendAll(PROXY1, PROXY1);
+
+        assertThat(sysReport.getConnectionCheckouts(), is(2L));
+        assertThat(sysReport.getConnectionFailures(), is(1L));
+        verify(failed).destroy();
+        verify(failed, never()).close();
+        verify(connections.get(1), times(2)).publish(any());
+    }
+
+
+    private void sendAll(xMsgProxyAddress... addresses) throws Exception {
+        for (xMsgProxyAddress address : addresses) {
+            actor.send(address, new xMsgMessage(xMsgTopic.wrap("test"), "text/string",
+                                                new byte[0]));
+        }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+package org.jlab.clara.sys;
+
+import org.jlab.clara.base.core.ClaraComponent;
+import org.jlab.clara.base.core.ClaraConstants;
+import org.jlab.clara.base.core.DataUtil;
+import org.jlab.clara.engine.ByteBufferPool;
+import org.jlab.clara.engine.Engine;
+import org.jlab.clara.engine.EngineData;
+import org.jlab.clara.engine.EngineDataType;
+import org.jlab.clara.engine.EngineStatus;
+import org.jlab.clara.util.report.ServiceReport;
+import org.jlab.coda.xmsg.core.xMsgMessage;
+import org.jlab.coda.xmsg.core.xMsgTopic;
+import org.jlab.coda.xmsg.data.xMsgM.xMsgMeta;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ServiceEngineTest {
+
+    private static final String NAME = "10.1.1.1_java:cont:Engine";
+    private static final Set<EngineDataType> TYPES = Collections.singleton(EngineDataType.STRING);
+
+    private ServiceActor actor;
+    private ServiceSysConfig sysConfig;
+    private ServiceReport sysReport;
+    private ReportChannel channel;
+
+    @Before
+    public void setUp() throws Exception {
+        ClaraComponent service = ClaraComponent.service(NAME);
+        actor = mock(ServiceActor.class);
+        when(actor.getName()).thenReturn(NAME);
+        sysConfig = new ServiceSysConfig(NAME, "undefined");
+        sysConfig.setPrototypeEngine(true);
+        sysReport = new ServiceReport(service, mock(Engine.class), "");
+        channel = new ReportChannel(10);
+    }
+
+
+    @Test
+    public void configurationIsPropagatedToOtherPrototypeEngines() throws Exception {
+        Engine userEngine1 = userEngine();
+        Engine userEngine2 = userEngine();
+        ServiceEngine engine1 = serviceEngine(userEngine1);
+        ServiceEngine engine2 = serviceEngine(userEngine2);
+
+        engine1.configure(request(xMsgMeta.ControlAction.CONFIGURE, "config"));
+
+        verify(userEngine1).configure(any());
+        verify(userEngine2, never()).configure(any());
+
+        engine2.execute(request(xMsgMeta.ControlAction.EXECUTE, "event1"));
+        engine2.execute(request(xMsgMeta.ControlAction.EXECUTE, "event2"));
+
+        ArgumentCaptor<EngineData> config = ArgumentCaptor.forClass(EngineData.class);
+        InOrder order = inOrder(userEngine2);
+        order.verify(userEngine2).configure(config.capture());
+        order.verify(userEngine2, times(2)).execute(any());
+        assertThat(config.getValue().getData(), is("config"));
+        verify(userEngine1, times(1)).configure(any());
+    }
+
+
+    @Test
+    public void failedPropagatedConfigurationIsReportedAsError() throws Exception {
+        Engine userEngine1 = userEngine();
+        Engine userEngine2 = userEngine();
+        ServiceEngine engine1 = serviceEngine(userEngine1);
+        ServiceEngine engine2 = serviceEngine(userEngine2);
+
+        EngineData error = new EngineData();
+        error.setStatus(EngineStatus.ERROR);
+        error.setDescription("bad configuration");
+        when(userEngine2.configure(any())).thenReturn(error);
+
+        engine1.configure(request(xMsgMeta.ControlAction.CONFIGURE, "config"));
+        engine2.execute(request(xMsgMeta.ControlAction.EXECUTE, "event1"));
+
+        verify(userEngine2).execute(any());
+        assertThat(channel.size(), is(1));
+
+        channel.publishNext();
+
+        ArgumentCaptor<xMsgMessage> report = ArgumentCaptor.forClass(xMsgMessage.class);
+        verify(actor).send(any(), report.capture());
+        xMsgMeta.Builder meta = report.getValue().getMetaData();
+        assertThat(report.getValue().getTopic().toString(), startsWith(ClaraConstants.ERROR));
+        assertThat(meta.getAction(), is(xMsgMeta.ControlAction.CONFIGURE));
+        assertThat(meta.getDescription(), is("bad configuration"));
+    }
+
+
+    @Test
+    public void failedGroupExecutionIsNotRecorded() throws Exception {
+        sysConfig.setPrototypeEngine(false);
+        Engine userEngine = userEngine();
+        when(userEngine.executeGroup(any())).thenThrow(new IllegalStateException("bad group"));
+        ServiceEngine engine = serviceEngine(userEngine);
+
+        engine.executeGroup(Arrays.asList(request(xMsgMeta.ControlAction.EXECUTE, "event1"),
+                                          request(xMsgMeta.ControlAction.EXECUTE, "event2")));
+
+        assertThat(sysReport.getExecutionLatency().count(), is(0L));
+        assertThat(sysReport.getExecutionTime(), is(0L));
+    }
+
+
+    @Test
+    public void overrunIsReportedOncePerExecution() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Engine userEngine = userEngine();
+        when(userEngine.execute(any())).thenAnswer(i -> {
+            started.countDown();
+            release.await();
+            return i.getArguments()[0];
+        });
+        ServiceEngine engine = serviceEngine(userEngine);
+        long deadline = TimeUnit.MILLISECONDS.toNanos(10);
+
+        assertThat(engine.checkOverrun(System.nanoTime() + 2 * deadline, deadline), is(false));
+
+        Thread thread = new Thread(() -> {
+            try {
+                engine.execute(request(xMsgMeta.ControlAction.EXECUTE, "event1"));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        thread.start();
+        assertThat(started.await(2, TimeUnit.SECONDS), is(true));
+
+        assertThat(engine.checkOverrun(System.nanoTime(), deadline), is(false));
+        assertThat(engine.checkOverrun(System.nanoTime() + 2 * deadline, deadline), is(true));
+        assertThat(engine.checkOverrun(System.nanoTime() + 3 * deadline, deadline), is(false));
+
+        release.countDown();
+        thread.join(2000);
+
+        assertThat(engine.checkOverrun(System.nanoTime() + 2 * deadline, deadline), is(false));
+        assertThat(channel.size(), is(1));
+
+        channel.publishNext();
+
+        ArgumentCaptor<xMsgMessage> report = ArgumentCaptor.forClass(xMsgMessage.class);
+        verify(actor).send(any(), report.capture());
+        assertThat(report.getValue().getTopic().toString(), startsWith(ClaraConstants.OVERRUN));
+    }
+
+
+    @Test
+    public void localMessagesDoNotShareMetadata() throws Exception {
+        String receiver1 = "10.1.1.1_java:cont:Receiver1";
+        String receiver2 = "10.1.1.1_java:cont:Receiver2";
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        DispatchQueue.RequestHandler handler = mock(DispatchQueue.RequestHandler.class);
+        LocalServices.register(receiver1, localQueue(receiver1, pool, handler));
+        LocalServices.register(receiver2, localQueue(receiver2, pool, handler));
+        try {
+            EngineData[] output = new EngineData[1];
+            Engine userEngine = userEngine();
+            when(userEngine.execute(any())).thenAnswer(i -> {
+                output[0] = (EngineData) i.getArguments()[0];
+                return output[0];
+            });
+            ServiceEngine engine = serviceEngine(userEngine);
+
+            xMsgMessage request = request(xMsgMeta.ControlAction.EXECUTE, "event1");
+            request.getMetaData().clearReplyTo();
+            request.getMetaData().setComposition(NAME + "+" + receiver1 + "," + receiver2 + ";");
+            engine.execute(request);
+
+            pool.shutdown();
+            assertThat(pool.awaitTermination(2, TimeUnit.SECONDS), is(true));
+
+            ArgumentCaptor<xMsgMessage> sent = ArgumentCaptor.forClass(xMsgMessage.class);
+            verify(handler, times(2)).handle(any(), sent.capture());
+            xMsgMeta.Builder meta1 = sent.getAllValues().get(0).getMetaData();
+            xMsgMeta.Builder meta2 = sent.getAllValues().get(1).getMetaData();
+            assertThat(meta1, is(not(sameInstance(meta2))));
+            assertThat(meta1, is(not(sameInstance(DataUtil.getMetadata(output[0])))));
+            assertThat(meta2, is(not(sameInstance(DataUtil.getMetadata(output[0])))));
+        } finally {
+            LocalServices.deregister(receiver1);
+            LocalServices.deregister(receiver2);
+            pool.shutdownNow();
+        }
+    }
+
+
+    @Test
+    public void expiredSharedMemoryDataIsReportedAsError() throws Exception {
+        Engine userEngine = userEngine();
+        ServiceEngine engine = serviceEngine(userEngine);
+        SharedMemory.addReceiver(NAME);
+        try {
+            xMsgMeta.Builder meta = xMsgMeta.newBuilder();
+            meta.setDataType(ClaraConstants.SHARED_MEMORY_KEY);
+            meta.setSender("10.1.1.1_java:cont:Sender");
+            meta.setCommunicationId(7);
+            meta.setAction(xMsgMeta.ControlAction.EXECUTE);
+            meta.setComposition(NAME + ";");
+            meta.setReplyTo("ret:orchestrator:1");
+            engine.execute(new xMsgMessage(xMsgTopic.wrap(NAME), meta, new byte[] {0}));
+        } finally {
+            SharedMemory.removeReceiver(NAME);
+        }
+
+        verify(userEngine, never()).execute(any());
+
+        ArgumentCaptor<xMsgMessage> response = ArgumentCaptor.forClass(xMsgMessage.class);
+        verify(actor).send(response.capture());
+        EngineData data = DataUtil.deserialize(response.getValue(), TYPES);
+        assertThat(data.getStatus(), is(EngineStatus.ERROR));
+        assertThat((String) data.getData(), startsWith("shared-memory data expired"));
+    }
+
+
+    private Engine userEngine() {
+        Engine engine = mock(Engine.class);
+        when(engine.getInputDataTypes()).thenReturn(TYPES);
+        when(engine.getOutputDataTypes()).thenReturn(TYPES);
+        when(engine.getVersion()).thenReturn("1.0");
+        when(engine.execute(any())).thenAnswer(i -> i.getArguments()[0]);
+        return engine;
+    }
+
+
+    private ServiceEngine serviceEngine(Engine engine) {
+        ReportChannel.Reporter reporter = channel.newReporter(actor, sysReport);
+        return new ServiceEngine(engine, actor, sysConfig, sysReport, reporter,
+                                 new ByteBufferPool(2));
+    }
+
+
+    private DispatchQueue localQueue(String name,
+                                     ExecutorService pool,
+                                     DispatchQueue.RequestHandler handler) {
+        ServiceSysConfig config = new ServiceSysConfig(name, "undefined");
+        return new DispatchQueue(name, 10, new ServiceEngine[] {mock(ServiceEngine.class)},
+                                 pool, config, sysReport, handler);
+    }
+
+
+    private static xMsgMessage request(xMsgMeta.ControlAction action, String value)
+            throws Exception {
+        EngineData data = new EngineData();
+        data.setData(EngineDataType.STRING.mimeType(), value);
+        xMsgTopic topic = xMsgTopic.wrap(NAME);
+        xMsgMessage msg = DataUtil.serialize(topic, data, TYPES);
+        msg.getMetaData().setAction(action);
+        msg.getMetaData().setComposition(NAME + ";");
+        msg.getMetaData().setReplyTo("ret:orchestrator:1");
+        return msg;
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.sys;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ServiceSchedulerTest {
+
+    private ServiceScheduler scheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        scheduler = new ServiceScheduler(4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        scheduler.stop();
+    }
+
+
+    @Test
+    public void laneRunsAllTasks() throws Exception {
+        ServiceScheduler.Lane lane = scheduler.newLane("S1", 0, 1);
+        AtomicInteger counter = new AtomicInteger();
+
+        for (int i = 0; i < 100; i++) {
+            lane.execute(counter::incrementAndGet);
+        }
+        lane.shutdown();
+
+        assertThat(lane.awaitTermination(5, TimeUnit.SECONDS), is(true));
+        assertThat(counter.get(), is(100));
+    }
+
+
+    @Test
+    public void laneParksTasksAboveConcurrencyCap() throws Exception {
+        ServiceScheduler.Lane lane = scheduler.newLane("S1", 2, 1);
+        CountDownLatch blocker = new CountDownLatch(1);
+        ConcurrencyCounter counter = new ConcurrencyCounter(blocker);
+
+        for (int i = 0; i < 5; i++) {
+            lane.execute(counter);
+        }
+
+        assertThat(lane.running(), is(2));
+        assertThat(lane.pending(), is(3));
+
+        counter.started.await(5, TimeUnit.SECONDS);
+        blocker.countDown();
+        lane.shutdown();
+
+        assertThat(lane.awaitTermination(5, TimeUnit.SECONDS), is(true));
+        assertThat(counter.calls.get(), is(5));
+        assertThat(counter.maxRunning.get(), is(2));
+    }
+
+
+    @Test
+    public void raisingConcurrencyCapSubmitsParkedTasks() throws Exception {
+        ServiceScheduler.Lane lane = scheduler.newLane("S1", 1, 1);
+        CountDownLatch blocker = new CountDownLatch(1);
+        ConcurrencyCounter counter = new ConcurrencyCounter(blocker);
+
+        for (int i = 0; i < 3; i++) {
+            lane.execute(counter);
+        }
+        lane.setMaxConcurrency(3);
+
+        assertThat(lane.running(), is(3));
+        assertThat(lane.pending(), is(0));
+
+        blocker.countDown();
+    }
+
+
+    @Test
+    public void busyLaneDoesNotBlockOtherLanes() throws Exception {
+        ServiceScheduler.Lane busy = scheduler.newLane("S1", 0, 1);
+        ServiceScheduler.Lane idle = scheduler.newLane("S2", 0, 1);
+        CountDownLatch blocker = new CountDownLatch(1);
+        for (int i = 0; i < 3; i++) {
+            busy.execute(() -> await(blocker));
+        }
+
+        CountDownLatch done = new CountDownLatch(1);
+        idle.execute(done::countDown);
+
+        assertThat(done.await(5, TimeUnit.SECONDS), is(true));
+        blocker.countDown();
+    }
+
+
+    @Test(expected = RejectedExecutionException.class)
+    public void shutdownLaneRejectsNewTasks() throws Exception {
+        ServiceScheduler.Lane lane = scheduler.newLane("S1", 0, 1);
+        lane.shutdown();
+
+        lane.execute(() -> { });
+    }
+
+
+    @Test
+    public void shutdownLaneRunsParkedTasks() throws Exception {
+        ServiceScheduler.Lane lane = scheduler.newLane("S1", 1, 1);
+        CountDownLatch blocker = new CountDownLatch(1);
+        ConcurrencyCounter counter = new ConcurrencyCounter(blocker);
+
+        for (int i = 0; i < 3; i++) {
+            lane.execute(counter);
+        }
+        lane.shutdown();
+
+        assertThat(lane.isTerminated(), is(false));
+
+        blocker.countDown();
+
+        assertThat(lane.awaitTermination(5, TimeUnit.SECONDS), is(true));
+        assertThat(counter.calls.get(), is(3));
+    }
+
+
+    @Test
+    public void shutdownNowDropsParkedTasks() throws Exception {
+        ServiceScheduler.Lane lane = scheduler.newLane("S1", 1, 1);
+        CountDownLatch blocker = new CountDownLatch(1);
+        ConcurrencyCounter counter = new ConcurrencyCounter(blocker);
+
+        for (int i = 0; i < 3; i++) {
+            lane.execute(counter);
+        }
+
+        assertThat(lane.shutdownNow().size(), is(2));
+
+        blocker.countDown();
+
+        assertThat(lane.awaitTermination(5, TimeUnit.SECONDS), is(true));
+        assertThat(counter.calls.get(), is(1));
+    }
+
+
+    @Test
+    public void quantumIsProportionalToWeight() throws Exception {
+        assertThat(scheduler.newLane("S1", 0, 1).quantum(),
+                   is(ServiceScheduler.DEFAULT_QUANTUM));
+        assertThat(scheduler.newLane("S2", 0, 3).quantum(),
+                   is(3 * ServiceScheduler.DEFAULT_QUANTUM));
+    }
+
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    private static class ConcurrencyCounter implements Runnable {
+
+        private final CountDownLatch blocker;
+        private final CountDownLatch started = new CountDownLatch(2);
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxRunning = new AtomicInteger();
+        private final AtomicInteger calls = new AtomicInteger();
+
+        ConcurrencyCounter(CountDownLatch blocker) {
+            this.blocker = blocker;
+        }
+
+        @Override
+        public void run() {
+            int current = running.incrementAndGet();
+            maxRunning.accumulateAndGet(current, Math::max);
+            started.countDown();
+            await(blocker);
+            running.decrementAndGet();
+            calls.incrementAndGet();
+        }
+    }
+}
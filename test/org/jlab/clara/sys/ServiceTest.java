@@ -0,0 +1,309 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+package org.jlab.clara.sys;
+
+import org.jlab.clara.base.core.ClaraComponent;
+import org.jlab.clara.base.core.ClaraConstants;
+import org.jlab.clara.base.core.DataUtil;
+import org.jlab.clara.engine.Engine;
+import org.jlab.clara.engine.EngineData;
+import org.jlab.clara.engine.EngineDataType;
+import org.jlab.clara.engine.WarmUpSource;
+import org.jlab.coda.xmsg.core.xMsgConnectionPool;
+import org.jlab.coda.xmsg.core.xMsgMessage;
+import org.jlab.coda.xmsg.core.xMsgTopic;
+import org.jlab.coda.xmsg.data.xMsgM.xMsgMeta;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+
+public class ServiceTest {
+
+    private static final String NAME = "10.1.1.1_java:cont:Engine";
+
+    private ServiceSysConfig sysConfig;
+    private Service service;
+
+    @Before
+    public void setUp() throws Exception {
+        SlotEngine.INSTANCES.clear();
+        SlotEngine.started = new CountDownLatch(1);
+        SlotEngine.release = new CountDownLatch(1);
+        SlotEngine.executed = new CountDownLatch(1);
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        SlotEngine.release.countDown();
+        if (service != null) {
+            service.end();
+        }
+    }
+
+
+    @Test
+    public void sharedModeUsesSingleEngineForAllSlots() throws Exception {
+        createService(3, false);
+
+        assertThat(SlotEngine.INSTANCES.size(), is(1));
+
+        service.resize(4);
+
+        assertThat(SlotEngine.INSTANCES.size(), is(1));
+    }
+
+
+    @Test
+    public void prototypeModeUsesOneEnginePerSlot() throws Exception {
+        createService(3, true);
+
+        assertThat(SlotEngine.INSTANCES.size(), is(3));
+
+        service.resize(4);
+
+        assertThat(SlotEngine.INSTANCES.size(), is(4));
+    }
+
+
+    @Test
+    public void sharedEngineIsNotDestroyedWhenSlotsAreRemoved() throws Exception {
+        createService(3, false);
+
+        service.resize(1);
+
+        assertThat(destroyedEngines(), is(0L));
+    }
+
+
+    @Test
+    public void prototypeEnginesAreDestroyedWhenSlotsAreRemoved() throws Exception {
+        createService(3, true);
+
+        service.resize(1);
+
+        assertThat(destroyedEngines(), is(2L));
+    }
+
+
+    @Test
+    public void sharedEngineIsWarmedUpOnce() throws Exception {
+        createService(3, false);
+        sysConfig.setWarmUp(new WarmUp(5, 0, ClaraConstants.UNDEFINED, ClaraConstants.UNDEFINED));
+
+        service.warmUp();
+        service.resize(4);
+
+        assertThat(SlotEngine.INSTANCES.get(0).warmUps, is(5));
+        assertThat(service.getReport().getWarmUpRequests(), is(5));
+    }
+
+
+    @Test
+    public void everyPrototypeEngineIsWarmedUp() throws Exception {
+        createService(3, true);
+        sysConfig.setWarmUp(new WarmUp(5, 0, ClaraConstants.UNDEFINED, ClaraConstants.UNDEFINED));
+
+        service.warmUp();
+        service.resize(4);
+
+        assertThat(SlotEngine.INSTANCES.size(), is(4));
+        for (SlotEngine engine : SlotEngine.INSTANCES) {
+            assertThat(engine.warmUps, is(5));
+        }
+        assertThat(service.getReport().getWarmUpRequests(), is(20));
+    }
+
+
+    @Test
+    public void stuckEngineIsReportedOnceAndReplaced() throws Exception {
+        createService(1, false);
+        sysConfig.setExecutionDeadline(1, true);
+
+        service.execute(request(SlotEngine.STUCK));
+        assertThat(SlotEngine.started.await(2, TimeUnit.SECONDS), is(true));
+        Thread.sleep(10);
+
+        service.checkDeadline();
+        service.checkDeadline();
+
+        assertThat(service.getReport().getOverrunCount(), is(1));
+        assertThat(service.getIdleEngines(), is(1));
+
+        service.execute(request("event"));
+
+        assertThat(SlotEngine.executed.await(2, TimeUnit.SECONDS), is(true));
+        assertThat(service.getReport().getOverrunCount(), is(1));
+    }
+
+
+    @Test
+    public void stuckEngineIsNotReplacedByDefault() throws Exception {
+        createService(1, false);
+        sysConfig.setExecutionDeadline(1, false);
+
+        service.execute(request(SlotEngine.STUCK));
+        assertThat(SlotEngine.started.await(2, TimeUnit.SECONDS), is(true));
+        Thread.sleep(10);
+
+        service.checkDeadline();
+
+        assertThat(service.getReport().getOverrunCount(), is(1));
+        assertThat(service.getIdleEngines(), is(0));
+    }
+
+
+    private void createService(int poolSize, boolean isPrototype) throws Exception {
+        ClaraComponent comp = ClaraComponent.service("10.1.1.1", ClaraConstants.JAVA_PORT,
+                                                     ClaraConstants.JAVA_LANG, "cont", "Engine",
+                                                     SlotEngine.class.getName(), poolSize,
+                                                     "slot engine", ClaraConstants.UNDEFINED);
+        sysConfig = new ServiceSysConfig(comp.getCanonicalName(), ClaraConstants.UNDEFINED);
+        sysConfig.setPrototypeEngine(isPrototype);
+        ConnectionPools pools = new ConnectionPools(mock(xMsgConnectionPool.class),
+                                                    mock(xMsgConnectionPool.class));
+        service = new Service(comp, sysConfig, ClaraComponent.dpe(), pools,
+                              new ReportChannel(10), null, new DpeConfig(4, 3, 10, 100), "");
+    }
+
+
+    private xMsgMessage request(String value) throws Exception {
+        EngineData data = new EngineData();
+        data.setData(EngineDataType.STRING.mimeType(), value);
+        xMsgTopic topic = xMsgTopic.wrap(NAME);
+        xMsgMessage msg = DataUtil.serialize(topic, data, SlotEngine.TYPES);
+        msg.getMetaData().setAction(xMsgMeta.ControlAction.EXECUTE);
+        msg.getMetaData().setComposition(NAME + ";");
+        return msg;
+    }
+
+
+    private static long destroyedEngines() {
+        return SlotEngine.INSTANCES.stream().filter(e -> e.destroyed).count();
+    }
+
+
+    public static class SlotEngine implements Engine, WarmUpSource {
+
+        static final List<SlotEngine> INSTANCES = new CopyOnWriteArrayList<>();
+        static final String STUCK = "stuck";
+        static final String WARM_UP = "warm-up";
+
+        static final Set<EngineDataType> TYPES = Collections.singleton(EngineDataType.STRING);
+
+        static volatile CountDownLatch started;
+        static volatile CountDownLatch release;
+        static volatile CountDownLatch executed;
+
+        private volatile boolean destroyed;
+        private volatile int warmUps;
+
+        public SlotEngine() {
+            INSTANCES.add(this);
+        }
+
+        @Override
+        public EngineData configure(EngineData input) {
+            return null;
+        }
+
+        @Override
+        public EngineData execute(EngineData input) {
+            if (WARM_UP.equals(input.getData())) {
+                warmUps++;
+            } else if (STUCK.equals(input.getData())) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else {
+                executed.countDown();
+            }
+            return input;
+        }
+
+        @Override
+        public EngineData getWarmUpData() {
+            EngineData data = new EngineData();
+            data.setData(EngineDataType.STRING.mimeType(), WARM_UP);
+            return data;
+        }
+
+        @Override
+        public EngineData executeGroup(Set<EngineData> inputs) {
+            return null;
+        }
+
+        @Override
+        public Set<EngineDataType> getInputDataTypes() {
+            return TYPES;
+        }
+
+        @Override
+        public Set<EngineDataType> getOutputDataTypes() {
+            return TYPES;
+        }
+
+        @Override
+        public Set<String> getStates() {
+            return null;
+        }
+
+        @Override
+        public String getDescription() {
+            return "slot engine";
+        }
+
+        @Override
+        public String getVersion() {
+            return "1.0";
+        }
+
+        @Override
+        public String getAuthor() {
+            return "tester";
+        }
+
+        @Override
+        public void reset() {
+        }
+
+        @Override
+        public void destroy() {
+            destroyed = true;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.sys;
+
+import org.jlab.clara.engine.EngineData;
+import org.jlab.clara.sys.SharedMemory.DataStore;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class SharedMemoryTest {
+
+    private static final String RECEIVER = "10.1.1.1_java:cont:Receiver";
+    private static final String SENDER = "10.1.1.1_java:cont:Sender";
+
+    @After
+    public void tearDown() throws Exception {
+        SharedMemory.removeReceiver(RECEIVER);
+    }
+
+
+    @Test
+    public void dataIsTakenOnlyOnce() throws Exception {
+        SharedMemory.addReceiver(RECEIVER);
+        EngineData data = new EngineData();
+
+        SharedMemory.putEngineData(RECEIVER, SENDER, 12, data);
+
+        assertThat(SharedMemory.getEngineData(RECEIVER, SENDER, 12), is(sameInstance(data)));
+        assertThat(SharedMemory.getEngineData(RECEIVER, SENDER, 12), is(nullValue()));
+    }
+
+
+    @Test
+    public void dataIsKeyedBySenderAndId() throws Exception {
+        SharedMemory.addReceiver(RECEIVER);
+        EngineData data1 = new EngineData();
+        EngineData data2 = new EngineData();
+        EngineData data3 = new EngineData();
+
+        SharedMemory.putEngineData(RECEIVER, SENDER, 1, data1);
+        SharedMemory.putEngineData(RECEIVER, SENDER, 2, data2);
+        SharedMemory.putEngineData(RECEIVER, "10.1.1.1_java:cont:Other", 1, data3);
+
+        assertThat(SharedMemory.getEngineData(RECEIVER, SENDER, 2), is(sameInstance(data2)));
+        assertThat(SharedMemory.getEngineData(RECEIVER, "10.1.1.1_java:cont:Other", 1),
+                   is(sameInstance(data3)));
+        assertThat(SharedMemory.getEngineData(RECEIVER, SENDER, 1), is(sameInstance(data1)));
+    }
+
+
+    @Test
+    public void putDataToMissingReceiverIsRejected() throws Exception {
+        assertThat(SharedMemory.putEngineData(RECEIVER, SENDER, 1, new EngineData()),
+                   is(false));
+    }
+
+
+    @Test
+    public void fullReceiverRejectsData() throws Exception {
+        SharedMemory.addReceiver(RECEIVER, 2);
+        long rejected = SharedMemory.rejectedCount();
+
+        assertThat(SharedMemory.putEngineData(RECEIVER, SENDER, 1, new EngineData()), is(true));
+        assertThat(SharedMemory.putEngineData(RECEIVER, SENDER, 2, new EngineData()), is(true));
+        assertThat(SharedMemory.putEngineData(RECEIVER, SENDER, 3, new EngineData()), is(false));
+
+        assertThat(SharedMemory.rejectedCount(), is(rejected + 1));
+    }
+
+
+    @Test
+    public void reapRemovesOldData() throws Exception {
+        SharedMemory.addReceiver(RECEIVER);
+        long leaked = SharedMemory.leakedCount();
+
+        SharedMemory.putEngineData(RECEIVER, SENDER, 1, new EngineData());
+        SharedMemory.putEngineData(RECEIVER, SENDER, 2, new EngineData());
+
+        assertThat(SharedMemory.reap(1, TimeUnit.HOURS), is(0));
+        assertThat(SharedMemory.reap(0, TimeUnit.NANOSECONDS), is(2));
+
+        assertThat(SharedMemory.leakedCount(), is(leaked + 2));
+        assertThat(SharedMemory.getEngineData(RECEIVER, SENDER, 1), is(nullValue()));
+    }
+
+
+    @Test
+    public void storeIsConsistentWithHashMap() throws Exception {
+        DataStore store = new DataStore(64);
+        Map<Long, EngineData> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 10_000; i++) {
+            long key = random.nextInt(100);
+            if (random.nextBoolean()) {
+                EngineData data = new EngineData();
+                boolean full = expected.size() >= 64 && !expected.containsKey(key);
+                assertThat(store.put(key, data, i), is(!full));
+                if (!full) {
+                    expected.put(key, data);
+                }
+            } else {
+                assertThat(store.remove(key), is(expected.remove(key)));
+            }
+            assertThat(store.size(), is(expected.size()));
+        }
+    }
+}
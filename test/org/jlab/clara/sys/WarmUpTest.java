@@ -0,0 +1,171 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.sys;
+
+import org.jlab.clara.base.core.ClaraConstants;
+import org.jlab.clara.base.error.ClaraException;
+import org.jlab.clara.engine.ClaraSerializer;
+import org.jlab.clara.engine.Engine;
+import org.jlab.clara.engine.EngineData;
+import org.jlab.clara.engine.EngineDataType;
+import org.jlab.clara.engine.EngineStatus;
+import org.jlab.clara.engine.WarmUpSource;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class WarmUpTest {
+
+    private static final EngineDataType TEXT = new EngineDataType("text/test",
+                                                                  new TextSerializer());
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    @Test
+    public void warmUpIsDisabledWithoutLimits() throws Exception {
+        assertThat(WarmUp.NONE.isEnabled(), is(false));
+        assertThat(warmUp(10, 0).isEnabled(), is(true));
+        assertThat(warmUp(0, 100).isEnabled(), is(true));
+    }
+
+
+    @Test
+    public void warmUpStopsAfterIterations() throws Exception {
+        Engine engine = sourceEngine();
+        when(engine.execute(any())).thenReturn(result(EngineStatus.INFO));
+
+        WarmUp.Result result = warmUp(20, 0).run(engine);
+
+        verify(engine, times(20)).execute(any());
+        assertThat(result.iterations, is(20));
+        assertThat(result.failures, is(0));
+    }
+
+
+    @Test
+    public void warmUpStopsAfterDuration() throws Exception {
+        Engine engine = sourceEngine();
+        when(engine.execute(any())).thenReturn(result(EngineStatus.INFO));
+
+        WarmUp.Result result = warmUp(0, 50).run(engine);
+
+        assertThat(result.iterations > 0, is(true));
+        assertThat(result.time >= 50_000, is(true));
+    }
+
+
+    @Test
+    public void warmUpCountsFailedExecutions() throws Exception {
+        Engine engine = sourceEngine();
+        when(engine.execute(any())).thenReturn(result(EngineStatus.ERROR))
+                                   .thenThrow(new IllegalStateException())
+                                   .thenReturn(result(EngineStatus.INFO));
+
+        WarmUp.Result result = warmUp(5, 0).run(engine);
+
+        assertThat(result.iterations, is(5));
+        assertThat(result.failures, is(2));
+    }
+
+
+    @Test
+    public void warmUpUsesRecordedSample() throws Exception {
+        File sample = folder.newFile("sample.dat");
+        Files.write(sample.toPath(), "sample event".getBytes(StandardCharsets.UTF_8));
+
+        Engine engine = mock(Engine.class);
+        when(engine.getInputDataTypes()).thenReturn(Collections.singleton(TEXT));
+        when(engine.execute(any())).thenReturn(result(EngineStatus.INFO));
+
+        WarmUp warmUp = new WarmUp(3, 0, TEXT.mimeType(), sample.getPath());
+        warmUp.run(engine);
+
+        ArgumentCaptor<EngineData> input = ArgumentCaptor.forClass(EngineData.class);
+        verify(engine, times(3)).execute(input.capture());
+        assertThat(input.getValue().getData(), is("sample event"));
+    }
+
+
+    @Test(expected = ClaraException.class)
+    public void warmUpFailsWithoutSample() throws Exception {
+        warmUp(10, 0).run(mock(Engine.class));
+    }
+
+
+    private static WarmUp warmUp(int iterations, long duration) {
+        return new WarmUp(iterations, duration, ClaraConstants.UNDEFINED,
+                          ClaraConstants.UNDEFINED);
+    }
+
+
+    private static Engine sourceEngine() {
+        Engine engine = mock(Engine.class, withSettings().extraInterfaces(WarmUpSource.class));
+        EngineData sample = new EngineData();
+        sample.setData(TEXT.mimeType(), "sample");
+        when(((WarmUpSource) engine).getWarmUpData()).thenReturn(sample);
+        return engine;
+    }
+
+
+    private static EngineData result(EngineStatus status) {
+        EngineData data = new EngineData();
+        data.setData(TEXT.mimeType(), "result");
+        data.setStatus(status);
+        return data;
+    }
+
+
+    private static class TextSerializer implements ClaraSerializer {
+
+        @Override
+        public ByteBuffer write(Object data) throws ClaraException {
+            return ByteBuffer.wrap(((String) data).getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Object read(ByteBuffer buffer) throws ClaraException {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+package org.jlab.clara.sys.ccc;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContainingInAnyOrder;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class CompiledCompositionTest {
+
+    private static final String S1 = "10.10.10.1_java:C:S1";
+    private static final String S2 = "10.10.10.1_java:C:S2";
+
+    private final String conditional = "10.10.10.1_java:C:S1;"
+            + "if (10.10.10.1_java:C:S1 == \"FOO\") { "
+            + "  10.10.10.1_java:C:S1+10.10.10.1_java:C:S2;"
+            + "} elseif (10.10.10.1_java:C:S1 == \"BAR\" && "
+            + "          10.10.10.1_java:C:S2 == \"BAZ\") { "
+            + "  10.10.10.1_java:C:S1+10.10.10.1_java:C:S3;"
+            + "} elseif (10.10.10.1_java:C:S2 != \"FROZ\") { "
+            + "  10.10.10.1_java:C:S1+10.10.10.1_java:C:S4;"
+            + "} else {"
+            + "  10.10.10.1_java:C:S1+10.10.10.1_java:C:S5;"
+            + "}";
+
+    @Test
+    public void unconditionalLinksAreConstant() throws Exception {
+        CompiledComposition cc = CompiledComposition.compile(S1 + "+" + S2 + ";", S1);
+
+        String[] links1 = cc.getLinks(S1, "FOO", "WHATEVER", "");
+        String[] links2 = cc.getLinks(S1, "BAR", S2, "BAZ");
+
+        assertThat(links1, arrayContainingInAnyOrder(S2));
+        assertThat(links2, is(sameInstance(links1)));
+    }
+
+    @Test
+    public void destinationsAreResolvedOnce() throws Exception {
+        String s3 = "10.10.10.2_cpp:C:S3";
+        CompiledComposition cc = CompiledComposition.compile(S1 + "+" + S2 + "," + s3 + ";", S1);
+
+        Destination[] dest1 = cc.getDestinations(S1, "FOO", "WHATEVER", "");
+        Destination[] dest2 = cc.getDestinations(S1, "BAR", S2, "BAZ");
+
+        assertThat(dest2, is(sameInstance(dest1)));
+        assertThat(dest1.length, is(2));
+
+        Destination local = dest1[0].name().equals(S2) ? dest1[0] : dest1[1];
+        Destination remote = local == dest1[0] ? dest1[1] : dest1[0];
+
+        assertThat(local.name(), is(S2));
+        assertThat(local.topic().toString(), is(S2));
+        assertThat(local.isSharedMemory(), is(true));
+        assertThat(local.isSameHost(), is(true));
+
+        assertThat(remote.name(), is(s3));
+        assertThat(remote.isSharedMemory(), is(false));
+        assertThat(remote.isSameHost(), is(false));
+    }
+
+    @Test
+    public void conditionalDestinationsMatchLinks() throws Exception {
+        CompiledComposition cc = CompiledComposition.compile(conditional, S1);
+
+        String[] states = {"FOO", "BAR", "OTHER"};
+        for (String ownerState : states) {
+            for (String inputState : states) {
+                String[] links = cc.getLinks(S1, ownerState, S2, inputState);
+                Destination[] dest = cc.getDestinations(S1, ownerState, S2, inputState);
+                String[] names = Arrays.stream(dest)
+                                       .map(Destination::name)
+                                       .toArray(String[]::new);
+                assertThat(names, is(links));
+            }
+        }
+    }
+
+    @Test
+    public void lastServiceHasNoLinks() throws Exception {
+        CompiledComposition cc = CompiledComposition.compile(S1 + "+" + S2 + ";", S2);
+
+        assertThat(cc.getLinks(S2, "", S1, ""), is(emptyArray()));
+    }
+
+    @Test
+    public void conditionalLinksMatchCompiler() throws Exception {
+        CompositionCompiler compiler = new CompositionCompiler(S1);
+        compiler.compile(conditional);
+        CompiledComposition cc = CompiledComposition.compile(conditional, S1);
+
+        String[] names = {S1, S2, "WHATEVER"};
+        String[] states = {"FOO", "BAR", "BAZ", "FROZ", "OTHER"};
+        for (String ownerState : states) {
+            for (String inputName : names) {
+                for (String inputState : states) {
+                    ServiceState owner = new ServiceState(S1, ownerState);
+                    ServiceState input = new ServiceState(inputName, inputState);
+
+                    Set<String> expected = compiler.getLinks(owner, input);
+                    String[] links = cc.getLinks(S1, ownerState, inputName, inputState);
+
+                    assertThat(new HashSet<>(Arrays.asList(links)), is(expected));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.sys.ccc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the time to compile realistic CLAS12 reconstruction compositions,
+ * for every service of the composition, as each service of the chain does
+ * when it receives a new composition.
+ * <p>
+ * Run it with {@code gradle compositionBenchmark}.
+ */
+public final class CompositionBenchmark {
+
+    private static final String DPE = "10.1.1.10_java:clas12:";
+
+    private static final String[] ENGINES = {
+        "ReaderService", "MAGFIELDS", "FTCAL", "FTHODO", "FTEB", "DCCR", "DCHB",
+        "FTOFHB", "EC", "CVT", "CTOF", "CND", "BAND", "HTCC", "LTCC", "RICH",
+        "RTPC", "EBHB", "DCTB", "FTOFTB", "EBTB", "EBTBFILTER", "HISTOS", "WriterService",
+    };
+
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int ROUNDS = 10_000;
+
+    private int sink;
+
+    private CompositionBenchmark() { }
+
+    public static void main(String[] args) throws Exception {
+        CompositionBenchmark benchmark = new CompositionBenchmark();
+        String linear = linearComposition();
+        String conditional = conditionalComposition();
+
+        benchmark.run(linear, WARMUP_ROUNDS);
+        benchmark.run(conditional, WARMUP_ROUNDS);
+
+        double linearTime = benchmark.run(linear, ROUNDS);
+        double conditionalTime = benchmark.run(conditional, ROUNDS);
+
+        System.out.printf("linear chain (%d services):      %8.2f us/compilation%n",
+                          ENGINES.length, linearTime);
+        System.out.printf("conditional chain (%d services): %8.2f us/compilation%n",
+                          ENGINES.length, conditionalTime);
+        if (benchmark.sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private double run(String composition, int rounds) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (String engine : ENGINES) {
+                CompositionCompiler compiler = new CompositionCompiler(DPE + engine);
+                compiler.compile(composition);
+                sink += compiler.getInstructions().size();
+            }
+        }
+        long end = System.nanoTime();
+        return (end - start) / 1e3 / ((double) rounds * ENGINES.length);
+    }
+
+    /**
+     * The full reconstruction chain, from the reader to the writer.
+     */
+    static String linearComposition() {
+        List<String> services = new ArrayList<>();
+        for (String engine : ENGINES) {
+            services.add(DPE + engine);
+        }
+        return String.join("+", services) + ";";
+    }
+
+    /**
+     * The reconstruction chain with filters routing the events of
+     * some detectors through different branches, depending on the states
+     * of the services.
+     */
+    static String conditionalComposition() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < ENGINES.length - 1; i++) {
+            String current = DPE + ENGINES[i];
+            String next = DPE + ENGINES[i + 1];
+            if (i % 4 == 3 && i + 2 < ENGINES.length) {
+                String skip = DPE + ENGINES[i + 2];
+                String writer = DPE + ENGINES[ENGINES.length - 1];
+                sb.append(String.format("if (%s == \"skip\" && %s != \"bad\") {%n",
+                                        current, next));
+                sb.append(String.format("    %s + %s;%n", current, skip));
+                sb.append(String.format("} elseif (%s == \"empty\" !! %s == \"bad\") {%n",
+                                        current, next));
+                sb.append(String.format("    %s + %s;%n", current, writer));
+                sb.append(String.format("} else {%n"));
+                sb.append(String.format("    %s + %s;%n", current, next));
+                sb.append(String.format("}%n"));
+            } else {
+                sb.append(String.format("%s + %s;%n", current, next));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+package org.jlab.clara.sys.ccc;
+
+import org.jlab.clara.base.error.ClaraException;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class CompositionCacheTest {
+
+    private static final String S1 = "10.10.10.1_java:C:S1";
+    private static final String S2 = "10.10.10.1_java:C:S2";
+
+    private final String composition = "10.10.10.1_java:C:S1+"
+                                     + "10.10.10.1_java:C:S2+"
+                                     + "10.10.10.1_java:C:S3;";
+
+    @Test
+    public void compiledCompositionHasLinks() throws Exception {
+        CompositionCache cache = new CompositionCache(10);
+
+        CompiledComposition cc = cache.get(composition, S1);
+
+        Set<String> expected = new HashSet<>(Arrays.asList(S2));
+        assertThat(cc.getUnconditionalLinks(), is(expected));
+    }
+
+    @Test
+    public void sameCompositionIsCompiledOnce() throws Exception {
+        CompositionCache cache = new CompositionCache(10);
+
+        CompiledComposition cc1 = cache.get(composition, S1);
+        CompiledComposition cc2 = cache.get(composition, S1);
+
+        assertThat(cc2, is(sameInstance(cc1)));
+        assertThat(cache.hits(), is(1L));
+        assertThat(cache.misses(), is(1L));
+    }
+
+    @Test
+    public void compositionIsCompiledForEachService() throws Exception {
+        CompositionCache cache = new CompositionCache(10);
+
+        CompiledComposition cc1 = cache.get(composition, S1);
+        CompiledComposition cc2 = cache.get(composition, S2);
+
+        assertThat(cc2, is(not(sameInstance(cc1))));
+        assertThat(cache.misses(), is(2L));
+    }
+
+    @Test
+    public void leastRecentlyUsedCompositionIsEvicted() throws Exception {
+        CompositionCache cache = new CompositionCache(2);
+        String other = "10.10.10.1_java:C:S1+10.10.10.1_java:C:S4;";
+        String another = "10.10.10.1_java:C:S1+10.10.10.1_java:C:S5;";
+
+        CompiledComposition cc1 = cache.get(composition, S1);
+        cache.get(other, S1);
+        cache.get(composition, S1);
+        cache.get(another, S1);
+
+        assertThat(cache.size(), is(2));
+        assertThat(cache.get(composition, S1), is(sameInstance(cc1)));
+        assertThat(cache.misses(), is(3L));
+
+        cache.get(other, S1);
+        assertThat(cache.misses(), is(4L));
+    }
+
+    @Test(expected = ClaraException.class)
+    public void invalidCompositionIsNotCached() throws Exception {
+        CompositionCache cache = new CompositionCache(10);
+
+        try {
+            cache.get(composition, "10.10.10.1_java:C:S6");
+        } finally {
+            assertThat(cache.size(), is(0));
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.sys.ccc;
+
+import org.jlab.clara.sys.ccc.CompositionAst.Branch;
+import org.jlab.clara.sys.ccc.CompositionAst.BranchType;
+import org.jlab.clara.sys.ccc.CompositionAst.Conditional;
+import org.jlab.clara.sys.ccc.CompositionAst.LogicOperator;
+import org.jlab.clara.sys.ccc.CompositionAst.Predicate;
+import org.jlab.clara.sys.ccc.CompositionAst.Program;
+import org.jlab.clara.sys.ccc.CompositionAst.RoutingStatement;
+import org.jlab.clara.sys.ccc.CompositionAst.Stage;
+import org.jlab.clara.sys.ccc.CompositionParser.SyntaxException;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
+
+public class CompositionParserTest {
+
+    private static final String S1 = "10.10.10.1_java:C:S1";
+    private static final String S2 = "10.10.10.1_java:C:S2";
+    private static final String S3 = "10.10.10.1%9999_java:C:S3";
+    private static final String S4 = "10.10.10.1_java:C:S4";
+
+    @Test
+    public void parseRoutingStatement() throws Exception {
+        Program program = CompositionParser.parse(S1 + " , " + S2 + " + &" + S3 + " + " + S4);
+
+        assertThat(program.elements().size(), is(1));
+
+        RoutingStatement statement = (RoutingStatement) program.elements().get(0);
+        Stage first = statement.stages().get(0);
+        Stage second = statement.stages().get(1);
+
+        assertThat(statement.stages().size(), is(3));
+        assertThat(first.services(), contains(S1, S2));
+        assertThat(first.isLogAnd(), is(false));
+        assertThat(second.services(), contains(S3));
+        assertThat(second.isLogAnd(), is(true));
+        assertThat(statement.indexOf(S4), is(2));
+        assertThat(statement.toString(), is(S1 + "," + S2 + "+&" + S3 + "+" + S4));
+    }
+
+    @Test
+    public void parseConditional() throws Exception {
+        String composition = S1 + "+" + S2 + ";\n"
+                           + "if (" + S2 + " == \"good\" && " + S3 + " != \"bad\") {\n"
+                           + "    " + S2 + "+" + S3 + ";\n"
+                           + "    " + S2 + "+" + S4 + ";\n"
+                           + "} elseif (" + S2 + " == \"empty\" !! " + S2 + " == \"skip\") {\n"
+                           + "    " + S2 + "+" + S4 + ";\n"
+                           + "} else {\n"
+                           + "    " + S2 + ";\n"
+                           + "}\n";
+
+        Program program = CompositionParser.parse(composition);
+
+        assertThat(program.elements().size(), is(2));
+        assertThat(program.elements().get(1), instanceOf(Conditional.class));
+
+        Conditional conditional = (Conditional) program.elements().get(1);
+        Branch ifBranch = conditional.branches().get(0);
+        Branch elseifBranch = conditional.branches().get(1);
+        Branch elseBranch = conditional.branches().get(2);
+
+        assertThat(conditional.line(), is(2));
+        assertThat(ifBranch.type(), is(BranchType.IF));
+        assertThat(ifBranch.statements().size(), is(2));
+        assertThat(ifBranch.condition().operator(), is(LogicOperator.AND));
+
+        Predicate predicate = ifBranch.condition().predicates().get(1);
+        assertThat(predicate.service(), is(S3));
+        assertThat(predicate.isEqual(), is(false));
+        assertThat(predicate.state(), is("bad"));
+
+        assertThat(elseifBranch.type(), is(BranchType.ELSEIF));
+        assertThat(elseifBranch.condition().operator(), is(LogicOperator.OR));
+        assertThat(elseifBranch.line(), is(5));
+        assertThat(elseifBranch.column(), is(3));
+
+        assertThat(elseBranch.type(), is(BranchType.ELSE));
+        assertThat(elseBranch.condition(), is(nullValue()));
+        assertThat(elseBranch.statements().size(), is(1));
+    }
+
+    @Test
+    public void parseSinglePredicateCondition() throws Exception {
+        String composition = "if (" + S1 + "==\"FOO\") {" + S1 + "+" + S2 + ";}";
+        Program program = CompositionParser.parse(composition);
+
+        Conditional conditional = (Conditional) program.elements().get(0);
+        Branch branch = conditional.branches().get(0);
+
+        assertThat(conditional.branches().size(), is(1));
+        assertThat(branch.condition().operator(), is(nullValue()));
+        assertThat(branch.condition().predicates().size(), is(1));
+    }
+
+    @Test
+    public void invalidServiceNameReportsPosition() throws Exception {
+        assertSyntaxError(S1 + "+\n    10.10.10.1:C:S2;", 2, 5, "invalid service name");
+    }
+
+    @Test
+    public void missingSemicolonReportsPosition() throws Exception {
+        assertSyntaxError(S1 + "+" + S2 + "\n" + S2 + "+" + S3 + ";", 2, 1, "expected ';'");
+    }
+
+    @Test
+    public void missingSemicolonInBlockReportsPosition() throws Exception {
+        assertSyntaxError("if (" + S1 + " == \"FOO\") {\n  " + S1 + "+" + S2 + "\n}", 3, 1,
+                          "expected ';' but found '}'");
+    }
+
+    @Test
+    public void mixedLogicOperatorsAreRejected() throws Exception {
+        String condition = S1 + " == \"A\" && " + S2 + " == \"B\" !! " + S3 + " == \"C\"";
+        String composition = "if (" + condition + ") { " + S1 + "+" + S2 + "; }";
+        int column = composition.indexOf("!!") + 1;
+
+        assertSyntaxError(composition, 1, column, "cannot mix");
+    }
+
+    @Test
+    public void nestedConditionalsAreRejected() throws Exception {
+        String composition = "if (" + S1 + " == \"A\") {\n"
+                           + "  if (" + S2 + " == \"B\") { " + S2 + "+" + S3 + "; }\n"
+                           + "}";
+
+        assertSyntaxError(composition, 2, 3, "nested conditionals are not supported");
+    }
+
+    @Test
+    public void unterminatedStateIsRejected() throws Exception {
+        String composition = "if (" + S1 + " == \"A) { " + S1 + "+" + S2 + "; }";
+        int column = composition.indexOf(')') + 1;
+
+        assertSyntaxError(composition, 1, column, "invalid character ')' in state");
+    }
+
+    @Test
+    public void elseWithoutIfIsRejected() throws Exception {
+        assertSyntaxError(S1 + "+" + S2 + ";\nelse { " + S1 + "; }", 2, 1, "'else' without 'if'");
+    }
+
+    @Test
+    public void logAndStageWithManyServicesIsRejected() throws Exception {
+        assertSyntaxError(S1 + "+&" + S2 + "," + S3 + ";", 1, S1.length() + 3, "single service");
+    }
+
+    @Test
+    public void emptyStateIsRejected() throws Exception {
+        assertSyntaxError("if (" + S1 + " == \"\") { " + S1 + "+" + S2 + "; }",
+                          1, S1.length() + 9, "empty state");
+    }
+
+    @Test
+    public void emptyCompositionIsRejected() throws Exception {
+        assertSyntaxError("  ;\n", 2, 1, "empty composition");
+    }
+
+    @Test
+    public void validateServiceNames() throws Exception {
+        assertThat(CompositionParser.isServiceName("10.1.1.1_java:cont:Engine"), is(true));
+        assertThat(CompositionParser.isServiceName("host%7000_cpp:c-1:E_2"), is(true));
+        assertThat(CompositionParser.isServiceName("10.1.1.1_java:cont"), is(false));
+        assertThat(CompositionParser.isServiceName("10.1.1.1_ruby:cont:Engine"), is(false));
+        assertThat(CompositionParser.isServiceName("10.1.1.1%_java:cont:Engine"), is(false));
+        assertThat(CompositionParser.isServiceName("10.1.1.1_java:cont:Eng:ine"), is(false));
+    }
+
+
+    private static void assertSyntaxError(String composition, int line, int column,
+                                          String message) {
+        try {
+            CompositionParser.parse(composition);
+            fail("no syntax error");
+        } catch (SyntaxException e) {
+            assertThat(e.getMessage(), containsString(message));
+            assertThat(e.line(), is(line));
+            assertThat(e.column(), is(column));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+package org.jlab.clara.util.report;
+
+import org.hamcrest.Matcher;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramReturnsZero() throws Exception {
+        LatencyHistogram h = new LatencyHistogram();
+
+        assertThat(h.count(), is(0L));
+        assertThat(h.percentile(99), is(0L));
+        assertThat(h.max(), is(0L));
+    }
+
+    @Test
+    public void smallValuesAreExact() throws Exception {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 10; i++) {
+            h.record(i);
+        }
+
+        assertThat(h.count(), is(10L));
+        assertThat(h.percentile(50), is(5L));
+        assertThat(h.percentile(90), is(9L));
+        assertThat(h.percentile(100), is(10L));
+    }
+
+    @Test
+    public void percentilesAreWithinRelativeError() throws Exception {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 100_000; i++) {
+            h.record(i);
+        }
+
+        assertThat(h.percentile(50), is(within(50_000)));
+        assertThat(h.percentile(99), is(within(99_000)));
+        assertThat(h.percentile(99.9), is(within(99_900)));
+        assertThat(h.max(), is(100_000L));
+    }
+
+    @Test
+    public void percentileIsBoundedByMaximum() throws Exception {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(1000);
+
+        assertThat(h.percentile(100), is(1000L));
+    }
+
+    @Test
+    public void bucketsCoverAllValues() throws Exception {
+        for (long v : new long[] {15, 16, 17, 31, 32, 33, 1023, 1024, 123_456_789}) {
+            int index = LatencyHistogram.bucketIndex(v);
+            assertThat(LatencyHistogram.highestValue(index), is(greaterThanOrEqualTo(v)));
+            if (index > 0) {
+                assertThat(LatencyHistogram.highestValue(index - 1), is(lessThan(v)));
+            }
+        }
+    }
+
+    @Test
+    public void mergeAddsAllCounts() throws Exception {
+        LatencyHistogram h1 = new LatencyHistogram();
+        LatencyHistogram h2 = new LatencyHistogram();
+        h1.record(10);
+        h2.record(20);
+        h2.record(5000);
+
+        LatencyHistogram merged = LatencyHistogram.merge(Arrays.asList(h1, h2));
+
+        assertThat(merged.count(), is(3L));
+        assertThat(merged.max(), is(5000L));
+        assertThat(merged.percentile(50), is(within(20)));
+    }
+
+    @Test
+    public void jsonSummaryKeepsBucketCounts() throws Exception {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            h.record(i);
+        }
+
+        LatencyHistogram copy = LatencyHistogram.fromJson(h.toJson());
+
+        assertThat(copy.count(), is(1000L));
+        assertThat(copy.max(), is(1000L));
+        assertThat(copy.percentile(50), is(h.percentile(50)));
+        assertThat(copy.percentile(99), is(h.percentile(99)));
+    }
+
+    @Test
+    public void subtractKeepsOnlyLaterValues() throws Exception {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 0; i < 100; i++) {
+            h.record(50_000);
+        }
+        LatencyHistogram earlier = LatencyHistogram.fromJson(h.toJson());
+        for (int i = 0; i < 100; i++) {
+            h.record(10);
+        }
+
+        h.subtract(earlier);
+
+        assertThat(h.count(), is(100L));
+        assertThat(h.percentile(99), is(10L));
+        assertThat(h.max(), is(10L));
+    }
+
+    private static Matcher<Long> within(long value) {
+        long error = value / 16;
+        return allOf(greaterThanOrEqualTo(value), lessThanOrEqualTo(value + error));
+    }
+}
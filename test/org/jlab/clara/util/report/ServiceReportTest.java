@@ -0,0 +1,78 @@
+/*
+ *   Copyright (c) 2017.  Jefferson Lab (JLab). All rights reserved. Permission
+ *   to use, copy, modify, and distribute  this software and its documentation for
+ *   educational, research, and not-for-profit purposes, without fee and without a
+ *   signed licensing agreement.
+ *
+ *   IN NO EVENT SHALL JLAB BE LIABLE TO ANY PARTY FOR DIRECT, INDIRECT, SPECIAL
+ *   INCIDENTAL, OR CONSEQUENTIAL DAMAGES, INCLUDING LOST PROFITS, ARISING
+ *   OUT OF THE USE OF THIS SOFTWARE AND ITS DOCUMENTATION, EVEN IF JLAB HAS
+ *   BEEN ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ *   JLAB SPECIFICALLY DISCLAIMS ANY WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ *   THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ *   PURPOSE. THE CLARA SOFTWARE AND ACCOMPANYING DOCUMENTATION, IF ANY,
+ *   PROVIDED HEREUNDER IS PROVIDED "AS IS". JLAB HAS NO OBLIGATION TO PROVIDE
+ *   MAINTENANCE, SUPPORT, UPDATES, ENHANCEMENTS, OR MODIFICATIONS.
+ *
+ *   This software was developed under the United States Government license.
+ *   For more information contact author at gurjyan@jlab.org
+ *   Department of Experimental Nuclear Physics, Jefferson Lab.
+ */
+
+
+package org.jlab.clara.util.report;
+
+import org.jlab.clara.base.core.ClaraComponent;
+import org.jlab.clara.engine.Engine;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+
+public class ServiceReportTest {
+
+    private final ServiceReport report = new ServiceReport(
+            ClaraComponent.service("10.1.1.1_java:cont:Engine"), mock(Engine.class), "");
+
+    @Test
+    public void latencyIsMergedFromAllEngines() throws Exception {
+        report.newExecutionHistogram().record(10);
+        report.newExecutionHistogram().record(20);
+
+        assertThat(report.getExecutionLatency().count(), is(2L));
+        assertThat(report.getExecutionLatency().max(), is(20L));
+    }
+
+    @Test
+    public void retiredEngineHistogramsKeepTheirCounts() throws Exception {
+        LatencyHistogram execution = report.newExecutionHistogram();
+        LatencyHistogram queue = report.newQueueHistogram();
+        LatencyHistogram serialization = report.newSerializationHistogram();
+        execution.record(10);
+        queue.record(5);
+        report.newExecutionHistogram().record(20);
+
+        report.retireEngineHistograms(execution, queue, serialization);
+        report.retireEngineHistograms(execution, queue, serialization);
+
+        assertThat(report.getExecutionLatency().count(), is(2L));
+        assertThat(report.getQueueLatency().count(), is(1L));
+        assertThat(report.getSerializationLatency().count(), is(0L));
+    }
+
+    @Test
+    public void retiredEngineHistogramsAreDetached() throws Exception {
+        LatencyHistogram execution = report.newExecutionHistogram();
+        execution.record(10);
+
+        report.retireEngineHistograms(execution,
+                                      report.newQueueHistogram(),
+                                      report.newSerializationHistogram());
+        execution.record(30);
+
+        assertThat(report.getExecutionLatency().count(), is(1L));
+        assertThat(report.getExecutionLatency().max(), is(10L));
+    }
+}